@@ -18,6 +18,7 @@ import org.folio.rest.persist.PgExceptionUtil;
 import org.folio.rest.persist.PostgresClient;
 import org.folio.rest.persist.cql.CQLWrapper;
 import org.folio.rest.tools.PomReader;
+import org.folio.support.EntityTag;
 import org.z3950.zing.cql.cql2pgjson.CQL2PgJSON;
 import org.z3950.zing.cql.cql2pgjson.FieldException;
 
@@ -190,7 +191,7 @@ public class CancellationReasonsAPI implements CancellationReasonStorage {
 
   @Override
   public void getCancellationReasonStorageCancellationReasonsByCancellationReasonId(
-      String cancellationReasonId, String lang, Map<String, String> okapiHeaders,
+      String cancellationReasonId, String ifNoneMatch, String lang, Map<String, String> okapiHeaders,
       Handler<AsyncResult<Response>> asyncResultHandler, Context vertxContext) {
     try {
       Criteria idCrit = new Criteria().setOperation("=")
@@ -210,9 +211,18 @@ public class CancellationReasonsAPI implements CancellationReasonStorage {
               GetCancellationReasonStorageCancellationReasonsByCancellationReasonIdResponse
                   .respond404WithTextPlain("No record with that id")));
           } else {
+            String entityTag = EntityTag.ofRecord(reasons.get(0));
+            if(EntityTag.matches(ifNoneMatch, entityTag)) {
+              asyncResultHandler.handle(Future.succeededFuture(
+                GetCancellationReasonStorageCancellationReasonsByCancellationReasonIdResponse
+                    .respond304()));
+              return;
+            }
            asyncResultHandler.handle(Future.succeededFuture(
               GetCancellationReasonStorageCancellationReasonsByCancellationReasonIdResponse
-                  .respond200WithApplicationJson(reasons.get(0))));
+                  .respond200WithApplicationJson(reasons.get(0),
+                    GetCancellationReasonStorageCancellationReasonsByCancellationReasonIdResponse
+                      .headersFor200().withETag(entityTag))));
           }
         }
       });
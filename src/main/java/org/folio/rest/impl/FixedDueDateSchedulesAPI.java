@@ -5,10 +5,10 @@ import io.vertx.core.logging.Logger;
 import io.vertx.core.logging.LoggerFactory;
 import org.apache.commons.io.IOUtils;
 import org.folio.rest.annotations.Validate;
+import org.folio.rest.jaxrs.model.DueDate;
 import org.folio.rest.jaxrs.model.Errors;
 import org.folio.rest.jaxrs.model.FixedDueDateSchedule;
 import org.folio.rest.jaxrs.model.FixedDueDateSchedules;
-import org.folio.rest.jaxrs.model.Schedule;
 import org.folio.rest.jaxrs.resource.FixedDueDateScheduleStorage;
 import org.folio.rest.persist.Criteria.Criteria;
 import org.folio.rest.persist.Criteria.Criterion;
@@ -22,6 +22,11 @@ import org.folio.rest.tools.PomReader;
 import org.folio.rest.tools.utils.OutStream;
 import org.folio.rest.tools.utils.TenantTool;
 import org.folio.rest.tools.utils.ValidationHelper;
+import org.folio.support.EntityTag;
+import org.folio.support.ExpiringCache;
+import org.folio.support.FixedDueDateScheduleIndex;
+import org.folio.support.FixedDueDateScheduleValidator;
+import org.joda.time.DateTime;
 import org.z3950.zing.cql.cql2pgjson.CQL2PgJSON;
 import org.z3950.zing.cql.cql2pgjson.FieldException;
 import org.z3950.zing.cql.cql2pgjson.SchemaException;
@@ -32,6 +37,8 @@ import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 import static org.folio.rest.impl.Headers.TENANT_HEADER;
 
@@ -40,7 +47,16 @@ public class FixedDueDateSchedulesAPI implements FixedDueDateScheduleStorage {
   private static final Logger       log               = LoggerFactory.getLogger(FixedDueDateSchedulesAPI.class);
   private static final String       SCHEMA_NAME       = "apidocs/raml/fixed-due-date-schedule.json";
   private static final String       FIXED_SCHEDULE_TABLE  = "fixed_due_date_schedule";
-  private static final String       INVALID_DATE_MSG  = "Unable to save fixed loan date. Date range not valid";
+
+  /**
+   * Due dates are chosen for every check out using a fixed schedule, yet schedules
+   * rarely change. Changes made through this instance are seen immediately, those
+   * made through other instances are seen once the cached schedule has expired.
+   * Schedules are cached separately for each tenant, so that deleting all of
+   * a tenant's schedules leaves those of other tenants cached
+   */
+  private static final Map<String, ExpiringCache<String, FixedDueDateScheduleIndex>> scheduleIndexes =
+    new ConcurrentHashMap<>();
 
   private static String             schema      =  null;
   private static final Class<FixedDueDateSchedule> DUE_DATE_SCHEDULE_CLASS = FixedDueDateSchedule.class;
@@ -80,6 +96,7 @@ public class FixedDueDateSchedulesAPI implements FixedDueDateScheduleStorage {
             String.format("DELETE FROM %s_%s.%s", tenantId,
               PomReader.INSTANCE.getModuleName(), FIXED_SCHEDULE_TABLE), reply -> {
                 if(reply.succeeded()){
+                  scheduleIndexesFor(tenantId).invalidateAll();
                   asyncResultHandler.handle(io.vertx.core.Future.succeededFuture(
                     FixedDueDateScheduleStorage
                       .DeleteFixedDueDateScheduleStorageFixedDueDateSchedulesResponse
@@ -194,8 +211,10 @@ public class FixedDueDateSchedulesAPI implements FixedDueDateScheduleStorage {
 
     try {
 
-      Errors errors = isDateRangeValid(entity.getSchedules());
+      Errors errors = FixedDueDateScheduleValidator.validate(entity.getSchedules());
       if(entity != null && errors != null){
+        log.info(String.format("%s date range problems in fixed due date schedule %s",
+          errors.getErrors().size(), entity.getId()));
         asyncResultHandler.handle(io.vertx.core.Future.succeededFuture(
           FixedDueDateScheduleStorage.PostFixedDueDateScheduleStorageFixedDueDateSchedulesResponse
               .respond422WithApplicationJson(errors)));
@@ -260,6 +279,7 @@ public class FixedDueDateSchedulesAPI implements FixedDueDateScheduleStorage {
   @Validate
   public void getFixedDueDateScheduleStorageFixedDueDateSchedulesByFixedDueDateScheduleId(
       String fixedDueDateScheduleId,
+      String ifNoneMatch,
       String lang,
       Map<String, String> okapiHeaders,
       Handler<AsyncResult<Response>> asyncResultHandler,
@@ -289,10 +309,20 @@ public class FixedDueDateSchedulesAPI implements FixedDueDateScheduleStorage {
 
                 if (dueDateSchedules.size() == 1) {
                   FixedDueDateSchedule dueDateSchedule = dueDateSchedules.get(0);
+                  String entityTag = EntityTag.ofRecord(dueDateSchedule);
+
+                  if (EntityTag.matches(ifNoneMatch, entityTag)) {
+                    asyncResultHandler.handle(Future.succeededFuture(
+                        FixedDueDateScheduleStorage.GetFixedDueDateScheduleStorageFixedDueDateSchedulesByFixedDueDateScheduleIdResponse
+                            .respond304()));
+                    return;
+                  }
 
                   asyncResultHandler.handle(io.vertx.core.Future.succeededFuture(
                       FixedDueDateScheduleStorage.GetFixedDueDateScheduleStorageFixedDueDateSchedulesByFixedDueDateScheduleIdResponse
-                          .respond200WithApplicationJson(dueDateSchedule)));
+                          .respond200WithApplicationJson(dueDateSchedule,
+                              FixedDueDateScheduleStorage.GetFixedDueDateScheduleStorageFixedDueDateSchedulesByFixedDueDateScheduleIdResponse
+                                  .headersFor200().withETag(entityTag))));
                 } else {
                   asyncResultHandler.handle(Future.succeededFuture(
                       FixedDueDateScheduleStorage.GetFixedDueDateScheduleStorageFixedDueDateSchedulesByFixedDueDateScheduleIdResponse
@@ -356,6 +386,7 @@ public class FixedDueDateSchedulesAPI implements FixedDueDateScheduleStorage {
         try {
           postgresClient.delete(FIXED_SCHEDULE_TABLE, criterion, reply -> {
             if (reply.succeeded()) {
+              scheduleIndexesFor(tenantId).invalidate(fixedDueDateScheduleId);
               asyncResultHandler.handle(Future.succeededFuture(
                   DeleteFixedDueDateScheduleStorageFixedDueDateSchedulesByFixedDueDateScheduleIdResponse
                       .respond204()));
@@ -408,8 +439,10 @@ public class FixedDueDateSchedulesAPI implements FixedDueDateScheduleStorage {
 
     try {
 
-      Errors errors = isDateRangeValid(entity.getSchedules());
+      Errors errors = FixedDueDateScheduleValidator.validate(entity.getSchedules());
       if(entity != null && errors != null){
+        log.info(String.format("%s date range problems in fixed due date schedule %s",
+          errors.getErrors().size(), entity.getId()));
         asyncResultHandler.handle(io.vertx.core.Future.succeededFuture(
           FixedDueDateScheduleStorage.PostFixedDueDateScheduleStorageFixedDueDateSchedulesResponse
               .respond422WithApplicationJson(errors)));
@@ -439,6 +472,7 @@ public class FixedDueDateSchedulesAPI implements FixedDueDateScheduleStorage {
                   postgresClient.update(FIXED_SCHEDULE_TABLE, entity, criterion, true, update -> {
                     try {
                       if (update.succeeded()) {
+                        scheduleIndexesFor(tenantId).invalidate(fixedDueDateScheduleId);
                         OutStream stream = new OutStream();
                         stream.setData(entity);
 
@@ -478,6 +512,7 @@ public class FixedDueDateSchedulesAPI implements FixedDueDateScheduleStorage {
                   postgresClient.save(FIXED_SCHEDULE_TABLE, entity.getId(), entity, save -> {
                     try {
                       if (save.succeeded()) {
+                        scheduleIndexesFor(tenantId).invalidate(fixedDueDateScheduleId);
                         OutStream stream = new OutStream();
                         stream.setData(entity);
 
@@ -533,6 +568,141 @@ public class FixedDueDateSchedulesAPI implements FixedDueDateScheduleStorage {
     }
   }
 
+  @Override
+  public void getFixedDueDateScheduleStorageFixedDueDateSchedulesDueDateByFixedDueDateScheduleId(
+      String fixedDueDateScheduleId,
+      String loanDate,
+      Map<String, String> okapiHeaders,
+      Handler<AsyncResult<Response>> asyncResultHandler,
+      Context vertxContext) {
+
+    String tenantId = okapiHeaders.get(TENANT_HEADER);
+
+    final Date loanedAt;
+
+    try {
+      loanedAt = DateTime.parse(loanDate).toDate();
+    } catch (IllegalArgumentException e) {
+      asyncResultHandler.handle(Future.succeededFuture(
+          GetFixedDueDateScheduleStorageFixedDueDateSchedulesDueDateByFixedDueDateScheduleIdResponse
+              .respond400WithTextPlain("loanDate must be a date and time")));
+      return;
+    }
+
+    withScheduleIndex(tenantId, fixedDueDateScheduleId, vertxContext, fetched -> {
+      try {
+        if (fetched.failed()) {
+          log.error(fetched.cause());
+          asyncResultHandler.handle(Future.succeededFuture(
+              GetFixedDueDateScheduleStorageFixedDueDateSchedulesDueDateByFixedDueDateScheduleIdResponse
+                  .respond500WithTextPlain(fetched.cause().getMessage())));
+          return;
+        }
+
+        if (fetched.result() == null) {
+          asyncResultHandler.handle(Future.succeededFuture(
+              GetFixedDueDateScheduleStorageFixedDueDateSchedulesDueDateByFixedDueDateScheduleIdResponse
+                  .respond404WithTextPlain("Fixed due date schedule not found")));
+          return;
+        }
+
+        Date dueDate = fetched.result().dueDateFor(loanedAt);
+
+        if (dueDate == null) {
+          asyncResultHandler.handle(Future.succeededFuture(
+              GetFixedDueDateScheduleStorageFixedDueDateSchedulesDueDateByFixedDueDateScheduleIdResponse
+                  .respond422WithApplicationJson(ValidationHelper.createValidationErrorMessage(
+                      "loanDate", loanDate, "No date range in the schedule includes the loan date"))));
+          return;
+        }
+
+        asyncResultHandler.handle(Future.succeededFuture(
+            GetFixedDueDateScheduleStorageFixedDueDateSchedulesDueDateByFixedDueDateScheduleIdResponse
+                .respond200WithApplicationJson(new DueDate().withDueDate(dueDate))));
+      } catch (Exception e) {
+        log.error(e);
+        asyncResultHandler.handle(Future.succeededFuture(
+            GetFixedDueDateScheduleStorageFixedDueDateSchedulesDueDateByFixedDueDateScheduleIdResponse
+                .respond500WithTextPlain(e.getMessage())));
+      }
+    });
+  }
+
+  /**
+   * Provides the index of the date ranges in the schedule, or null when there is
+   * no schedule with the id
+   */
+  private void withScheduleIndex(
+      String tenantId,
+      String fixedDueDateScheduleId,
+      Context vertxContext,
+      Handler<AsyncResult<FixedDueDateScheduleIndex>> onFetched) {
+
+    ExpiringCache<String, FixedDueDateScheduleIndex> tenantIndexes =
+        scheduleIndexesFor(tenantId);
+
+    FixedDueDateScheduleIndex cached = tenantIndexes.get(fixedDueDateScheduleId);
+
+    if (cached != null) {
+      onFetched.handle(Future.succeededFuture(cached));
+      return;
+    }
+
+    //A schedule read before it is changed must not be cached after the change
+    final long readAtGeneration = tenantIndexes.generation();
+
+    vertxContext.runOnContext(v -> {
+      try {
+        PostgresClient postgresClient = PostgresClient.getInstance(vertxContext.owner(),
+            TenantTool.calculateTenantId(tenantId));
+
+        Criteria a = new Criteria(SCHEMA_NAME);
+
+        a.addField("'id'");
+        a.setOperation("=");
+        a.setValue(fixedDueDateScheduleId);
+
+        postgresClient.get(FIXED_SCHEDULE_TABLE, DUE_DATE_SCHEDULE_CLASS, new Criterion(a),
+          false, false, reply -> {
+            if (reply.failed()) {
+              onFetched.handle(Future.failedFuture(reply.cause()));
+              return;
+            }
+
+            @SuppressWarnings("unchecked")
+            List<FixedDueDateSchedule> dueDateSchedules =
+                (List<FixedDueDateSchedule>) reply.result().getResults();
+
+            if (dueDateSchedules.size() != 1) {
+              onFetched.handle(Future.succeededFuture(null));
+              return;
+            }
+
+            FixedDueDateScheduleIndex index;
+
+            try {
+              index = FixedDueDateScheduleIndex.of(dueDateSchedules.get(0).getSchedules());
+            } catch (Exception e) {
+              onFetched.handle(Future.failedFuture(e));
+              return;
+            }
+
+            tenantIndexes.putIfUnchanged(fixedDueDateScheduleId, index, readAtGeneration);
+            onFetched.handle(Future.succeededFuture(index));
+          });
+      } catch (Exception e) {
+        onFetched.handle(Future.failedFuture(e));
+      }
+    });
+  }
+
+  private static ExpiringCache<String, FixedDueDateScheduleIndex> scheduleIndexesFor(
+      String tenantId) {
+
+    return scheduleIndexes.computeIfAbsent(tenantId,
+      tenant -> new ExpiringCache<>(30, TimeUnit.SECONDS));
+  }
+
   private CQLWrapper getCQL(String query, int limit, int offset, String schema)
     throws FieldException, IOException, SchemaException {
 
@@ -547,42 +717,6 @@ public class FixedDueDateSchedulesAPI implements FixedDueDateScheduleStorage {
 
 
 
-  private Errors isDateRangeValid(List<Schedule> schedules) {
-
-    Errors errors = null;
-    try {
-      //String from, String to, String due
-      int size = schedules.size();
-      for (int i = 0; i < size; i++) {
-        Date dueDate = schedules.get(i).getDue();
-        Date fromDate = schedules.get(i).getFrom();
-        Date toDate = schedules.get(i).getTo();
-
-        if(fromDate.compareTo(dueDate) > 0){
-          errors = ValidationHelper.createValidationErrorMessage("from", fromDate.toString(),
-            INVALID_DATE_MSG + " from date after due date");
-        }
-        else if(fromDate.compareTo(toDate) > 0){
-          errors = ValidationHelper.createValidationErrorMessage("from", fromDate.toString(),
-            INVALID_DATE_MSG + " from date after to date");
-        }
-        else if(toDate.compareTo(dueDate) > 0){
-          errors = ValidationHelper.createValidationErrorMessage("to", toDate.toString(),
-            INVALID_DATE_MSG + " to date after due date");
-        }
-        if(errors != null){
-          log.info(
-            INVALID_DATE_MSG + schedules.get(i).getDue()
-            + " , from date: " + schedules.get(i).getFrom()
-            + " , to date: " + schedules.get(i).getTo());
-        }
-      }
-    } catch (Exception e) {
-      log.error(e.getMessage(), e);
-    }
-    return errors;
-  }
-
   private boolean isUniqueViolation(Throwable e){
     return e != null
       && e.getMessage().contains("duplicate key value violates unique constraint");
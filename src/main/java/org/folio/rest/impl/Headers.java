@@ -4,4 +4,5 @@ class Headers {
   private Headers() {}
 
   static final String TENANT_HEADER = "x-okapi-tenant";
+  static final String USER_ID_HEADER = "x-okapi-user-id";
 }
@@ -0,0 +1,34 @@
+package org.folio.rest.impl;
+
+import org.folio.rest.resource.interfaces.InitAPI;
+import org.folio.support.LoanHistoryDrainer;
+import org.folio.support.LoanHistoryPartitioner;
+import org.folio.support.LoanPolicyValidation;
+import org.folio.support.PolicyCache;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+
+/**
+ * Run by the RAML module builder when each verticle starts, before any
+ * requests are accepted
+ */
+public class InitAPIs implements InitAPI {
+  @Override
+  public void init(
+    Vertx vertx,
+    Context context,
+    Handler<AsyncResult<Boolean>> resultHandler) {
+
+    vertx.executeBlocking(future -> {
+      LoanPolicyValidation.configured().initialise();
+      LoanHistoryDrainer.start(vertx);
+      LoanHistoryPartitioner.start(vertx);
+      LoanRulesAPI.compileForEveryTenant(vertx);
+      PolicyCache.logUsagePeriodically(vertx);
+      future.complete(true);
+    }, resultHandler);
+  }
+}
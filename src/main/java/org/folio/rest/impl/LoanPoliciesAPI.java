@@ -7,6 +7,7 @@ import io.vertx.core.Handler;
 import io.vertx.core.logging.Logger;
 import io.vertx.core.logging.LoggerFactory;
 import org.folio.rest.annotations.Validate;
+import org.folio.rest.jaxrs.model.Errors;
 import org.folio.rest.jaxrs.model.LoanPolicies;
 import org.folio.rest.jaxrs.model.LoanPolicy;
 import org.folio.rest.jaxrs.resource.LoanPolicyStorage;
@@ -18,6 +19,12 @@ import org.folio.rest.persist.PostgresClient;
 import org.folio.rest.persist.cql.CQLWrapper;
 import org.folio.rest.tools.utils.OutStream;
 import org.folio.rest.tools.utils.TenantTool;
+import org.folio.support.EntityTag;
+import org.folio.support.LoanPolicyValidation;
+import org.folio.support.ModuleSchema;
+import org.folio.support.PolicyCache;
+import org.folio.support.TotalRecords;
+import org.folio.support.UUIDValidation;
 import org.z3950.zing.cql.cql2pgjson.CQL2PgJSON;
 
 import javax.ws.rs.core.Response;
@@ -34,6 +41,11 @@ public class LoanPoliciesAPI implements LoanPolicyStorage {
   private static final String LOAN_POLICY_TABLE = "loan_policy";
   private static final Class<LoanPolicy> LOAN_POLICY_CLASS = LoanPolicy.class;
 
+  private static final LoanPolicyValidation validation = LoanPolicyValidation.configured();
+
+  private static final PolicyCache<LoanPolicy> policyCache =
+    PolicyCache.configured(LOAN_POLICY_CLASS);
+
   @Override
   @Validate
   public void deleteLoanPolicyStorageLoanPolicies(
@@ -48,10 +60,13 @@ public class LoanPoliciesAPI implements LoanPolicyStorage {
         PostgresClient postgresClient = PostgresClient.getInstance(
           vertxContext.owner(), TenantTool.calculateTenantId(tenantId));
 
-        postgresClient.mutate(String.format("TRUNCATE TABLE %s_%s.%s",
-          tenantId, "mod_circulation_storage", LOAN_POLICY_TABLE),
-          reply -> asyncResultHandler.handle(Future.succeededFuture(
-            DeleteLoanPolicyStorageLoanPoliciesResponse.respond204())));
+        postgresClient.mutate(String.format("TRUNCATE TABLE %s",
+          ModuleSchema.qualifiedTableName(tenantId, LOAN_POLICY_TABLE)),
+          reply -> {
+            policyCache.invalidateAll(tenantId);
+            asyncResultHandler.handle(Future.succeededFuture(
+              DeleteLoanPolicyStorageLoanPoliciesResponse.respond204()));
+          });
       }
       catch(Exception e) {
         asyncResultHandler.handle(io.vertx.core.Future.succeededFuture(
@@ -66,11 +81,24 @@ public class LoanPoliciesAPI implements LoanPolicyStorage {
     int offset,
     int limit,
     String query,
+    String totalRecords,
     String lang,
     Map<String, String> okapiHeaders,
     Handler<AsyncResult<Response>> asyncResultHandler,
     Context vertxContext) {
 
+      final TotalRecords totalRecordsMode;
+
+      try {
+        totalRecordsMode = TotalRecords.from(totalRecords);
+      }
+      catch(IllegalArgumentException e) {
+        asyncResultHandler.handle(io.vertx.core.Future.succeededFuture(
+          LoanPolicyStorage.GetLoanPolicyStorageLoanPoliciesResponse.
+            respond400WithTextPlain(e.getMessage())));
+        return;
+      }
+
       String tenantId = okapiHeaders.get(TENANT_HEADER);
 
       try {
@@ -87,19 +115,31 @@ public class LoanPoliciesAPI implements LoanPolicyStorage {
               .setOffset(new Offset(offset));
 
             postgresClient.get(LOAN_POLICY_TABLE, LOAN_POLICY_CLASS, fieldList, cql,
-              true, false, reply -> {
+              totalRecordsMode.requiresCount(), false, reply -> {
                 try {
                   if(reply.succeeded()) {
                     @SuppressWarnings("unchecked")
                     List<LoanPolicy> loanPolicies = (List<LoanPolicy>) reply.result().getResults();
 
-                    LoanPolicies pagedLoans = new LoanPolicies();
-                    pagedLoans.setLoanPolicies(loanPolicies);
-                    pagedLoans.setTotalRecords(reply.result().getResultInfo().getTotalRecords());
+                    totalRecordsMode.resolve(postgresClient,
+                      ModuleSchema.qualifiedTableName(tenantId, LOAN_POLICY_TABLE),
+                      cql2pgJson, query,
+                      reply.result().getResultInfo().getTotalRecords(), total -> {
+                        if(total.failed()) {
+                          asyncResultHandler.handle(io.vertx.core.Future.succeededFuture(
+                            LoanPolicyStorage.GetLoanPolicyStorageLoanPoliciesResponse.
+                              respond500WithTextPlain(total.cause().getMessage())));
+                          return;
+                        }
+
+                        LoanPolicies pagedLoans = new LoanPolicies();
+                        pagedLoans.setLoanPolicies(loanPolicies);
+                        pagedLoans.setTotalRecords(total.result());
 
-                    asyncResultHandler.handle(io.vertx.core.Future.succeededFuture(
-                      LoanPolicyStorage.GetLoanPolicyStorageLoanPoliciesResponse.
-                        respond200WithApplicationJson(pagedLoans)));
+                        asyncResultHandler.handle(io.vertx.core.Future.succeededFuture(
+                          LoanPolicyStorage.GetLoanPolicyStorageLoanPoliciesResponse.
+                            respond200WithApplicationJson(pagedLoans)));
+                      });
                   }
                   else {
                     asyncResultHandler.handle(io.vertx.core.Future.succeededFuture(
@@ -139,6 +179,15 @@ public class LoanPoliciesAPI implements LoanPolicyStorage {
     String tenantId = okapiHeaders.get(TENANT_HEADER);
 
     try {
+      Errors errors = validation.validate(entity);
+
+      if(errors != null) {
+        asyncResultHandler.handle(Future.succeededFuture(
+          PostLoanPolicyStorageLoanPoliciesResponse
+            .respond422WithApplicationJson(errors)));
+        return;
+      }
+
       PostgresClient postgresClient =
         PostgresClient.getInstance(
           vertxContext.owner(), TenantTool.calculateTenantId(tenantId));
@@ -153,6 +202,8 @@ public class LoanPoliciesAPI implements LoanPolicyStorage {
             reply -> {
               try {
                 if(reply.succeeded()) {
+                  policyCache.invalidate(tenantId, entity.getId());
+
                   OutStream stream = new OutStream();
                   stream.setData(entity);
 
@@ -195,13 +246,31 @@ public class LoanPoliciesAPI implements LoanPolicyStorage {
   @Validate
   public void getLoanPolicyStorageLoanPoliciesByLoanPolicyId(
     String loanPolicyId,
+    String ifNoneMatch,
     String lang,
     Map<String, String> okapiHeaders,
     Handler<AsyncResult<Response>> asyncResultHandler,
     Context vertxContext) {
 
+    //No policy can have an id which is not a UUID, so there is no need to look
+    if(!UUIDValidation.isValidUUID(loanPolicyId)) {
+      asyncResultHandler.handle(Future.succeededFuture(
+        LoanPolicyStorage.GetLoanPolicyStorageLoanPoliciesByLoanPolicyIdResponse.
+          respond404WithTextPlain("Not Found")));
+      return;
+    }
+
     String tenantId = okapiHeaders.get(TENANT_HEADER);
 
+    LoanPolicy cachedLoanPolicy = policyCache.get(tenantId, loanPolicyId);
+
+    if(cachedLoanPolicy != null) {
+      respondWithLoanPolicy(cachedLoanPolicy, ifNoneMatch, asyncResultHandler);
+      return;
+    }
+
+    final long readAtGeneration = policyCache.generation(tenantId);
+
     try {
       PostgresClient postgresClient = PostgresClient.getInstance(
         vertxContext.owner(), TenantTool.calculateTenantId(tenantId));
@@ -226,11 +295,10 @@ public class LoanPoliciesAPI implements LoanPolicyStorage {
                   if (loanPolicies.size() == 1) {
                     LoanPolicy loanPolicy = loanPolicies.get(0);
 
-                    asyncResultHandler.handle(
-                      io.vertx.core.Future.succeededFuture(
-                        LoanPolicyStorage.
-                          GetLoanPolicyStorageLoanPoliciesByLoanPolicyIdResponse.
-                          respond200WithApplicationJson(loanPolicy)));
+                    policyCache.putIfUnchanged(tenantId, loanPolicyId, loanPolicy,
+                      readAtGeneration);
+
+                    respondWithLoanPolicy(loanPolicy, ifNoneMatch, asyncResultHandler);
                   }
                   else {
                     asyncResultHandler.handle(
@@ -272,6 +340,26 @@ public class LoanPoliciesAPI implements LoanPolicyStorage {
     }
   }
 
+  private void respondWithLoanPolicy(
+    LoanPolicy loanPolicy,
+    String ifNoneMatch,
+    Handler<AsyncResult<Response>> asyncResultHandler) {
+
+    String entityTag = EntityTag.ofRecord(loanPolicy);
+
+    if(EntityTag.matches(ifNoneMatch, entityTag)) {
+      asyncResultHandler.handle(Future.succeededFuture(
+        GetLoanPolicyStorageLoanPoliciesByLoanPolicyIdResponse.respond304()));
+      return;
+    }
+
+    asyncResultHandler.handle(Future.succeededFuture(
+      GetLoanPolicyStorageLoanPoliciesByLoanPolicyIdResponse
+        .respond200WithApplicationJson(loanPolicy,
+          GetLoanPolicyStorageLoanPoliciesByLoanPolicyIdResponse.headersFor200()
+            .withETag(entityTag))));
+  }
+
   @Override
   @Validate
   public void deleteLoanPolicyStorageLoanPoliciesByLoanPolicyId(
@@ -280,6 +368,13 @@ public class LoanPoliciesAPI implements LoanPolicyStorage {
     Handler<AsyncResult<Response>> asyncResultHandler,
     Context vertxContext) {
 
+    //No policy can have an id which is not a UUID, so there is nothing to delete
+    if(!UUIDValidation.isValidUUID(loanPolicyId)) {
+      asyncResultHandler.handle(Future.succeededFuture(
+        DeleteLoanPolicyStorageLoanPoliciesByLoanPolicyIdResponse.respond204()));
+      return;
+    }
+
     String tenantId = okapiHeaders.get(TENANT_HEADER);
 
     try {
@@ -300,6 +395,8 @@ public class LoanPoliciesAPI implements LoanPolicyStorage {
           postgresClient.delete(LOAN_POLICY_TABLE, criterion,
             reply -> {
               if(reply.succeeded()) {
+                policyCache.invalidate(tenantId, loanPolicyId);
+
                 asyncResultHandler.handle(
                   Future.succeededFuture(
                     DeleteLoanPolicyStorageLoanPoliciesByLoanPolicyIdResponse
@@ -334,9 +431,26 @@ public class LoanPoliciesAPI implements LoanPolicyStorage {
     Handler<AsyncResult<Response>> asyncResultHandler,
     Context vertxContext) {
 
+    //A policy with an id which is not a UUID cannot be stored
+    if(!UUIDValidation.isValidUUID(loanPolicyId)) {
+      asyncResultHandler.handle(Future.succeededFuture(
+        PutLoanPolicyStorageLoanPoliciesByLoanPolicyIdResponse
+          .respond400WithTextPlain("Loan policy ID must be a UUID")));
+      return;
+    }
+
     String tenantId = okapiHeaders.get(TENANT_HEADER);
 
     try {
+      Errors errors = validation.validate(entity);
+
+      if(errors != null) {
+        asyncResultHandler.handle(Future.succeededFuture(
+          PutLoanPolicyStorageLoanPoliciesByLoanPolicyIdResponse
+            .respond422WithApplicationJson(errors)));
+        return;
+      }
+
       PostgresClient postgresClient =
         PostgresClient.getInstance(
           vertxContext.owner(), TenantTool.calculateTenantId(tenantId));
@@ -364,6 +478,8 @@ public class LoanPoliciesAPI implements LoanPolicyStorage {
                       update -> {
                         try {
                           if(update.succeeded()) {
+                            policyCache.invalidate(tenantId, loanPolicyId);
+
                             OutStream stream = new OutStream();
                             stream.setData(entity);
 
@@ -398,6 +514,8 @@ public class LoanPoliciesAPI implements LoanPolicyStorage {
                       save -> {
                         try {
                           if(save.succeeded()) {
+                            policyCache.invalidate(tenantId, loanPolicyId);
+
                             OutStream stream = new OutStream();
                             stream.setData(entity);
 
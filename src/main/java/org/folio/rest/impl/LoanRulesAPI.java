@@ -1,26 +1,69 @@
 package org.folio.rest.impl;
 
+import static org.folio.rest.impl.Headers.USER_ID_HEADER;
+
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Context;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
 import io.vertx.core.logging.Logger;
 import io.vertx.core.logging.LoggerFactory;
+import io.vertx.ext.sql.SQLConnection;
 
+import org.folio.rest.jaxrs.model.Error;
+import org.folio.rest.jaxrs.model.Errors;
+import org.folio.rest.jaxrs.model.LoanPolicyId;
 import org.folio.rest.jaxrs.model.LoanRules;
+import org.folio.rest.jaxrs.model.Parameter;
 import org.folio.rest.jaxrs.resource.LoanRulesStorage;
-import org.folio.rest.persist.Criteria.Criterion;
-import org.folio.rest.persist.Criteria.UpdateSection;
 import org.folio.rest.persist.PostgresClient;
 import org.folio.rest.tools.utils.TenantTool;
+import org.folio.support.EntityTag;
+import org.folio.support.ExpiringCache;
+import org.folio.support.ModuleSchema;
+import org.folio.support.TextDelta;
+import org.folio.support.loanrules.CompiledLoanRules;
+import org.folio.support.loanrules.CriterionType;
+import org.folio.support.loanrules.LoanRulesException;
 
 import javax.ws.rs.core.Response;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class LoanRulesAPI implements LoanRulesStorage {
   private static final Logger log = LoggerFactory.getLogger(LoanRulesStorage.class);
   private static final String LOAN_RULES_TABLE = "loan_rules";
+  private static final String LOAN_RULES_HISTORY_TABLE = "loan_rules_history";
+
+  /**
+   * Loan rules are fetched for every check out and renewal, yet rarely change.
+   * Changes made through this instance are seen immediately, those made
+   * through other instances are seen once the cached rules have expired
+   */
+  private static final ExpiringCache<String, CachedLoanRules> cache =
+    new ExpiringCache<>(30, TimeUnit.SECONDS);
+
+  private static final Map<String, Compilation> compilations = new ConcurrentHashMap<>();
+
+  //Only needs to be done once for all of the verticles in a module instance
+  private static final AtomicBoolean compiledForEveryTenant = new AtomicBoolean();
+
+  //Tenants which already have loan rules when the module starts
+  private static final String SCHEMAS_SQL =
+    "SELECT tenant_schema.nspname::text FROM pg_namespace tenant_schema"
+      + " JOIN pg_class loan_rules ON loan_rules.relnamespace = tenant_schema.oid"
+      + " WHERE loan_rules.relname = '" + LOAN_RULES_TABLE + "'"
+      + " AND tenant_schema.nspname LIKE '%\\_mod\\_circulation\\_storage'";
 
   private void internalErrorGet(Handler<AsyncResult<Response>> asyncResultHandler, Throwable e) {
     log.error(e);
@@ -30,44 +73,268 @@ public class LoanRulesAPI implements LoanRulesStorage {
   }
 
   @Override
-  public void getLoanRulesStorage(Map<String, String> okapiHeaders,
+  public void getLoanRulesStorage(String ifNoneMatch, Map<String, String> okapiHeaders,
       Handler<AsyncResult<Response>> asyncResultHandler, Context vertxContext) {
     try {
-      vertxContext.runOnContext(v -> {
-        try {
-          PostgresClient postgresClient = PostgresClient.getInstance(
-              vertxContext.owner(), TenantTool.tenantId(okapiHeaders));
-          postgresClient.get(LOAN_RULES_TABLE, LoanRules.class, "", true, false,
-            reply -> {
-              try {
-                if (reply.failed()) {
-                  internalErrorGet(asyncResultHandler, reply.cause());
-                  return;
-                }
+      withLoanRules(TenantTool.tenantId(okapiHeaders), vertxContext, fetched -> {
+        if (fetched.failed()) {
+          internalErrorGet(asyncResultHandler, fetched.cause());
+          return;
+        }
+        respond(fetched.result(), ifNoneMatch, asyncResultHandler);
+      });
+    } catch (Exception e) {
+      internalErrorGet(asyncResultHandler, e);
+    }
+  }
 
-                @SuppressWarnings("unchecked")
-                List<LoanRules> loanRulesList = (List<LoanRules>) reply.result().getResults();
+  private void internalErrorGetLoanPolicy(Handler<AsyncResult<Response>> asyncResultHandler,
+      Throwable e) {
+    log.error(e);
+    asyncResultHandler.handle(Future.succeededFuture(
+        LoanRulesStorage.GetLoanRulesStorageLoanPolicyResponse.
+        respond500WithTextPlain(e.getMessage())));
+  }
 
-                if (loanRulesList.size() != 1) {
-                  internalErrorGet(asyncResultHandler, new IllegalStateException("loanRulesList.size() = "
-                      + loanRulesList.size()));
-                  return;
-                }
+  @Override
+  public void getLoanRulesStorageLoanPolicy(String itemTypeId, String loanTypeId,
+      String patronTypeId, String shelvingLocationId, String institutionId,
+      String campusId, String libraryId, Map<String, String> okapiHeaders,
+      Handler<AsyncResult<Response>> asyncResultHandler, Context vertxContext) {
+    try {
+      String tenantId = TenantTool.tenantId(okapiHeaders);
 
-                LoanRules loanRules = loanRulesList.get(0);
-                asyncResultHandler.handle(Future.succeededFuture(
-                    LoanRulesStorage.GetLoanRulesStorageResponse.respond200WithApplicationJson(loanRules)));
-              } catch (Exception e) {
-                internalErrorGet(asyncResultHandler, e);
+      withLoanRules(tenantId, vertxContext, fetched -> {
+        try {
+          if (fetched.failed()) {
+            internalErrorGetLoanPolicy(asyncResultHandler, fetched.cause());
+            return;
+          }
+
+          compiled(tenantId, fetched.result(), vertxContext, compilation -> {
+            try {
+              if (compilation.failed()) {
+                internalErrorGetLoanPolicy(asyncResultHandler, compilation.cause());
+                return;
               }
-            });
+              respondWithLoanPolicy(compilation.result(), itemTypeId, loanTypeId, patronTypeId,
+                  shelvingLocationId, institutionId, campusId, libraryId, asyncResultHandler);
+            } catch (Exception e) {
+              internalErrorGetLoanPolicy(asyncResultHandler, e);
+            }
+          });
         } catch (Exception e) {
-          internalErrorGet(asyncResultHandler, e);
+          internalErrorGetLoanPolicy(asyncResultHandler, e);
         }
       });
     } catch (Exception e) {
-      internalErrorGet(asyncResultHandler, e);
+      internalErrorGetLoanPolicy(asyncResultHandler, e);
+    }
+  }
+
+  private void respondWithLoanPolicy(Compilation compilation, String itemTypeId,
+      String loanTypeId, String patronTypeId, String shelvingLocationId,
+      String institutionId, String campusId, String libraryId,
+      Handler<AsyncResult<Response>> asyncResultHandler) {
+
+    if (compilation.failure != null) {
+      asyncResultHandler.handle(Future.succeededFuture(
+          LoanRulesStorage.GetLoanRulesStorageLoanPolicyResponse.
+          respond422WithApplicationJson(loanRulesErrors(compilation.failure))));
+      return;
+    }
+
+    Map<CriterionType, String> names = new EnumMap<>(CriterionType.class);
+    names.put(CriterionType.MATERIAL_TYPE, itemTypeId);
+    names.put(CriterionType.LOAN_TYPE, loanTypeId);
+    names.put(CriterionType.PATRON_GROUP, patronTypeId);
+    names.put(CriterionType.LOCATION, shelvingLocationId);
+    names.put(CriterionType.INSTITUTION, institutionId);
+    names.put(CriterionType.CAMPUS, campusId);
+    names.put(CriterionType.LIBRARY, libraryId);
+
+    asyncResultHandler.handle(Future.succeededFuture(
+        LoanRulesStorage.GetLoanRulesStorageLoanPolicyResponse.
+        respond200WithApplicationJson(new LoanPolicyId().withLoanPolicyId(
+          compilation.loanRules.resolveLoanPolicy(names)))));
+  }
+
+  private void withLoanRules(String tenantId, Context vertxContext,
+      Handler<AsyncResult<CachedLoanRules>> onFetched) {
+
+    CachedLoanRules cached = cache.get(tenantId);
+
+    if (cached != null) {
+      onFetched.handle(Future.succeededFuture(cached));
+      return;
     }
+
+    //Rules read before they are replaced must not be cached after the replacement
+    final long readAtGeneration = cache.generation();
+
+    vertxContext.runOnContext(v -> {
+      try {
+        PostgresClient postgresClient = PostgresClient.getInstance(
+            vertxContext.owner(), tenantId);
+        postgresClient.get(LOAN_RULES_TABLE, LoanRules.class, "", true, false,
+          reply -> {
+            if (reply.failed()) {
+              onFetched.handle(Future.failedFuture(reply.cause()));
+              return;
+            }
+
+            @SuppressWarnings("unchecked")
+            List<LoanRules> loanRulesList = (List<LoanRules>) reply.result().getResults();
+
+            if (loanRulesList.size() != 1) {
+              onFetched.handle(Future.failedFuture(new IllegalStateException(
+                  "loanRulesList.size() = " + loanRulesList.size())));
+              return;
+            }
+
+            CachedLoanRules fetched;
+
+            try {
+              fetched = new CachedLoanRules(loanRulesList.get(0));
+            } catch (Exception e) {
+              onFetched.handle(Future.failedFuture(e));
+              return;
+            }
+
+            cache.putIfUnchanged(tenantId, fetched, readAtGeneration);
+            onFetched.handle(Future.succeededFuture(fetched));
+          });
+      } catch (Exception e) {
+        onFetched.handle(Future.failedFuture(e));
+      }
+    });
+  }
+
+  /**
+   * Compiled rules are kept for as long as the rules version is unchanged,
+   * even when the cached rules text expires and is fetched again
+   */
+  private static void compiled(String tenantId, CachedLoanRules loanRules,
+      Context vertxContext, Handler<AsyncResult<Compilation>> onCompiled) {
+
+    Compilation existing = compilations.get(tenantId);
+
+    if (existing != null && existing.entityTag.equals(loanRules.entityTag)) {
+      onCompiled.handle(Future.succeededFuture(existing));
+      return;
+    }
+
+    compile(tenantId, loanRules, vertxContext, onCompiled);
+  }
+
+  /**
+   * Compiling several thousand lines of rules can take long enough
+   * that it should not be done on an event loop thread
+   */
+  private static void compile(String tenantId, CachedLoanRules loanRules,
+      Vertx vertx, Handler<AsyncResult<Compilation>> onCompiled) {
+
+    vertx.<Compilation>executeBlocking(
+        future -> future.complete(Compilation.of(loanRules)), false,
+        result -> {
+          if (result.succeeded()) {
+            compilations.put(tenantId, result.result());
+          }
+          onCompiled.handle(result);
+        });
+  }
+
+  private static void compile(String tenantId, CachedLoanRules loanRules,
+      Context vertxContext, Handler<AsyncResult<Compilation>> onCompiled) {
+
+    compile(tenantId, loanRules, vertxContext.owner(), onCompiled);
+  }
+
+  /**
+   * Compiles the stored rules of every tenant, so that the first loan policy
+   * lookup for a tenant does not have to wait for them to be compiled.
+   * Rules which cannot be compiled are only logged, lookups report why
+   */
+  public static void compileForEveryTenant(Vertx vertx) {
+    if (!compiledForEveryTenant.compareAndSet(false, true)) {
+      return;
+    }
+
+    vertx.runOnContext(v -> {
+      PostgresClient postgresClient = PostgresClient.getInstance(vertx);
+
+      postgresClient.select(SCHEMAS_SQL, new JsonArray(), select -> {
+        if (select.failed()) {
+          log.warn("Unable to find tenants to compile loan rules for",
+              select.cause());
+          return;
+        }
+
+        Iterator<String> schemas = select.result().getResults().stream()
+            .map(row -> row.getString(0))
+            .iterator();
+
+        compileEach(vertx, postgresClient, schemas);
+      });
+    });
+  }
+
+  private static void compileEach(Vertx vertx, PostgresClient postgresClient,
+      Iterator<String> schemas) {
+
+    if (!schemas.hasNext()) {
+      return;
+    }
+
+    String schema = schemas.next();
+    String tenantId = ModuleSchema.tenantFor(schema);
+
+    String selectSql = String.format(
+        "SELECT jsonb->>'loanRulesAsTextFile', jsonb->>'version' FROM %s.%s",
+        schema, LOAN_RULES_TABLE);
+
+    postgresClient.select(selectSql, new JsonArray(), selected -> {
+      if (selected.failed() || selected.result().getResults().size() != 1) {
+        log.warn(String.format("Unable to fetch loan rules for %s", tenantId),
+            selected.cause());
+        compileEach(vertx, postgresClient, schemas);
+        return;
+      }
+
+      JsonArray row = selected.result().getResults().get(0);
+
+      LoanRules loanRules = new LoanRules()
+          .withLoanRulesAsTextFile(row.getString(0))
+          .withVersion(row.getString(1) == null ? null : Integer.valueOf(row.getString(1)));
+
+      compile(tenantId, new CachedLoanRules(loanRules), vertx, compilation -> {
+        if (compilation.failed()) {
+          log.warn(String.format("Unable to compile loan rules for %s", tenantId),
+              compilation.cause());
+        }
+        else if (compilation.result().failure != null) {
+          log.warn(String.format("Loan rules for %s cannot be used: %s", tenantId,
+              compilation.result().failure.getMessage()));
+        }
+        compileEach(vertx, postgresClient, schemas);
+      });
+    });
+  }
+
+  private void respond(CachedLoanRules loanRules, String ifNoneMatch,
+      Handler<AsyncResult<Response>> asyncResultHandler) {
+
+    if (EntityTag.matches(ifNoneMatch, loanRules.entityTag)) {
+      asyncResultHandler.handle(Future.succeededFuture(
+          LoanRulesStorage.GetLoanRulesStorageResponse.respond304()));
+      return;
+    }
+
+    asyncResultHandler.handle(Future.succeededFuture(
+        LoanRulesStorage.GetLoanRulesStorageResponse.respond200WithApplicationJson(
+          loanRules.loanRules,
+          LoanRulesStorage.GetLoanRulesStorageResponse.headersFor200()
+            .withETag(loanRules.entityTag))));
   }
 
   private void internalErrorPut(Handler<AsyncResult<Response>> asyncResultHandler, Throwable e) {
@@ -77,29 +344,135 @@ public class LoanRulesAPI implements LoanRulesStorage {
         respond500WithTextPlain(e.getMessage())));
   }
 
+  private static Errors loanRulesErrors(LoanRulesException failure) {
+    return new Errors().withErrors(
+        Collections.singletonList(new Error()
+          .withMessage(failure.getMessage())
+          .withParameters(Collections.singletonList(new Parameter()
+            .withKey("line")
+            .withValue(String.valueOf(failure.getLine()))))));
+  }
+
+  /**
+   * Rules are compiled before they are stored, rules which cannot be compiled
+   * are rejected rather than replacing rules which can be used.
+   *
+   * Rather than keeping a copy of every version of the rules, which can be
+   * many thousands of lines long, a history entry records only the lines
+   * that changed, as a delta which recreates the replaced version from
+   * the version that replaced it
+   */
   @Override
-  public void putLoanRulesStorage(LoanRules entity, Map<String, String> okapiHeaders,
+  public void putLoanRulesStorage(String ifMatch, LoanRules entity,
+      Map<String, String> okapiHeaders,
       Handler<AsyncResult<Response>> asyncResultHandler, Context vertxContext) {
     try {
-      vertxContext.runOnContext(v -> {
+      String tenantId = TenantTool.tenantId(okapiHeaders);
+      String userId = okapiHeaders.get(USER_ID_HEADER);
+
+      vertxContext.owner().<Compilation>executeBlocking(
+          future -> future.complete(Compilation.of(null,
+            entity.getLoanRulesAsTextFile())), false,
+          compilation -> {
         try {
+          if (compilation.failed()) {
+            internalErrorPut(asyncResultHandler, compilation.cause());
+            return;
+          }
+
+          if (compilation.result().failure != null) {
+            asyncResultHandler.handle(Future.succeededFuture(
+                PutLoanRulesStorageResponse.respond422WithApplicationJson(
+                  loanRulesErrors(compilation.result().failure))));
+            return;
+          }
+
           PostgresClient postgresClient = PostgresClient.getInstance(
-              vertxContext.owner(), TenantTool.tenantId(okapiHeaders));
-          UpdateSection updateSection = new UpdateSection().addField("loanRulesAsTextFile");
-          updateSection.setValue(entity.getLoanRulesAsTextFile());
+              vertxContext.owner(), tenantId);
+
+          postgresClient.startTx(connection -> {
+            if (connection.failed()) {
+              internalErrorPut(asyncResultHandler, connection.cause());
+              return;
+            }
 
-          postgresClient.update(LOAN_RULES_TABLE, updateSection, (Criterion)null, true, update -> {
+            String selectSql = String.format(
+                "SELECT _id::text, jsonb::text FROM %s FOR UPDATE",
+                ModuleSchema.qualifiedTableName(tenantId, LOAN_RULES_TABLE));
+
+            postgresClient.select(connection, selectSql, selected -> {
               try {
-                if (update.failed()) {
-                  internalErrorPut(asyncResultHandler, update.cause());
+                if (selected.failed()) {
+                  rollbackPut(postgresClient, connection, asyncResultHandler,
+                      selected.cause());
                   return;
                 }
-                asyncResultHandler.handle(Future.succeededFuture(
-                    PutLoanRulesStorageResponse.respond204()));
+
+                List<JsonArray> rows = selected.result().getResults();
+
+                if (rows.size() != 1) {
+                  rollbackPut(postgresClient, connection, asyncResultHandler,
+                      new IllegalStateException("loanRulesList.size() = " + rows.size()));
+                  return;
+                }
+
+                String id = rows.get(0).getString(0);
+                JsonObject current = new JsonObject(rows.get(0).getString(1));
+                int currentVersion = current.getInteger("version", 0);
+
+                if (!EntityTag.satisfies(ifMatch, EntityTag.ofVersion(currentVersion))) {
+                  postgresClient.rollbackTx(connection, rolledBack ->
+                      asyncResultHandler.handle(Future.succeededFuture(
+                          PutLoanRulesStorageResponse.respond412WithTextPlain(
+                            String.format("Loan rules have been changed since version %s",
+                              ifMatch)))));
+                  return;
+                }
+
+                LoanRules updated = new LoanRules()
+                    .withId(id)
+                    .withLoanRulesAsTextFile(entity.getLoanRulesAsTextFile())
+                    .withVersion(currentVersion + 1);
+
+                JsonObject history = new JsonObject()
+                    .put("id", UUID.randomUUID().toString())
+                    .put("loanRulesId", id)
+                    .put("version", currentVersion)
+                    .put("replacedByVersion", updated.getVersion())
+                    .put("replacedByUserId", userId)
+                    .put("delta", TextDelta.between(updated.getLoanRulesAsTextFile(),
+                        current.getString("loanRulesAsTextFile", "")));
+
+                writeVersion(postgresClient, connection, tenantId, updated, history,
+                    written -> {
+                      if (written.failed()) {
+                        rollbackPut(postgresClient, connection, asyncResultHandler,
+                            written.cause());
+                        return;
+                      }
+
+                      postgresClient.endTx(connection, ended -> {
+                        if (ended.failed()) {
+                          internalErrorPut(asyncResultHandler, ended.cause());
+                          return;
+                        }
+
+                        CachedLoanRules saved = new CachedLoanRules(updated);
+                        cache.put(tenantId, saved);
+                        compilations.put(tenantId, new Compilation(saved.entityTag,
+                            compilation.result().loanRules, null));
+
+                        asyncResultHandler.handle(Future.succeededFuture(
+                            PutLoanRulesStorageResponse.respond204(
+                              PutLoanRulesStorageResponse.headersFor204()
+                                .withETag(saved.entityTag))));
+                      });
+                    });
               } catch (Exception e) {
-                internalErrorPut(asyncResultHandler, e);
+                rollbackPut(postgresClient, connection, asyncResultHandler, e);
               }
             });
+          });
         } catch (Exception e) {
           internalErrorPut(asyncResultHandler, e);
         }
@@ -108,4 +481,92 @@ public class LoanRulesAPI implements LoanRulesStorage {
       internalErrorPut(asyncResultHandler, e);
     }
   }
+
+  private static void writeVersion(PostgresClient postgresClient,
+      AsyncResult<SQLConnection> connection, String tenantId, LoanRules updated,
+      JsonObject history, Handler<AsyncResult<Void>> onWritten) {
+
+    String updateSql = String.format(
+        "UPDATE %s SET jsonb = ?::jsonb WHERE _id = ?::uuid",
+        ModuleSchema.qualifiedTableName(tenantId, LOAN_RULES_TABLE));
+
+    String historySql = String.format(
+        "INSERT INTO %s (_id, jsonb)"
+          + " VALUES (?::uuid, ?::jsonb || jsonb_build_object('replacedDate', now()))",
+        ModuleSchema.qualifiedTableName(tenantId, LOAN_RULES_HISTORY_TABLE));
+
+    JsonArray updateParameters;
+
+    try {
+      updateParameters = new JsonArray()
+          .add(PostgresClient.pojo2json(updated))
+          .add(updated.getId());
+    } catch (Exception e) {
+      onWritten.handle(Future.failedFuture(e));
+      return;
+    }
+
+    postgresClient.execute(connection, updateSql, updateParameters, update -> {
+      if (update.failed()) {
+        onWritten.handle(Future.failedFuture(update.cause()));
+        return;
+      }
+
+      JsonArray historyParameters = new JsonArray()
+          .add(history.getString("id"))
+          .add(history.encode());
+
+      postgresClient.execute(connection, historySql, historyParameters, inserted -> {
+        if (inserted.failed()) {
+          onWritten.handle(Future.failedFuture(inserted.cause()));
+          return;
+        }
+        onWritten.handle(Future.succeededFuture());
+      });
+    });
+  }
+
+  private void rollbackPut(PostgresClient postgresClient,
+      AsyncResult<SQLConnection> connection,
+      Handler<AsyncResult<Response>> asyncResultHandler, Throwable e) {
+
+    postgresClient.rollbackTx(connection, rolledBack ->
+        internalErrorPut(asyncResultHandler, e));
+  }
+
+  private static class CachedLoanRules {
+    private final LoanRules loanRules;
+    private final String entityTag;
+
+    private CachedLoanRules(LoanRules loanRules) {
+      this.loanRules = loanRules;
+      this.entityTag = EntityTag.ofVersion(
+          loanRules.getVersion() == null ? 0 : loanRules.getVersion());
+    }
+  }
+
+  private static class Compilation {
+    private final String entityTag;
+    private final CompiledLoanRules loanRules;
+    private final LoanRulesException failure;
+
+    private Compilation(String entityTag, CompiledLoanRules loanRules,
+        LoanRulesException failure) {
+      this.entityTag = entityTag;
+      this.loanRules = loanRules;
+      this.failure = failure;
+    }
+
+    private static Compilation of(CachedLoanRules cached) {
+      return of(cached.entityTag, cached.loanRules.getLoanRulesAsTextFile());
+    }
+
+    private static Compilation of(String entityTag, String loanRulesText) {
+      try {
+        return new Compilation(entityTag, CompiledLoanRules.compile(loanRulesText), null);
+      } catch (LoanRulesException e) {
+        return new Compilation(entityTag, null, e);
+      }
+    }
+  }
 }
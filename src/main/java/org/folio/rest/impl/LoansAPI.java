@@ -2,55 +2,80 @@ package org.folio.rest.impl;
 
 import static io.vertx.core.Future.succeededFuture;
 import static org.folio.rest.impl.Headers.TENANT_HEADER;
+import static org.folio.rest.impl.Headers.USER_ID_HEADER;
 
 import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.StringJoiner;
 import java.util.UUID;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
-import javax.validation.constraints.NotNull;
 import javax.ws.rs.core.Response;
 
+import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.folio.rest.annotations.Validate;
+import org.folio.rest.jaxrs.model.AnonymizationJob;
+import org.folio.rest.jaxrs.model.AnonymizationJobRequest;
 import org.folio.rest.jaxrs.model.Error;
 import org.folio.rest.jaxrs.model.Errors;
+import org.folio.rest.jaxrs.model.Ids;
 import org.folio.rest.jaxrs.model.Loan;
+import org.folio.rest.jaxrs.model.LoanHistorySetting;
 import org.folio.rest.jaxrs.model.Loans;
+import org.folio.rest.jaxrs.model.Metadata;
+import org.folio.rest.jaxrs.model.Parameter;
 import org.folio.rest.jaxrs.model.Status;
 import org.folio.rest.jaxrs.resource.LoanStorage;
 import org.folio.rest.persist.Criteria.Criteria;
 import org.folio.rest.persist.Criteria.Criterion;
 import org.folio.rest.persist.Criteria.Limit;
 import org.folio.rest.persist.Criteria.Offset;
+import org.folio.rest.persist.PgUtil;
 import org.folio.rest.persist.PostgresClient;
 import org.folio.rest.persist.cql.CQLWrapper;
 import org.folio.rest.tools.utils.TenantTool;
 import org.folio.rest.tools.utils.ValidationHelper;
-import org.folio.support.ResultHandlerFactory;
+import org.folio.support.BatchWriter;
+import org.folio.support.BulkLoanAnonymizer;
+import org.folio.support.ByIdsFetcher;
+import org.folio.support.ClosedLoanAnonymizer;
+import org.folio.support.EntityTag;
+import org.folio.support.KeysetPager;
+import org.folio.support.LoanExporter;
+import org.folio.support.LoanHistoryLookup;
+import org.folio.support.LoanHistoryOutbox;
+import org.folio.support.MetadataFactory;
+import org.folio.support.ModuleSchema;
 import org.folio.support.ServerErrorResponder;
+import org.folio.support.TotalRecords;
 import org.folio.support.UUIDValidation;
 import org.folio.support.VertxContextRunner;
 import org.joda.time.DateTime;
 import org.z3950.zing.cql.cql2pgjson.CQL2PgJSON;
+import org.z3950.zing.cql.cql2pgjson.CQL2PgJSONException;
 
 import com.github.mauricio.async.db.postgresql.exceptions.GenericDatabaseException;
 
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Context;
+import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.logging.Logger;
 import io.vertx.core.logging.LoggerFactory;
 
 public class LoansAPI implements LoanStorage {
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
-  private static final String MODULE_NAME = "mod_circulation_storage";
   private static final String LOAN_TABLE = "loan";
   //TODO: Change loan history table name when can be configured, used to be "loan_history_table"
   private static final String LOAN_HISTORY_TABLE = "audit_loan";
@@ -76,8 +101,8 @@ public class LoansAPI implements LoanStorage {
         PostgresClient postgresClient = PostgresClient.getInstance(
           vertxContext.owner(), TenantTool.calculateTenantId(tenantId));
 
-        postgresClient.mutate(String.format("TRUNCATE TABLE %s_%s.loan",
-          tenantId, MODULE_NAME),
+        postgresClient.mutate(String.format("TRUNCATE TABLE %s",
+          ModuleSchema.qualifiedTableName(tenantId, LOAN_TABLE)),
           reply -> asyncResultHandler.handle(succeededFuture(
             DeleteLoanStorageLoansResponse.respond204())));
       }
@@ -95,11 +120,37 @@ public class LoansAPI implements LoanStorage {
     int offset,
     int limit,
     String query,
+    String continuationToken,
+    String totalRecords,
     String lang,
     Map<String, String> okapiHeaders,
     Handler<AsyncResult<Response>> asyncResultHandler,
     Context vertxContext) {
 
+    final TotalRecords totalRecordsMode;
+
+    try {
+      //Counting for every page would undo the benefit of a continuation
+      //token, so is only done when asked for
+      totalRecordsMode = TotalRecords.from(totalRecords,
+        continuationToken == null ? TotalRecords.EXACT : TotalRecords.NONE);
+    }
+    catch(IllegalArgumentException e) {
+      asyncResultHandler.handle(succeededFuture(
+        GetLoanStorageLoansResponse.respond400WithTextPlain(e.getMessage())));
+      return;
+    }
+
+    if(continuationToken != null) {
+      getLoansPage(LOAN_TABLE, "_id", "uuid", false, query,
+        continuationToken, limit, totalRecordsMode, okapiHeaders,
+        GetLoanStorageLoansResponse::respond200WithApplicationJson,
+        GetLoanStorageLoansResponse::respond400WithTextPlain,
+        GetLoanStorageLoansResponse::respond500WithTextPlain,
+        asyncResultHandler, vertxContext);
+      return;
+    }
+
     String tenantId = okapiHeaders.get(TENANT_HEADER);
 
     try {
@@ -118,19 +169,31 @@ public class LoansAPI implements LoanStorage {
             .setOffset(new Offset(offset));
 
           postgresClient.get(LOAN_TABLE, LOAN_CLASS, fieldList, cql,
-            true, false, reply -> {
+            totalRecordsMode.requiresCount(), false, reply -> {
               try {
                 if(reply.succeeded()) {
                   @SuppressWarnings("unchecked")
                   List<Loan> loans = (List<Loan>) reply.result().getResults();
 
-                  Loans pagedLoans = new Loans();
-                  pagedLoans.setLoans(loans);
-                  pagedLoans.setTotalRecords(reply.result().getResultInfo().getTotalRecords());
-
-                  asyncResultHandler.handle(succeededFuture(
-                    LoanStorage.GetLoanStorageLoansResponse.
-                      respond200WithApplicationJson(pagedLoans)));
+                  totalRecordsMode.resolve(postgresClient,
+                    ModuleSchema.qualifiedTableName(tenantId, LOAN_TABLE),
+                    cql2pgJson, query,
+                    reply.result().getResultInfo().getTotalRecords(), total -> {
+                      if(total.failed()) {
+                        asyncResultHandler.handle(succeededFuture(
+                          LoanStorage.GetLoanStorageLoansResponse.
+                            respond500WithTextPlain(total.cause().getMessage())));
+                        return;
+                      }
+
+                      Loans pagedLoans = new Loans();
+                      pagedLoans.setLoans(loans);
+                      pagedLoans.setTotalRecords(total.result());
+
+                      asyncResultHandler.handle(succeededFuture(
+                        LoanStorage.GetLoanStorageLoansResponse.
+                          respond200WithApplicationJson(pagedLoans)));
+                    });
                 }
                 else {
                   asyncResultHandler.handle(succeededFuture(
@@ -251,6 +314,146 @@ public class LoansAPI implements LoanStorage {
     }
   }
 
+  @Validate
+  @Override
+  public void postLoanStorageLoansBatch(
+    Loans entity,
+    Map<String, String> okapiHeaders,
+    Handler<AsyncResult<Response>> responseHandler,
+    Context vertxContext) {
+
+    final ServerErrorResponder serverErrorResponder =
+      new ServerErrorResponder(PostLoanStorageLoansBatchResponse
+        ::respond500WithTextPlain, responseHandler, log);
+
+    final VertxContextRunner runner = new VertxContextRunner(
+      vertxContext, serverErrorResponder::withError);
+
+    runner.runOnContext(() -> {
+      final List<Loan> loans = entity.getLoans();
+
+      final Metadata metadata = MetadataFactory.createdNowBy(
+        okapiHeaders.get(USER_ID_HEADER));
+
+      for (Loan loan : loans) {
+        if(loan.getStatus() == null) {
+          loan.setStatus(new Status().withName(OPEN_LOAN_STATUS));
+        }
+
+        if(loan.getId() == null) {
+          loan.setId(UUID.randomUUID().toString());
+        }
+
+        loan.setMetadata(metadata);
+      }
+
+      final List<Error> validationErrors = validateBatch(loans);
+
+      if(!validationErrors.isEmpty()) {
+        responseHandler.handle(succeededFuture(
+          PostLoanStorageLoansBatchResponse.respond422WithApplicationJson(
+            new Errors().withErrors(validationErrors))));
+        return;
+      }
+
+      final String tenantId = TenantTool.tenantId(okapiHeaders);
+
+      final PostgresClient postgresClient = PostgresClient.getInstance(
+        vertxContext.owner(), tenantId);
+
+      final Set<String> openLoanItemIds = loans.stream()
+        .filter(this::isOpen)
+        .map(Loan::getItemId)
+        .collect(Collectors.toSet());
+
+      findItemsWithOpenLoans(postgresClient, tenantId, openLoanItemIds,
+        existing -> {
+          if(existing.failed()) {
+            serverErrorResponder.withError(existing.cause());
+            return;
+          }
+
+          if(!existing.result().isEmpty()) {
+            final List<Error> conflicts = existing.result().stream()
+              .map(this::moreThanOneOpenLoanErrorFor)
+              .collect(Collectors.toList());
+
+            responseHandler.handle(succeededFuture(
+              PostLoanStorageLoansBatchResponse.respond422WithApplicationJson(
+                new Errors().withErrors(conflicts))));
+            return;
+          }
+
+          final String loanTable = ModuleSchema.qualifiedTableName(tenantId, LOAN_TABLE);
+
+          new BatchWriter<>(postgresClient, loanTable, Loan::getId)
+            .insert(loans, inserted -> {
+              if(inserted.succeeded()) {
+                responseHandler.handle(succeededFuture(
+                  PostLoanStorageLoansBatchResponse.respond201WithApplicationJson(
+                    new Loans().withLoans(loans).withTotalRecords(loans.size()))));
+              }
+              //An open loan for one of the items was created since the check
+              else if(isMultipleOpenLoanError(inserted)) {
+                respondWithError(responseHandler,
+                  PostLoanStorageLoansBatchResponse::respond422WithApplicationJson,
+                  "Cannot have more than one open loan for the same item");
+              }
+              else {
+                serverErrorResponder.withError(inserted.cause());
+              }
+            });
+        });
+    });
+  }
+
+  @Validate
+  @Override
+  public void postLoanStorageLoansByIds(
+    Ids entity,
+    Map<String, String> okapiHeaders,
+    Handler<AsyncResult<Response>> responseHandler,
+    Context vertxContext) {
+
+    final ServerErrorResponder serverErrorResponder =
+      new ServerErrorResponder(PostLoanStorageLoansByIdsResponse
+        ::respond500WithTextPlain, responseHandler, log);
+
+    final VertxContextRunner runner = new VertxContextRunner(
+      vertxContext, serverErrorResponder::withError);
+
+    runner.runOnContext(() -> {
+      final Errors invalidIds = ByIdsFetcher.validateIds(entity.getIds());
+
+      if(invalidIds != null) {
+        responseHandler.handle(succeededFuture(
+          PostLoanStorageLoansByIdsResponse.respond422WithApplicationJson(
+            invalidIds)));
+        return;
+      }
+
+      final String tenantId = TenantTool.tenantId(okapiHeaders);
+
+      final PostgresClient postgresClient = PostgresClient.getInstance(
+        vertxContext.owner(), tenantId);
+
+      new ByIdsFetcher<>(postgresClient,
+        ModuleSchema.qualifiedTableName(tenantId, LOAN_TABLE), LOAN_CLASS)
+        .fetch(entity.getIds(), fetched -> {
+          if(fetched.succeeded()) {
+            final List<Loan> loans = fetched.result();
+
+            responseHandler.handle(succeededFuture(
+              PostLoanStorageLoansByIdsResponse.respond200WithApplicationJson(
+                new Loans().withLoans(loans).withTotalRecords(loans.size()))));
+          }
+          else {
+            serverErrorResponder.withError(fetched.cause());
+          }
+        });
+    });
+  }
+
   @Override
   public void postLoanStorageLoansAnonymizeByUserId(
     String userId,
@@ -281,28 +484,115 @@ public class LoansAPI implements LoanStorage {
       final PostgresClient postgresClient = PostgresClient.getInstance(
           vertxContext.owner(), tenantId);
 
-      final String combinedAnonymizationSql = createAnonymizationSQL(userId,
-        tenantId);
+      new ClosedLoanAnonymizer(postgresClient, tenantId)
+        .anonymize(userId, anonymized -> {
+          if(anonymized.failed()) {
+            serverErrorResponder.withError(anonymized.cause());
+            return;
+          }
+
+          final ClosedLoanAnonymizer.Result result = anonymized.result();
 
-      log.info(String.format("Anonymization SQL: %s", combinedAnonymizationSql));
+          log.info(String.format(
+            "Anonymized %d loans and %d loan history records for user %s",
+            result.getLoans(), result.getHistoryRecords(), userId));
 
-      postgresClient.mutate(combinedAnonymizationSql,
-        new ResultHandlerFactory().when(
-          s -> responseHandler.handle(succeededFuture(
-            PostLoanStorageLoansAnonymizeByUserIdResponse.respond204())),
-          serverErrorResponder::withError));
+          responseHandler.handle(succeededFuture(
+            PostLoanStorageLoansAnonymizeByUserIdResponse.respond204(
+              PostLoanStorageLoansAnonymizeByUserIdResponse.headersFor204()
+                .withXAnonymizedLoans(String.valueOf(result.getLoans()))
+                .withXAnonymizedLoanHistory(
+                  String.valueOf(result.getHistoryRecords())))));
+        });
     });
   }
 
+  @Validate
+  @Override
+  public void postLoanStorageLoansAnonymizeJobs(
+    AnonymizationJobRequest entity,
+    Map<String, String> okapiHeaders,
+    Handler<AsyncResult<Response>> responseHandler,
+    Context vertxContext) {
+
+    final ServerErrorResponder serverErrorResponder =
+      new ServerErrorResponder(PostLoanStorageLoansAnonymizeJobsResponse
+        ::respond500WithTextPlain, responseHandler, log);
+
+    final VertxContextRunner runner = new VertxContextRunner(
+      vertxContext, serverErrorResponder::withError);
+
+    runner.runOnContext(() -> {
+      final Errors errors = BulkLoanAnonymizer.validate(entity);
+
+      if(errors != null) {
+        responseHandler.handle(succeededFuture(
+          PostLoanStorageLoansAnonymizeJobsResponse
+            .respond422WithApplicationJson(errors)));
+        return;
+      }
+
+      final String tenantId = TenantTool.tenantId(okapiHeaders);
+
+      final PostgresClient postgresClient = PostgresClient.getInstance(
+        vertxContext.owner(), tenantId);
+
+      new BulkLoanAnonymizer(postgresClient, tenantId)
+        .start(entity, started -> {
+          if(started.failed()) {
+            serverErrorResponder.withError(started.cause());
+            return;
+          }
+
+          final AnonymizationJob job = started.result();
+
+          responseHandler.handle(succeededFuture(
+            PostLoanStorageLoansAnonymizeJobsResponse
+              .respond201WithApplicationJson(job,
+                PostLoanStorageLoansAnonymizeJobsResponse.headersFor201()
+                  .withLocation(String.format(
+                    "/loan-storage/loans/anonymize-jobs/%s", job.getId())))));
+        });
+    });
+  }
+
+  @Override
+  public void getLoanStorageLoansAnonymizeJobsByJobId(
+    String jobId,
+    Map<String, String> okapiHeaders,
+    Handler<AsyncResult<Response>> responseHandler,
+    Context vertxContext) {
+
+    if(!UUIDValidation.isValidUUID(jobId)) {
+      responseHandler.handle(succeededFuture(
+        GetLoanStorageLoansAnonymizeJobsByJobIdResponse
+          .respond404WithTextPlain("Not Found")));
+      return;
+    }
+
+    PgUtil.getById(BulkLoanAnonymizer.JOB_TABLE, AnonymizationJob.class,
+      jobId, okapiHeaders, vertxContext,
+      GetLoanStorageLoansAnonymizeJobsByJobIdResponse.class, responseHandler);
+  }
+
   @Validate
   @Override
   public void getLoanStorageLoansByLoanId(
     String loanId,
+    String ifNoneMatch,
     String lang,
     Map<String, String> okapiHeaders,
     Handler<AsyncResult<Response>> asyncResultHandler,
     Context vertxContext) {
 
+    //No loan can have an id which is not a UUID, so there is no need to look
+    if(!UUIDValidation.isValidUUID(loanId)) {
+      asyncResultHandler.handle(succeededFuture(
+        LoanStorage.GetLoanStorageLoansByLoanIdResponse.
+          respond404WithTextPlain("Not Found")));
+      return;
+    }
+
     String tenantId = okapiHeaders.get(TENANT_HEADER);
 
     try {
@@ -328,11 +618,22 @@ public class LoansAPI implements LoanStorage {
 
                   if (loans.size() == 1) {
                     Loan loan = loans.get(0);
+                    String entityTag = EntityTag.ofRecord(loan);
+
+                    if (EntityTag.matches(ifNoneMatch, entityTag)) {
+                      asyncResultHandler.handle(
+                        succeededFuture(
+                          LoanStorage.GetLoanStorageLoansByLoanIdResponse.
+                            respond304()));
+                      return;
+                    }
 
                     asyncResultHandler.handle(
                       succeededFuture(
                         LoanStorage.GetLoanStorageLoansByLoanIdResponse.
-                          respond200WithApplicationJson(loan)));
+                          respond200WithApplicationJson(loan,
+                            LoanStorage.GetLoanStorageLoansByLoanIdResponse.
+                              headersFor200().withETag(entityTag))));
                   }
                   else {
                     asyncResultHandler.handle(
@@ -377,6 +678,13 @@ public class LoansAPI implements LoanStorage {
     Handler<AsyncResult<Response>> asyncResultHandler,
     Context vertxContext) {
 
+    //No loan can have an id which is not a UUID, so there is nothing to delete
+    if(!UUIDValidation.isValidUUID(loanId)) {
+      asyncResultHandler.handle(succeededFuture(
+        DeleteLoanStorageLoansByLoanIdResponse.respond204()));
+      return;
+    }
+
     String tenantId = okapiHeaders.get(TENANT_HEADER);
 
     try {
@@ -430,6 +738,26 @@ public class LoansAPI implements LoanStorage {
     Handler<AsyncResult<Response>> asyncResultHandler,
     Context vertxContext) {
 
+    //A loan with an id which is not a UUID cannot be stored
+    if(!UUIDValidation.isValidUUID(loanId)) {
+      asyncResultHandler.handle(succeededFuture(
+        PutLoanStorageLoansByLoanIdResponse.respond400WithTextPlain(
+          "Loan ID must be a UUID")));
+      return;
+    }
+
+    //Otherwise the stored loan would have a different id to the record
+    if(loan.getId() != null && !loan.getId().equalsIgnoreCase(loanId)) {
+      asyncResultHandler.handle(succeededFuture(
+        PutLoanStorageLoansByLoanIdResponse.respond422WithApplicationJson(
+          new Errors().withErrors(Collections.singletonList(new Error()
+            .withMessage("Loan ID must be the same as the ID in the URL")
+            .withParameters(Collections.singletonList(new Parameter()
+              .withKey("id")
+              .withValue(loan.getId()))))))));
+      return;
+    }
+
     String tenantId = okapiHeaders.get(TENANT_HEADER);
 
     if(loan.getStatus() == null) {
@@ -460,105 +788,39 @@ public class LoansAPI implements LoanStorage {
         PostgresClient.getInstance(
           vertxContext.owner(), TenantTool.calculateTenantId(tenantId));
 
-      Criteria a = new Criteria();
-
-      a.addField("'id'");
-      a.setOperation("=");
-      a.setValue(loanId);
-
-      Criterion criterion = new Criterion(a);
-
       vertxContext.runOnContext(v -> {
         try {
-          postgresClient.get(LOAN_TABLE, LOAN_CLASS, criterion, true, false,
-            reply -> {
-              if(reply.succeeded()) {
-                @SuppressWarnings("unchecked")
-                List<Loan> loanList = (List<Loan>) reply.result().getResults();
-
-                if (loanList.size() == 1) {
-                  try {
-                    postgresClient.update(LOAN_TABLE, loan, criterion,
-                      true,
-                      update -> {
-                        try {
-                          if(update.succeeded()) {
-                            asyncResultHandler.handle(
-                              succeededFuture(
-                                PutLoanStorageLoansByLoanIdResponse
-                                  .respond204()));
-                          }
-                          else {
-                            if(isMultipleOpenLoanError(update)) {
-                              asyncResultHandler.handle(
-                                succeededFuture(
-                                  LoanStorage.PutLoanStorageLoansByLoanIdResponse
-                                  .respond422WithApplicationJson(
-                                    moreThanOneOpenLoanError(loan))));
-                            }
-                            else {
-                              asyncResultHandler.handle(
-                                succeededFuture(
-                                  LoanStorage.PutLoanStorageLoansByLoanIdResponse
-                                    .respond500WithTextPlain(update.cause().toString())));
-                            }
-                          }
-                        } catch (Exception e) {
-                          asyncResultHandler.handle(
-                            succeededFuture(
-                              PutLoanStorageLoansByLoanIdResponse
-                                .respond500WithTextPlain(e.getMessage())));
-                        }
-                      });
-                  } catch (Exception e) {
-                    asyncResultHandler.handle(succeededFuture(
+          //Single statement insert or update, avoids a separate look up
+          //and the race between it and the write
+          postgresClient.upsert(LOAN_TABLE, loanId, loan,
+            upsert -> {
+              try {
+                if(upsert.succeeded()) {
+                  asyncResultHandler.handle(
+                    succeededFuture(
                       PutLoanStorageLoansByLoanIdResponse
-                        .respond500WithTextPlain(e.getMessage())));
-                  }
+                        .respond204()));
                 }
                 else {
-                  try {
-                    postgresClient.save(LOAN_TABLE, loan.getId(), loan,
-                      save -> {
-                        try {
-                          if(save.succeeded()) {
-                            asyncResultHandler.handle(
-                              succeededFuture(
-                                PutLoanStorageLoansByLoanIdResponse
-                                  .respond204()));
-                          }
-                          else {
-                            if(isMultipleOpenLoanError(save)) {
-                              asyncResultHandler.handle(
-                                succeededFuture(
-                                  LoanStorage.PutLoanStorageLoansByLoanIdResponse
-                                  .respond422WithApplicationJson(
-                                    moreThanOneOpenLoanError(loan))));
-                            }
-                            else {
-                              asyncResultHandler.handle(
-                                succeededFuture(
-                                  LoanStorage.PostLoanStorageLoansResponse
-                                    .respond500WithTextPlain(save.cause().toString())));
-                            }
-                          }
-                        } catch (Exception e) {
-                          asyncResultHandler.handle(
-                            succeededFuture(
-                              PutLoanStorageLoansByLoanIdResponse
-                                .respond500WithTextPlain(e.getMessage())));
-                        }
-                      });
-                  } catch (Exception e) {
-                    asyncResultHandler.handle(succeededFuture(
-                      PutLoanStorageLoansByLoanIdResponse
-                        .respond500WithTextPlain(e.getMessage())));
+                  if(isMultipleOpenLoanError(upsert)) {
+                    asyncResultHandler.handle(
+                      succeededFuture(
+                        LoanStorage.PutLoanStorageLoansByLoanIdResponse
+                        .respond422WithApplicationJson(
+                          moreThanOneOpenLoanError(loan))));
+                  }
+                  else {
+                    asyncResultHandler.handle(
+                      succeededFuture(
+                        LoanStorage.PutLoanStorageLoansByLoanIdResponse
+                          .respond500WithTextPlain(upsert.cause().toString())));
                   }
                 }
-              } else {
-                asyncResultHandler.handle(succeededFuture(
-                  PutLoanStorageLoansByLoanIdResponse
-                    .respond500WithTextPlain(reply.cause().getMessage())));
+              } catch (Exception e) {
+                asyncResultHandler.handle(
+                  succeededFuture(
+                    PutLoanStorageLoansByLoanIdResponse
+                      .respond500WithTextPlain(e.getMessage())));
               }
             });
         } catch (Exception e) {
@@ -604,10 +866,111 @@ public class LoansAPI implements LoanStorage {
 
   @Validate
   @Override
-  public void getLoanStorageLoanHistory(int offset, int limit, String query, String lang,
+  public void getLoanStorageExportLoans(
+    String query,
+    String continuationToken,
+    Map<String, String> okapiHeaders,
+    Handler<AsyncResult<Response>> responseHandler,
+    Context vertxContext) {
+
+    final ServerErrorResponder serverErrorResponder =
+      new ServerErrorResponder(GetLoanStorageExportLoansResponse
+        ::respond500WithTextPlain, responseHandler, log);
+
+    final VertxContextRunner runner = new VertxContextRunner(
+      vertxContext, serverErrorResponder::withError);
+
+    runner.runOnContext(() -> {
+      final String cqlWhereClause;
+
+      try {
+        cqlWhereClause = StringUtils.isBlank(query)
+          ? null
+          : new CQL2PgJSON("loan.jsonb").toSql(query).getWhere();
+      }
+      catch(CQL2PgJSONException e) {
+        responseHandler.handle(succeededFuture(
+          GetLoanStorageExportLoansResponse.respond400WithTextPlain(
+            e.getMessage())));
+        return;
+      }
+
+      final String tenantId = TenantTool.tenantId(okapiHeaders);
+
+      final PostgresClient postgresClient = PostgresClient.getInstance(
+        vertxContext.owner(), tenantId);
+
+      new LoanExporter(postgresClient,
+        ModuleSchema.qualifiedTableName(tenantId, LOAN_TABLE))
+        .export(cqlWhereClause, continuationToken, exported -> {
+          if(exported.failed()) {
+            if(exported.cause() instanceof IllegalArgumentException) {
+              responseHandler.handle(succeededFuture(
+                GetLoanStorageExportLoansResponse.respond400WithTextPlain(
+                  exported.cause().getMessage())));
+            }
+            else {
+              serverErrorResponder.withError(exported.cause());
+            }
+            return;
+          }
+
+          final LoanExporter.Page page = exported.result();
+
+          if(page.getContinuationToken() == null) {
+            responseHandler.handle(succeededFuture(
+              GetLoanStorageExportLoansResponse.respond200WithTextPlain(
+                page.getBody())));
+          }
+          else {
+            responseHandler.handle(succeededFuture(
+              GetLoanStorageExportLoansResponse.respond200WithTextPlain(
+                page.getBody(),
+                GetLoanStorageExportLoansResponse.headersFor200()
+                  .withXContinuationToken(page.getContinuationToken()))));
+          }
+        });
+    });
+  }
+
+  @Validate
+  @Override
+  public void getLoanStorageLoanHistory(int offset, int limit, String query,
+      String continuationToken, String totalRecords, String lang,
       Map<String, String> okapiHeaders, Handler<AsyncResult<Response>> asyncResultHandler,
       Context vertxContext) {
 
+    final TotalRecords totalRecordsMode;
+
+    try {
+      totalRecordsMode = TotalRecords.from(totalRecords,
+        continuationToken == null ? TotalRecords.EXACT : TotalRecords.NONE);
+    }
+    catch(IllegalArgumentException e) {
+      asyncResultHandler.handle(succeededFuture(
+        GetLoanStorageLoanHistoryResponse.respond400WithTextPlain(e.getMessage())));
+      return;
+    }
+
+    if(continuationToken != null) {
+      //Same order as when no sorting is requested, most recent change first
+      getLoansPage(LOAN_HISTORY_TABLE, "created_date", "timestamp", true, query,
+        continuationToken, limit, totalRecordsMode, okapiHeaders,
+        GetLoanStorageLoanHistoryResponse::respond200WithApplicationJson,
+        GetLoanStorageLoanHistoryResponse::respond400WithTextPlain,
+        GetLoanStorageLoanHistoryResponse::respond500WithTextPlain,
+        asyncResultHandler, vertxContext);
+      return;
+    }
+
+    final LoanHistoryLookup lookup = LoanHistoryLookup.forQuery(query);
+
+    if(lookup != null) {
+      getLoanHistoryUsingLookup(lookup, offset, limit, totalRecordsMode,
+        okapiHeaders, asyncResultHandler, vertxContext);
+      return;
+    }
+
     String tenantId = okapiHeaders.get(TENANT_HEADER);
 
     try {
@@ -647,19 +1010,31 @@ public class LoansAPI implements LoanStorage {
           }
 
           postgresClient.get(LOAN_HISTORY_TABLE, LOAN_CLASS, fieldList, adjustedQuery,
-            true, false, reply -> {
+            totalRecordsMode.requiresCount(), false, reply -> {
               try {
                 if(reply.succeeded()) {
                   @SuppressWarnings("unchecked")
                   List<Loan> loans = (List<Loan>) reply.result().getResults();
 
-                  Loans pagedLoans = new Loans();
-                  pagedLoans.setLoans(loans);
-                  pagedLoans.setTotalRecords(reply.result().getResultInfo().getTotalRecords());
-
-                  asyncResultHandler.handle(succeededFuture(
-                    GetLoanStorageLoanHistoryResponse.
-                      respond200WithApplicationJson(pagedLoans)));
+                  totalRecordsMode.resolve(postgresClient,
+                    ModuleSchema.qualifiedTableName(tenantId, LOAN_HISTORY_TABLE),
+                    cql2pgJson, query,
+                    reply.result().getResultInfo().getTotalRecords(), total -> {
+                      if(total.failed()) {
+                        asyncResultHandler.handle(succeededFuture(
+                          GetLoanStorageLoanHistoryResponse.
+                            respond500WithTextPlain(total.cause().getMessage())));
+                        return;
+                      }
+
+                      Loans pagedLoans = new Loans();
+                      pagedLoans.setLoans(loans);
+                      pagedLoans.setTotalRecords(total.result());
+
+                      asyncResultHandler.handle(succeededFuture(
+                        GetLoanStorageLoanHistoryResponse.
+                          respond200WithApplicationJson(pagedLoans)));
+                    });
                 }
                 else {
                   log.error(reply.cause().getMessage(), reply.cause());
@@ -689,12 +1064,291 @@ public class LoansAPI implements LoanStorage {
     }
   }
 
+  @Override
+  public void getLoanStorageLoanHistoryLag(
+    Map<String, String> okapiHeaders,
+    Handler<AsyncResult<Response>> responseHandler,
+    Context vertxContext) {
+
+    final ServerErrorResponder serverErrorResponder =
+      new ServerErrorResponder(GetLoanStorageLoanHistoryLagResponse
+        ::respond500WithTextPlain, responseHandler, log);
+
+    final VertxContextRunner runner = new VertxContextRunner(
+      vertxContext, serverErrorResponder::withError);
+
+    runner.runOnContext(() -> {
+      final String tenantId = TenantTool.tenantId(okapiHeaders);
+
+      final PostgresClient postgresClient = PostgresClient.getInstance(
+        vertxContext.owner(), tenantId);
+
+      final String schema = ModuleSchema.schemaFor(tenantId);
+
+      new LoanHistoryOutbox(postgresClient, schema)
+        .lag(lag -> {
+          if(lag.failed()) {
+            serverErrorResponder.withError(lag.cause());
+            return;
+          }
+
+          responseHandler.handle(succeededFuture(
+            GetLoanStorageLoanHistoryLagResponse.respond200WithApplicationJson(
+              lag.result())));
+        });
+    });
+  }
+
+  @Validate
+  @Override
+  public void putLoanStorageLoanHistoryMode(
+    LoanHistorySetting entity,
+    Map<String, String> okapiHeaders,
+    Handler<AsyncResult<Response>> responseHandler,
+    Context vertxContext) {
+
+    final ServerErrorResponder serverErrorResponder =
+      new ServerErrorResponder(PutLoanStorageLoanHistoryModeResponse
+        ::respond500WithTextPlain, responseHandler, log);
+
+    final VertxContextRunner runner = new VertxContextRunner(
+      vertxContext, serverErrorResponder::withError);
+
+    runner.runOnContext(() -> {
+      final String tenantId = TenantTool.tenantId(okapiHeaders);
+
+      final PostgresClient postgresClient = PostgresClient.getInstance(
+        vertxContext.owner(), tenantId);
+
+      final LoanHistoryOutbox outbox = new LoanHistoryOutbox(postgresClient,
+        ModuleSchema.schemaFor(tenantId));
+
+      final Handler<AsyncResult<Void>> onChanged = changed -> {
+        if(changed.failed()) {
+          serverErrorResponder.withError(changed.cause());
+          return;
+        }
+
+        log.info(String.format("Loan history for %s is now %s", tenantId,
+          entity.getMode()));
+
+        responseHandler.handle(succeededFuture(
+          PutLoanStorageLoanHistoryModeResponse.respond204()));
+      };
+
+      if(entity.getMode() == LoanHistorySetting.Mode.ASYNCHRONOUS) {
+        outbox.enable(onChanged);
+      }
+      else {
+        outbox.disable(onChanged);
+      }
+    });
+  }
+
+  private void getLoanHistoryUsingLookup(
+    LoanHistoryLookup lookup,
+    int offset,
+    int limit,
+    TotalRecords totalRecordsMode,
+    Map<String, String> okapiHeaders,
+    Handler<AsyncResult<Response>> responseHandler,
+    Context vertxContext) {
+
+    final ServerErrorResponder serverErrorResponder =
+      new ServerErrorResponder(GetLoanStorageLoanHistoryResponse
+        ::respond500WithTextPlain, responseHandler, log);
+
+    final VertxContextRunner runner = new VertxContextRunner(
+      vertxContext, serverErrorResponder::withError);
+
+    runner.runOnContext(() -> {
+      final String tenantId = TenantTool.tenantId(okapiHeaders);
+
+      final PostgresClient postgresClient = PostgresClient.getInstance(
+        vertxContext.owner(), tenantId);
+
+      lookup.fetch(postgresClient, tenantId, offset, limit, totalRecordsMode,
+        fetched -> {
+        if(fetched.failed()) {
+          serverErrorResponder.withError(fetched.cause());
+          return;
+        }
+
+        responseHandler.handle(succeededFuture(
+          GetLoanStorageLoanHistoryResponse.respond200WithApplicationJson(
+            fetched.result())));
+      });
+    });
+  }
+
+  private List<Error> validateBatch(List<Loan> loans) {
+    final List<Error> errors = new ArrayList<>();
+    final Set<String> loanIds = new HashSet<>();
+    final Set<String> openLoanItemIds = new HashSet<>();
+
+    for (Loan loan : loans) {
+      final List<Parameter> loanParameter = Collections.singletonList(
+        new Parameter().withKey("id").withValue(loan.getId()));
+
+      //Would otherwise fail when stored, rolling back the whole batch
+      if(!UUIDValidation.isValidUUID(loan.getId())) {
+        errors.add(new Error()
+          .withMessage("Loan ID must be a UUID")
+          .withParameters(loanParameter));
+      }
+
+      //A loan cannot be written more than once by the same statement
+      if(!loanIds.add(loan.getId())) {
+        errors.add(new Error()
+          .withMessage("Cannot have more than one loan with the same ID in a batch")
+          .withParameters(loanParameter));
+      }
+
+      if(isOpenAndHasNoUserId(loan)) {
+        errors.add(new Error()
+          .withMessage("Open loan must have a user ID")
+          .withParameters(loanParameter));
+      }
+
+      ImmutablePair<Boolean, String> validationResult = validateLoan(loan);
+
+      if(!validationResult.getLeft()) {
+        errors.add(new Error()
+          .withMessage(validationResult.getRight())
+          .withParameters(loanParameter));
+      }
+
+      if(isOpen(loan) && !openLoanItemIds.add(loan.getItemId())) {
+        errors.add(moreThanOneOpenLoanErrorFor(loan.getItemId()));
+      }
+    }
+
+    return errors;
+  }
+
+  private void findItemsWithOpenLoans(
+    PostgresClient postgresClient,
+    String tenantId,
+    Set<String> itemIds,
+    Handler<AsyncResult<List<String>>> onComplete) {
+
+    if(itemIds.isEmpty()) {
+      onComplete.handle(succeededFuture(Collections.emptyList()));
+      return;
+    }
+
+    //Same expression and condition as the open loan unique index, so it can be used
+    final String sql = String.format(
+      "SELECT jsonb->>'itemId' FROM %s"
+        + " WHERE (jsonb->'status'->>'name') = '%s'"
+        + " AND (jsonb->>'itemId') = ANY(?::text[])",
+      ModuleSchema.qualifiedTableName(tenantId, LOAN_TABLE), OPEN_LOAN_STATUS);
+
+    //Each element is quoted, as item IDs in a batch are not checked to be UUIDs
+    final String itemIdArray = itemIds.stream()
+      .map(itemId -> "\"" + itemId.replace("\\", "\\\\").replace("\"", "\\\"") + "\"")
+      .collect(Collectors.joining(",", "{", "}"));
+
+    postgresClient.select(sql, new JsonArray().add(itemIdArray), result -> {
+      if(result.failed()) {
+        onComplete.handle(Future.failedFuture(result.cause()));
+        return;
+      }
+
+      onComplete.handle(succeededFuture(result.result().getResults().stream()
+        .map(row -> row.getString(0))
+        .collect(Collectors.toList())));
+    });
+  }
+
+  private void getLoansPage(
+    String table,
+    String sortColumn,
+    String sortColumnType,
+    boolean descending,
+    String query,
+    String continuationToken,
+    int limit,
+    TotalRecords totalRecordsMode,
+    Map<String, String> okapiHeaders,
+    Function<Loans, Response> onSuccess,
+    Function<String, Response> onBadRequest,
+    Function<String, Response> onServerError,
+    Handler<AsyncResult<Response>> responseHandler,
+    Context vertxContext) {
+
+    final ServerErrorResponder serverErrorResponder =
+      new ServerErrorResponder(onServerError, responseHandler, log);
+
+    final VertxContextRunner runner = new VertxContextRunner(
+      vertxContext, serverErrorResponder::withError);
+
+    runner.runOnContext(() -> {
+      final String tenantId = TenantTool.tenantId(okapiHeaders);
+
+      final PostgresClient postgresClient = PostgresClient.getInstance(
+        vertxContext.owner(), tenantId);
+
+      final String qualifiedTableName = ModuleSchema.qualifiedTableName(
+        tenantId, table);
+
+      final CQL2PgJSON cql2pgJson;
+
+      try {
+        cql2pgJson = new CQL2PgJSON(table + ".jsonb");
+      }
+      catch(CQL2PgJSONException e) {
+        serverErrorResponder.withError(e);
+        return;
+      }
+
+      final KeysetPager<Loan> pager = new KeysetPager<>(postgresClient,
+        qualifiedTableName, LOAN_CLASS, sortColumn, sortColumnType, descending);
+
+      pager.page(table + ".jsonb", query, continuationToken, limit, page -> {
+        if(page.succeeded()) {
+          totalRecordsMode.resolve(postgresClient, qualifiedTableName,
+            cql2pgJson, query, null, total -> {
+              if(total.failed()) {
+                serverErrorResponder.withError(total.cause());
+                return;
+              }
+
+              responseHandler.handle(succeededFuture(onSuccess.apply(new Loans()
+                .withLoans(page.result().getRecords())
+                .withTotalRecords(total.result())
+                .withContinuationToken(
+                  page.result().getNextContinuationToken()))));
+            });
+        }
+        else if(page.cause() instanceof IllegalArgumentException) {
+          responseHandler.handle(succeededFuture(
+            onBadRequest.apply(page.cause().getMessage())));
+        }
+        else {
+          serverErrorResponder.withError(page.cause());
+        }
+      });
+    });
+  }
+
   private Errors moreThanOneOpenLoanError(Loan entity) {
     return ValidationHelper.createValidationErrorMessage(
       "itemId", entity.getItemId(),
       "Cannot have more than one open loan for the same item");
   }
 
+  private Error moreThanOneOpenLoanErrorFor(String itemId) {
+    return new Error()
+      .withMessage("Cannot have more than one open loan for the same item")
+      .withParameters(Collections.singletonList(
+        new Parameter().withKey("itemId").withValue(itemId)));
+  }
+
+  private boolean isOpen(Loan loan) {
+    return Objects.equals(loan.getStatus().getName(), OPEN_LOAN_STATUS);
+  }
+
   private <T> boolean isMultipleOpenLoanError(AsyncResult<T> reply) {
     return reply.cause() instanceof GenericDatabaseException &&
       ((GenericDatabaseException) reply.cause()).errorMessage().message()
@@ -722,29 +1376,4 @@ public class LoansAPI implements LoanStorage {
       responseCreator.apply(errors)));
   }
 
-  private String createAnonymizationSQL(
-    @NotNull String userId,
-    String tenantId) {
-
-    final String anonymizeLoansSql = String.format(
-      "UPDATE %s_%s.loan SET jsonb = jsonb - 'userId'"
-        + " WHERE jsonb->>'userId' = '" + userId + "'"
-        + " AND jsonb->'status'->>'name' = 'Closed'",
-      tenantId, MODULE_NAME);
-
-    //Only anonymize the history for loans that are currently closed
-    //meaning that we need to refer to loans in this query
-    final String anonymizeLoansActionHistorySql = String.format(
-      "UPDATE %s_%s.%s SET jsonb = jsonb - 'userId'"
-        + " WHERE jsonb->>'userId' = '" + userId + "'"
-        + " AND jsonb->>'id' IN (SELECT l.jsonb->>'id'" +
-        " FROM %s_%s.loan l WHERE l.jsonb->>'userId' = '" + userId + "'"
-        + " AND l.jsonb->'status'->>'name' = 'Closed')",
-      tenantId, MODULE_NAME, LOAN_HISTORY_TABLE,
-      tenantId, MODULE_NAME);
-
-    //Loan action history needs to go first, as needs to be for specific loans
-    return anonymizeLoansActionHistorySql + "; " + anonymizeLoansSql;
-  }
-
 }
@@ -18,6 +18,8 @@ import org.folio.rest.persist.PgUtil;
 import org.folio.rest.persist.PostgresClient;
 import org.folio.rest.persist.cql.CQLWrapper;
 import org.folio.rest.tools.utils.ValidationHelper;
+import org.folio.support.EntityTag;
+import org.folio.support.PolicyCache;
 import org.z3950.zing.cql.cql2pgjson.CQL2PgJSON;
 
 import javax.ws.rs.core.Response;
@@ -33,6 +35,9 @@ public class PatronNoticePoliciesAPI implements PatronNoticePolicyStorage {
   public static final String STATUS_CODE_DUPLICATE_NAME = "duplicate.name";
   public static final String NOT_FOUND = "Not found";
 
+  private static final PolicyCache<PatronNoticePolicy> policyCache =
+    PolicyCache.configured(PatronNoticePolicy.class);
+
   @Override
   public void getPatronNoticePolicyStoragePatronNoticePolicies(
     int offset,
@@ -107,6 +112,7 @@ public class PatronNoticePoliciesAPI implements PatronNoticePolicyStorage {
               PostPatronNoticePolicyStoragePatronNoticePoliciesResponse.respond500WithTextPlain(save.cause())));
             return;
           }
+          policyCache.invalidate(tenantId, entity.getId());
           asyncResultHandler.handle(Future.succeededFuture(
             PostPatronNoticePolicyStoragePatronNoticePoliciesResponse.respond201WithApplicationJson(entity)));
         });
@@ -121,13 +127,48 @@ public class PatronNoticePoliciesAPI implements PatronNoticePolicyStorage {
   @Override
   public void getPatronNoticePolicyStoragePatronNoticePoliciesByPatronNoticePolicyId(
     String patronNoticePolicyId,
+    String ifNoneMatch,
     Map<String, String> okapiHeaders,
     Handler<AsyncResult<Response>> asyncResultHandler,
     Context vertxContext) {
 
+    String tenantId = okapiHeaders.get(RestVerticle.OKAPI_HEADER_TENANT);
+
+    PatronNoticePolicy cachedPolicy = policyCache.get(tenantId, patronNoticePolicyId);
+
+    if (cachedPolicy != null) {
+      respondWithPolicy(cachedPolicy, ifNoneMatch, asyncResultHandler);
+      return;
+    }
+
     PgUtil.getById(PATRON_NOTICE_POLICY_TABLE, PatronNoticePolicy.class, patronNoticePolicyId, okapiHeaders,
       vertxContext, GetPatronNoticePolicyStoragePatronNoticePoliciesByPatronNoticePolicyIdResponse.class,
-      asyncResultHandler);
+      policyCache.cachingFound(tenantId, patronNoticePolicyId, get -> {
+        if (get.succeeded() && get.result().getEntity() instanceof PatronNoticePolicy) {
+          respondWithPolicy((PatronNoticePolicy) get.result().getEntity(), ifNoneMatch, asyncResultHandler);
+          return;
+        }
+        asyncResultHandler.handle(get);
+      }));
+  }
+
+  private void respondWithPolicy(
+    PatronNoticePolicy policy,
+    String ifNoneMatch,
+    Handler<AsyncResult<Response>> asyncResultHandler) {
+
+    String entityTag = EntityTag.ofRecord(policy);
+
+    if (EntityTag.matches(ifNoneMatch, entityTag)) {
+      asyncResultHandler.handle(Future.succeededFuture(
+        GetPatronNoticePolicyStoragePatronNoticePoliciesByPatronNoticePolicyIdResponse.respond304()));
+      return;
+    }
+    asyncResultHandler.handle(Future.succeededFuture(
+      GetPatronNoticePolicyStoragePatronNoticePoliciesByPatronNoticePolicyIdResponse
+        .respond200WithApplicationJson(policy,
+          GetPatronNoticePolicyStoragePatronNoticePoliciesByPatronNoticePolicyIdResponse.headersFor200()
+            .withETag(entityTag))));
   }
 
   @Override
@@ -139,7 +180,8 @@ public class PatronNoticePoliciesAPI implements PatronNoticePolicyStorage {
 
     PgUtil.deleteById(PATRON_NOTICE_POLICY_TABLE, patronNoticePolicyId, okapiHeaders,
       vertxContext, DeletePatronNoticePolicyStoragePatronNoticePoliciesByPatronNoticePolicyIdResponse.class,
-      asyncResultHandler);
+      policyCache.invalidatingAfter(okapiHeaders.get(RestVerticle.OKAPI_HEADER_TENANT),
+        patronNoticePolicyId, asyncResultHandler));
   }
 
   @Override
@@ -170,6 +212,8 @@ public class PatronNoticePoliciesAPI implements PatronNoticePolicyStorage {
             return;
           }
 
+          policyCache.invalidate(tenantId, patronNoticePolicyId);
+
           if (update.result().getUpdated() == 0) {
             asyncResultHandler.handle(Future.succeededFuture(
               PutPatronNoticePolicyStoragePatronNoticePoliciesByPatronNoticePolicyIdResponse
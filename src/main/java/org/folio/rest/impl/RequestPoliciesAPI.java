@@ -18,6 +18,11 @@ import org.folio.rest.persist.cql.CQLWrapper;
 import org.folio.rest.tools.utils.OutStream;
 import org.folio.rest.tools.utils.TenantTool;
 import org.folio.rest.tools.utils.ValidationHelper;
+import org.folio.support.EntityTag;
+import org.folio.support.ModuleSchema;
+import org.folio.support.PolicyCache;
+import org.folio.support.TotalRecords;
+import org.folio.support.UUIDValidation;
 import org.z3950.zing.cql.cql2pgjson.CQL2PgJSON;
 
 import javax.ws.rs.core.Response;
@@ -34,8 +39,23 @@ public class RequestPoliciesAPI implements RequestPolicyStorage {
   private static final String REQUEST_POLICY_TABLE = "request_policy";
   private static final Class<RequestPolicy> REQUEST_POLICY_CLASS = RequestPolicy.class;
 
+  private static final PolicyCache<RequestPolicy> policyCache =
+    PolicyCache.configured(REQUEST_POLICY_CLASS);
+
   @Override
-  public void getRequestPolicyStorageRequestPolicies(int offset, int limit, String query, String lang, Map<String, String> okapiHeaders, Handler<AsyncResult<Response>> asyncResultHandler, Context vertxContext) {
+  public void getRequestPolicyStorageRequestPolicies(int offset, int limit, String query, String totalRecords, String lang, Map<String, String> okapiHeaders, Handler<AsyncResult<Response>> asyncResultHandler, Context vertxContext) {
+
+    final TotalRecords totalRecordsMode;
+
+    try {
+      totalRecordsMode = TotalRecords.from(totalRecords);
+    }
+    catch(IllegalArgumentException e) {
+      asyncResultHandler.handle(io.vertx.core.Future.succeededFuture(
+        RequestPolicyStorage.GetRequestPolicyStorageRequestPoliciesResponse
+          .respond400WithTextPlain(e.getMessage())));
+      return;
+    }
 
     String tenantId = okapiHeaders.get(TENANT_HEADER);
 
@@ -53,20 +73,32 @@ public class RequestPoliciesAPI implements RequestPolicyStorage {
             .setOffset(new Offset(offset));
 
           postgresClient.get(REQUEST_POLICY_TABLE,  REQUEST_POLICY_CLASS, fieldList, cql,
-            true, false, reply -> {
+            totalRecordsMode.requiresCount(), false, reply -> {
               try {
                 if(reply.succeeded()) {
 
                   @SuppressWarnings("unchecked")
                   List<RequestPolicy> requestPolicies = reply.result().getResults();
 
-                  RequestPolicies pagedRequestPolicies = new RequestPolicies();
-                  pagedRequestPolicies.setRequestPolicies(requestPolicies);
-                  pagedRequestPolicies.setTotalRecords(reply.result().getResultInfo().getTotalRecords());
-
-                  asyncResultHandler.handle(io.vertx.core.Future.succeededFuture(
-                    RequestPolicyStorage.GetRequestPolicyStorageRequestPoliciesResponse.
-                      respond200WithApplicationJson(pagedRequestPolicies)));
+                  totalRecordsMode.resolve(postgresClient,
+                    ModuleSchema.qualifiedTableName(tenantId, REQUEST_POLICY_TABLE),
+                    cql2pgJson, query,
+                    reply.result().getResultInfo().getTotalRecords(), total -> {
+                      if(total.failed()) {
+                        asyncResultHandler.handle(io.vertx.core.Future.succeededFuture(
+                          RequestPolicyStorage.GetRequestPolicyStorageRequestPoliciesResponse
+                            .respond500WithTextPlain(total.cause().getMessage())));
+                        return;
+                      }
+
+                      RequestPolicies pagedRequestPolicies = new RequestPolicies();
+                      pagedRequestPolicies.setRequestPolicies(requestPolicies);
+                      pagedRequestPolicies.setTotalRecords(total.result());
+
+                      asyncResultHandler.handle(io.vertx.core.Future.succeededFuture(
+                        RequestPolicyStorage.GetRequestPolicyStorageRequestPoliciesResponse.
+                          respond200WithApplicationJson(pagedRequestPolicies)));
+                    });
                 }
                 else {
                   asyncResultHandler.handle(io.vertx.core.Future.succeededFuture(
@@ -114,6 +146,8 @@ public class RequestPoliciesAPI implements RequestPolicyStorage {
             reply -> {
               try {
                 if(reply.succeeded()) {
+                  policyCache.invalidate(tenantId, entity.getId());
+
                   OutStream stream = new OutStream();
                   stream.setData(entity);
 
@@ -167,8 +201,11 @@ public class RequestPoliciesAPI implements RequestPolicyStorage {
         CQLWrapper cql = new CQLWrapper(cql2pgJson, null);
 
         postgresClient.delete(REQUEST_POLICY_TABLE, cql,
-          reply -> asyncResultHandler.handle(Future.succeededFuture(
-            DeleteRequestPolicyStorageRequestPoliciesResponse.respond204())));
+          reply -> {
+            policyCache.invalidateAll(tenantId);
+            asyncResultHandler.handle(Future.succeededFuture(
+              DeleteRequestPolicyStorageRequestPoliciesResponse.respond204()));
+          });
       }
       catch(Exception e) {
         asyncResultHandler.handle(io.vertx.core.Future.succeededFuture(
@@ -179,9 +216,26 @@ public class RequestPoliciesAPI implements RequestPolicyStorage {
   }
 
   @Override
-  public void getRequestPolicyStorageRequestPoliciesByRequestPolicyId(String requestPolicyId, String lang, Map<String, String> okapiHeaders, Handler<AsyncResult<Response>> asyncResultHandler, Context vertxContext) {
+  public void getRequestPolicyStorageRequestPoliciesByRequestPolicyId(String requestPolicyId, String ifNoneMatch, String lang, Map<String, String> okapiHeaders, Handler<AsyncResult<Response>> asyncResultHandler, Context vertxContext) {
+    //No policy can have an id which is not a UUID, so there is no need to look
+    if(!UUIDValidation.isValidUUID(requestPolicyId)) {
+      asyncResultHandler.handle(Future.succeededFuture(
+        RequestPolicyStorage.GetRequestPolicyStorageRequestPoliciesByRequestPolicyIdResponse.
+          respond404WithTextPlain(ValidationHelper.createValidationErrorMessage("name", RequestPolicy.class.getName(), "Not Found"))));
+      return;
+    }
+
     String tenantId = okapiHeaders.get(TENANT_HEADER);
 
+    RequestPolicy cachedRequestPolicy = policyCache.get(tenantId, requestPolicyId);
+
+    if(cachedRequestPolicy != null) {
+      respondWithRequestPolicy(cachedRequestPolicy, ifNoneMatch, asyncResultHandler);
+      return;
+    }
+
+    final long readAtGeneration = policyCache.generation(tenantId);
+
     try {
       PostgresClient postgresClient = PostgresClient.getInstance(
         vertxContext.owner(), TenantTool.calculateTenantId(tenantId));
@@ -200,10 +254,10 @@ public class RequestPoliciesAPI implements RequestPolicyStorage {
                   if (requestPolicies.size() == 1) {
                     RequestPolicy requestPolicy = requestPolicies.get(0);
 
-                    asyncResultHandler.handle(
-                      io.vertx.core.Future.succeededFuture(
-                        RequestPolicyStorage.GetRequestPolicyStorageRequestPoliciesByRequestPolicyIdResponse.
-                          respond200WithApplicationJson(requestPolicy)));
+                    policyCache.putIfUnchanged(tenantId, requestPolicyId, requestPolicy,
+                      readAtGeneration);
+
+                    respondWithRequestPolicy(requestPolicy, ifNoneMatch, asyncResultHandler);
                   }
                   else {
                     asyncResultHandler.handle(
@@ -240,9 +294,37 @@ public class RequestPoliciesAPI implements RequestPolicyStorage {
     }
   }
 
+  private void respondWithRequestPolicy(
+    RequestPolicy requestPolicy,
+    String ifNoneMatch,
+    Handler<AsyncResult<Response>> asyncResultHandler) {
+
+    String entityTag = EntityTag.ofRecord(requestPolicy);
+
+    if(EntityTag.matches(ifNoneMatch, entityTag)) {
+      asyncResultHandler.handle(Future.succeededFuture(
+        GetRequestPolicyStorageRequestPoliciesByRequestPolicyIdResponse.respond304()));
+      return;
+    }
+
+    asyncResultHandler.handle(Future.succeededFuture(
+      GetRequestPolicyStorageRequestPoliciesByRequestPolicyIdResponse
+        .respond200WithApplicationJson(requestPolicy,
+          GetRequestPolicyStorageRequestPoliciesByRequestPolicyIdResponse.headersFor200()
+            .withETag(entityTag))));
+  }
+
   @Override
   public void putRequestPolicyStorageRequestPoliciesByRequestPolicyId(String requestPolicyId, String lang, RequestPolicy entity, Map<String, String> okapiHeaders, Handler<AsyncResult<Response>> asyncResultHandler, Context vertxContext) {
 
+    //A policy with an id which is not a UUID cannot be stored
+    if(!UUIDValidation.isValidUUID(requestPolicyId)) {
+      asyncResultHandler.handle(Future.succeededFuture(
+        PutRequestPolicyStorageRequestPoliciesByRequestPolicyIdResponse
+          .respond400WithTextPlain("Request policy ID must be a UUID")));
+      return;
+    }
+
     String tenantId = okapiHeaders.get(TENANT_HEADER);
 
     try {
@@ -262,6 +344,8 @@ public class RequestPoliciesAPI implements RequestPolicyStorage {
                   true,
                   update -> {
                     if (update.succeeded()) {
+                      policyCache.invalidate(tenantId, requestPolicyId);
+
                       OutStream stream = new OutStream();
                       stream.setData(entity);
 
@@ -278,6 +362,8 @@ public class RequestPoliciesAPI implements RequestPolicyStorage {
                 postgresClient.save(REQUEST_POLICY_TABLE, entity.getId(), entity,
                   save -> {
                     if (save.succeeded()) {
+                      policyCache.invalidate(tenantId, requestPolicyId);
+
                       OutStream stream = new OutStream();
                       stream.setData(entity);
 
@@ -305,6 +391,12 @@ public class RequestPoliciesAPI implements RequestPolicyStorage {
 
   @Override
   public void deleteRequestPolicyStorageRequestPoliciesByRequestPolicyId(String requestPolicyId, String lang, Map<String, String> okapiHeaders, Handler<AsyncResult<Response>> asyncResultHandler, Context vertxContext) {
+      //No policy can have an id which is not a UUID, so there is nothing to delete
+      if(!UUIDValidation.isValidUUID(requestPolicyId)) {
+        asyncResultHandler.handle(Future.succeededFuture(
+          DeleteRequestPolicyStorageRequestPoliciesByRequestPolicyIdResponse.respond204()));
+        return;
+      }
 
       String tenantId = okapiHeaders.get(TENANT_HEADER);
 
@@ -320,6 +412,8 @@ public class RequestPoliciesAPI implements RequestPolicyStorage {
             postgresClient.delete(REQUEST_POLICY_TABLE, criterion,
               reply -> {
                 if(reply.succeeded()) {
+                  policyCache.invalidate(tenantId, requestPolicyId);
+
                   asyncResultHandler.handle(
                     Future.succeededFuture(
                       DeleteRequestPolicyStorageRequestPoliciesByRequestPolicyIdResponse
@@ -4,10 +4,15 @@ import com.github.mauricio.async.db.postgresql.exceptions.GenericDatabaseExcepti
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Context;
 import io.vertx.core.Handler;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.logging.Logger;
 import io.vertx.core.logging.LoggerFactory;
+import org.folio.rest.annotations.Validate;
 import org.folio.rest.jaxrs.model.Error;
 import org.folio.rest.jaxrs.model.Errors;
+import org.folio.rest.jaxrs.model.Ids;
+import org.folio.rest.jaxrs.model.Metadata;
+import org.folio.rest.jaxrs.model.Parameter;
 import org.folio.rest.jaxrs.model.Request;
 import org.folio.rest.jaxrs.model.Requests;
 import org.folio.rest.jaxrs.resource.LoanPolicyStorage;
@@ -20,18 +25,34 @@ import org.folio.rest.persist.PostgresClient;
 import org.folio.rest.persist.cql.CQLWrapper;
 import org.folio.rest.tools.utils.OutStream;
 import org.folio.rest.tools.utils.TenantTool;
+import org.folio.support.BatchWriter;
+import org.folio.support.ByIdsFetcher;
+import org.folio.support.EntityTag;
+import org.folio.support.KeysetPager;
+import org.folio.support.MetadataFactory;
+import org.folio.support.ModuleSchema;
+import org.folio.support.ServerErrorResponder;
+import org.folio.support.TotalRecords;
+import org.folio.support.UUIDValidation;
+import org.folio.support.VertxContextRunner;
 import org.z3950.zing.cql.cql2pgjson.CQL2PgJSON;
+import org.z3950.zing.cql.cql2pgjson.CQL2PgJSONException;
 
 import javax.ws.rs.core.Response;
 import java.lang.invoke.MethodHandles;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 import static io.vertx.core.Future.succeededFuture;
 import static org.folio.rest.impl.Headers.TENANT_HEADER;
+import static org.folio.rest.impl.Headers.USER_ID_HEADER;
 
 public class RequestsAPI implements RequestStorage {
   private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
@@ -51,8 +72,8 @@ public class RequestsAPI implements RequestStorage {
         PostgresClient postgresClient = PostgresClient.getInstance(
           vertxContext.owner(), TenantTool.calculateTenantId(tenantId));
 
-        postgresClient.mutate(String.format("TRUNCATE TABLE %s_%s.%s",
-          tenantId, "mod_circulation_storage", REQUEST_TABLE),
+        postgresClient.mutate(String.format("TRUNCATE TABLE %s",
+          ModuleSchema.qualifiedTableName(tenantId, REQUEST_TABLE)),
           reply -> asyncResultHandler.handle(succeededFuture(
             DeleteRequestStorageRequestsResponse.respond204())));
       }
@@ -69,11 +90,34 @@ public class RequestsAPI implements RequestStorage {
     int offset,
     int limit,
     String query,
+    String continuationToken,
+    String totalRecords,
     String lang,
     Map<String, String> okapiHeaders,
     Handler<AsyncResult<Response>> asyncResultHandler,
     Context vertxContext) {
 
+    final TotalRecords totalRecordsMode;
+
+    try {
+      //Counting for every page would undo the benefit of a continuation
+      //token, so is only done when asked for
+      totalRecordsMode = TotalRecords.from(totalRecords,
+        continuationToken == null ? TotalRecords.EXACT : TotalRecords.NONE);
+    }
+    catch(IllegalArgumentException e) {
+      asyncResultHandler.handle(succeededFuture(
+        GetRequestStorageRequestsResponse.respond400WithTextPlain(e.getMessage())));
+      return;
+    }
+
+    if(continuationToken != null) {
+      getRequestsPage(query, continuationToken, limit, totalRecordsMode,
+        okapiHeaders,
+        asyncResultHandler, vertxContext);
+      return;
+    }
+
     Consumer<Exception> exceptionHandler = e -> {
       log.error("Getting requests failed", e);
       asyncResultHandler.handle(succeededFuture(
@@ -100,18 +144,28 @@ public class RequestsAPI implements RequestStorage {
           log.error(String.format("SQL generated from CQL: %s", cql.toString()));
 
           postgresClient.get(REQUEST_TABLE, Request.class, fieldList, cql,
-            true, false, reply -> {
+            totalRecordsMode.requiresCount(), false, reply -> {
               try {
                 if(reply.succeeded()) {
                   @SuppressWarnings("unchecked")
                   List<Request> requests = (List<Request>) reply.result().getResults();
 
-                  Requests pagedRequests = new Requests();
-                  pagedRequests.setRequests(requests);
-                  pagedRequests.setTotalRecords(reply.result().getResultInfo().getTotalRecords());
-
-                  asyncResultHandler.handle(succeededFuture(
-                    GetRequestStorageRequestsResponse.respond200WithApplicationJson(pagedRequests)));
+                  totalRecordsMode.resolve(postgresClient,
+                    ModuleSchema.qualifiedTableName(tenantId, REQUEST_TABLE),
+                    cql2pgJson, query,
+                    reply.result().getResultInfo().getTotalRecords(), total -> {
+                      if(total.failed()) {
+                        exceptionHandler.accept(new Exception(total.cause()));
+                        return;
+                      }
+
+                      Requests pagedRequests = new Requests();
+                      pagedRequests.setRequests(requests);
+                      pagedRequests.setTotalRecords(total.result());
+
+                      asyncResultHandler.handle(succeededFuture(
+                        GetRequestStorageRequestsResponse.respond200WithApplicationJson(pagedRequests)));
+                    });
                 }
                 else {
                   asyncResultHandler.handle(succeededFuture(
@@ -195,14 +249,152 @@ public class RequestsAPI implements RequestStorage {
     }
   }
 
+  @Validate
+  @Override
+  public void postRequestStorageRequestsBatch(
+    Requests entity,
+    Map<String, String> okapiHeaders,
+    Handler<AsyncResult<Response>> responseHandler,
+    Context vertxContext) {
+
+    final ServerErrorResponder serverErrorResponder =
+      new ServerErrorResponder(PostRequestStorageRequestsBatchResponse
+        ::respond500WithTextPlain, responseHandler, log);
+
+    final VertxContextRunner runner = new VertxContextRunner(
+      vertxContext, serverErrorResponder::withError);
+
+    runner.runOnContext(() -> {
+      final List<Request> requests = entity.getRequests();
+
+      final Metadata metadata = MetadataFactory.createdNowBy(
+        okapiHeaders.get(USER_ID_HEADER));
+
+      for (Request request : requests) {
+        if(request.getId() == null) {
+          request.setId(UUID.randomUUID().toString());
+        }
+
+        request.setMetadata(metadata);
+      }
+
+      final List<Error> validationErrors = new ArrayList<>();
+
+      validationErrors.addAll(findDuplicateIds(requests));
+      validationErrors.addAll(findDuplicatePositions(requests));
+
+      if(!validationErrors.isEmpty()) {
+        responseHandler.handle(succeededFuture(
+          PostRequestStorageRequestsBatchResponse.respond422WithApplicationJson(
+            new Errors().withErrors(validationErrors))));
+        return;
+      }
+
+      final String tenantId = TenantTool.tenantId(okapiHeaders);
+
+      final PostgresClient postgresClient = PostgresClient.getInstance(
+        vertxContext.owner(), tenantId);
+
+      final String requestTable = ModuleSchema.qualifiedTableName(tenantId, REQUEST_TABLE);
+
+      //A unique index cannot be deferred until the end of the transaction,
+      //so positions of the requests being written are cleared first,
+      //meaning a queue can be reordered without colliding with itself
+      final String clearPositionsSql = String.format(
+        "UPDATE %s SET jsonb = jsonb - 'position' WHERE _id = ANY(?::uuid[])",
+        requestTable);
+
+      final String requestIds = requests.stream()
+        .map(Request::getId)
+        .collect(Collectors.joining(",", "{", "}"));
+
+      new BatchWriter<>(postgresClient, requestTable, Request::getId)
+        .upsert(requests, clearPositionsSql, new JsonArray().add(requestIds),
+          written -> {
+            if(written.succeeded()) {
+              responseHandler.handle(succeededFuture(
+                PostRequestStorageRequestsBatchResponse.respond201WithApplicationJson(
+                  new Requests().withRequests(requests)
+                    .withTotalRecords(requests.size()))));
+            }
+            else if(isSamePositionInQueueError(written)) {
+              responseHandler.handle(succeededFuture(
+                PostRequestStorageRequestsBatchResponse.respond422WithApplicationJson(
+                  samePositionInQueueError())));
+            }
+            else {
+              serverErrorResponder.withError(written.cause());
+            }
+          });
+    });
+  }
+
+  @Validate
+  @Override
+  public void postRequestStorageRequestsByIds(
+    Ids entity,
+    Map<String, String> okapiHeaders,
+    Handler<AsyncResult<Response>> responseHandler,
+    Context vertxContext) {
+
+    final ServerErrorResponder serverErrorResponder =
+      new ServerErrorResponder(PostRequestStorageRequestsByIdsResponse
+        ::respond500WithTextPlain, responseHandler, log);
+
+    final VertxContextRunner runner = new VertxContextRunner(
+      vertxContext, serverErrorResponder::withError);
+
+    runner.runOnContext(() -> {
+      final Errors invalidIds = ByIdsFetcher.validateIds(entity.getIds());
+
+      if(invalidIds != null) {
+        responseHandler.handle(succeededFuture(
+          PostRequestStorageRequestsByIdsResponse.respond422WithApplicationJson(
+            invalidIds)));
+        return;
+      }
+
+      final String tenantId = TenantTool.tenantId(okapiHeaders);
+
+      final PostgresClient postgresClient = PostgresClient.getInstance(
+        vertxContext.owner(), tenantId);
+
+      new ByIdsFetcher<>(postgresClient,
+        ModuleSchema.qualifiedTableName(tenantId, REQUEST_TABLE),
+        Request.class)
+        .fetch(entity.getIds(), fetched -> {
+          if(fetched.succeeded()) {
+            final List<Request> requests = fetched.result();
+
+            responseHandler.handle(succeededFuture(
+              PostRequestStorageRequestsByIdsResponse.respond200WithApplicationJson(
+                new Requests().withRequests(requests)
+                  .withTotalRecords(requests.size()))));
+          }
+          else {
+            serverErrorResponder.withError(fetched.cause());
+          }
+        });
+    });
+  }
+
   @Override
   public void getRequestStorageRequestsByRequestId(
     String requestId,
+    String ifNoneMatch,
     String lang,
     Map<String, String> okapiHeaders,
     Handler<AsyncResult<Response>> asyncResultHandler,
     Context vertxContext) {
 
+    //No request can have an id which is not a UUID, so there is no need to look
+    if(!UUIDValidation.isValidUUID(requestId)) {
+      asyncResultHandler.handle(succeededFuture(
+        GetRequestStorageRequestsByRequestIdResponse.
+          respond404WithTextPlain("Not Found")));
+      return;
+    }
+
     Consumer<Exception> exceptionHandler = e -> {
       log.error("Getting request by ID failed", e);
       asyncResultHandler.handle(succeededFuture(
@@ -234,10 +426,19 @@ public class RequestsAPI implements RequestStorage {
 
                   if (requests.size() == 1) {
                     Request request = requests.get(0);
+                    String entityTag = EntityTag.ofRecord(request);
+
+                    if (EntityTag.matches(ifNoneMatch, entityTag)) {
+                      asyncResultHandler.handle(succeededFuture(
+                        GetRequestStorageRequestsByRequestIdResponse.respond304()));
+                      return;
+                    }
 
                     asyncResultHandler.handle(succeededFuture(
                       GetRequestStorageRequestsByRequestIdResponse.
-                        respond200WithApplicationJson(request)));
+                        respond200WithApplicationJson(request,
+                          GetRequestStorageRequestsByRequestIdResponse.headersFor200()
+                            .withETag(entityTag))));
                   }
                   else {
                     asyncResultHandler.handle(succeededFuture(
@@ -271,6 +472,13 @@ public class RequestsAPI implements RequestStorage {
     Handler<AsyncResult<Response>> asyncResultHandler,
     Context vertxContext) {
 
+    //No request can have an id which is not a UUID, so there is nothing to delete
+    if(!UUIDValidation.isValidUUID(requestId)) {
+      asyncResultHandler.handle(succeededFuture(
+        DeleteRequestStorageRequestsByRequestIdResponse.respond204()));
+      return;
+    }
+
     String tenantId = okapiHeaders.get(TENANT_HEADER);
 
     try {
@@ -322,6 +530,14 @@ public class RequestsAPI implements RequestStorage {
     Handler<AsyncResult<Response>> asyncResultHandler,
     Context vertxContext) {
 
+    //A request with an id which is not a UUID cannot be stored
+    if(!UUIDValidation.isValidUUID(requestId)) {
+      asyncResultHandler.handle(succeededFuture(
+        PutRequestStorageRequestsByRequestIdResponse.respond400WithTextPlain(
+          "Request ID must be a UUID")));
+      return;
+    }
+
     String tenantId = okapiHeaders.get(TENANT_HEADER);
 
     try {
@@ -329,98 +545,33 @@ public class RequestsAPI implements RequestStorage {
         PostgresClient.getInstance(
           vertxContext.owner(), TenantTool.calculateTenantId(tenantId));
 
-      Criteria a = new Criteria();
-
-      a.addField("'id'");
-      a.setOperation("=");
-      a.setValue(requestId);
-
-      Criterion criterion = new Criterion(a);
-
       vertxContext.runOnContext(v -> {
         try {
-          postgresClient.get(REQUEST_TABLE, Request.class, criterion, true, false,
-            reply -> {
-              if(reply.succeeded()) {
-                List<Request> requestList = (List<Request>) reply.result().getResults();
-
-                if (requestList.size() == 1) {
-                  try {
-                    postgresClient.update(REQUEST_TABLE, entity, criterion,
-                      true,
-                      update -> {
-                        try {
-                          if(update.succeeded()) {
-                            OutStream stream = new OutStream();
-                            stream.setData(entity);
-
-                            asyncResultHandler.handle(succeededFuture(
-                              PutRequestStorageRequestsByRequestIdResponse
-                                .respond204()));
-                          }
-                          else {
-                            if (isSamePositionInQueueError(update)) {
-                              asyncResultHandler.handle(succeededFuture(
-                                PutRequestStorageRequestsByRequestIdResponse
-                                  .respond422WithApplicationJson(samePositionInQueueError(entity))));
-                            } else {
-                              asyncResultHandler.handle(succeededFuture(
-                                PutRequestStorageRequestsByRequestIdResponse
-                                  .respond500WithTextPlain(reply.cause().toString())));
-                            }
-                          }
-                        } catch (Exception e) {
-                          asyncResultHandler.handle(succeededFuture(
-                            PutRequestStorageRequestsByRequestIdResponse
-                              .respond500WithTextPlain(e.getMessage())));
-                        }
-                      });
-                  } catch (Exception e) {
-                    asyncResultHandler.handle(succeededFuture(
-                      PutRequestStorageRequestsByRequestIdResponse
-                        .respond500WithTextPlain(e.getMessage())));
-                  }
+          //Single statement insert or update, avoids a separate look up
+          //and the race between it and the write
+          postgresClient.upsert(REQUEST_TABLE, requestId, entity,
+            upsert -> {
+              try {
+                if(upsert.succeeded()) {
+                  asyncResultHandler.handle(succeededFuture(
+                    PutRequestStorageRequestsByRequestIdResponse
+                      .respond204()));
                 }
                 else {
-                  try {
-                    postgresClient.save(REQUEST_TABLE, entity.getId(), entity,
-                      save -> {
-                        try {
-                          if(save.succeeded()) {
-                            OutStream stream = new OutStream();
-                            stream.setData(entity);
-
-                            asyncResultHandler.handle(succeededFuture(
-                              PutRequestStorageRequestsByRequestIdResponse
-                                .respond204()));
-                          }
-                          else {
-                            if (isSamePositionInQueueError(save)) {
-                              asyncResultHandler.handle(succeededFuture(
-                                PutRequestStorageRequestsByRequestIdResponse
-                                  .respond422WithApplicationJson(samePositionInQueueError(entity))));
-                            } else {
-                              asyncResultHandler.handle(succeededFuture(
-                                PutRequestStorageRequestsByRequestIdResponse
-                                  .respond500WithTextPlain(reply.cause().toString())));
-                            }
-                          }
-                        } catch (Exception e) {
-                          asyncResultHandler.handle(succeededFuture(
-                            PutRequestStorageRequestsByRequestIdResponse
-                              .respond500WithTextPlain(e.getMessage())));
-                        }
-                      });
-                  } catch (Exception e) {
+                  if (isSamePositionInQueueError(upsert)) {
+                    asyncResultHandler.handle(succeededFuture(
+                      PutRequestStorageRequestsByRequestIdResponse
+                        .respond422WithApplicationJson(samePositionInQueueError(entity))));
+                  } else {
                     asyncResultHandler.handle(succeededFuture(
                       PutRequestStorageRequestsByRequestIdResponse
-                        .respond500WithTextPlain(e.getMessage())));
+                        .respond500WithTextPlain(upsert.cause().toString())));
                   }
                 }
-              } else {
+              } catch (Exception e) {
                 asyncResultHandler.handle(succeededFuture(
                   PutRequestStorageRequestsByRequestIdResponse
-                    .respond500WithTextPlain(reply.cause().getMessage())));
+                    .respond500WithTextPlain(e.getMessage())));
               }
             });
         } catch (Exception e) {
@@ -436,6 +587,75 @@ public class RequestsAPI implements RequestStorage {
     }
   }
 
+  private void getRequestsPage(
+    String query,
+    String continuationToken,
+    int limit,
+    TotalRecords totalRecordsMode,
+    Map<String, String> okapiHeaders,
+    Handler<AsyncResult<Response>> responseHandler,
+    Context vertxContext) {
+
+    final ServerErrorResponder serverErrorResponder =
+      new ServerErrorResponder(GetRequestStorageRequestsResponse
+        ::respond500WithTextPlain, responseHandler, log);
+
+    final VertxContextRunner runner = new VertxContextRunner(
+      vertxContext, serverErrorResponder::withError);
+
+    runner.runOnContext(() -> {
+      final String tenantId = TenantTool.tenantId(okapiHeaders);
+
+      final PostgresClient postgresClient = PostgresClient.getInstance(
+        vertxContext.owner(), tenantId);
+
+      final String qualifiedTableName = ModuleSchema.qualifiedTableName(
+        tenantId, REQUEST_TABLE);
+
+      final CQL2PgJSON cql2pgJson;
+
+      try {
+        cql2pgJson = new CQL2PgJSON(String.format("%s.jsonb", REQUEST_TABLE));
+      }
+      catch(CQL2PgJSONException e) {
+        serverErrorResponder.withError(e);
+        return;
+      }
+
+      final KeysetPager<Request> pager = new KeysetPager<>(postgresClient,
+        qualifiedTableName, Request.class);
+
+      pager.page(String.format("%s.jsonb", REQUEST_TABLE), query,
+        continuationToken, limit, page -> {
+          if(page.succeeded()) {
+            totalRecordsMode.resolve(postgresClient, qualifiedTableName,
+              cql2pgJson, query, null, total -> {
+                if(total.failed()) {
+                  serverErrorResponder.withError(total.cause());
+                  return;
+                }
+
+                responseHandler.handle(succeededFuture(
+                  GetRequestStorageRequestsResponse.respond200WithApplicationJson(
+                    new Requests()
+                      .withRequests(page.result().getRecords())
+                      .withTotalRecords(total.result())
+                      .withContinuationToken(
+                        page.result().getNextContinuationToken()))));
+              });
+          }
+          else if(page.cause() instanceof IllegalArgumentException) {
+            responseHandler.handle(succeededFuture(
+              GetRequestStorageRequestsResponse.respond400WithTextPlain(
+                page.cause().getMessage())));
+          }
+          else {
+            serverErrorResponder.withError(page.cause());
+          }
+        });
+    });
+  }
+
   private Errors samePositionInQueueError(Request request) {
     Error error = new Error();
 
@@ -452,6 +672,36 @@ public class RequestsAPI implements RequestStorage {
     return errors;
   }
 
+  //The request which collided is not known, only that one of them did
+  private Errors samePositionInQueueError() {
+    return new Errors().withErrors(Collections.singletonList(new Error()
+      .withMessage("Cannot have more than one request with the same position in the queue")));
+  }
+
+  //A request cannot be written more than once by the same statement
+  private List<Error> findDuplicateIds(List<Request> requests) {
+    final Set<String> ids = new HashSet<>();
+
+    return requests.stream()
+      .filter(request -> !ids.add(request.getId()))
+      .map(request -> new Error()
+        .withMessage("Cannot have more than one request with the same ID in a batch")
+        .withParameters(Collections.singletonList(
+          new Parameter().withKey("id").withValue(request.getId()))))
+      .collect(Collectors.toList());
+  }
+
+  private List<Error> findDuplicatePositions(List<Request> requests) {
+    final Set<String> positions = new HashSet<>();
+
+    return requests.stream()
+      .filter(request -> request.getPosition() != null)
+      .filter(request -> !positions.add(
+        request.getItemId() + "/" + request.getPosition()))
+      .map(request -> samePositionInQueueError(request).getErrors().get(0))
+      .collect(Collectors.toList());
+  }
+
   private <T> boolean isSamePositionInQueueError(AsyncResult<T> reply) {
     return reply.cause() instanceof GenericDatabaseException &&
       ((GenericDatabaseException) reply.cause()).errorMessage().message()
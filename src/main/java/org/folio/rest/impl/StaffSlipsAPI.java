@@ -18,6 +18,7 @@ import org.folio.rest.persist.PostgresClient;
 import org.folio.rest.persist.cql.CQLWrapper;
 import org.folio.rest.tools.utils.OutStream;
 import org.folio.rest.tools.utils.TenantTool;
+import org.folio.support.EntityTag;
 import org.z3950.zing.cql.cql2pgjson.CQL2PgJSON;
 
 import javax.ws.rs.core.Response;
@@ -140,7 +141,7 @@ public class StaffSlipsAPI implements StaffSlipsStorage {
 	}
 
 	@Override
-	public void getStaffSlipsStorageStaffSlipsByStaffSlipId(String staffSlipId, String lang,
+	public void getStaffSlipsStorageStaffSlipsByStaffSlipId(String staffSlipId, String ifNoneMatch, String lang,
 			Map<String, String> okapiHeaders, Handler<AsyncResult<Response>> asyncResultHandler, Context vertxContext) {
 
 		String tenantId = okapiHeaders.get(TENANT_HEADER);
@@ -169,10 +170,20 @@ public class StaffSlipsAPI implements StaffSlipsStorage {
 
 							if (staffSlips.size() == 1) {
 								StaffSlip staffSlip = staffSlips.get(0);
+								String entityTag = EntityTag.ofRecord(staffSlip);
+
+								if (EntityTag.matches(ifNoneMatch, entityTag)) {
+									asyncResultHandler.handle(
+											succeededFuture(StaffSlipsStorage.GetStaffSlipsStorageStaffSlipsByStaffSlipIdResponse
+													.respond304()));
+									return;
+								}
 
 								asyncResultHandler.handle(
 										succeededFuture(StaffSlipsStorage.GetStaffSlipsStorageStaffSlipsByStaffSlipIdResponse
-												.respond200WithApplicationJson(staffSlip)));
+												.respond200WithApplicationJson(staffSlip,
+														StaffSlipsStorage.GetStaffSlipsStorageStaffSlipsByStaffSlipIdResponse
+																.headersFor200().withETag(entityTag))));
 
 							} else {
 								asyncResultHandler.handle(
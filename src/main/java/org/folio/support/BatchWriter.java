@@ -0,0 +1,154 @@
+package org.folio.support;
+
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.function.Function;
+
+import org.folio.rest.persist.PostgresClient;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonArray;
+import io.vertx.ext.sql.SQLConnection;
+
+/**
+ * Writes many records to a table within a single transaction, using
+ * multi-row statements so that a batch needs a handful of round trips
+ * to the database rather than one per record
+ */
+public class BatchWriter<T> {
+  //Keeps the number of bound parameters for a statement well below the
+  //limit imposed by the PostgreSQL protocol (32767)
+  private static final int ROWS_PER_STATEMENT = 500;
+
+  private static final String UPSERT_CLAUSE =
+    " ON CONFLICT (_id) DO UPDATE SET jsonb = jsonb_set(EXCLUDED.jsonb, '{metadata}',"
+      + " COALESCE(EXCLUDED.jsonb->'metadata', '{}'::jsonb)"
+      + " || jsonb_strip_nulls(jsonb_build_object("
+      + "'createdDate', existing.jsonb->'metadata'->'createdDate',"
+      + " 'createdByUserId', existing.jsonb->'metadata'->'createdByUserId',"
+      + " 'createdByUsername', existing.jsonb->'metadata'->'createdByUsername')))";
+
+  private final PostgresClient postgresClient;
+  private final String qualifiedTableName;
+  private final Function<T, String> idGetter;
+
+  public BatchWriter(
+    PostgresClient postgresClient,
+    String qualifiedTableName,
+    Function<T, String> idGetter) {
+
+    this.postgresClient = postgresClient;
+    this.qualifiedTableName = qualifiedTableName;
+    this.idGetter = idGetter;
+  }
+
+  public void insert(List<T> records, Handler<AsyncResult<Void>> onComplete) {
+    write(records, "", null, null, onComplete);
+  }
+
+  /**
+   * Inserts or replaces each of the records, after running the preparation
+   * statement within the same transaction. The preparation statement can
+   * be used to move existing records out of the way of unique indexes
+   * that would otherwise be violated part way through the batch.
+   *
+   * A replaced record keeps who created it and when (the created properties
+   * of its metadata), the same as when a single record is replaced
+   */
+  public void upsert(
+    List<T> records,
+    String preparationSql,
+    JsonArray preparationParameters,
+    Handler<AsyncResult<Void>> onComplete) {
+
+    write(records, UPSERT_CLAUSE, preparationSql, preparationParameters,
+      onComplete);
+  }
+
+  private void write(
+    List<T> records,
+    String conflictClause,
+    String preparationSql,
+    JsonArray preparationParameters,
+    Handler<AsyncResult<Void>> onComplete) {
+
+    postgresClient.startTx(connection -> {
+      if(connection.failed()) {
+        onComplete.handle(Future.failedFuture(connection.cause()));
+        return;
+      }
+
+      final Handler<AsyncResult<Void>> onWritten = written -> {
+        if(written.succeeded()) {
+          postgresClient.endTx(connection, onComplete);
+        }
+        else {
+          postgresClient.rollbackTx(connection, rolledBack ->
+            onComplete.handle(Future.failedFuture(written.cause())));
+        }
+      };
+
+      if(preparationSql == null) {
+        writeChunk(connection, records, 0, conflictClause, onWritten);
+        return;
+      }
+
+      postgresClient.execute(connection, preparationSql, preparationParameters,
+        prepared -> {
+          if(prepared.succeeded()) {
+            writeChunk(connection, records, 0, conflictClause, onWritten);
+          }
+          else {
+            onWritten.handle(Future.failedFuture(prepared.cause()));
+          }
+        });
+    });
+  }
+
+  private void writeChunk(
+    AsyncResult<SQLConnection> connection,
+    List<T> records,
+    int from,
+    String conflictClause,
+    Handler<AsyncResult<Void>> onComplete) {
+
+    if(from >= records.size()) {
+      onComplete.handle(Future.succeededFuture());
+      return;
+    }
+
+    final List<T> chunk = records.subList(from,
+      Math.min(from + ROWS_PER_STATEMENT, records.size()));
+
+    final StringJoiner values = new StringJoiner(", ");
+    final JsonArray parameters = new JsonArray();
+
+    try {
+      for (T record : chunk) {
+        values.add("(?::uuid, ?::jsonb)");
+        parameters.add(idGetter.apply(record));
+        parameters.add(PostgresClient.pojo2json(record));
+      }
+    }
+    catch(Exception e) {
+      onComplete.handle(Future.failedFuture(e));
+      return;
+    }
+
+    final String sql = String.format(
+      "INSERT INTO %s AS existing (_id, jsonb) VALUES %s%s",
+      qualifiedTableName, values.toString(), conflictClause);
+
+    postgresClient.execute(connection, sql, parameters, result -> {
+      if(result.succeeded()) {
+        writeChunk(connection, records, from + chunk.size(), conflictClause,
+          onComplete);
+      }
+      else {
+        onComplete.handle(Future.failedFuture(result.cause()));
+      }
+    });
+  }
+}
@@ -0,0 +1,357 @@
+package org.folio.support;
+
+import java.lang.invoke.MethodHandles;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import org.folio.rest.jaxrs.model.AnonymizationJob;
+import org.folio.rest.jaxrs.model.AnonymizationJobRequest;
+import org.folio.rest.jaxrs.model.Error;
+import org.folio.rest.jaxrs.model.Errors;
+import org.folio.rest.jaxrs.model.Parameter;
+import org.folio.rest.persist.Criteria.Criteria;
+import org.folio.rest.persist.Criteria.Criterion;
+import org.folio.rest.persist.PostgresClient;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+
+/**
+ * Anonymizes closed loans, and the history of those loans, for many users or
+ * for every loan returned before a date, as a job which continues after it
+ * has been started.
+ *
+ * Loans are anonymized in chunks, each a single statement (and so a separate
+ * transaction) which changes a bounded number of loans, so that locks are
+ * only held briefly and other changes to loans can continue during the job.
+ *
+ * For users, a chunk is up to LOANS_PER_CHUNK closed loans for a group of
+ * users, found using the partial index on the user ID of closed loans, and
+ * repeated until the group has no more. For a date, a chunk examines the
+ * next LOANS_PER_CHUNK loans in id order (keyset paging on the primary key),
+ * so each loan is only examined once, however many there are.
+ *
+ * The progress of the job is saved after each chunk. The job runs within the
+ * module instance it was started in, so is left in progress if that instance
+ * stops
+ */
+public class BulkLoanAnonymizer {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  public static final String JOB_TABLE = "anonymization_job";
+
+  private static final int LOANS_PER_CHUNK = 1000;
+  private static final int USERS_PER_CHUNK = 500;
+
+  //Precedes every UUID, so the first chunk starts from the beginning
+  private static final String FIRST_CURSOR = "00000000-0000-0000-0000-000000000000";
+
+  private final PostgresClient postgresClient;
+  private final String schema;
+
+  public BulkLoanAnonymizer(PostgresClient postgresClient, String tenantId) {
+    this.postgresClient = postgresClient;
+    this.schema = ModuleSchema.schemaFor(tenantId);
+  }
+
+  /**
+   * @return an error when the request is neither for users nor for a date,
+   * or for each user id which is not a UUID, or null when it is valid
+   */
+  public static Errors validate(AnonymizationJobRequest request) {
+    final boolean forUsers = request.getUserIds() != null;
+    final boolean forDate = request.getClosedBefore() != null;
+
+    if(forUsers == forDate) {
+      return new Errors().withErrors(Collections.singletonList(new Error()
+        .withMessage("Either userIds or closedBefore is required, but not both")
+        .withParameters(Collections.singletonList(
+          new Parameter().withKey("closedBefore").withValue(
+            String.valueOf(request.getClosedBefore()))))));
+    }
+
+    if(forDate) {
+      return null;
+    }
+
+    final List<Error> errors = request.getUserIds().stream()
+      .filter(id -> !UUIDValidation.isValidUUID(id))
+      .map(id -> new Error()
+        .withMessage("user id is not a valid UUID")
+        .withParameters(Collections.singletonList(
+          new Parameter().withKey("userIds").withValue(id))))
+      .collect(Collectors.toList());
+
+    return errors.isEmpty()
+      ? null
+      : new Errors().withErrors(errors);
+  }
+
+  /**
+   * Saves the job, then continues anonymizing loans after the job is
+   * provided to onStarted
+   *
+   * @param request must be valid
+   */
+  public void start(
+    AnonymizationJobRequest request,
+    Handler<AsyncResult<AnonymizationJob>> onStarted) {
+
+    final AnonymizationJob job = new AnonymizationJob()
+      .withId(UUID.randomUUID().toString())
+      .withStatus(AnonymizationJob.Status.IN_PROGRESS)
+      .withClosedBefore(request.getClosedBefore())
+      .withLoansAnonymized(0)
+      .withLoanHistoryAnonymized(0)
+      .withChunksCompleted(0)
+      .withLoansPerSecond(0.0)
+      .withStartedDate(new Date());
+
+    final List<List<String>> userGroups = request.getUserIds() == null
+      ? null
+      : groups(request.getUserIds());
+
+    if(userGroups != null) {
+      job.setNumberOfUsers(userGroups.stream().mapToInt(List::size).sum());
+    }
+
+    postgresClient.save(JOB_TABLE, job.getId(), job, saved -> {
+      if(saved.failed()) {
+        onStarted.handle(Future.failedFuture(saved.cause()));
+        return;
+      }
+
+      onStarted.handle(Future.succeededFuture(job));
+
+      log.info(String.format("Started anonymization job %s", job.getId()));
+
+      if(userGroups != null) {
+        anonymizeUsers(job, userGroups, 0);
+      }
+      else {
+        anonymizeClosedBefore(job, FIRST_CURSOR);
+      }
+    });
+  }
+
+  private void anonymizeUsers(
+    AnonymizationJob job,
+    List<List<String>> userGroups,
+    int group) {
+
+    if(group >= userGroups.size()) {
+      complete(job);
+      return;
+    }
+
+    final JsonArray parameters = new JsonArray()
+      .add(userGroups.get(group).stream()
+        .collect(Collectors.joining(",", "{", "}")))
+      .add(LOANS_PER_CHUNK);
+
+    postgresClient.select(forUsersSql(schema), parameters, select -> {
+      if(select.failed()) {
+        fail(job, select.cause());
+        return;
+      }
+
+      final JsonArray counts = select.result().getResults().get(0);
+      final long loans = counts.getLong(0);
+
+      //A full chunk may have left some loans for this group of users
+      final int nextGroup = loans < LOANS_PER_CHUNK ? group + 1 : group;
+
+      recordProgress(job, loans, counts.getLong(1),
+        () -> anonymizeUsers(job, userGroups, nextGroup));
+    });
+  }
+
+  private void anonymizeClosedBefore(AnonymizationJob job, String cursor) {
+    final JsonArray parameters = new JsonArray()
+      .add(cursor)
+      .add(LOANS_PER_CHUNK)
+      .add(new DateTime(job.getClosedBefore(), DateTimeZone.UTC).toString());
+
+    postgresClient.select(closedBeforeSql(schema), parameters, select -> {
+      if(select.failed()) {
+        fail(job, select.cause());
+        return;
+      }
+
+      final JsonArray counts = select.result().getResults().get(0);
+
+      //No loans were examined, so every loan has been
+      final String lastExamined = counts.getString(0);
+
+      recordProgress(job, counts.getLong(1), counts.getLong(2), () -> {
+        if(lastExamined == null) {
+          complete(job);
+        }
+        else {
+          anonymizeClosedBefore(job, lastExamined);
+        }
+      });
+    });
+  }
+
+  /**
+   * Has two parameters: the user IDs (as an array literal) and the maximum
+   * number of loans to anonymize
+   */
+  static String forUsersSql(String schema) {
+    return String.format(
+      "WITH chunk AS ("
+        + " SELECT _id, jsonb->>'userId' AS user_id FROM %1$s.loan"
+        + " WHERE (jsonb->>'userId') = ANY(?::text[])"
+        + " AND (jsonb->'status'->>'name') = 'Closed'"
+        + " LIMIT ? FOR UPDATE),"
+        + anonymizeChunkSql()
+        + " SELECT (SELECT count(*) FROM anonymized_loans),"
+        + " (SELECT count(*) FROM anonymized_history)"
+        + " + (SELECT count(*) FROM anonymized_queued_history)",
+      schema);
+  }
+
+  /**
+   * Has three parameters: the id after which to start examining loans, the
+   * number of loans to examine and the date closed loans were returned before
+   */
+  static String closedBeforeSql(String schema) {
+    return String.format(
+      "WITH examined AS ("
+        + " SELECT _id, jsonb FROM %1$s.loan"
+        + " WHERE _id > ?::uuid ORDER BY _id LIMIT ? FOR UPDATE),"
+        + " chunk AS ("
+        + " SELECT _id, jsonb->>'userId' AS user_id FROM examined"
+        + " WHERE (jsonb->>'userId') IS NOT NULL"
+        + " AND (jsonb->'status'->>'name') = 'Closed'"
+        //Return dates are not validated, so any which are not dates are left
+        + " AND CASE WHEN (jsonb->>'returnDate') ~ '^[0-9]{4}-[0-9]{2}-[0-9]{2}T'"
+        + " THEN (jsonb->>'returnDate')::timestamptz END < ?::timestamptz),"
+        + anonymizeChunkSql()
+        + " SELECT (SELECT _id::text FROM examined ORDER BY _id DESC LIMIT 1),"
+        + " (SELECT count(*) FROM anonymized_loans),"
+        + " (SELECT count(*) FROM anonymized_history)"
+        + " + (SELECT count(*) FROM anonymized_queued_history)",
+      schema);
+  }
+
+  /**
+   * Anonymizes the loans in the chunk, and the history of those loans, found
+   * by the user ID of each loan so that the index on the user ID of history
+   * records can be used, including history still queued to be appended
+   */
+  private static String anonymizeChunkSql() {
+    return " anonymized_loans AS ("
+      + " UPDATE %1$s.loan loan SET jsonb = loan.jsonb - 'userId'"
+      + " FROM chunk WHERE loan._id = chunk._id"
+      + " RETURNING loan.jsonb->>'id' AS id, chunk.user_id),"
+      + " anonymized_history AS ("
+      + " UPDATE %1$s.audit_loan history SET jsonb = history.jsonb - 'userId'"
+      + " FROM anonymized_loans"
+      + " WHERE (history.jsonb->>'userId') = anonymized_loans.user_id"
+      + " AND (history.jsonb->>'id') = anonymized_loans.id"
+      + " RETURNING 1),"
+      + ClosedLoanAnonymizer.anonymizeQueuedHistorySql();
+  }
+
+  private void recordProgress(
+    AnonymizationJob job,
+    long loans,
+    long historyRecords,
+    Runnable next) {
+
+    job.setLoansAnonymized(job.getLoansAnonymized() + (int) loans);
+    job.setLoanHistoryAnonymized(job.getLoanHistoryAnonymized() + (int) historyRecords);
+    job.setChunksCompleted(job.getChunksCompleted() + 1);
+    job.setLoansPerSecond(loansPerSecond(job, new Date()));
+
+    //Progress is only reported, so the job continues if it cannot be saved
+    save(job, saved -> next.run());
+  }
+
+  private void complete(AnonymizationJob job) {
+    final Date finished = new Date();
+
+    job.setStatus(AnonymizationJob.Status.COMPLETED);
+    job.setFinishedDate(finished);
+    job.setLoansPerSecond(loansPerSecond(job, finished));
+
+    log.info(String.format(
+      "Anonymization job %s anonymized %d loans and %d loan history records in %d chunks",
+      job.getId(), job.getLoansAnonymized(), job.getLoanHistoryAnonymized(),
+      job.getChunksCompleted()));
+
+    save(job, saved -> { });
+  }
+
+  private void fail(AnonymizationJob job, Throwable cause) {
+    log.error(String.format("Anonymization job %s failed", job.getId()), cause);
+
+    job.setStatus(AnonymizationJob.Status.FAILED);
+    job.setFinishedDate(new Date());
+    job.setErrorMessage(cause.getMessage());
+
+    save(job, saved -> { });
+  }
+
+  private void save(AnonymizationJob job, Handler<AsyncResult<Void>> onSaved) {
+    final Criteria idCriteria = new Criteria()
+      .addField("'id'")
+      .setOperation("=")
+      .setValue(job.getId());
+
+    try {
+      postgresClient.update(JOB_TABLE, job, new Criterion(idCriteria), true,
+        update -> {
+          if(update.failed()) {
+            log.warn(String.format("Unable to save anonymization job %s",
+              job.getId()), update.cause());
+          }
+
+          onSaved.handle(Future.succeededFuture());
+        });
+    }
+    catch(Exception e) {
+      log.warn(String.format("Unable to save anonymization job %s",
+        job.getId()), e);
+
+      onSaved.handle(Future.succeededFuture());
+    }
+  }
+
+  private static double loansPerSecond(AnonymizationJob job, Date now) {
+    final long took = Math.max(now.getTime() - job.getStartedDate().getTime(), 1);
+
+    //Rounded to a tenth of a loan
+    return Math.round(job.getLoansAnonymized() * 10000.0 / took) / 10.0;
+  }
+
+  /**
+   * Splits the distinct user IDs into groups anonymized by the same chunks
+   */
+  private static List<List<String>> groups(List<String> userIds) {
+    final List<String> distinctUserIds = new ArrayList<>(
+      new LinkedHashSet<>(userIds));
+
+    final List<List<String>> groups = new ArrayList<>();
+
+    for (int first = 0; first < distinctUserIds.size(); first += USERS_PER_CHUNK) {
+      groups.add(distinctUserIds.subList(first,
+        Math.min(first + USERS_PER_CHUNK, distinctUserIds.size())));
+    }
+
+    return groups;
+  }
+}
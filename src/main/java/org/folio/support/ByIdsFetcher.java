@@ -0,0 +1,117 @@
+package org.folio.support;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.folio.rest.jaxrs.model.Error;
+import org.folio.rest.jaxrs.model.Errors;
+import org.folio.rest.jaxrs.model.Parameter;
+import org.folio.rest.persist.PostgresClient;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
+
+/**
+ * Fetches many records by id using a single indexed lookup on the primary key
+ * (_id = ANY of an array), rather than a CQL query with an OR condition for
+ * each id or a request for each record.
+ *
+ * Records are provided in the order of the ids (repeated ids are only
+ * included once), and ids without a record are left out
+ */
+public class ByIdsFetcher<T> {
+  private static final String ID_COLUMN = "_id";
+
+  private final PostgresClient postgresClient;
+  private final String qualifiedTableName;
+  private final Class<T> recordClass;
+
+  public ByIdsFetcher(
+    PostgresClient postgresClient,
+    String qualifiedTableName,
+    Class<T> recordClass) {
+
+    this.postgresClient = postgresClient;
+    this.qualifiedTableName = qualifiedTableName;
+    this.recordClass = recordClass;
+  }
+
+  /**
+   * @return an error for each id which is not a UUID, or null when they
+   * are all valid
+   */
+  public static Errors validateIds(List<String> ids) {
+    final List<Error> errors = ids.stream()
+      .filter(id -> !UUIDValidation.isValidUUID(id))
+      .map(id -> new Error()
+        .withMessage("id is not a valid UUID")
+        .withParameters(Collections.singletonList(
+          new Parameter().withKey("ids").withValue(id))))
+      .collect(Collectors.toList());
+
+    return errors.isEmpty()
+      ? null
+      : new Errors().withErrors(errors);
+  }
+
+  /**
+   * @param ids must all be valid UUIDs
+   */
+  public void fetch(List<String> ids, Handler<AsyncResult<List<T>>> onComplete) {
+    final Set<String> distinctIds = ids.stream()
+      .map(String::toLowerCase)
+      .collect(Collectors.toCollection(LinkedHashSet::new));
+
+    if(distinctIds.isEmpty()) {
+      onComplete.handle(Future.succeededFuture(new ArrayList<>()));
+      return;
+    }
+
+    //A single array parameter, so the statement is the same whatever the
+    //number of ids
+    final String sql = String.format(
+      "SELECT %s::text, jsonb::text FROM %s WHERE %s = ANY(?::uuid[])",
+      ID_COLUMN, qualifiedTableName, ID_COLUMN);
+
+    final JsonArray parameters = new JsonArray()
+      .add(distinctIds.stream().collect(Collectors.joining(",", "{", "}")));
+
+    postgresClient.select(sql, parameters, result -> {
+      if(result.failed()) {
+        onComplete.handle(Future.failedFuture(result.cause()));
+        return;
+      }
+
+      try {
+        final Map<String, String> representations = new HashMap<>();
+
+        result.result().getResults().forEach(row ->
+          representations.put(row.getString(0), row.getString(1)));
+
+        final List<T> records = new ArrayList<>(representations.size());
+
+        for (String id : distinctIds) {
+          final String representation = representations.get(id);
+
+          if(representation != null) {
+            records.add(Json.decodeValue(representation, recordClass));
+          }
+        }
+
+        onComplete.handle(Future.succeededFuture(records));
+      }
+      catch(Exception e) {
+        onComplete.handle(Future.failedFuture(e));
+      }
+    });
+  }
+}
@@ -0,0 +1,119 @@
+package org.folio.support;
+
+import org.folio.rest.persist.PostgresClient;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonArray;
+
+/**
+ * Removes the user from the closed loans for a user, and from the history
+ * of those loans, using a single statement.
+ *
+ * The closed loans are found using a partial index on the user ID of closed
+ * loans, declared in createAnonymizationIndexes.sql, and the history using
+ * an index on the user ID of history records, declared in
+ * createLoanHistoryIndexes.sql. The history is joined to
+ * the loans changed by the same statement, rather than finding those loans
+ * again in a sub-query. Changing a loan adds a history record, which already
+ * has no user ID. History which is still queued to be appended (see
+ * createLoanHistoryOutbox.sql) is anonymized too, so the user is not added
+ * back when it is appended.
+ *
+ * The user ID is a bound parameter, so the statement is the same for every
+ * user and can be prepared once
+ */
+public class ClosedLoanAnonymizer {
+  private final PostgresClient postgresClient;
+  private final String tenantId;
+
+  public ClosedLoanAnonymizer(PostgresClient postgresClient, String tenantId) {
+    this.postgresClient = postgresClient;
+    this.tenantId = tenantId;
+  }
+
+  /**
+   * @param userId must be a valid UUID
+   */
+  public void anonymize(String userId, Handler<AsyncResult<Result>> onComplete) {
+    final JsonArray parameters = new JsonArray()
+      .add(userId)
+      .add(userId);
+
+    postgresClient.select(anonymizationSql(tenantId), parameters, select -> {
+      if(select.failed()) {
+        onComplete.handle(Future.failedFuture(select.cause()));
+        return;
+      }
+
+      try {
+        final JsonArray counts = select.result().getResults().get(0);
+
+        onComplete.handle(Future.succeededFuture(
+          new Result(counts.getLong(0), counts.getLong(1))));
+      }
+      catch(Exception e) {
+        onComplete.handle(Future.failedFuture(e));
+      }
+    });
+  }
+
+  /**
+   * Has two parameters, both the user ID
+   */
+  public static String anonymizationSql(String tenantId) {
+    final String schema = ModuleSchema.schemaFor(tenantId);
+
+    return String.format(
+      "WITH anonymized_loans AS ("
+        + " UPDATE %1$s.loan SET jsonb = jsonb - 'userId'"
+        + " WHERE (jsonb->>'userId') = ?"
+        + " AND (jsonb->'status'->>'name') = 'Closed'"
+        + " RETURNING jsonb->>'id' AS id),"
+        + " anonymized_history AS ("
+        + " UPDATE %1$s.audit_loan history SET jsonb = history.jsonb - 'userId'"
+        + " FROM anonymized_loans"
+        + " WHERE (history.jsonb->>'userId') = ?"
+        + " AND (history.jsonb->>'id') = anonymized_loans.id"
+        + " RETURNING 1),"
+        + anonymizeQueuedHistorySql()
+        + " SELECT (SELECT count(*) FROM anonymized_loans),"
+        + " (SELECT count(*) FROM anonymized_history)"
+        + " + (SELECT count(*) FROM anonymized_queued_history)",
+      schema);
+  }
+
+  /**
+   * Anonymizes the queued history of the loans in anonymized_loans, found
+   * by the index on the loan ID of queued history. Refers to the schema as %1$s
+   */
+  static String anonymizeQueuedHistorySql() {
+    return " anonymized_queued_history AS ("
+      + " UPDATE %1$s.audit_loan_outbox queued"
+      + " SET history = jsonb_set(queued.history, '{jsonb}',"
+      + " (queued.history->'jsonb') - 'userId')"
+      + " FROM anonymized_loans"
+      + " WHERE (queued.history->'jsonb'->>'id') = anonymized_loans.id"
+      + " AND (queued.history->'jsonb'->>'userId') IS NOT NULL"
+      + " RETURNING 1)";
+  }
+
+  public static class Result {
+    private final long loans;
+    private final long historyRecords;
+
+    Result(long loans, long historyRecords) {
+      this.loans = loans;
+      this.historyRecords = historyRecords;
+    }
+
+    public long getLoans() {
+      return loans;
+    }
+
+    public long getHistoryRecords() {
+      return historyRecords;
+    }
+  }
+}
@@ -0,0 +1,75 @@
+package org.folio.support;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Position within a collection ordered by a sort key and then id,
+ * encoded so that clients treat it as opaque
+ */
+public class ContinuationToken {
+  public static final String FIRST_PAGE = "start";
+
+  private static final String SORT_VALUE_PROPERTY = "sortValue";
+  private static final String ID_PROPERTY = "id";
+
+  private final String sortValue;
+  private final String id;
+
+  ContinuationToken(String sortValue, String id) {
+    this.sortValue = sortValue;
+    this.id = id;
+  }
+
+  /**
+   * @return null for the first page
+   * @throws IllegalArgumentException when token was not produced by this class
+   */
+  public static ContinuationToken parse(String token) {
+    if(FIRST_PAGE.equals(token)) {
+      return null;
+    }
+
+    try {
+      final JsonObject decoded = new JsonObject(new String(
+        Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8));
+
+      final String sortValue = decoded.getString(SORT_VALUE_PROPERTY);
+      final String id = decoded.getString(ID_PROPERTY);
+
+      if(sortValue == null || id == null || !UUIDValidation.isValidUUID(id)) {
+        throw new IllegalArgumentException(invalidTokenMessage(token));
+      }
+
+      return new ContinuationToken(sortValue, id);
+    }
+    catch(DecodeException | ClassCastException e) {
+      throw new IllegalArgumentException(invalidTokenMessage(token), e);
+    }
+  }
+
+  public String encode() {
+    final String json = new JsonObject()
+      .put(SORT_VALUE_PROPERTY, sortValue)
+      .put(ID_PROPERTY, id)
+      .encode();
+
+    return Base64.getUrlEncoder().withoutPadding()
+      .encodeToString(json.getBytes(StandardCharsets.UTF_8));
+  }
+
+  String getSortValue() {
+    return sortValue;
+  }
+
+  String getId() {
+    return id;
+  }
+
+  private static String invalidTokenMessage(String token) {
+    return String.format("Invalid continuation token: \"%s\"", token);
+  }
+}
@@ -0,0 +1,99 @@
+package org.folio.support;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+import org.folio.rest.persist.PostgresClient;
+
+/**
+ * Strong entity tags (ETag) derived from the representation or version of
+ * a record, and the comparisons used for If-None-Match and If-Match
+ * request headers
+ */
+public class EntityTag {
+  private EntityTag() { }
+
+  public static String of(String representation) {
+    try {
+      final byte[] digest = MessageDigest.getInstance("SHA-256")
+        .digest(representation.getBytes(StandardCharsets.UTF_8));
+
+      final StringBuilder tag = new StringBuilder("\"");
+
+      //Half of the digest is plenty to tell representations apart
+      for (int index = 0; index < digest.length / 2; index++) {
+        tag.append(String.format("%02x", digest[index]));
+      }
+
+      return tag.append("\"").toString();
+    }
+    catch(NoSuchAlgorithmException e) {
+      //Every Java platform is required to support SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Derived from the JSON representation of the record, rather than when it
+   * was last updated, as some changes (e.g. anonymization) are made directly
+   * in the database without changing the metadata
+   *
+   * @throws IllegalArgumentException when the record cannot be represented as JSON
+   */
+  public static String ofRecord(Object record) {
+    try {
+      return of(PostgresClient.pojo2json(record));
+    }
+    catch(Exception e) {
+      throw new IllegalArgumentException(e);
+    }
+  }
+
+  public static String ofVersion(int version) {
+    return "\"" + version + "\"";
+  }
+
+  /**
+   * Uses weak comparison, as required for If-None-Match
+   *
+   * @param ifNoneMatch value of the header, may be null or a list of tags
+   */
+  public static boolean matches(String ifNoneMatch, String entityTag) {
+    if(ifNoneMatch == null || entityTag == null) {
+      return false;
+    }
+
+    return Arrays.stream(ifNoneMatch.split(","))
+      .map(String::trim)
+      .anyMatch(candidate -> candidate.equals("*")
+        || withoutWeakPrefix(candidate).equals(withoutWeakPrefix(entityTag)));
+  }
+
+  private static String withoutWeakPrefix(String entityTag) {
+    return entityTag.startsWith("W/") ? entityTag.substring(2) : entityTag;
+  }
+
+  /**
+   * Uses strong comparison, as required for If-Match, so a weak tag
+   * never matches
+   *
+   * @param ifMatch value of the header, may be null (unconditional)
+   * or a list of tags
+   */
+  public static boolean satisfies(String ifMatch, String entityTag) {
+    if(ifMatch == null) {
+      return true;
+    }
+
+    if(entityTag == null) {
+      return false;
+    }
+
+    return Arrays.stream(ifMatch.split(","))
+      .map(String::trim)
+      .anyMatch(candidate -> candidate.equals("*")
+        || candidate.equals(entityTag));
+  }
+}
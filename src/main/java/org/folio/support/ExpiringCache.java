@@ -0,0 +1,172 @@
+package org.folio.support;
+
+import java.util.Comparator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Holds values in memory for a limited time. Each module instance has its
+ * own cache, so a change made through another instance is only seen once
+ * the cached value has expired.
+ *
+ * A value read from the database before a change, which completes after
+ * the cache has been changed (by put or invalidate), must not replace the
+ * newer value. Readers take the generation of the cache before reading and
+ * only cache what they read when it is unchanged (putIfUnchanged)
+ */
+public class ExpiringCache<K, V> {
+  private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+  private final long timeToLiveMillis;
+  private final int maximumSize;
+  private final LongSupplier currentTimeMillis;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  //Guarded by this, changed whenever a value is put or invalidated
+  private long generation = 0;
+
+  public ExpiringCache(long timeToLive, TimeUnit unit) {
+    this(timeToLive, unit, Integer.MAX_VALUE);
+  }
+
+  /**
+   * @param maximumSize the most values held at once, once reached the value
+   * closest to expiring is discarded to make room for another
+   */
+  public ExpiringCache(long timeToLive, TimeUnit unit, int maximumSize) {
+    this(timeToLive, unit, maximumSize, System::currentTimeMillis);
+  }
+
+  ExpiringCache(long timeToLive, TimeUnit unit, LongSupplier currentTimeMillis) {
+    this(timeToLive, unit, Integer.MAX_VALUE, currentTimeMillis);
+  }
+
+  ExpiringCache(
+    long timeToLive,
+    TimeUnit unit,
+    int maximumSize,
+    LongSupplier currentTimeMillis) {
+
+    if(maximumSize < 1) {
+      throw new IllegalArgumentException("Maximum size must be at least 1");
+    }
+
+    this.timeToLiveMillis = unit.toMillis(timeToLive);
+    this.maximumSize = maximumSize;
+    this.currentTimeMillis = currentTimeMillis;
+  }
+
+  /**
+   * @return the cached value, or null when there is none or it has expired
+   */
+  public V get(K key) {
+    final Entry<V> entry = entries.get(key);
+
+    if(entry == null) {
+      misses.incrementAndGet();
+      return null;
+    }
+
+    if(entry.expiresAt <= currentTimeMillis.getAsLong()) {
+      entries.remove(key, entry);
+      misses.incrementAndGet();
+      return null;
+    }
+
+    hits.incrementAndGet();
+    return entry.value;
+  }
+
+  /**
+   * Caches a value which is known to be current, e.g. once it has been written
+   */
+  public synchronized void put(K key, V value) {
+    generation++;
+    store(key, value);
+  }
+
+  /**
+   * @return a marker to give to putIfUnchanged, taken before reading the
+   * value to be cached
+   */
+  public synchronized long generation() {
+    return generation;
+  }
+
+  /**
+   * Caches a value read from elsewhere, unless the cache has been changed
+   * since the generation was taken, as the value may then be out of date
+   *
+   * @return whether the value was cached
+   */
+  public synchronized boolean putIfUnchanged(K key, V value, long readAtGeneration) {
+    if(generation != readAtGeneration) {
+      return false;
+    }
+
+    store(key, value);
+    return true;
+  }
+
+  public synchronized void invalidate(K key) {
+    generation++;
+    entries.remove(key);
+  }
+
+  public synchronized void invalidateAll() {
+    generation++;
+    entries.clear();
+  }
+
+  /**
+   * @return how many times a value was provided from the cache
+   */
+  public long getHits() {
+    return hits.get();
+  }
+
+  /**
+   * @return how many times no value could be provided from the cache
+   */
+  public long getMisses() {
+    return misses.get();
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  private void store(K key, V value) {
+    final long now = currentTimeMillis.getAsLong();
+
+    if(entries.size() >= maximumSize && !entries.containsKey(key)) {
+      makeRoom(now);
+    }
+
+    entries.put(key, new Entry<>(value, now + timeToLiveMillis));
+  }
+
+  //Only used when the cache is full, which a maximum size chosen to hold
+  //every value in use should make rare, so checking every entry is acceptable
+  private void makeRoom(long now) {
+    entries.entrySet().removeIf(entry -> entry.getValue().expiresAt <= now);
+
+    while(entries.size() >= maximumSize) {
+      entries.entrySet().stream()
+        .min(Comparator.comparingLong(entry -> entry.getValue().expiresAt))
+        .ifPresent(entry -> entries.remove(entry.getKey(), entry.getValue()));
+    }
+  }
+
+  private static class Entry<V> {
+    private final V value;
+    private final long expiresAt;
+
+    private Entry(V value, long expiresAt) {
+      this.value = value;
+      this.expiresAt = expiresAt;
+    }
+  }
+}
@@ -0,0 +1,103 @@
+package org.folio.support;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+
+import org.folio.rest.jaxrs.model.Schedule;
+
+/**
+ * The date ranges of a fixed due date schedule sorted by the start of each
+ * range, so that the range including a loan date can be found using a binary
+ * search, rather than by checking every range.
+ *
+ * The start and end of a range are both included within it, as clients
+ * of the schedules have always treated them
+ */
+public class FixedDueDateScheduleIndex {
+  private final List<Schedule> schedules;
+  private final long[] from;
+  private final long[] to;
+  private final Date[] due;
+  private final List<Schedule> firstOverlap;
+
+  private FixedDueDateScheduleIndex(List<Schedule> schedules) {
+    this.schedules = schedules;
+
+    final List<Schedule> sorted = sortedByFrom(schedules);
+
+    from = new long[sorted.size()];
+    to = new long[sorted.size()];
+    due = new Date[sorted.size()];
+
+    List<Schedule> overlap = Collections.emptyList();
+
+    for (int index = 0; index < sorted.size(); index++) {
+      final Schedule schedule = sorted.get(index);
+
+      from[index] = schedule.getFrom().getTime();
+      to[index] = schedule.getTo().getTime();
+      due[index] = schedule.getDue();
+
+      if(overlap.isEmpty() && index > 0 && from[index] <= to[index - 1]) {
+        overlap = Arrays.asList(sorted.get(index - 1), schedule);
+      }
+    }
+
+    firstOverlap = overlap;
+  }
+
+  public static FixedDueDateScheduleIndex of(List<Schedule> schedules) {
+    return new FixedDueDateScheduleIndex(new ArrayList<>(schedules));
+  }
+
+  static List<Schedule> sortedByFrom(List<Schedule> schedules) {
+    final List<Schedule> sorted = new ArrayList<>(schedules);
+
+    sorted.sort(Comparator.comparing(Schedule::getFrom));
+
+    return sorted;
+  }
+
+  /**
+   * @return the first pair of date ranges found to overlap (in order of the
+   * start of each range), or an empty list when no date ranges overlap
+   */
+  public List<Schedule> getFirstOverlap() {
+    return firstOverlap;
+  }
+
+  /**
+   * @return the due date of the date range which includes the loan date,
+   * or null when no date range includes it
+   */
+  public Date dueDateFor(Date loanDate) {
+    final long loanedAt = loanDate.getTime();
+
+    if(!firstOverlap.isEmpty()) {
+      //Schedules stored before overlaps were rejected could have more than
+      //one date range including the loan date, the first one listed is used
+      return schedules.stream()
+        .filter(schedule -> schedule.getFrom().getTime() <= loanedAt
+          && loanedAt <= schedule.getTo().getTime())
+        .map(Schedule::getDue)
+        .findFirst()
+        .orElse(null);
+    }
+
+    final int found = Arrays.binarySearch(from, loanedAt);
+
+    //When not found exactly, binary search provides the position the loan
+    //date would be inserted at, the range before that is the only candidate
+    final int candidate = found >= 0 ? found : -found - 2;
+
+    if(candidate < 0 || loanedAt > to[candidate]) {
+      return null;
+    }
+
+    return due[candidate];
+  }
+}
@@ -0,0 +1,111 @@
+package org.folio.support;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+
+import org.folio.rest.jaxrs.model.Error;
+import org.folio.rest.jaxrs.model.Errors;
+import org.folio.rest.jaxrs.model.Parameter;
+import org.folio.rest.jaxrs.model.Schedule;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+
+/**
+ * Checks the date ranges of a fixed due date schedule, reporting every problem
+ * found rather than only the first.
+ *
+ * Each date range must start before it ends and be due no earlier than it
+ * ends. Date ranges must not overlap (the start and end are both included
+ * within a range), which is checked by sorting the ranges by their start and
+ * comparing each with the range ending latest before it, rather than
+ * comparing every pair of ranges
+ */
+public class FixedDueDateScheduleValidator {
+  public static final String INVALID_DATE_MSG
+    = "Unable to save fixed loan date. Date range not valid";
+
+  private FixedDueDateScheduleValidator() { }
+
+  /**
+   * @return errors describing every problem with the date ranges, or null
+   * when they are valid
+   */
+  public static Errors validate(List<Schedule> schedules) {
+    if(schedules == null || schedules.isEmpty()) {
+      return null;
+    }
+
+    final List<Error> errors = new ArrayList<>();
+    final List<Integer> ordered = new ArrayList<>(schedules.size());
+
+    for (int index = 0; index < schedules.size(); index++) {
+      final Schedule schedule = schedules.get(index);
+
+      if(schedule.getFrom().after(schedule.getDue())) {
+        errors.add(error(index, " from date after due date", "from", schedule.getFrom()));
+      }
+
+      if(schedule.getFrom().after(schedule.getTo())) {
+        errors.add(error(index, " from date after to date", "from", schedule.getFrom()));
+      }
+      else {
+        //A range which ends before it starts cannot sensibly overlap others
+        ordered.add(index);
+      }
+
+      if(schedule.getTo().after(schedule.getDue())) {
+        errors.add(error(index, " to date after due date", "to", schedule.getTo()));
+      }
+    }
+
+    //Stable, so ranges starting at the same time stay in the order provided
+    ordered.sort(Comparator.comparing(index -> schedules.get(index).getFrom()));
+
+    Integer latestEnding = null;
+
+    for (Integer index : ordered) {
+      final Schedule schedule = schedules.get(index);
+
+      if(latestEnding != null) {
+        final Schedule previous = schedules.get(latestEnding);
+
+        if(!schedule.getFrom().after(previous.getTo())) {
+          final Error overlap = error(index,
+            " date range overlaps another date range", "from", schedule.getFrom());
+
+          overlap.getParameters().add(new Parameter()
+            .withKey("overlapsSchedule")
+            .withValue(String.valueOf(latestEnding)));
+
+          errors.add(overlap);
+        }
+
+        if(schedule.getTo().after(previous.getTo())) {
+          latestEnding = index;
+        }
+      }
+      else {
+        latestEnding = index;
+      }
+    }
+
+    return errors.isEmpty()
+      ? null
+      : new Errors().withErrors(errors);
+  }
+
+  private static Error error(int index, String problem, String key, Date value) {
+    return new Error()
+      .withMessage(INVALID_DATE_MSG + problem)
+      .withParameters(new ArrayList<>(Arrays.asList(
+        new Parameter()
+          .withKey(key)
+          .withValue(new DateTime(value, DateTimeZone.UTC).toString()),
+        new Parameter()
+          .withKey("schedule")
+          .withValue(String.valueOf(index)))));
+  }
+}
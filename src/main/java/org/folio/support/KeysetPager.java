@@ -0,0 +1,195 @@
+package org.folio.support;
+
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.stream.Collectors;
+
+import org.folio.rest.persist.PostgresClient;
+import org.z3950.zing.cql.cql2pgjson.CQL2PgJSON;
+import org.z3950.zing.cql.cql2pgjson.CQL2PgJSONException;
+import org.z3950.zing.cql.cql2pgjson.SqlSelect;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
+
+/**
+ * Fetches pages of a table ordered by a sort column and then id, each page
+ * starting after the last record of the previous one. Unlike an offset,
+ * the database does not need to read and discard all of the earlier records
+ * to find the start of a page, so crawling a whole table takes linear time
+ */
+public class KeysetPager<T> {
+  private static final String ID_COLUMN = "_id";
+
+  private final PostgresClient postgresClient;
+  private final String qualifiedTableName;
+  private final Class<T> recordClass;
+  private final String sortColumn;
+  private final String sortColumnType;
+  private final boolean descending;
+
+  public KeysetPager(
+    PostgresClient postgresClient,
+    String qualifiedTableName,
+    Class<T> recordClass) {
+
+    this(postgresClient, qualifiedTableName, recordClass,
+      ID_COLUMN, "uuid", false);
+  }
+
+  public KeysetPager(
+    PostgresClient postgresClient,
+    String qualifiedTableName,
+    Class<T> recordClass,
+    String sortColumn,
+    String sortColumnType,
+    boolean descending) {
+
+    this.postgresClient = postgresClient;
+    this.qualifiedTableName = qualifiedTableName;
+    this.recordClass = recordClass;
+    this.sortColumn = sortColumn;
+    this.sortColumnType = sortColumnType;
+    this.descending = descending;
+  }
+
+  /**
+   * Fails with an IllegalArgumentException when either the query or token
+   * is invalid, or when the query includes sorting, as this would conflict
+   * with the order used for paging
+   */
+  public void page(
+    String cqlField,
+    String cqlQuery,
+    String continuationToken,
+    int limit,
+    Handler<AsyncResult<Page<T>>> onComplete) {
+
+    final String whereClause;
+    final ContinuationToken after;
+
+    try {
+      after = ContinuationToken.parse(continuationToken);
+
+      if(cqlQuery == null || cqlQuery.trim().isEmpty()) {
+        whereClause = null;
+      }
+      else {
+        final SqlSelect select = new CQL2PgJSON(cqlField).toSql(cqlQuery);
+
+        if(select.getOrderBy() != null && !select.getOrderBy().isEmpty()) {
+          throw new IllegalArgumentException(
+            "Cannot sort using a query when using a continuation token");
+        }
+
+        whereClause = select.getWhere();
+      }
+    }
+    catch(CQL2PgJSONException e) {
+      onComplete.handle(Future.failedFuture(
+        new IllegalArgumentException(e.getMessage(), e)));
+      return;
+    }
+    catch(IllegalArgumentException e) {
+      onComplete.handle(Future.failedFuture(e));
+      return;
+    }
+
+    page(whereClause, after, limit, onComplete);
+  }
+
+  private void page(
+    String whereClause,
+    ContinuationToken after,
+    int limit,
+    Handler<AsyncResult<Page<T>>> onComplete) {
+
+    final StringJoiner conditions = new StringJoiner(" AND ", " WHERE ", "")
+      .setEmptyValue("");
+
+    final JsonArray parameters = new JsonArray();
+
+    if(whereClause != null && !whereClause.trim().isEmpty()) {
+      conditions.add("(" + whereClause + ")");
+    }
+
+    final String comparison = descending ? "<" : ">";
+    final String direction = descending ? "DESC" : "ASC";
+
+    if(after != null) {
+      if(isSortedById()) {
+        conditions.add(String.format("%s %s ?::uuid", ID_COLUMN, comparison));
+      }
+      else {
+        conditions.add(String.format("(%s, %s) %s (?::%s, ?::uuid)",
+          sortColumn, ID_COLUMN, comparison, sortColumnType));
+        parameters.add(after.getSortValue());
+      }
+
+      parameters.add(after.getId());
+    }
+
+    final String orderBy = isSortedById()
+      ? String.format("%s %s", ID_COLUMN, direction)
+      : String.format("%s %s, %s %s", sortColumn, direction, ID_COLUMN, direction);
+
+    final String sql = String.format(
+      "SELECT %s::text, %s::text, jsonb::text FROM %s%s ORDER BY %s LIMIT %d",
+      ID_COLUMN, sortColumn, qualifiedTableName, conditions.toString(),
+      orderBy, limit);
+
+    postgresClient.select(sql, parameters, result -> {
+      if(result.failed()) {
+        onComplete.handle(Future.failedFuture(result.cause()));
+        return;
+      }
+
+      try {
+        final List<JsonArray> rows = result.result().getResults();
+
+        final List<T> records = rows.stream()
+          .map(row -> Json.decodeValue(row.getString(2), recordClass))
+          .collect(Collectors.toList());
+
+        //A partial page means there cannot be any more records
+        final String nextToken = rows.isEmpty() || rows.size() < limit
+          ? null
+          : lastPosition(rows.get(rows.size() - 1)).encode();
+
+        onComplete.handle(Future.succeededFuture(new Page<>(records, nextToken)));
+      }
+      catch(Exception e) {
+        onComplete.handle(Future.failedFuture(e));
+      }
+    });
+  }
+
+  private ContinuationToken lastPosition(JsonArray lastRow) {
+    return new ContinuationToken(lastRow.getString(1), lastRow.getString(0));
+  }
+
+  private boolean isSortedById() {
+    return ID_COLUMN.equals(sortColumn);
+  }
+
+  public static class Page<T> {
+    private final List<T> records;
+    private final String nextContinuationToken;
+
+    Page(List<T> records, String nextContinuationToken) {
+      this.records = records;
+      this.nextContinuationToken = nextContinuationToken;
+    }
+
+    public List<T> getRecords() {
+      return records;
+    }
+
+    public String getNextContinuationToken() {
+      return nextContinuationToken;
+    }
+  }
+}
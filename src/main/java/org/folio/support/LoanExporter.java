@@ -0,0 +1,120 @@
+package org.folio.support;
+
+import java.util.List;
+import java.util.StringJoiner;
+
+import org.folio.rest.persist.PostgresClient;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonArray;
+
+/**
+ * Exports loans matching a CQL where clause as newline delimited JSON, one
+ * page of loans per request, in id order. Each page starts after the last
+ * loan of the previous page (given by a continuation token), so only a
+ * single page is ever held in memory, however many loans are exported.
+ *
+ * Each page is read in a separate transaction, so loans created, changed or
+ * deleted during an export may or may not be included
+ */
+public class LoanExporter {
+  public static final int LOANS_PER_PAGE = 1000;
+
+  private final PostgresClient postgresClient;
+  private final String qualifiedTableName;
+
+  public LoanExporter(PostgresClient postgresClient, String qualifiedTableName) {
+    this.postgresClient = postgresClient;
+    this.qualifiedTableName = qualifiedTableName;
+  }
+
+  /**
+   * Fails with an IllegalArgumentException when the token is invalid
+   *
+   * @param cqlWhereClause SQL generated from the CQL query, or null for all loans
+   * @param continuationToken null for the first page
+   */
+  public void export(
+    String cqlWhereClause,
+    String continuationToken,
+    Handler<AsyncResult<Page>> onComplete) {
+
+    final ContinuationToken after;
+
+    try {
+      after = continuationToken == null
+        ? null
+        : ContinuationToken.parse(continuationToken);
+    }
+    catch(IllegalArgumentException e) {
+      onComplete.handle(Future.failedFuture(e));
+      return;
+    }
+
+    final StringJoiner conditions = new StringJoiner(" AND ", " WHERE ", "")
+      .setEmptyValue("");
+
+    final JsonArray parameters = new JsonArray();
+
+    if(cqlWhereClause != null) {
+      conditions.add("(" + cqlWhereClause + ")");
+    }
+
+    if(after != null) {
+      conditions.add("_id > ?::uuid");
+      parameters.add(after.getId());
+    }
+
+    final String sql = String.format(
+      "SELECT _id::text, jsonb::text FROM %s%s ORDER BY _id LIMIT %d",
+      qualifiedTableName, conditions.toString(), LOANS_PER_PAGE);
+
+    postgresClient.select(sql, parameters, result -> {
+      if(result.failed()) {
+        onComplete.handle(Future.failedFuture(result.cause()));
+        return;
+      }
+
+      final List<JsonArray> rows = result.result().getResults();
+
+      final StringBuilder body = new StringBuilder();
+
+      rows.forEach(row -> body.append(row.getString(1)).append('\n'));
+
+      //A full page may be followed by more loans
+      final String nextToken = rows.size() < LOANS_PER_PAGE
+        ? null
+        : nextPage(rows.get(rows.size() - 1).getString(0));
+
+      onComplete.handle(Future.succeededFuture(
+        new Page(body.toString(), nextToken)));
+    });
+  }
+
+  private static String nextPage(String lastId) {
+    return new ContinuationToken(lastId, lastId).encode();
+  }
+
+  public static class Page {
+    private final String body;
+    private final String continuationToken;
+
+    Page(String body, String continuationToken) {
+      this.body = body;
+      this.continuationToken = continuationToken;
+    }
+
+    public String getBody() {
+      return body;
+    }
+
+    /**
+     * @return null for the last page
+     */
+    public String getContinuationToken() {
+      return continuationToken;
+    }
+  }
+}
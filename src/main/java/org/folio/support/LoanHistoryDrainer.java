@@ -0,0 +1,138 @@
+package org.folio.support;
+
+import java.lang.invoke.MethodHandles;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import org.folio.rest.persist.PostgresClient;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+
+/**
+ * Appends the loan history queued for every tenant, periodically.
+ *
+ * Each time, history is appended until the outbox for the tenant is empty, so
+ * the lag is bounded by the interval, as long as history can be appended
+ * faster than it is queued. A warning is logged when the oldest queued
+ * history has waited longer than expected.
+ *
+ * Whether history is queued is a setting for each tenant (see
+ * LoanHistoryOutbox), which the drainer never changes, so every instance of
+ * the module drains the same way. History is drained for every tenant, as
+ * history queued before a tenant stopped queuing still needs to be appended
+ */
+public class LoanHistoryDrainer {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  public static final String INTERVAL_PROPERTY = "loan-history-drain-interval";
+  public static final String LAG_WARNING_PROPERTY = "loan-history-lag-warning";
+
+  private static final long DEFAULT_INTERVAL_MILLISECONDS = 1000;
+  private static final long DEFAULT_LAG_WARNING_SECONDS = 60;
+
+  //Only one drainer is needed for all of the verticles in a module instance
+  private static final AtomicBoolean started = new AtomicBoolean();
+
+  //Tenants upgraded to a version with the outbox
+  private static final String SCHEMAS_SQL =
+    "SELECT tenant_schema.nspname::text FROM pg_namespace tenant_schema"
+      + " JOIN pg_proc drain_function ON drain_function.pronamespace = tenant_schema.oid"
+      + " WHERE drain_function.proname = 'drain_audit_loan_outbox'"
+      + " AND tenant_schema.nspname LIKE '%\\_mod\\_circulation\\_storage'";
+
+  private final PostgresClient postgresClient;
+  private final long lagWarningSeconds;
+  private boolean draining = false;
+
+  private LoanHistoryDrainer(
+    PostgresClient postgresClient,
+    long lagWarningSeconds) {
+
+    this.postgresClient = postgresClient;
+    this.lagWarningSeconds = lagWarningSeconds;
+  }
+
+  /**
+   * Starts draining periodically, unless already started
+   */
+  public static void start(Vertx vertx) {
+    if(!started.compareAndSet(false, true)) {
+      return;
+    }
+
+    final LoanHistoryDrainer drainer = new LoanHistoryDrainer(
+      PostgresClient.getInstance(vertx),
+      Long.getLong(LAG_WARNING_PROPERTY, DEFAULT_LAG_WARNING_SECONDS));
+
+    final long interval = Long.getLong(INTERVAL_PROPERTY,
+      DEFAULT_INTERVAL_MILLISECONDS);
+
+    log.info(String.format(
+      "Queued loan history is appended every %d milliseconds", interval));
+
+    vertx.runOnContext(v -> vertx.setPeriodic(interval,
+      timer -> drainer.drainEveryTenant()));
+  }
+
+  private void drainEveryTenant() {
+    //Skip this time if still draining from last time
+    if(draining) {
+      return;
+    }
+
+    draining = true;
+
+    postgresClient.select(SCHEMAS_SQL, new JsonArray(), select -> {
+      if(select.failed()) {
+        log.warn("Unable to find tenants to append loan history for",
+          select.cause());
+        draining = false;
+        return;
+      }
+
+      final List<String> schemas = select.result().getResults().stream()
+        .map(row -> row.getString(0))
+        .collect(Collectors.toList());
+
+      drain(schemas.iterator());
+    });
+  }
+
+  private void drain(Iterator<String> schemas) {
+    if(!schemas.hasNext()) {
+      draining = false;
+      return;
+    }
+
+    final String schema = schemas.next();
+
+    final LoanHistoryOutbox outbox = new LoanHistoryOutbox(postgresClient, schema);
+
+    outbox.drain(drained -> {
+      if(drained.failed()) {
+        log.warn(String.format(
+          "Unable to append queued loan history for %s", schema), drained.cause());
+        drain(schemas);
+        return;
+      }
+
+      outbox.lag(lag -> {
+        if(lag.succeeded()
+          && lag.result().getOldestQueuedSeconds() > lagWarningSeconds) {
+
+          log.warn(String.format(
+            "Loan history for %s is %.1f seconds behind, with %d records queued",
+            schema, lag.result().getOldestQueuedSeconds(),
+            lag.result().getQueuedRecords()));
+        }
+
+        drain(schemas);
+      });
+    });
+  }
+}
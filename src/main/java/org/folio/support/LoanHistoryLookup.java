@@ -0,0 +1,193 @@
+package org.folio.support;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.folio.rest.jaxrs.model.Loan;
+import org.folio.rest.jaxrs.model.Loans;
+import org.folio.rest.persist.PostgresClient;
+import org.z3950.zing.cql.cql2pgjson.CQL2PgJSON;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.json.Json;
+import io.vertx.core.json.JsonArray;
+
+/**
+ * Fetches the history of a single loan (id== or id=) or of the loans for a
+ * single user (userId== or userId=), most recent change first, using the
+ * indexes on those properties and created_date declared in
+ * createLoanHistoryIndexes.sql, so only the history wanted is read, already
+ * in order.
+ *
+ * The SQL generated for these CQL queries (which ignores case) cannot use
+ * those indexes, and these are the queries most often made for history.
+ * Only an exact count is made using the indexes, an estimate is made
+ * for the CQL query, the same as for any other query
+ */
+public class LoanHistoryLookup {
+  //Only lower case ids, as they are stored, as CQL ignores case. For a
+  //whole UUID, matching all of the words (=) is the same as matching exactly
+  private static final Pattern QUERY = Pattern.compile(
+    "^\\s*(id|userId)\\s*==?\\s*\"?([0-9a-f-]{36})\"?\\s*$");
+
+  private static final String TABLE_NAME = "audit_loan";
+
+  private final String cqlQuery;
+  private final String property;
+  private final String value;
+
+  private LoanHistoryLookup(String cqlQuery, String property, String value) {
+    this.cqlQuery = cqlQuery;
+    this.property = property;
+    this.value = value;
+  }
+
+  /**
+   * @return a lookup when the query is for a single loan or user, or null
+   * when it needs to be made using CQL
+   */
+  public static LoanHistoryLookup forQuery(String cqlQuery) {
+    if(cqlQuery == null) {
+      return null;
+    }
+
+    final Matcher matcher = QUERY.matcher(cqlQuery);
+
+    if(!matcher.matches() || !UUIDValidation.isValidUUID(matcher.group(2))) {
+      return null;
+    }
+
+    return new LoanHistoryLookup(cqlQuery, matcher.group(1), matcher.group(2));
+  }
+
+  public void fetch(
+    PostgresClient postgresClient,
+    String tenantId,
+    int offset,
+    int limit,
+    TotalRecords totalRecordsMode,
+    Handler<AsyncResult<Loans>> onComplete) {
+
+    final String schema = ModuleSchema.schemaFor(tenantId);
+
+    final JsonArray pageParameters = new JsonArray()
+      .add(value)
+      .add(limit)
+      .add(offset);
+
+    postgresClient.select(pageSql(schema, property), pageParameters, page -> {
+      if(page.failed()) {
+        onComplete.handle(Future.failedFuture(page.cause()));
+        return;
+      }
+
+      final List<Loan> loans;
+
+      try {
+        loans = page.result().getResults().stream()
+          .map(row -> Json.decodeValue(row.getString(0), Loan.class))
+          .collect(Collectors.toList());
+      }
+      catch(Exception e) {
+        onComplete.handle(Future.failedFuture(e));
+        return;
+      }
+
+      //The whole history fitted in the page, so there is no need to count it
+      if(offset == 0 && loans.size() < limit
+        && totalRecordsMode != TotalRecords.NONE) {
+
+        onComplete.handle(Future.succeededFuture(
+          new Loans().withLoans(loans).withTotalRecords(loans.size())));
+        return;
+      }
+
+      count(postgresClient, schema, totalRecordsMode, counted -> {
+        if(counted.failed()) {
+          onComplete.handle(Future.failedFuture(counted.cause()));
+          return;
+        }
+
+        totalRecords(postgresClient, tenantId, totalRecordsMode,
+          counted.result(), total -> {
+            if(total.failed()) {
+              onComplete.handle(Future.failedFuture(total.cause()));
+              return;
+            }
+
+            onComplete.handle(Future.succeededFuture(new Loans()
+              .withLoans(loans)
+              .withTotalRecords(total.result())));
+          });
+      });
+    });
+  }
+
+  /**
+   * Counts using the indexes, only when an exact count is wanted
+   */
+  private void count(
+    PostgresClient postgresClient,
+    String schema,
+    TotalRecords totalRecordsMode,
+    Handler<AsyncResult<Integer>> onCounted) {
+
+    if(!totalRecordsMode.requiresCount()) {
+      onCounted.handle(Future.succeededFuture(null));
+      return;
+    }
+
+    postgresClient.select(countSql(schema, property),
+      new JsonArray().add(value), count -> {
+        if(count.failed()) {
+          onCounted.handle(Future.failedFuture(count.cause()));
+          return;
+        }
+
+        onCounted.handle(Future.succeededFuture(
+          count.result().getResults().get(0).getLong(0).intValue()));
+      });
+  }
+
+  private void totalRecords(
+    PostgresClient postgresClient,
+    String tenantId,
+    TotalRecords totalRecordsMode,
+    Integer exactCount,
+    Handler<AsyncResult<Integer>> onComplete) {
+
+    final CQL2PgJSON cql2pgJson;
+
+    try {
+      cql2pgJson = new CQL2PgJSON(TABLE_NAME + ".jsonb");
+    }
+    catch(Exception e) {
+      onComplete.handle(Future.failedFuture(e));
+      return;
+    }
+
+    totalRecordsMode.resolve(postgresClient,
+      ModuleSchema.qualifiedTableName(tenantId, TABLE_NAME), cql2pgJson,
+      cqlQuery, exactCount, onComplete);
+  }
+
+  /**
+   * Has three parameters: the id of the loan or user, limit and offset
+   */
+  public static String pageSql(String schema, String property) {
+    return String.format(
+      "SELECT jsonb::text FROM %s.%s WHERE (jsonb->>'%s') = ?"
+        + " ORDER BY created_date DESC LIMIT ? OFFSET ?",
+      schema, TABLE_NAME, property);
+  }
+
+  private static String countSql(String schema, String property) {
+    return String.format(
+      "SELECT count(*) FROM %s.%s WHERE (jsonb->>'%s') = ?",
+      schema, TABLE_NAME, property);
+  }
+}
@@ -0,0 +1,123 @@
+package org.folio.support;
+
+import org.folio.rest.jaxrs.model.LoanHistoryLag;
+import org.folio.rest.persist.PostgresClient;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonArray;
+
+/**
+ * The outbox in which loan history for a tenant is queued, when it is
+ * appended asynchronously, using the functions declared in
+ * createLoanHistoryOutbox.sql
+ *
+ * Whether history is queued is kept in the database for the tenant, rather
+ * than by each module instance, and is only changed by enable or disable
+ */
+public class LoanHistoryOutbox {
+  public static final int RECORDS_PER_BATCH = 1000;
+
+  private final PostgresClient postgresClient;
+  private final String schema;
+
+  /**
+   * @param schema the schema for the tenant, e.g. diku_mod_circulation_storage
+   */
+  public LoanHistoryOutbox(PostgresClient postgresClient, String schema) {
+    this.postgresClient = postgresClient;
+    this.schema = schema;
+  }
+
+  /**
+   * Queue history from now on, rather than appending it when a loan is changed
+   */
+  public void enable(Handler<AsyncResult<Void>> onComplete) {
+    call("enable_asynchronous_audit_loan", onComplete);
+  }
+
+  /**
+   * Append history when a loan is changed from now on, history which is
+   * already queued still needs to be drained
+   */
+  public void disable(Handler<AsyncResult<Void>> onComplete) {
+    call("disable_asynchronous_audit_loan", onComplete);
+  }
+
+  /**
+   * Appends queued history in batches, each in a separate transaction, until
+   * fewer than a whole batch could be appended, or another instance is
+   * draining. History queued by transactions still in progress, and any
+   * queued after it, is left for a later drain
+   *
+   * @param onComplete given how many history records were appended
+   */
+  public void drain(Handler<AsyncResult<Long>> onComplete) {
+    drain(0, onComplete);
+  }
+
+  private void drain(long appendedSoFar, Handler<AsyncResult<Long>> onComplete) {
+    final String sql = String.format(
+      "SELECT %s.drain_audit_loan_outbox(?)", schema);
+
+    postgresClient.select(sql, new JsonArray().add(RECORDS_PER_BATCH), select -> {
+      if(select.failed()) {
+        onComplete.handle(Future.failedFuture(select.cause()));
+        return;
+      }
+
+      final long appended = select.result().getResults().get(0).getLong(0);
+
+      if(appended < RECORDS_PER_BATCH) {
+        onComplete.handle(Future.succeededFuture(appendedSoFar + appended));
+      }
+      else {
+        drain(appendedSoFar + appended, onComplete);
+      }
+    });
+  }
+
+  /**
+   * The mode is whether history is being queued for the tenant
+   */
+  public void lag(Handler<AsyncResult<LoanHistoryLag>> onComplete) {
+    final String sql = String.format(
+      "SELECT queued, oldest_seconds, asynchronous FROM %s.audit_loan_outbox_lag()",
+      schema);
+
+    postgresClient.select(sql, new JsonArray(), select -> {
+      if(select.failed()) {
+        onComplete.handle(Future.failedFuture(select.cause()));
+        return;
+      }
+
+      try {
+        final JsonArray row = select.result().getResults().get(0);
+
+        onComplete.handle(Future.succeededFuture(new LoanHistoryLag()
+          .withMode(row.getBoolean(2)
+            ? LoanHistoryLag.Mode.ASYNCHRONOUS
+            : LoanHistoryLag.Mode.SYNCHRONOUS)
+          .withQueuedRecords(row.getLong(0).intValue())
+          .withOldestQueuedSeconds(row.getDouble(1))));
+      }
+      catch(Exception e) {
+        onComplete.handle(Future.failedFuture(e));
+      }
+    });
+  }
+
+  private void call(String function, Handler<AsyncResult<Void>> onComplete) {
+    final String sql = String.format("SELECT %s.%s()", schema, function);
+
+    postgresClient.select(sql, new JsonArray(), select -> {
+      if(select.failed()) {
+        onComplete.handle(Future.failedFuture(select.cause()));
+      }
+      else {
+        onComplete.handle(Future.succeededFuture());
+      }
+    });
+  }
+}
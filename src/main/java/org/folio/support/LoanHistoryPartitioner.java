@@ -0,0 +1,157 @@
+package org.folio.support;
+
+import java.lang.invoke.MethodHandles;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+import org.folio.rest.persist.PostgresClient;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+
+/**
+ * Moves loan history created before it was partitioned to the partitions,
+ * for every tenant which still has some (see partitionLoanHistory.sql).
+ *
+ * Upgrading a tenant only routes new history to the partitions, rather than
+ * moving existing history within the upgrade transaction. Tenants are checked
+ * periodically, as a tenant is usually upgraded after the module has started.
+ * History is moved in batches of RECORDS_PER_BATCH, each a single statement
+ * (and so a separate transaction), so that only a batch is locked at a time.
+ * Queries read history from audit_loan itself, as well as the partitions,
+ * until it is empty
+ */
+public class LoanHistoryPartitioner {
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  public static final String INTERVAL_PROPERTY = "loan-history-partition-interval";
+
+  public static final int RECORDS_PER_BATCH = 10000;
+
+  private static final long DEFAULT_INTERVAL_MILLISECONDS = 60000;
+
+  //Only one partitioner is needed for all of the verticles in a module instance
+  private static final AtomicBoolean started = new AtomicBoolean();
+
+  //Tenants upgraded to a version with partitions, which still have history to move
+  private static final String SCHEMAS_SQL =
+    "SELECT tenant_schema.nspname::text FROM pg_namespace tenant_schema"
+      + " JOIN pg_proc finish_function ON finish_function.pronamespace = tenant_schema.oid"
+      + " WHERE finish_function.proname = 'finish_partitioning_audit_loan'"
+      + " AND tenant_schema.nspname LIKE '%\\_mod\\_circulation\\_storage'"
+      + " AND NOT EXISTS (SELECT 1 FROM pg_constraint partitioned"
+      + " JOIN pg_class history ON history.oid = partitioned.conrelid"
+      + " WHERE partitioned.conname = 'audit_loan_is_partitioned'"
+      + " AND history.relnamespace = tenant_schema.oid)";
+
+  private final PostgresClient postgresClient;
+  private boolean moving = false;
+
+  private LoanHistoryPartitioner(PostgresClient postgresClient) {
+    this.postgresClient = postgresClient;
+  }
+
+  /**
+   * Starts checking periodically, unless already started
+   */
+  public static void start(Vertx vertx) {
+    if(!started.compareAndSet(false, true)) {
+      return;
+    }
+
+    final LoanHistoryPartitioner partitioner = new LoanHistoryPartitioner(
+      PostgresClient.getInstance(vertx));
+
+    final long interval = Long.getLong(INTERVAL_PROPERTY,
+      DEFAULT_INTERVAL_MILLISECONDS);
+
+    vertx.runOnContext(v -> vertx.setPeriodic(interval,
+      timer -> partitioner.moveEveryTenant()));
+  }
+
+  private void moveEveryTenant() {
+    //Skip this time if still moving from last time
+    if(moving) {
+      return;
+    }
+
+    moving = true;
+
+    postgresClient.select(SCHEMAS_SQL, new JsonArray(), select -> {
+      if(select.failed()) {
+        log.warn("Unable to find tenants to partition loan history for",
+          select.cause());
+        moving = false;
+        return;
+      }
+
+      final List<String> schemas = select.result().getResults().stream()
+        .map(row -> row.getString(0))
+        .collect(Collectors.toList());
+
+      move(schemas.iterator());
+    });
+  }
+
+  private void move(Iterator<String> schemas) {
+    if(!schemas.hasNext()) {
+      moving = false;
+      return;
+    }
+
+    final String schema = schemas.next();
+
+    log.info(String.format(
+      "Moving loan history created before partitioning to partitions for %s",
+      schema));
+
+    moveBatch(schema, 0, () -> move(schemas));
+  }
+
+  private void moveBatch(String schema, long movedSoFar, Runnable next) {
+    final String sql = String.format(
+      "SELECT %s.move_unpartitioned_audit_loan(?)", schema);
+
+    postgresClient.select(sql, new JsonArray().add(RECORDS_PER_BATCH), select -> {
+      if(select.failed()) {
+        log.warn(String.format(
+          "Unable to move loan history to partitions for %s", schema),
+          select.cause());
+        next.run();
+        return;
+      }
+
+      final long moved = select.result().getResults().get(0).getLong(0);
+
+      if(moved > 0) {
+        moveBatch(schema, movedSoFar + moved, next);
+      }
+      else {
+        finish(schema, movedSoFar, next);
+      }
+    });
+  }
+
+  private void finish(String schema, long moved, Runnable next) {
+    final String sql = String.format(
+      "SELECT %s.finish_partitioning_audit_loan()", schema);
+
+    postgresClient.select(sql, new JsonArray(), select -> {
+      if(select.failed()) {
+        log.warn(String.format(
+          "Unable to finish partitioning loan history for %s", schema),
+          select.cause());
+      }
+      else if(Boolean.TRUE.equals(select.result().getResults().get(0).getBoolean(0))) {
+        log.info(String.format(
+          "Moved %d loan history records to partitions for %s", moved, schema));
+      }
+
+      next.run();
+    });
+  }
+}
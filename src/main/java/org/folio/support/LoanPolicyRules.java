@@ -0,0 +1,109 @@
+package org.folio.support;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.folio.rest.jaxrs.model.Error;
+import org.folio.rest.jaxrs.model.Errors;
+import org.folio.rest.jaxrs.model.LoanPolicy;
+import org.kie.api.KieBase;
+import org.kie.api.KieServices;
+import org.kie.api.builder.KieBuilder;
+import org.kie.api.builder.KieFileSystem;
+import org.kie.api.builder.Message;
+import org.kie.api.builder.ReleaseId;
+
+/**
+ * Validates loan policies using the Drools rules in loan-policy-rules.
+ *
+ * The knowledge base is built once, when the module starts using these
+ * rules, and shared by every verticle instance. A knowledge base is safe
+ * to share between threads, each validation uses its own short lived
+ * stateless session.
+ *
+ * These rules are deliberately not in the rules directory, otherwise the
+ * RAML module builder would also apply them to every request body, using
+ * a single stateful session for all requests
+ */
+public class LoanPolicyRules {
+  private static final String RULES_PATH = "loan-policy-rules/";
+
+  private static final List<String> RULE_FILES = Arrays.asList(
+    "fixedProfileId.drl", "alternateFixedDueDate.drl");
+
+  private LoanPolicyRules() { }
+
+  /**
+   * Builds the knowledge base, if it has not already been built. Building
+   * takes long enough that it should not be done on an event loop thread
+   */
+  public static void initialise() {
+    knowledgeBase();
+  }
+
+  /**
+   * @return errors describing why the policy is invalid, or null when it is valid
+   */
+  public static Errors validate(LoanPolicy loanPolicy) {
+    final Errors missing = LoanPolicyValidator.missingPropertyErrors(loanPolicy);
+
+    if(missing != null) {
+      return missing;
+    }
+
+    //The rules describe a violation in this error then throw an exception
+    final Error error = new Error();
+
+    try {
+      knowledgeBase().newStatelessKieSession()
+        .execute(Arrays.asList(loanPolicy, error));
+    }
+    catch(RuntimeException e) {
+      if(error.getMessage() == null) {
+        error.setMessage(e.getMessage());
+      }
+
+      return new Errors().withErrors(Collections.singletonList(error));
+    }
+
+    return null;
+  }
+
+  private static KieBase knowledgeBase() {
+    return KnowledgeBaseHolder.KNOWLEDGE_BASE;
+  }
+
+  private static KieBase build() {
+    final KieServices services = KieServices.Factory.get();
+    final KieFileSystem files = services.newKieFileSystem();
+
+    //A release of its own, so it cannot be confused with any other rules
+    final ReleaseId releaseId = services.newReleaseId(
+      "org.folio", "loan-policy-rules", "1.0.0");
+
+    files.generateAndWritePomXML(releaseId);
+
+    for (String ruleFile : RULE_FILES) {
+      files.write("src/main/resources/" + RULES_PATH + ruleFile,
+        services.getResources().newClassPathResource(RULES_PATH + ruleFile,
+          LoanPolicyRules.class.getClassLoader()));
+    }
+
+    final KieBuilder builder = services.newKieBuilder(files).buildAll();
+
+    if(builder.getResults().hasMessages(Message.Level.ERROR)) {
+      throw new IllegalStateException(String.format(
+        "Loan policy rules cannot be built: %s",
+        builder.getResults().getMessages()));
+    }
+
+    return services.newKieContainer(releaseId).getKieBase();
+  }
+
+  //Initialised the first time the knowledge base is needed, which the JVM
+  //guarantees to only happen once, even when several threads need it
+  private static class KnowledgeBaseHolder {
+    private static final KieBase KNOWLEDGE_BASE = build();
+  }
+}
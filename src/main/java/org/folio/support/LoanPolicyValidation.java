@@ -0,0 +1,67 @@
+package org.folio.support;
+
+import java.util.Arrays;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.folio.rest.jaxrs.model.Errors;
+import org.folio.rest.jaxrs.model.LoanPolicy;
+
+/**
+ * How loan policies are validated before they are stored, chosen using the
+ * loan-policy-validation system property, e.g. -Dloan-policy-validation=drools
+ */
+public enum LoanPolicyValidation {
+  //Plain Java conditions, nothing needs to be built when the module starts
+  JAVA("java", LoanPolicyValidator::validate),
+  //The Drools rules, which take several seconds to build when the module starts
+  DROOLS("drools", LoanPolicyRules::validate);
+
+  public static final String MODE_PROPERTY = "loan-policy-validation";
+
+  private final String value;
+  private final Function<LoanPolicy, Errors> validator;
+
+  LoanPolicyValidation(String value, Function<LoanPolicy, Errors> validator) {
+    this.value = value;
+    this.validator = validator;
+  }
+
+  public static LoanPolicyValidation configured() {
+    return from(System.getProperty(MODE_PROPERTY));
+  }
+
+  /**
+   * @throws IllegalArgumentException when value is not recognised
+   */
+  public static LoanPolicyValidation from(String value) {
+    if(value == null) {
+      return JAVA;
+    }
+
+    return Arrays.stream(values())
+      .filter(validation -> validation.value.equals(value))
+      .findFirst()
+      .orElseThrow(() -> new IllegalArgumentException(String.format(
+        "%s must be one of %s", MODE_PROPERTY, Arrays.stream(values())
+          .map(validation -> validation.value)
+          .collect(Collectors.joining(", ")))));
+  }
+
+  /**
+   * Does anything needed before the first validation, which may take long
+   * enough that it should not be done on an event loop thread
+   */
+  public void initialise() {
+    if(this == DROOLS) {
+      LoanPolicyRules.initialise();
+    }
+  }
+
+  /**
+   * @return errors describing why the policy is invalid, or null when it is valid
+   */
+  public Errors validate(LoanPolicy loanPolicy) {
+    return validator.apply(loanPolicy);
+  }
+}
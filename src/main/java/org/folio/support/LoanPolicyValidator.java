@@ -0,0 +1,136 @@
+package org.folio.support;
+
+import java.util.Collections;
+
+import org.folio.rest.jaxrs.model.Error;
+import org.folio.rest.jaxrs.model.Errors;
+import org.folio.rest.jaxrs.model.LoanPolicy;
+import org.folio.rest.jaxrs.model.LoansPolicy;
+import org.folio.rest.jaxrs.model.Parameter;
+import org.folio.rest.jaxrs.model.RenewalsPolicy;
+
+/**
+ * Applies the same conditions as the Drools rules in loan-policy-rules,
+ * producing the same errors, without needing a rule engine
+ */
+public class LoanPolicyValidator {
+  private static final String FIXED_PROFILE = "Fixed";
+
+  private LoanPolicyValidator() { }
+
+  /**
+   * @return errors describing why the policy is invalid, or null when it is valid
+   */
+  public static Errors validate(LoanPolicy loanPolicy) {
+    final Errors missing = missingPropertyErrors(loanPolicy);
+
+    if(missing != null) {
+      return missing;
+    }
+
+    final LoansPolicy loansPolicy = loanPolicy.getLoansPolicy();
+    final RenewalsPolicy renewalsPolicy = loanPolicy.getRenewalsPolicy();
+
+    final boolean fixed = FIXED_PROFILE.equalsIgnoreCase(loansPolicy.getProfileId());
+
+    //Only one error is reported, the rules stop at the first violation
+    if(isTrue(loanPolicy.getLoanable())) {
+      if(fixed && loansPolicy.getFixedDueDateScheduleId() == null) {
+        return fixedDueDateScheduleError(loanPolicy, loansPolicy);
+      }
+    }
+    else if(loansPolicy.getFixedDueDateScheduleId() == null) {
+      return fixedDueDateScheduleError(loanPolicy, loansPolicy);
+    }
+
+    final String alternateScheduleId
+      = renewalsPolicy.getAlternateFixedDueDateScheduleId();
+
+    final boolean differentPeriod = isTrue(renewalsPolicy.getDifferentPeriod());
+
+    if(isTrue(loanPolicy.getRenewable())) {
+      if((differentPeriod && fixed && alternateScheduleId == null)
+        || (!differentPeriod && alternateScheduleId != null)) {
+        return alternateFixedDueDateScheduleError(loanPolicy, loansPolicy,
+          renewalsPolicy);
+      }
+    }
+    else {
+      return alternateFixedDueDateScheduleError(loanPolicy, loansPolicy,
+        renewalsPolicy);
+    }
+
+    return null;
+  }
+
+  /**
+   * The Drools rules cannot be applied to policies without these properties
+   * (the conditions fail rather than reporting an error), so both ways of
+   * validating reject them with these errors before applying the rules
+   *
+   * @return errors describing which property is missing, or null when none are
+   */
+  public static Errors missingPropertyErrors(LoanPolicy loanPolicy) {
+    final LoansPolicy loansPolicy = loanPolicy.getLoansPolicy();
+    final RenewalsPolicy renewalsPolicy = loanPolicy.getRenewalsPolicy();
+
+    if(loansPolicy == null) {
+      return error("Loans policy cannot be null", "loansPolicy", null);
+    }
+
+    if(renewalsPolicy == null) {
+      return error("Renewals policy cannot be null", "renewalsPolicy", null);
+    }
+
+    final boolean profileNeeded = isTrue(loanPolicy.getLoanable())
+      || (isTrue(loanPolicy.getRenewable())
+        && isTrue(renewalsPolicy.getDifferentPeriod()));
+
+    if(profileNeeded && loansPolicy.getProfileId() == null) {
+      return error(String.format(
+        "Profile cannot be null if loanable is %s, renewable is %s and different period is %s",
+        loanPolicy.getLoanable(), loanPolicy.getRenewable(),
+        renewalsPolicy.getDifferentPeriod()),
+        "profileId", null);
+    }
+
+    return null;
+  }
+
+  private static Errors fixedDueDateScheduleError(
+    LoanPolicy loanPolicy,
+    LoansPolicy loansPolicy) {
+
+    return error(String.format(
+      "Fixed due date cannot be null if loanable is %s and profile is of type fixed",
+      loanPolicy.getLoanable()),
+      "fixedDueDateScheduleId", loansPolicy.getFixedDueDateScheduleId());
+  }
+
+  private static Errors alternateFixedDueDateScheduleError(
+    LoanPolicy loanPolicy,
+    LoansPolicy loansPolicy,
+    RenewalsPolicy renewalsPolicy) {
+
+    return error(String.format(
+      "Alternate fixed due date cannot be %s if renewable is %s, different period is %s and profile is %s",
+      renewalsPolicy.getAlternateFixedDueDateScheduleId(), loanPolicy.getRenewable(),
+      renewalsPolicy.getDifferentPeriod(), loansPolicy.getProfileId()),
+      "alternateFixedDueDateScheduleId",
+      renewalsPolicy.getAlternateFixedDueDateScheduleId());
+  }
+
+  private static Errors error(String message, String key, String value) {
+    final Parameter parameter = new Parameter()
+      .withKey(key)
+      .withValue(String.valueOf(value));
+
+    return new Errors().withErrors(Collections.singletonList(new Error()
+      .withMessage(message)
+      .withParameters(Collections.singletonList(parameter))));
+  }
+
+  private static boolean isTrue(Boolean value) {
+    return Boolean.TRUE.equals(value);
+  }
+}
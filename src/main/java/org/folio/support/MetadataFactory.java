@@ -0,0 +1,21 @@
+package org.folio.support;
+
+import java.util.Date;
+
+import org.folio.rest.jaxrs.model.Metadata;
+
+public class MetadataFactory {
+  private MetadataFactory() { }
+
+  //Used when records are written in bulk, as the module builder only
+  //populates metadata for a single record in the body of a request
+  public static Metadata createdNowBy(String userId) {
+    final Date now = new Date();
+
+    return new Metadata()
+      .withCreatedDate(now)
+      .withCreatedByUserId(userId)
+      .withUpdatedDate(now)
+      .withUpdatedByUserId(userId);
+  }
+}
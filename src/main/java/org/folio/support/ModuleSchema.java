@@ -0,0 +1,33 @@
+package org.folio.support;
+
+/**
+ * Names of the database schema for a tenant, and of the tables within it,
+ * which RMB creates as tenant id followed by the module name
+ */
+public class ModuleSchema {
+  public static final String MODULE_NAME = "mod_circulation_storage";
+
+  private ModuleSchema() { }
+
+  /**
+   * @return the schema for the tenant, e.g. diku_mod_circulation_storage
+   */
+  public static String schemaFor(String tenantId) {
+    return String.format("%s_%s", tenantId, MODULE_NAME);
+  }
+
+  /**
+   * @return the tenant a schema is for, e.g. diku for diku_mod_circulation_storage
+   */
+  public static String tenantFor(String schema) {
+    return schema.substring(0, schema.length() - MODULE_NAME.length() - 1);
+  }
+
+  /**
+   * @return the table qualified by the schema for the tenant,
+   * e.g. diku_mod_circulation_storage.loan
+   */
+  public static String qualifiedTableName(String tenantId, String tableName) {
+    return String.format("%s.%s", schemaFor(tenantId), tableName);
+  }
+}
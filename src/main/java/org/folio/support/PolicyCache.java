@@ -0,0 +1,234 @@
+package org.folio.support;
+
+import java.lang.invoke.MethodHandles;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.ws.rs.core.Response;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+
+/**
+ * Holds policies fetched by id, separately for each tenant, as a tenant has
+ * relatively few policies which are fetched for every check out, renewal
+ * or request.
+ *
+ * Policies are removed from the cache when they are created, replaced or
+ * deleted through this module instance, those changed through other
+ * instances are seen once the cached policy has expired. A policy read
+ * before it was changed through this instance is not cached once the read
+ * completes (see putIfUnchanged).
+ *
+ * How long policies are kept (in seconds) and how many are kept for each tenant
+ * are chosen using the policy-cache-ttl and policy-cache-size system properties,
+ * a time to live of 0 turns caching off.
+ *
+ * How many times each cache provided a policy (hits) or not (misses) is
+ * logged periodically, every policy-cache-log-interval seconds
+ */
+public class PolicyCache<T> {
+  public static final String TIME_TO_LIVE_PROPERTY = "policy-cache-ttl";
+  public static final String MAXIMUM_SIZE_PROPERTY = "policy-cache-size";
+  public static final String LOG_INTERVAL_PROPERTY = "policy-cache-log-interval";
+
+  private static final Logger log = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
+
+  private static final long DEFAULT_TIME_TO_LIVE_SECONDS = 30;
+  private static final int DEFAULT_MAXIMUM_SIZE = 1000;
+  private static final long DEFAULT_LOG_INTERVAL_SECONDS = 300;
+
+  //Every cache used by the module, so that their usage can be logged
+  private static final List<PolicyCache<?>> configuredCaches = new CopyOnWriteArrayList<>();
+  private static final AtomicBoolean logging = new AtomicBoolean();
+
+  private final Map<String, ExpiringCache<String, T>> tenants = new ConcurrentHashMap<>();
+  private final Class<T> policyClass;
+  private final long timeToLiveSeconds;
+  private final int maximumSize;
+  private final AtomicLong uncachedMisses = new AtomicLong();
+
+  PolicyCache(Class<T> policyClass, long timeToLiveSeconds, int maximumSize) {
+    if(timeToLiveSeconds < 0) {
+      throw new IllegalArgumentException(String.format(
+        "%s must not be negative", TIME_TO_LIVE_PROPERTY));
+    }
+
+    if(maximumSize < 1) {
+      throw new IllegalArgumentException(String.format(
+        "%s must be at least 1", MAXIMUM_SIZE_PROPERTY));
+    }
+
+    this.policyClass = policyClass;
+    this.timeToLiveSeconds = timeToLiveSeconds;
+    this.maximumSize = maximumSize;
+  }
+
+  public static <T> PolicyCache<T> configured(Class<T> policyClass) {
+    final PolicyCache<T> cache = new PolicyCache<>(policyClass,
+      Long.getLong(TIME_TO_LIVE_PROPERTY, DEFAULT_TIME_TO_LIVE_SECONDS),
+      Integer.getInteger(MAXIMUM_SIZE_PROPERTY, DEFAULT_MAXIMUM_SIZE));
+
+    configuredCaches.add(cache);
+
+    return cache;
+  }
+
+  /**
+   * Logs the usage of every configured cache periodically, unless already
+   * started or the interval is 0
+   */
+  public static void logUsagePeriodically(Vertx vertx) {
+    final long intervalSeconds = Long.getLong(LOG_INTERVAL_PROPERTY,
+      DEFAULT_LOG_INTERVAL_SECONDS);
+
+    if(intervalSeconds <= 0 || !logging.compareAndSet(false, true)) {
+      return;
+    }
+
+    vertx.setPeriodic(TimeUnit.SECONDS.toMillis(intervalSeconds),
+      timer -> configuredCaches.forEach(cache -> log.info(cache.describeUsage())));
+  }
+
+  /**
+   * @return the cached policy, or null when it is not cached
+   */
+  public T get(String tenantId, String policyId) {
+    if(!isEnabled()) {
+      uncachedMisses.incrementAndGet();
+      return null;
+    }
+
+    return forTenant(tenantId).get(policyId);
+  }
+
+  public void put(String tenantId, String policyId, T policy) {
+    if(isEnabled()) {
+      forTenant(tenantId).put(policyId, policy);
+    }
+  }
+
+  /**
+   * @return a marker to give to putIfUnchanged, taken before reading the
+   * policy to be cached
+   */
+  public long generation(String tenantId) {
+    return isEnabled() ? forTenant(tenantId).generation() : 0;
+  }
+
+  /**
+   * Caches a policy read from the database, unless any of the tenant's
+   * policies have been changed since the generation was taken
+   */
+  public void putIfUnchanged(String tenantId, String policyId, T policy,
+    long readAtGeneration) {
+
+    if(isEnabled()) {
+      forTenant(tenantId).putIfUnchanged(policyId, policy, readAtGeneration);
+    }
+  }
+
+  public void invalidate(String tenantId, String policyId) {
+    final ExpiringCache<String, T> policies = tenants.get(tenantId);
+
+    if(policies != null) {
+      policies.invalidate(policyId);
+    }
+  }
+
+  public void invalidateAll(String tenantId) {
+    final ExpiringCache<String, T> policies = tenants.get(tenantId);
+
+    if(policies != null) {
+      policies.invalidateAll();
+    }
+  }
+
+  /**
+   * Caches the policy provided by a successful (200) response from a
+   * get by id request, made after this is called
+   */
+  public Handler<AsyncResult<Response>> cachingFound(
+    String tenantId,
+    String policyId,
+    Handler<AsyncResult<Response>> responseHandler) {
+
+    final long readAtGeneration = generation(tenantId);
+
+    return result -> {
+      if(result.succeeded()
+        && result.result().getStatus() == 200
+        && policyClass.isInstance(result.result().getEntity())) {
+
+        putIfUnchanged(tenantId, policyId,
+          policyClass.cast(result.result().getEntity()), readAtGeneration);
+      }
+
+      responseHandler.handle(result);
+    };
+  }
+
+  /**
+   * Removes the policy from the cache once a request which might change
+   * it has completed, whatever the outcome
+   */
+  public Handler<AsyncResult<Response>> invalidatingAfter(
+    String tenantId,
+    String policyId,
+    Handler<AsyncResult<Response>> responseHandler) {
+
+    return result -> {
+      invalidate(tenantId, policyId);
+      responseHandler.handle(result);
+    };
+  }
+
+  /**
+   * @return how many times a policy was provided from the cache, for every tenant
+   */
+  public long getHits() {
+    return tenants.values().stream()
+      .mapToLong(ExpiringCache::getHits)
+      .sum();
+  }
+
+  /**
+   * @return how many times a policy could not be provided from the cache,
+   * for every tenant
+   */
+  public long getMisses() {
+    return uncachedMisses.get() + tenants.values().stream()
+      .mapToLong(ExpiringCache::getMisses)
+      .sum();
+  }
+
+  /**
+   * @return a summary of the hits and misses, e.g. for logging
+   */
+  public String describeUsage() {
+    final long hits = getHits();
+    final long misses = getMisses();
+    final long requests = hits + misses;
+
+    return String.format("%s cache: %d hits, %d misses (%d%% hit rate)",
+      policyClass.getSimpleName(), hits, misses,
+      requests == 0 ? 0 : hits * 100 / requests);
+  }
+
+  private boolean isEnabled() {
+    return timeToLiveSeconds > 0;
+  }
+
+  private ExpiringCache<String, T> forTenant(String tenantId) {
+    return tenants.computeIfAbsent(tenantId,
+      tenant -> new ExpiringCache<>(timeToLiveSeconds, TimeUnit.SECONDS, maximumSize));
+  }
+}
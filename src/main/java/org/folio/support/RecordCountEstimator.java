@@ -0,0 +1,66 @@
+package org.folio.support;
+
+import static io.vertx.core.Future.failedFuture;
+import static io.vertx.core.Future.succeededFuture;
+
+import org.folio.rest.persist.PostgresClient;
+import org.z3950.zing.cql.cql2pgjson.CQL2PgJSON;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonArray;
+
+/**
+ * Estimates the number of records matching a query from the planner's
+ * statistics, without reading any of the records
+ */
+class RecordCountEstimator {
+  private final PostgresClient postgresClient;
+
+  RecordCountEstimator(PostgresClient postgresClient) {
+    this.postgresClient = postgresClient;
+  }
+
+  void estimate(
+    String qualifiedTableName,
+    CQL2PgJSON cql2pgJson,
+    String query,
+    Handler<AsyncResult<Integer>> onComplete) {
+
+    final String whereClause;
+
+    try {
+      whereClause = query == null || query.trim().isEmpty()
+        ? ""
+        : " WHERE " + cql2pgJson.toSql(query).getWhere();
+    }
+    catch(Exception e) {
+      onComplete.handle(failedFuture(e));
+      return;
+    }
+
+    final String sql = String.format("EXPLAIN (FORMAT JSON) SELECT jsonb FROM %s%s",
+      qualifiedTableName, whereClause);
+
+    postgresClient.select(sql, result -> {
+      if(result.failed()) {
+        onComplete.handle(failedFuture(result.cause()));
+        return;
+      }
+
+      try {
+        final Object plan = result.result().getResults().get(0).getValue(0);
+
+        final Integer estimatedRows = new JsonArray(plan.toString())
+          .getJsonObject(0)
+          .getJsonObject("Plan")
+          .getInteger("Plan Rows");
+
+        onComplete.handle(succeededFuture(estimatedRows));
+      }
+      catch(Exception e) {
+        onComplete.handle(failedFuture(e));
+      }
+    });
+  }
+}
@@ -0,0 +1,60 @@
+package org.folio.support;
+
+import static io.vertx.core.Future.failedFuture;
+import static io.vertx.core.Future.succeededFuture;
+
+import org.folio.rest.persist.PostgresClient;
+import org.z3950.zing.cql.cql2pgjson.CQL2PgJSON;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonArray;
+
+/**
+ * Counts every record matching a query, separately from fetching a page of
+ * them, e.g. when the page is fetched using a continuation token
+ */
+class RecordCounter {
+  private final PostgresClient postgresClient;
+
+  RecordCounter(PostgresClient postgresClient) {
+    this.postgresClient = postgresClient;
+  }
+
+  void count(
+    String qualifiedTableName,
+    CQL2PgJSON cql2pgJson,
+    String query,
+    Handler<AsyncResult<Integer>> onComplete) {
+
+    final String whereClause;
+
+    try {
+      whereClause = query == null || query.trim().isEmpty()
+        ? ""
+        : " WHERE " + cql2pgJson.toSql(query).getWhere();
+    }
+    catch(Exception e) {
+      onComplete.handle(failedFuture(e));
+      return;
+    }
+
+    final String sql = String.format("SELECT count(*) FROM %s%s",
+      qualifiedTableName, whereClause);
+
+    postgresClient.select(sql, new JsonArray(), result -> {
+      if(result.failed()) {
+        onComplete.handle(failedFuture(result.cause()));
+        return;
+      }
+
+      try {
+        onComplete.handle(succeededFuture(
+          result.result().getResults().get(0).getLong(0).intValue()));
+      }
+      catch(Exception e) {
+        onComplete.handle(failedFuture(e));
+      }
+    });
+  }
+}
@@ -0,0 +1,90 @@
+package org.folio.support;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * The difference between two texts as the single run of lines which differs,
+ * once the lines both texts start and end with are set aside. A text that is
+ * usually edited in one place at a time, like the loan rules, can have every
+ * change recorded without keeping a full copy of the text for each one
+ *
+ * A delta is represented as JSON, e.g.
+ * {"start": 12, "removeLines": 1, "insertLines": ["m book: l week"]}
+ */
+public class TextDelta {
+  private static final String LINE_SEPARATOR = "\n";
+
+  private TextDelta() { }
+
+  /**
+   * @return delta that turns the from text into the to text
+   */
+  public static JsonObject between(String from, String to) {
+    final String[] fromLines = lines(from);
+    final String[] toLines = lines(to);
+
+    final int shortest = Math.min(fromLines.length, toLines.length);
+
+    int commonPrefix = 0;
+
+    while(commonPrefix < shortest
+      && fromLines[commonPrefix].equals(toLines[commonPrefix])) {
+      commonPrefix++;
+    }
+
+    int commonSuffix = 0;
+
+    while(commonSuffix < shortest - commonPrefix
+      && fromLines[fromLines.length - 1 - commonSuffix]
+        .equals(toLines[toLines.length - 1 - commonSuffix])) {
+      commonSuffix++;
+    }
+
+    final JsonArray insertLines = new JsonArray();
+
+    for (int index = commonPrefix; index < toLines.length - commonSuffix; index++) {
+      insertLines.add(toLines[index]);
+    }
+
+    return new JsonObject()
+      .put("start", commonPrefix)
+      .put("removeLines", fromLines.length - commonSuffix - commonPrefix)
+      .put("insertLines", insertLines);
+  }
+
+  /**
+   * @return text produced by applying the delta to the text it was made from
+   */
+  public static String apply(String text, JsonObject delta) {
+    final List<String> lines = new ArrayList<>(Arrays.asList(lines(text)));
+
+    final int start = delta.getInteger("start");
+    final int removeLines = delta.getInteger("removeLines");
+
+    if(start < 0 || removeLines < 0 || start + removeLines > lines.size()) {
+      throw new IllegalArgumentException(String.format(
+        "Delta %s does not apply to a text of %d lines", delta.encode(),
+        lines.size()));
+    }
+
+    lines.subList(start, start + removeLines).clear();
+
+    final List<String> insertLines = new ArrayList<>();
+
+    delta.getJsonArray("insertLines").forEach(line -> insertLines.add((String)line));
+
+    lines.addAll(start, insertLines);
+
+    return String.join(LINE_SEPARATOR, lines);
+  }
+
+  private static String[] lines(String text) {
+    //Keeps trailing empty lines, so that a trailing line separator is preserved
+    return (text == null ? "" : text).split(LINE_SEPARATOR, -1);
+  }
+}
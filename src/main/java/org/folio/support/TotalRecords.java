@@ -0,0 +1,95 @@
+package org.folio.support;
+
+import static io.vertx.core.Future.succeededFuture;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+import org.folio.rest.persist.PostgresClient;
+import org.z3950.zing.cql.cql2pgjson.CQL2PgJSON;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+
+/**
+ * How the total number of records matching a query is provided
+ * alongside a page of those records
+ */
+public enum TotalRecords {
+  //Counts every matching record, alongside fetching the page
+  EXACT("exact"),
+  //Uses the planner's estimate of matching rows, so no records are counted
+  ESTIMATED("estimated"),
+  //Nothing is counted, totalRecords is still required so -1 is provided instead
+  NONE("none");
+
+  private static final int NOT_COUNTED = -1;
+
+  private final String value;
+
+  TotalRecords(String value) {
+    this.value = value;
+  }
+
+  /**
+   * @throws IllegalArgumentException when value is not recognised
+   */
+  public static TotalRecords from(String value) {
+    return from(value, EXACT);
+  }
+
+  /**
+   * @param whenMissing used when no value is provided
+   * @throws IllegalArgumentException when value is not recognised
+   */
+  public static TotalRecords from(String value, TotalRecords whenMissing) {
+    if(value == null) {
+      return whenMissing;
+    }
+
+    return Arrays.stream(values())
+      .filter(totalRecords -> totalRecords.value.equals(value))
+      .findFirst()
+      .orElseThrow(() -> new IllegalArgumentException(String.format(
+        "totalRecords must be one of %s", Arrays.stream(values())
+          .map(totalRecords -> totalRecords.value)
+          .collect(Collectors.joining(", ")))));
+  }
+
+  public boolean requiresCount() {
+    return this == EXACT;
+  }
+
+  /**
+   * @param exactCount count made when fetching the page, only used when
+   * exact, when null the matching records are counted separately
+   */
+  public void resolve(
+    PostgresClient postgresClient,
+    String qualifiedTableName,
+    CQL2PgJSON cql2pgJson,
+    String query,
+    Integer exactCount,
+    Handler<AsyncResult<Integer>> onComplete) {
+
+    switch (this) {
+      case EXACT:
+        if(exactCount != null) {
+          onComplete.handle(succeededFuture(exactCount));
+        }
+        else {
+          new RecordCounter(postgresClient).count(qualifiedTableName,
+            cql2pgJson, query, onComplete);
+        }
+        break;
+
+      case ESTIMATED:
+        new RecordCountEstimator(postgresClient).estimate(qualifiedTableName,
+          cql2pgJson, query, onComplete);
+        break;
+
+      default:
+        onComplete.handle(succeededFuture(NOT_COUNTED));
+    }
+  }
+}
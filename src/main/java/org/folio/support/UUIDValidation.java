@@ -1,13 +1,96 @@
 package org.folio.support;
 
-import java.util.regex.Pattern;
+import java.util.Arrays;
+import java.util.UUID;
 
+/**
+ * Checks and parses the canonical textual form of a UUID (8-4-4-4-12
+ * hexadecimal digits, either case) by looking up the value of each character,
+ * rather than matching a regular expression, so checking an id does not
+ * allocate
+ */
 public class UUIDValidation {
-  private static final String UUID_PATTERN = "^[a-fA-F0-9]{8}-[a-fA-F0-9]{4}-[a-fA-F0-9]{4}-[a-fA-F0-9]{4}-[a-fA-F0-9]{12}$";
+  private static final int LENGTH = 36;
+  private static final byte[] HEX_VALUES = new byte[128];
+
+  static {
+    Arrays.fill(HEX_VALUES, (byte) -1);
+
+    for (int digit = 0; digit < 10; digit++) {
+      HEX_VALUES['0' + digit] = (byte) digit;
+    }
+
+    for (int letter = 0; letter < 6; letter++) {
+      HEX_VALUES['a' + letter] = (byte) (10 + letter);
+      HEX_VALUES['A' + letter] = (byte) (10 + letter);
+    }
+  }
 
   private UUIDValidation() { }
 
-  public static Boolean isValidUUID(String prospectiveUuid) {
-    return Pattern.matches(UUID_PATTERN, prospectiveUuid);
+  public static boolean isValidUUID(String prospectiveUuid) {
+    return hasCanonicalLayout(prospectiveUuid)
+      && (hexDigits(prospectiveUuid, 0, 8)
+        | hexDigits(prospectiveUuid, 9, 13)
+        | hexDigits(prospectiveUuid, 14, 18)
+        | hexDigits(prospectiveUuid, 19, 23)
+        | hexDigits(prospectiveUuid, 24, 36)) >= 0;
+  }
+
+  /**
+   * Unlike UUID.fromString, only accepts the canonical form and does not
+   * split the text into parts
+   *
+   * @return the UUID, or null when it is not valid
+   */
+  public static UUID parseUUID(String prospectiveUuid) {
+    if(!hasCanonicalLayout(prospectiveUuid)) {
+      return null;
+    }
+
+    //Each group is negative when it includes a character which is not a digit
+    final long first = hexDigits(prospectiveUuid, 0, 8);
+    final long second = hexDigits(prospectiveUuid, 9, 13);
+    final long third = hexDigits(prospectiveUuid, 14, 18);
+    final long fourth = hexDigits(prospectiveUuid, 19, 23);
+    final long fifth = hexDigits(prospectiveUuid, 24, 36);
+
+    if((first | second | third | fourth | fifth) < 0) {
+      return null;
+    }
+
+    return new UUID(
+      first << 32 | second << 16 | third,
+      fourth << 48 | fifth);
+  }
+
+  private static boolean hasCanonicalLayout(String prospectiveUuid) {
+    return prospectiveUuid != null
+      && prospectiveUuid.length() == LENGTH
+      && prospectiveUuid.charAt(8) == '-'
+      && prospectiveUuid.charAt(13) == '-'
+      && prospectiveUuid.charAt(18) == '-'
+      && prospectiveUuid.charAt(23) == '-';
+  }
+
+  /**
+   * At most 12 digits, so a valid group is never negative
+   *
+   * @return the value of the digits, or a negative number when any character
+   * is not a hexadecimal digit
+   */
+  private static long hexDigits(String text, int start, int end) {
+    long value = 0;
+
+    for (int index = start; index < end; index++) {
+      final char character = text.charAt(index);
+
+      final long digit = character < 128 ? HEX_VALUES[character] : -1;
+
+      //Once negative, remains so
+      value = (value << 4) | digit;
+    }
+
+    return value;
   }
 }
@@ -0,0 +1,81 @@
+package org.folio.support.loanrules;
+
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Loan rules compiled into a structure which decides the loan policy for
+ * a combination of criteria without evaluating each rule in turn.
+ *
+ * Rules are ranked by their priority, and for each type of criterion
+ * there is an index of which rules accept each name. Resolving
+ * intersects the rules accepted for each of the criteria and takes the
+ * highest ranked of those that remain
+ */
+public class CompiledLoanRules {
+  private final String fallbackPolicy;
+  private final String[] policiesByRank;
+  private final Map<CriterionType, CriterionIndex> indexes =
+    new EnumMap<>(CriterionType.class);
+
+  private CompiledLoanRules(String fallbackPolicy, List<Rule> rankedRules) {
+    this.fallbackPolicy = fallbackPolicy;
+
+    policiesByRank = rankedRules.stream()
+      .map(Rule::getLoanPolicy)
+      .toArray(String[]::new);
+
+    for (CriterionType type : CriterionType.values()) {
+      final CriterionIndex index = new CriterionIndex();
+
+      for (int rank = 0; rank < rankedRules.size(); rank++) {
+        index.add(rank, rankedRules.get(rank).getCriteria().stream()
+          .filter(criterion -> criterion.getType() == type)
+          .collect(Collectors.toList()));
+      }
+
+      indexes.put(type, index);
+    }
+  }
+
+  public static CompiledLoanRules compile(String loanRulesText)
+    throws LoanRulesException {
+
+    final LoanRulesParser parser = new LoanRulesParser().parse(loanRulesText);
+
+    final List<Rule> rankedRules = parser.getRules().stream()
+      .sorted(parser.getPriority().highestFirst())
+      .collect(Collectors.toList());
+
+    return new CompiledLoanRules(parser.getFallbackPolicy(), rankedRules);
+  }
+
+  /**
+   * @param names the name (usually an id) for each type of criterion,
+   * those which are not known can be left out
+   */
+  public String resolveLoanPolicy(Map<CriterionType, String> names) {
+    final BitSet candidates = new BitSet(policiesByRank.length);
+
+    candidates.set(0, policiesByRank.length);
+
+    for (Map.Entry<CriterionType, CriterionIndex> index : indexes.entrySet()) {
+      index.getValue().restrict(candidates, names.get(index.getKey()));
+
+      if(candidates.isEmpty()) {
+        return fallbackPolicy;
+      }
+    }
+
+    final int highestRanked = candidates.nextSetBit(0);
+
+    return highestRanked < 0 ? fallbackPolicy : policiesByRank[highestRanked];
+  }
+
+  public int getRuleCount() {
+    return policiesByRank.length;
+  }
+}
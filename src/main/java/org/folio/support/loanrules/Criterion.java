@@ -0,0 +1,43 @@
+package org.folio.support.loanrules;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * A single criterion from a loan rule, e.g. "m book dvd" or "g !visitor"
+ */
+class Criterion {
+  private final CriterionType type;
+  private final Set<String> names;
+  private final boolean negated;
+
+  private Criterion(CriterionType type, Set<String> names, boolean negated) {
+    this.type = type;
+    this.names = names;
+    this.negated = negated;
+  }
+
+  static Criterion matching(CriterionType type, Set<String> names) {
+    return new Criterion(type, names, false);
+  }
+
+  static Criterion notMatching(CriterionType type, Set<String> names) {
+    return new Criterion(type, names, true);
+  }
+
+  static Criterion any(CriterionType type) {
+    return new Criterion(type, Collections.emptySet(), true);
+  }
+
+  CriterionType getType() {
+    return type;
+  }
+
+  Set<String> getNames() {
+    return names;
+  }
+
+  boolean isNegated() {
+    return negated;
+  }
+}
@@ -0,0 +1,84 @@
+package org.folio.support.loanrules;
+
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * For a single type of criterion, which rules (identified by their rank)
+ * accept each name
+ */
+class CriterionIndex {
+  private static final BitSet NONE = new BitSet();
+
+  //Rules which accept any name, including when there is none
+  private final BitSet unconstrained = new BitSet();
+  //Rules which accept any name other than those excluded
+  private final BitSet negated = new BitSet();
+  private final Map<String, BitSet> matching = new HashMap<>();
+  private final Map<String, BitSet> excluded = new HashMap<>();
+
+  /**
+   * @param criteria all of the criteria of this type for the rule,
+   * including those inherited, every one of which must be satisfied
+   */
+  void add(int rank, List<Criterion> criteria) {
+    Set<String> matchingNames = null;
+    final Set<String> excludedNames = new HashSet<>();
+
+    for (Criterion criterion : criteria) {
+      if(criterion.isNegated()) {
+        excludedNames.addAll(criterion.getNames());
+      }
+      else if(matchingNames == null) {
+        matchingNames = new HashSet<>(criterion.getNames());
+      }
+      else {
+        matchingNames.retainAll(criterion.getNames());
+      }
+    }
+
+    if(matchingNames != null) {
+      matchingNames.removeAll(excludedNames);
+      matchingNames.forEach(name -> setFor(matching, name, rank));
+    }
+    else if(excludedNames.isEmpty()) {
+      unconstrained.set(rank);
+    }
+    else {
+      negated.set(rank);
+      excludedNames.forEach(name -> setFor(excluded, name, rank));
+    }
+  }
+
+  /**
+   * Removes the rules which do not accept the name from the candidates
+   *
+   * @param name may be null when not known, then only rules without
+   * a positive criterion of this type are accepted
+   */
+  void restrict(BitSet candidates, String name) {
+    if(negated.isEmpty() && matching.isEmpty()) {
+      //No rule has a criterion of this type
+      return;
+    }
+
+    final BitSet accepted = (BitSet) negated.clone();
+
+    if(name != null) {
+      accepted.andNot(excluded.getOrDefault(name, NONE));
+      accepted.or(matching.getOrDefault(name, NONE));
+    }
+
+    accepted.or(unconstrained);
+
+    candidates.and(accepted);
+  }
+
+  private static void setFor(Map<String, BitSet> index, String name, int rank) {
+    index.computeIfAbsent(name, key -> new BitSet()).set(rank);
+  }
+}
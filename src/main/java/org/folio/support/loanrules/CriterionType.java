@@ -0,0 +1,34 @@
+package org.folio.support.loanrules;
+
+import java.util.Arrays;
+
+/**
+ * The kinds of criteria a loan rule can have, and the letter used for
+ * each in the loan rules text
+ */
+public enum CriterionType {
+  LOAN_TYPE('t'),
+  INSTITUTION('a'),
+  CAMPUS('b'),
+  LIBRARY('c'),
+  LOCATION('s'),
+  MATERIAL_TYPE('m'),
+  PATRON_GROUP('g');
+
+  private final char letter;
+
+  CriterionType(char letter) {
+    this.letter = letter;
+  }
+
+  public char getLetter() {
+    return letter;
+  }
+
+  static CriterionType fromLetter(String letter) {
+    return Arrays.stream(values())
+      .filter(type -> letter.length() == 1 && type.letter == letter.charAt(0))
+      .findFirst()
+      .orElse(null);
+  }
+}
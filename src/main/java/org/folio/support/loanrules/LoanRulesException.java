@@ -0,0 +1,17 @@
+package org.folio.support.loanrules;
+
+/**
+ * Loan rules text which cannot be compiled
+ */
+public class LoanRulesException extends Exception {
+  private final int line;
+
+  LoanRulesException(int line, String message) {
+    super(String.format("Line %d: %s", line, message));
+    this.line = line;
+  }
+
+  public int getLine() {
+    return line;
+  }
+}
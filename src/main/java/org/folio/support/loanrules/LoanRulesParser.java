@@ -0,0 +1,254 @@
+package org.folio.support.loanrules;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reads the loan rules text, for example
+ *
+ * <pre>
+ * priority: t, s, c, b, a, m, g
+ * fallback-policy: no-circulation
+ * m book cd dvd + t special: in-house
+ * m book
+ *   g !staff: short-term
+ * </pre>
+ *
+ * Lines which are indented beneath another line inherit its criteria.
+ * Comments start with # or / and continue to the end of the line
+ */
+class LoanRulesParser {
+  private static final String PRIORITY = "priority:";
+  private static final String FALLBACK_POLICY = "fallback-policy:";
+  private static final String ALL = "all";
+
+  private final List<Rule> rules = new ArrayList<>();
+  private RulePriority priority;
+  private String fallbackPolicy;
+
+  List<Rule> getRules() {
+    return rules;
+  }
+
+  RulePriority getPriority() {
+    return priority == null ? RulePriority.defaultPriority() : priority;
+  }
+
+  String getFallbackPolicy() {
+    return fallbackPolicy;
+  }
+
+  LoanRulesParser parse(String text) throws LoanRulesException {
+    final String[] lines = text.split("\r?\n", -1);
+    final Deque<Parent> parents = new ArrayDeque<>();
+
+    for (int index = 0; index < lines.length; index++) {
+      final int lineNumber = index + 1;
+      final String line = withoutComment(lines[index]);
+
+      if(line.trim().isEmpty()) {
+        continue;
+      }
+
+      if(line.indexOf('\t') >= 0) {
+        throw new LoanRulesException(lineNumber,
+          "Tabulator character is not allowed, use spaces instead");
+      }
+
+      final int indentation = indentationOf(line);
+      final String content = line.trim();
+
+      if(content.startsWith(PRIORITY)) {
+        parsePriority(lineNumber, indentation, content);
+        continue;
+      }
+
+      if(content.startsWith(FALLBACK_POLICY)) {
+        parseFallbackPolicy(lineNumber, indentation, content);
+        continue;
+      }
+
+      while(!parents.isEmpty() && parents.peek().indentation >= indentation) {
+        parents.pop();
+      }
+
+      final List<Criterion> criteria = new ArrayList<>(parents.isEmpty()
+        ? Collections.emptyList()
+        : parents.peek().criteria);
+
+      final int colon = content.indexOf(':');
+
+      criteria.addAll(parseCriteria(lineNumber,
+        colon < 0 ? content : content.substring(0, colon)));
+
+      parents.push(new Parent(indentation, criteria));
+
+      if(colon >= 0) {
+        rules.add(new Rule(lineNumber,
+          parsePolicy(lineNumber, content.substring(colon + 1)), criteria));
+      }
+    }
+
+    if(fallbackPolicy == null) {
+      throw new LoanRulesException(lines.length, "fallback-policy is missing");
+    }
+
+    return this;
+  }
+
+  private void parsePriority(int line, int indentation, String content)
+    throws LoanRulesException {
+
+    if(indentation > 0 || priority != null || !rules.isEmpty()) {
+      throw new LoanRulesException(line,
+        "priority must be a single unindented line before any rules");
+    }
+
+    priority = RulePriority.parse(line, content.substring(PRIORITY.length()));
+  }
+
+  private void parseFallbackPolicy(int line, int indentation, String content)
+    throws LoanRulesException {
+
+    if(indentation > 0 || fallbackPolicy != null) {
+      throw new LoanRulesException(line,
+        "fallback-policy must be a single unindented line");
+    }
+
+    fallbackPolicy = parsePolicy(line, content.substring(FALLBACK_POLICY.length()));
+  }
+
+  private static List<Criterion> parseCriteria(int line, String criteria)
+    throws LoanRulesException {
+
+    final List<Criterion> parsed = new ArrayList<>();
+
+    for (String criterion : criteria.split("\\+")) {
+      final List<String> tokens = tokens(criterion);
+
+      if(tokens.isEmpty()) {
+        throw new LoanRulesException(line, "Criterion is missing");
+      }
+
+      final CriterionType type = CriterionType.fromLetter(tokens.get(0));
+
+      if(type == null) {
+        throw new LoanRulesException(line, String.format(
+          "Unknown criterion type \"%s\"", tokens.get(0)));
+      }
+
+      final List<String> names = tokens.subList(1, tokens.size());
+
+      if(names.isEmpty()) {
+        throw new LoanRulesException(line, String.format(
+          "Criterion \"%s\" has no names", type.getLetter()));
+      }
+
+      parsed.add(parseNames(line, type, names));
+    }
+
+    return parsed;
+  }
+
+  private static Criterion parseNames(int line, CriterionType type, List<String> names)
+    throws LoanRulesException {
+
+    if(names.size() == 1 && names.get(0).equals(ALL)) {
+      return Criterion.any(type);
+    }
+
+    final Set<String> withoutNegation = new HashSet<>();
+    int negated = 0;
+
+    for (String name : names) {
+      if(name.startsWith("!")) {
+        negated++;
+        withoutNegation.add(name.substring(1));
+      }
+      else {
+        withoutNegation.add(name);
+      }
+    }
+
+    if(negated == 0) {
+      return Criterion.matching(type, withoutNegation);
+    }
+
+    if(negated == names.size()) {
+      return Criterion.notMatching(type, withoutNegation);
+    }
+
+    throw new LoanRulesException(line, String.format(
+      "Criterion \"%s\" cannot mix negated and not negated names", type.getLetter()));
+  }
+
+  /**
+   * Either a single loan policy, or a list of policy types and policies where
+   * only the loan policy (l) is used, e.g. "l in-house r hold-only"
+   */
+  private static String parsePolicy(int line, String policy)
+    throws LoanRulesException {
+
+    final List<String> tokens = tokens(policy);
+
+    if(tokens.size() == 1) {
+      return tokens.get(0);
+    }
+
+    if(tokens.size() > 1 && tokens.size() % 2 == 0) {
+      for (int index = 0; index < tokens.size(); index += 2) {
+        if(tokens.get(index).equals("l")) {
+          return tokens.get(index + 1);
+        }
+      }
+    }
+
+    throw new LoanRulesException(line, "Loan policy is missing");
+  }
+
+  private static List<String> tokens(String text) {
+    final String trimmed = text.trim();
+
+    return trimmed.isEmpty()
+      ? Collections.emptyList()
+      : Arrays.asList(trimmed.split("\\s+"));
+  }
+
+  private static int indentationOf(String line) {
+    int indentation = 0;
+
+    while(indentation < line.length() && line.charAt(indentation) == ' ') {
+      indentation++;
+    }
+
+    return indentation;
+  }
+
+  private static String withoutComment(String line) {
+    for (int index = 0; index < line.length(); index++) {
+      final char character = line.charAt(index);
+
+      if(character == '#' || character == '/') {
+        return line.substring(0, index);
+      }
+    }
+
+    return line;
+  }
+
+  private static class Parent {
+    private final int indentation;
+    private final List<Criterion> criteria;
+
+    private Parent(int indentation, List<Criterion> criteria) {
+      this.indentation = indentation;
+      this.criteria = criteria;
+    }
+  }
+}
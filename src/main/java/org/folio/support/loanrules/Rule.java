@@ -0,0 +1,31 @@
+package org.folio.support.loanrules;
+
+import java.util.List;
+
+/**
+ * A line of the loan rules which has a policy, together with the criteria
+ * inherited from the lines it is indented beneath
+ */
+class Rule {
+  private final int line;
+  private final String loanPolicy;
+  private final List<Criterion> criteria;
+
+  Rule(int line, String loanPolicy, List<Criterion> criteria) {
+    this.line = line;
+    this.loanPolicy = loanPolicy;
+    this.criteria = criteria;
+  }
+
+  int getLine() {
+    return line;
+  }
+
+  String getLoanPolicy() {
+    return loanPolicy;
+  }
+
+  List<Criterion> getCriteria() {
+    return criteria;
+  }
+}
@@ -0,0 +1,153 @@
+package org.folio.support.loanrules;
+
+import static java.util.Comparator.comparingInt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Decides which of the rules matching a loan takes precedence, from the
+ * priority line of the loan rules, e.g.
+ * "priority: number-of-criteria, criterium (t, s, c, b, a, m, g), line"
+ */
+class RulePriority {
+  private static final Pattern ITEM = Pattern.compile(
+    "\\s*(number-of-criteria|criterium\\s*\\(([^)]*)\\)|first-line|last-line|line)\\s*(,|$)");
+
+  private static final Pattern LETTERS_ONLY = Pattern.compile(
+    "\\s*[a-z]([\\s,]+[a-z])*\\s*");
+
+  private final Comparator<Rule> highestFirst;
+
+  private RulePriority(Comparator<Rule> highestFirst) {
+    this.highestFirst = highestFirst
+      .thenComparing(comparingInt(Rule::getLine).reversed());
+  }
+
+  static RulePriority defaultPriority() {
+    return new RulePriority(byNumberOfCriteria()
+      .thenComparing(byCriterium(Arrays.asList(CriterionType.values())))
+      .thenComparing(byLastLine()));
+  }
+
+  static RulePriority parse(int line, String priority) throws LoanRulesException {
+    if(LETTERS_ONLY.matcher(priority).matches()) {
+      return new RulePriority(byCriterium(parseOrder(line, priority))
+        .thenComparing(byLastLine()));
+    }
+
+    final Matcher matcher = ITEM.matcher(priority);
+    Comparator<Rule> comparator = null;
+    int end = 0;
+
+    while(end < priority.length() && matcher.find(end) && matcher.start() == end) {
+      final Comparator<Rule> item;
+      final String name = matcher.group(1);
+
+      if(name.equals("number-of-criteria")) {
+        item = byNumberOfCriteria();
+      }
+      else if(name.equals("first-line")) {
+        item = comparingInt(Rule::getLine);
+      }
+      else if(name.equals("last-line") || name.equals("line")) {
+        item = byLastLine();
+      }
+      else {
+        item = byCriterium(parseOrder(line, matcher.group(2)));
+      }
+
+      comparator = comparator == null ? item : comparator.thenComparing(item);
+      end = matcher.end();
+    }
+
+    if(comparator == null || end < priority.length()) {
+      throw new LoanRulesException(line, String.format(
+        "Invalid priority \"%s\"", priority.trim()));
+    }
+
+    return new RulePriority(comparator);
+  }
+
+  Comparator<Rule> highestFirst() {
+    return highestFirst;
+  }
+
+  private static List<CriterionType> parseOrder(int line, String letters)
+    throws LoanRulesException {
+
+    final List<CriterionType> order = new ArrayList<>();
+
+    for (String letter : letters.split("[\\s,]+")) {
+      if(letter.isEmpty()) {
+        continue;
+      }
+
+      final CriterionType type = CriterionType.fromLetter(letter);
+
+      if(type == null || order.contains(type)) {
+        throw new LoanRulesException(line, String.format(
+          "Priority must list each of %s exactly once", allLetters()));
+      }
+
+      order.add(type);
+    }
+
+    if(order.size() != CriterionType.values().length) {
+      throw new LoanRulesException(line, String.format(
+        "Priority must list each of %s exactly once", allLetters()));
+    }
+
+    return order;
+  }
+
+  private static String allLetters() {
+    return Arrays.stream(CriterionType.values())
+      .map(type -> String.valueOf(type.getLetter()))
+      .collect(Collectors.joining(", "));
+  }
+
+  private static Comparator<Rule> byNumberOfCriteria() {
+    return comparingInt((Rule rule) -> rule.getCriteria().size()).reversed();
+  }
+
+  private static Comparator<Rule> byLastLine() {
+    return comparingInt(Rule::getLine).reversed();
+  }
+
+  /**
+   * The rule whose most important criterion comes first in the order wins,
+   * when they are the same then the next most important criterion is used
+   */
+  private static Comparator<Rule> byCriterium(List<CriterionType> order) {
+    final Map<Rule, int[]> ranks = new IdentityHashMap<>();
+
+    return (first, second) -> {
+      final int[] firstRanks = ranks.computeIfAbsent(first, rule -> ranks(rule, order));
+      final int[] secondRanks = ranks.computeIfAbsent(second, rule -> ranks(rule, order));
+
+      for (int index = 0; index < Math.min(firstRanks.length, secondRanks.length); index++) {
+        if(firstRanks[index] != secondRanks[index]) {
+          return Integer.compare(firstRanks[index], secondRanks[index]);
+        }
+      }
+
+      //The rule with more criteria is the more specific
+      return Integer.compare(secondRanks.length, firstRanks.length);
+    };
+  }
+
+  private static int[] ranks(Rule rule, List<CriterionType> order) {
+    return rule.getCriteria().stream()
+      .mapToInt(criterion -> order.indexOf(criterion.getType()))
+      .sorted()
+      .toArray();
+  }
+}
@@ -0,0 +1,4 @@
+-- Closed loans for a user, used when anonymizing them
+CREATE INDEX IF NOT EXISTS loan_closed_userid_idx
+  ON ${myuniversity}_${mymodule}.loan ((jsonb->>'userId'))
+  WHERE (jsonb->'status'->>'name') = 'Closed';
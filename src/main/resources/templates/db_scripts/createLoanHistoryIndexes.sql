@@ -0,0 +1,89 @@
+-- Indexes for the history of a loan, or of the loans for a user, most
+-- recent first (which is also used when anonymizing the history for a user).
+--
+-- RMB only creates indexes declared in the schema for the loan table itself,
+-- not for its history, so they are created here, both for audit_loan and
+-- for each existing partition (partitions created later copy the indexes of
+-- audit_loan).
+
+-- Index definitions are compared without the name or table, e.g.
+-- " USING btree (((jsonb ->> 'id'::text)), created_date DESC)"
+CREATE OR REPLACE FUNCTION ${myuniversity}_${mymodule}.index_method(index_oid oid)
+  RETURNS text AS $$
+  SELECT substring(pg_get_indexdef(index_oid) from ' USING .*$');
+$$ LANGUAGE sql STABLE;
+
+-- Creates any index of audit_loan that a partition does not have (other than
+-- the primary key, which is copied when the partition is created)
+CREATE OR REPLACE FUNCTION ${myuniversity}_${mymodule}.copy_audit_loan_indexes_to_partitions()
+  RETURNS void AS $$
+DECLARE
+  partition_name text;
+  parent_index record;
+BEGIN
+  FOR partition_name IN
+    SELECT child.relname::text
+    FROM pg_inherits
+    JOIN pg_class child ON child.oid = pg_inherits.inhrelid
+    WHERE pg_inherits.inhparent = '${myuniversity}_${mymodule}.audit_loan'::regclass
+  LOOP
+    FOR parent_index IN
+      SELECT index_class.relname::text AS name,
+        ${myuniversity}_${mymodule}.index_method(pg_index.indexrelid) AS method
+      FROM pg_index
+      JOIN pg_class index_class ON index_class.oid = pg_index.indexrelid
+      WHERE pg_index.indrelid = '${myuniversity}_${mymodule}.audit_loan'::regclass
+        AND NOT pg_index.indisprimary
+    LOOP
+      IF NOT EXISTS (SELECT 1 FROM pg_index
+        WHERE pg_index.indrelid = to_regclass(format('%I.%I',
+            '${myuniversity}_${mymodule}', partition_name))
+          AND ${myuniversity}_${mymodule}.index_method(pg_index.indexrelid) = parent_index.method) THEN
+
+        -- e.g. audit_loan_2018_11_id_created_date_idx
+        EXECUTE format('CREATE INDEX %I ON %I.%I%s',
+          partition_name || substring(parent_index.name from length('audit_loan') + 1),
+          '${myuniversity}_${mymodule}', partition_name, parent_index.method);
+      END IF;
+    END LOOP;
+  END LOOP;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Drops an index of audit_loan, and the same index of each partition
+CREATE OR REPLACE FUNCTION ${myuniversity}_${mymodule}.drop_audit_loan_index(index_name text)
+  RETURNS void AS $$
+DECLARE
+  method text := ${myuniversity}_${mymodule}.index_method(
+    to_regclass(format('%I.%I', '${myuniversity}_${mymodule}', index_name)));
+  partition_index text;
+BEGIN
+  IF method IS NULL THEN
+    RETURN;
+  END IF;
+
+  FOR partition_index IN
+    SELECT index_class.relname::text
+    FROM pg_inherits
+    JOIN pg_index ON pg_index.indrelid = pg_inherits.inhrelid
+    JOIN pg_class index_class ON index_class.oid = pg_index.indexrelid
+    WHERE pg_inherits.inhparent = '${myuniversity}_${mymodule}.audit_loan'::regclass
+      AND ${myuniversity}_${mymodule}.index_method(pg_index.indexrelid) = method
+  LOOP
+    EXECUTE format('DROP INDEX %I.%I', '${myuniversity}_${mymodule}', partition_index);
+  END LOOP;
+
+  EXECUTE format('DROP INDEX %I.%I', '${myuniversity}_${mymodule}', index_name);
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE INDEX IF NOT EXISTS audit_loan_id_created_date_idx
+  ON ${myuniversity}_${mymodule}.audit_loan ((jsonb->>'id'), created_date DESC);
+
+CREATE INDEX IF NOT EXISTS audit_loan_userid_created_date_idx
+  ON ${myuniversity}_${mymodule}.audit_loan ((jsonb->>'userId'), created_date DESC);
+
+-- Served by the index for the loans for a user
+SELECT ${myuniversity}_${mymodule}.drop_audit_loan_index('audit_loan_userid_idx');
+
+SELECT ${myuniversity}_${mymodule}.copy_audit_loan_indexes_to_partitions();
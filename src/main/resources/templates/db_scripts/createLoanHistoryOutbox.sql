@@ -0,0 +1,184 @@
+-- Optionally, loan history is queued in an outbox when a loan is changed,
+-- and appended to audit_loan later, in batches, by the module (see
+-- LoanHistoryDrainer). Queuing is a single insert into an append only table,
+-- rather than an insert into the partition for the month (and each of its
+-- indexes) within the transaction changing the loan.
+--
+-- Queuing is turned on for a tenant by enable_asynchronous_audit_loan (using
+-- PUT /loan-storage/loan-history/mode), which adds a trigger that runs before
+-- the trigger which moves history to partitions. Whether the trigger exists
+-- is the mode for the tenant, and is only changed explicitly.
+
+CREATE TABLE IF NOT EXISTS ${myuniversity}_${mymodule}.audit_loan_outbox (
+  seq bigserial PRIMARY KEY,
+  history jsonb NOT NULL,
+  queued_date timestamptz NOT NULL DEFAULT clock_timestamp()
+);
+
+-- Used to anonymize history which is still queued
+CREATE INDEX IF NOT EXISTS audit_loan_outbox_id_idx
+  ON ${myuniversity}_${mymodule}.audit_loan_outbox ((history->'jsonb'->>'id'));
+
+CREATE OR REPLACE FUNCTION ${myuniversity}_${mymodule}.queue_audit_loan()
+  RETURNS TRIGGER AS $$
+BEGIN
+  -- History moved from the outbox is appended as usual
+  IF current_setting('circulation.draining_audit_loan', true) = 'on' THEN
+    RETURN NEW;
+  END IF;
+
+  -- The transaction has an ID before seq is allocated (see
+  -- drain_audit_loan_outbox), even when the history is not for a loan change
+  PERFORM txid_current();
+
+  INSERT INTO ${myuniversity}_${mymodule}.audit_loan_outbox (history)
+    VALUES (to_jsonb(NEW));
+
+  RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION ${myuniversity}_${mymodule}.enable_asynchronous_audit_loan()
+  RETURNS void AS $$
+BEGIN
+  IF NOT EXISTS (SELECT 1 FROM pg_trigger
+    WHERE tgname = 'queue_audit_loan'
+      AND tgrelid = '${myuniversity}_${mymodule}.audit_loan'::regclass) THEN
+
+    BEGIN
+      -- Triggers run in name order, so this runs before route_audit_loan
+      CREATE TRIGGER queue_audit_loan
+        BEFORE INSERT ON ${myuniversity}_${mymodule}.audit_loan
+        FOR EACH ROW EXECUTE PROCEDURE ${myuniversity}_${mymodule}.queue_audit_loan();
+    EXCEPTION WHEN duplicate_object THEN
+      -- Enabled by another module instance at the same time
+      NULL;
+    END;
+  END IF;
+END;
+$$ LANGUAGE plpgsql;
+
+-- History which is already queued remains in the outbox until it is drained
+CREATE OR REPLACE FUNCTION ${myuniversity}_${mymodule}.disable_asynchronous_audit_loan()
+  RETURNS void AS $$
+BEGIN
+  IF EXISTS (SELECT 1 FROM pg_trigger
+    WHERE tgname = 'queue_audit_loan'
+      AND tgrelid = '${myuniversity}_${mymodule}.audit_loan'::regclass) THEN
+
+    DROP TRIGGER IF EXISTS queue_audit_loan ON ${myuniversity}_${mymodule}.audit_loan;
+  END IF;
+END;
+$$ LANGUAGE plpgsql;
+
+-- seq is allocated when history is queued, rather than when the transaction
+-- queuing it commits, so history can become visible out of seq order: while
+-- the transaction holding seq N is still in progress, seq N + 1 may already
+-- be committed. So that history is never appended out of order, only history
+-- up to appendable_seq is appended: every transaction which could have
+-- allocated a seq up to it has finished.
+--
+-- pending_seq is the last seq allocated before pending_xmax was the next
+-- transaction ID, so becomes appendable once no transaction before
+-- pending_xmax is in progress (the oldest in progress, the xmin of a
+-- snapshot, is at least pending_xmax).
+CREATE TABLE IF NOT EXISTS ${myuniversity}_${mymodule}.audit_loan_outbox_watermark (
+  id integer PRIMARY KEY CHECK (id = 1),
+  appendable_seq bigint NOT NULL,
+  pending_seq bigint NOT NULL,
+  pending_xmax bigint NOT NULL
+);
+
+INSERT INTO ${myuniversity}_${mymodule}.audit_loan_outbox_watermark
+  VALUES (1, 0, 0, 0)
+  ON CONFLICT (id) DO NOTHING;
+
+-- Appends up to batch_size of the oldest appendable history to audit_loan,
+-- in seq order, returning how many were appended.
+--
+-- Only one transaction drains the outbox at a time (any other appends
+-- nothing). History is appended in the order it was queued, and history
+-- queued by a transaction still in progress holds back any queued after it,
+-- so is never appended after it.
+CREATE OR REPLACE FUNCTION ${myuniversity}_${mymodule}.drain_audit_loan_outbox(batch_size integer)
+  RETURNS bigint AS $$
+DECLARE
+  allocated_seq bigint;
+  drain_snapshot txid_snapshot;
+  watermark ${myuniversity}_${mymodule}.audit_loan_outbox_watermark%ROWTYPE;
+  appended bigint;
+BEGIN
+  IF NOT pg_try_advisory_xact_lock(
+    hashtext('${myuniversity}_${mymodule}.audit_loan_outbox')) THEN
+
+    RETURN 0;
+  END IF;
+
+  -- The last seq allocated is read before the snapshot, so any transaction
+  -- which allocated a seq up to it precedes the xmax of the snapshot. Both
+  -- are read before this transaction writes anything, so that it is not
+  -- itself in progress in the snapshot
+  SELECT CASE WHEN is_called THEN last_value ELSE 0 END INTO allocated_seq
+    FROM ${myuniversity}_${mymodule}.audit_loan_outbox_seq_seq;
+
+  drain_snapshot := txid_current_snapshot();
+
+  SELECT * INTO watermark
+    FROM ${myuniversity}_${mymodule}.audit_loan_outbox_watermark
+    WHERE id = 1;
+
+  IF txid_snapshot_xmin(drain_snapshot) >= txid_snapshot_xmax(drain_snapshot) THEN
+    -- Nothing is in progress, so every seq allocated is committed or rolled back
+    UPDATE ${myuniversity}_${mymodule}.audit_loan_outbox_watermark
+      SET appendable_seq = allocated_seq,
+        pending_seq = allocated_seq,
+        pending_xmax = txid_snapshot_xmax(drain_snapshot)
+      WHERE id = 1;
+
+    watermark.appendable_seq := allocated_seq;
+  ELSIF txid_snapshot_xmin(drain_snapshot) >= watermark.pending_xmax THEN
+    UPDATE ${myuniversity}_${mymodule}.audit_loan_outbox_watermark
+      SET appendable_seq = watermark.pending_seq,
+        pending_seq = allocated_seq,
+        pending_xmax = txid_snapshot_xmax(drain_snapshot)
+      WHERE id = 1;
+
+    watermark.appendable_seq := watermark.pending_seq;
+  END IF;
+
+  PERFORM set_config('circulation.draining_audit_loan', 'on', true);
+
+  WITH batch AS (
+    DELETE FROM ${myuniversity}_${mymodule}.audit_loan_outbox
+    WHERE seq IN (SELECT seq FROM ${myuniversity}_${mymodule}.audit_loan_outbox
+      WHERE seq <= watermark.appendable_seq
+      ORDER BY seq LIMIT batch_size)
+    RETURNING seq, history),
+  appended_history AS (
+    INSERT INTO ${myuniversity}_${mymodule}.audit_loan
+    SELECT history.*
+    FROM batch,
+      jsonb_populate_record(NULL::${myuniversity}_${mymodule}.audit_loan, batch.history) AS history
+    ORDER BY batch.seq)
+  SELECT count(*) INTO appended FROM batch;
+
+  PERFORM set_config('circulation.draining_audit_loan', 'off', true);
+
+  RETURN appended;
+END;
+$$ LANGUAGE plpgsql;
+
+-- How many history records are queued, for how long the oldest has been, and
+-- whether history is currently being queued for the tenant
+DROP FUNCTION IF EXISTS ${myuniversity}_${mymodule}.audit_loan_outbox_lag();
+
+CREATE OR REPLACE FUNCTION ${myuniversity}_${mymodule}.audit_loan_outbox_lag(
+  OUT queued bigint, OUT oldest_seconds double precision,
+  OUT asynchronous boolean) AS $$
+  SELECT count(*),
+    COALESCE(extract(epoch FROM clock_timestamp() - min(queued_date)), 0)::double precision,
+    EXISTS (SELECT 1 FROM pg_trigger
+      WHERE tgname = 'queue_audit_loan'
+        AND tgrelid = '${myuniversity}_${mymodule}.audit_loan'::regclass)
+  FROM ${myuniversity}_${mymodule}.audit_loan_outbox;
+$$ LANGUAGE sql STABLE;
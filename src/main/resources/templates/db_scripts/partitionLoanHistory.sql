@@ -0,0 +1,168 @@
+-- Partitions loan history (audit_loan) by the month it was created in, so
+-- that queries for recent history only need to read recent partitions, and
+-- old history can be removed by dropping a whole partition rather than
+-- deleting (and later vacuuming) individual records.
+--
+-- Partitions are tables inheriting from audit_loan (rather than declarative
+-- partitions, which cannot have the primary key of the audit table), each
+-- with a check constraint on created_date, so partitions which cannot have
+-- matching records are excluded from queries. Records inserted into
+-- audit_loan are moved to the partition for their month, which is created
+-- when needed, with the same indexes as audit_loan.
+
+CREATE INDEX IF NOT EXISTS audit_loan_created_date_idx
+  ON ${myuniversity}_${mymodule}.audit_loan (created_date);
+
+CREATE OR REPLACE FUNCTION ${myuniversity}_${mymodule}.audit_loan_partition_name(created timestamp)
+  RETURNS text AS $$
+  SELECT 'audit_loan_' || to_char(created, 'YYYY_MM');
+$$ LANGUAGE sql IMMUTABLE;
+
+CREATE OR REPLACE FUNCTION ${myuniversity}_${mymodule}.create_audit_loan_partition(created timestamp)
+  RETURNS text AS $$
+DECLARE
+  month_start timestamp := date_trunc('month', created);
+  partition_name text := ${myuniversity}_${mymodule}.audit_loan_partition_name(created);
+BEGIN
+  IF to_regclass(format('%I.%I', '${myuniversity}_${mymodule}', partition_name)) IS NULL THEN
+    BEGIN
+      EXECUTE format('CREATE TABLE %1$I.%2$I'
+        ' (LIKE %1$I.audit_loan INCLUDING DEFAULTS INCLUDING INDEXES,'
+        ' CHECK (created_date >= %3$L AND created_date < %4$L))'
+        ' INHERITS (%1$I.audit_loan)',
+        '${myuniversity}_${mymodule}', partition_name,
+        month_start, month_start + interval '1 month');
+    EXCEPTION WHEN duplicate_table OR unique_violation THEN
+      -- Created by another transaction at the same time
+      NULL;
+    END;
+  END IF;
+
+  RETURN partition_name;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE OR REPLACE FUNCTION ${myuniversity}_${mymodule}.route_audit_loan()
+  RETURNS TRIGGER AS $$
+DECLARE
+  partition_name text := ${myuniversity}_${mymodule}.create_audit_loan_partition(NEW.created_date);
+BEGIN
+  EXECUTE format('INSERT INTO %I.%I SELECT ($1).*', TG_TABLE_SCHEMA, partition_name)
+    USING NEW;
+
+  -- Already in the partition, so is not inserted into audit_loan itself
+  RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Removes the partitions for the months before the month of the date,
+-- returning their names. When detach_only is true, partitions are no
+-- longer part of the history but are kept, e.g. to be archived
+CREATE OR REPLACE FUNCTION ${myuniversity}_${mymodule}.drop_audit_loan_partitions(
+  before timestamp, detach_only boolean DEFAULT false)
+  RETURNS SETOF text AS $$
+DECLARE
+  partition_name text;
+BEGIN
+  FOR partition_name IN
+    SELECT child.relname::text
+    FROM pg_inherits
+    JOIN pg_class child ON child.oid = pg_inherits.inhrelid
+    WHERE pg_inherits.inhparent = '${myuniversity}_${mymodule}.audit_loan'::regclass
+      AND child.relname::text < ${myuniversity}_${mymodule}.audit_loan_partition_name(before)
+    ORDER BY child.relname
+  LOOP
+    IF detach_only THEN
+      EXECUTE format('ALTER TABLE %1$I.%2$I NO INHERIT %1$I.audit_loan',
+        '${myuniversity}_${mymodule}', partition_name);
+    ELSE
+      EXECUTE format('DROP TABLE %I.%I',
+        '${myuniversity}_${mymodule}', partition_name);
+    END IF;
+
+    RETURN NEXT partition_name;
+  END LOOP;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Moves up to batch_size records of history created before partitioning
+-- from audit_loan itself to the partitions, returning how many were moved.
+-- Run repeatedly by the module (see LoanHistoryPartitioner), each batch in a
+-- separate transaction, so that only a batch is locked at a time
+CREATE OR REPLACE FUNCTION ${myuniversity}_${mymodule}.move_unpartitioned_audit_loan(batch_size integer)
+  RETURNS bigint AS $$
+DECLARE
+  moved_count bigint;
+BEGIN
+  -- Moved history is not queued again when history is appended asynchronously
+  PERFORM set_config('circulation.draining_audit_loan', 'on', true);
+
+  WITH moved AS (
+    DELETE FROM ONLY ${myuniversity}_${mymodule}.audit_loan
+    WHERE ctid = ANY(ARRAY(SELECT ctid FROM ONLY ${myuniversity}_${mymodule}.audit_loan
+      LIMIT batch_size))
+    RETURNING *),
+  inserted AS (
+    INSERT INTO ${myuniversity}_${mymodule}.audit_loan SELECT * FROM moved)
+  SELECT count(*) INTO moved_count FROM moved;
+
+  PERFORM set_config('circulation.draining_audit_loan', 'off', true);
+
+  RETURN moved_count;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Once no history is left in audit_loan itself, it need not be read,
+-- returns whether it is partitioned
+CREATE OR REPLACE FUNCTION ${myuniversity}_${mymodule}.finish_partitioning_audit_loan()
+  RETURNS boolean AS $$
+BEGIN
+  IF EXISTS (SELECT 1 FROM pg_constraint
+    WHERE conname = 'audit_loan_is_partitioned'
+      AND conrelid = '${myuniversity}_${mymodule}.audit_loan'::regclass) THEN
+
+    RETURN true;
+  END IF;
+
+  IF EXISTS (SELECT 1 FROM ONLY ${myuniversity}_${mymodule}.audit_loan) THEN
+    RETURN false;
+  END IF;
+
+  BEGIN
+    ALTER TABLE ONLY ${myuniversity}_${mymodule}.audit_loan
+      ADD CONSTRAINT audit_loan_is_partitioned CHECK (false) NO INHERIT;
+  EXCEPTION
+    WHEN duplicate_object THEN
+      -- Finished by another transaction at the same time
+      NULL;
+    WHEN check_violation THEN
+      -- History was left by a move still in progress
+      RETURN false;
+  END;
+
+  RETURN true;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Can be run more than once, e.g. when the module is upgraded. Only routes
+-- history created from now on to the partitions, so that the upgrade does
+-- not hold the whole history in one transaction. Any history created before
+-- is moved by the module afterwards, in batches
+CREATE OR REPLACE FUNCTION ${myuniversity}_${mymodule}.partition_audit_loan()
+  RETURNS void AS $$
+BEGIN
+  IF NOT EXISTS (SELECT 1 FROM pg_trigger
+    WHERE tgname = 'route_audit_loan'
+      AND tgrelid = '${myuniversity}_${mymodule}.audit_loan'::regclass) THEN
+
+    CREATE TRIGGER route_audit_loan
+      BEFORE INSERT ON ${myuniversity}_${mymodule}.audit_loan
+      FOR EACH ROW EXECUTE PROCEDURE ${myuniversity}_${mymodule}.route_audit_loan();
+  END IF;
+
+  -- Finished straight away when there is no history to move
+  PERFORM ${myuniversity}_${mymodule}.finish_partitioning_audit_loan();
+END;
+$$ LANGUAGE plpgsql;
+
+SELECT ${myuniversity}_${mymodule}.partition_audit_loan();
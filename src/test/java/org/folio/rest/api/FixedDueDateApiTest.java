@@ -4,6 +4,8 @@ import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import org.folio.rest.support.*;
 import org.hamcrest.junit.MatcherAssert;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Ignore;
@@ -431,6 +433,200 @@ public class FixedDueDateApiTest extends ApiTests {
     assertThat(results.get(2).getString("name"), is("quarterly"));
   }
 
+  @Test
+  public void canGetDueDateForLoanDateWithinDateRange()
+    throws InterruptedException,
+    MalformedURLException,
+    TimeoutException,
+    ExecutionException,
+    UnsupportedEncodingException {
+
+    JsonObject request = createFixedDueDate("Semesters");
+
+    request.put(SCHEDULE_SECTION, new JsonArray()
+      .add(createSchedule("2018-09-01T00:00:00.000+0000",
+        "2018-12-31T23:59:59.000+0000", "2019-01-15T00:00:00.000+0000"))
+      .add(createSchedule("2018-01-01T00:00:00.000+0000",
+        "2018-05-31T23:59:59.000+0000", "2018-06-15T00:00:00.000+0000")));
+
+    IndividualResource schedule = createFixedDueDateSchedule(request);
+
+    JsonResponse response = getDueDate(schedule.getId(),
+      "2018-03-05T12:00:00.000+0000");
+
+    assertThat(String.format("Failed to get due date: %s", response.getBody()),
+      response.getStatusCode(), is(HttpURLConnection.HTTP_OK));
+
+    assertThat(dueDateFrom(response), is(DateTime.parse("2018-06-15T00:00:00.000+0000")));
+
+    JsonResponse endOfRangeResponse = getDueDate(schedule.getId(),
+      "2018-12-31T23:59:59.000+0000");
+
+    assertThat(String.format("Failed to get due date: %s", endOfRangeResponse.getBody()),
+      endOfRangeResponse.getStatusCode(), is(HttpURLConnection.HTTP_OK));
+
+    assertThat(dueDateFrom(endOfRangeResponse), is(DateTime.parse("2019-01-15T00:00:00.000+0000")));
+  }
+
+  @Test
+  public void cannotGetDueDateForLoanDateOutsideOfAllDateRanges()
+    throws InterruptedException,
+    MalformedURLException,
+    TimeoutException,
+    ExecutionException,
+    UnsupportedEncodingException {
+
+    JsonObject request = createFixedDueDate("Spring semester");
+
+    request.put(SCHEDULE_SECTION, new JsonArray()
+      .add(createSchedule("2018-01-01T00:00:00.000+0000",
+        "2018-05-31T23:59:59.000+0000", "2018-06-15T00:00:00.000+0000")));
+
+    IndividualResource schedule = createFixedDueDateSchedule(request);
+
+    JsonResponse response = getDueDate(schedule.getId(),
+      "2018-07-01T12:00:00.000+0000");
+
+    assertThat(String.format("Should not get due date: %s", response.getBody()),
+      response.getStatusCode(), is(422));
+  }
+
+  @Test
+  public void cannotGetDueDateFromUnknownSchedule()
+    throws InterruptedException,
+    MalformedURLException,
+    TimeoutException,
+    ExecutionException,
+    UnsupportedEncodingException {
+
+    JsonResponse response = getDueDate(UUID.randomUUID().toString(),
+      "2018-07-01T12:00:00.000+0000");
+
+    assertThat(String.format("Should not get due date: %s", response.getBody()),
+      response.getStatusCode(), is(HttpURLConnection.HTTP_NOT_FOUND));
+  }
+
+  @Test
+  public void dueDateReflectsReplacedSchedule()
+    throws InterruptedException,
+    MalformedURLException,
+    TimeoutException,
+    ExecutionException,
+    UnsupportedEncodingException {
+
+    JsonObject request = createFixedDueDate("Changing semester");
+
+    request.put(SCHEDULE_SECTION, new JsonArray()
+      .add(createSchedule("2018-01-01T00:00:00.000+0000",
+        "2018-05-31T23:59:59.000+0000", "2018-06-15T00:00:00.000+0000")));
+
+    IndividualResource schedule = createFixedDueDateSchedule(request);
+
+    JsonResponse firstResponse = getDueDate(schedule.getId(),
+      "2018-03-05T12:00:00.000+0000");
+
+    assertThat(dueDateFrom(firstResponse), is(DateTime.parse("2018-06-15T00:00:00.000+0000")));
+
+    JsonObject replacement = schedule.copyJson();
+
+    replacement.remove("metadata");
+    replacement.put(SCHEDULE_SECTION, new JsonArray()
+      .add(createSchedule("2018-01-01T00:00:00.000+0000",
+        "2018-05-31T23:59:59.000+0000", "2018-06-30T00:00:00.000+0000")));
+
+    CompletableFuture<Response> updateCompleted = new CompletableFuture<>();
+
+    client.put(dueDateURL("/" + schedule.getId()), replacement,
+      StorageTestSuite.TENANT_ID, ResponseHandler.empty(updateCompleted));
+
+    Response updateResponse = updateCompleted.get(5, TimeUnit.SECONDS);
+
+    assertThat(String.format("Failed to replace schedule: %s", updateResponse.getBody()),
+      updateResponse.getStatusCode(), is(HttpURLConnection.HTTP_NO_CONTENT));
+
+    JsonResponse secondResponse = getDueDate(schedule.getId(),
+      "2018-03-05T12:00:00.000+0000");
+
+    assertThat(dueDateFrom(secondResponse), is(DateTime.parse("2018-06-30T00:00:00.000+0000")));
+  }
+
+  @Test
+  public void cannotCreateScheduleWithOverlappingDateRanges()
+    throws InterruptedException,
+    MalformedURLException,
+    TimeoutException,
+    ExecutionException {
+
+    JsonObject request = createFixedDueDate("Overlapping semesters");
+
+    request.put(SCHEDULE_SECTION, new JsonArray()
+      .add(createSchedule("2018-01-01T00:00:00.000+0000",
+        "2018-05-31T23:59:59.000+0000", "2018-06-15T00:00:00.000+0000"))
+      .add(createSchedule("2018-05-01T00:00:00.000+0000",
+        "2018-08-31T23:59:59.000+0000", "2018-09-15T00:00:00.000+0000")));
+
+    CompletableFuture<JsonResponse> createCompleted = new CompletableFuture<>();
+
+    client.post(dueDateURL(), request, StorageTestSuite.TENANT_ID,
+      ResponseHandler.json(createCompleted));
+
+    JsonResponse response = createCompleted.get(5, TimeUnit.SECONDS);
+
+    assertThat(String.format("Should not create schedule: %s", response.getBody()),
+      response.getStatusCode(), is(422));
+  }
+
+  @Test
+  public void everyDateRangeProblemIsReported()
+    throws InterruptedException,
+    MalformedURLException,
+    TimeoutException,
+    ExecutionException {
+
+    JsonObject request = createFixedDueDate("Many problems");
+
+    request.put(SCHEDULE_SECTION, new JsonArray()
+      .add(createSchedule("2018-01-01T00:00:00.000+0000",
+        "2018-05-31T23:59:59.000+0000", "2018-06-15T00:00:00.000+0000"))
+      .add(createSchedule("2018-05-01T00:00:00.000+0000",
+        "2018-08-31T23:59:59.000+0000", "2018-09-15T00:00:00.000+0000"))
+      .add(createSchedule("2018-12-01T00:00:00.000+0000",
+        "2018-10-31T23:59:59.000+0000", "2019-01-15T00:00:00.000+0000")));
+
+    CompletableFuture<JsonResponse> createCompleted = new CompletableFuture<>();
+
+    client.post(dueDateURL(), request, StorageTestSuite.TENANT_ID,
+      ResponseHandler.json(createCompleted));
+
+    JsonResponse response = createCompleted.get(5, TimeUnit.SECONDS);
+
+    assertThat(String.format("Should not create schedule: %s", response.getBody()),
+      response.getStatusCode(), is(422));
+
+    assertThat(response.getJson().getJsonArray("errors").size(), is(2));
+  }
+
+  private JsonResponse getDueDate(String scheduleId, String loanDate)
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException,
+    UnsupportedEncodingException {
+
+    CompletableFuture<JsonResponse> getCompleted = new CompletableFuture<>();
+
+    client.get(dueDateURL(String.format("/%s/due-date?loanDate=%s", scheduleId,
+      URLEncoder.encode(loanDate, "UTF-8"))), StorageTestSuite.TENANT_ID,
+      ResponseHandler.json(getCompleted));
+
+    return getCompleted.get(5, TimeUnit.SECONDS);
+  }
+
+  private static DateTime dueDateFrom(JsonResponse response) {
+    return DateTime.parse(response.getJson().getString("dueDate"))
+      .withZone(DateTimeZone.UTC);
+  }
+
   protected static URL dueDateURL() throws MalformedURLException {
     return dueDateURL("");
   }
@@ -1,7 +1,11 @@
 package org.folio.rest.api;
 
 
+import static org.folio.rest.support.matchers.ValidationErrorMatchers.hasMessage;
+import static org.folio.rest.support.matchers.ValidationErrorMatchers.hasParameter;
+import static org.folio.rest.support.matchers.ValidationResponseMatchers.isValidationResponseWhich;
 import static org.folio.rest.support.matchers.periodJsonObjectMatcher.matchesPeriod;
+import static org.hamcrest.CoreMatchers.allOf;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsNull.notNullValue;
@@ -311,6 +315,62 @@ public class LoanPoliciesApiTest extends ApiTests {
       response.getStatusCode(), is(HttpStatus.HTTP_VALIDATION_ERROR.toInt()));
   }
 
+  @Test
+  public void cannotCreateANonRenewableLoanPolicyWithAnAlternateDueDateSchedule()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    CompletableFuture<JsonResponse> createCompleted = new CompletableFuture<>();
+
+    JsonObject loanPolicyRequest = new LoanPolicyRequestBuilder().create();
+
+    loanPolicyRequest.put("renewable", false);
+
+    client.post(loanPolicyStorageUrl(),
+      loanPolicyRequest, StorageTestSuite.TENANT_ID,
+      ResponseHandler.json(createCompleted));
+
+    JsonResponse response = createCompleted.get(5, TimeUnit.SECONDS);
+
+    assertThat(response, isValidationResponseWhich(allOf(
+      hasMessage("Alternate fixed due date cannot be null if renewable is false, different period is true and profile is Rolling"),
+      hasParameter("alternateFixedDueDateScheduleId", "null"))));
+  }
+
+  @Test
+  public void cannotChangeALoanPolicyToFixedWithoutADueDateSchedule()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    UUID id = UUID.randomUUID();
+
+    JsonObject loanPolicyRequest = new LoanPolicyRequestBuilder()
+      .withId(id)
+      .create();
+
+    createLoanPolicy(loanPolicyRequest);
+
+    loanPolicyRequest.getJsonObject("loansPolicy").put("profileId", "Fixed");
+    loanPolicyRequest.getJsonObject("renewalsPolicy")
+      .put("alternateFixedDueDateScheduleId", UUID.randomUUID().toString());
+
+    CompletableFuture<JsonResponse> updateCompleted = new CompletableFuture<>();
+
+    client.put(loanPolicyStorageUrl("/" + id),
+      loanPolicyRequest, StorageTestSuite.TENANT_ID,
+      ResponseHandler.json(updateCompleted));
+
+    JsonResponse response = updateCompleted.get(5, TimeUnit.SECONDS);
+
+    assertThat(response, isValidationResponseWhich(allOf(
+      hasMessage("Fixed due date cannot be null if loanable is true and profile is of type fixed"),
+      hasParameter("fixedDueDateScheduleId", "null"))));
+  }
+
   @Test
   public void cannotCreateALoanPolicyWithInvalidPeriodInterval()
     throws MalformedURLException,
@@ -728,6 +788,59 @@ public class LoanPoliciesApiTest extends ApiTests {
       getResponse.getStatusCode(), is(HttpURLConnection.HTTP_NOT_FOUND));
   }
 
+  @Test
+  public void canGetReplacedLoanPolicyAfterItHasBeenFetched()
+    throws InterruptedException,
+    MalformedURLException,
+    TimeoutException,
+    ExecutionException {
+
+    UUID id = UUID.randomUUID();
+
+    createLoanPolicy(new LoanPolicyRequestBuilder().withId(id).create());
+
+    assertThat(getById(id).getStatusCode(), is(HttpURLConnection.HTTP_OK));
+
+    CompletableFuture<JsonResponse> updateCompleted = new CompletableFuture<>();
+
+    client.put(loanPolicyStorageUrl(String.format("/%s", id.toString())),
+      new LoanPolicyRequestBuilder().withId(id).withName("A Different Name").create(),
+      StorageTestSuite.TENANT_ID, ResponseHandler.json(updateCompleted));
+
+    JsonResponse updateResponse = updateCompleted.get(5, TimeUnit.SECONDS);
+
+    assertThat(String.format("Failed to update loan policy: %s", updateResponse.getBody()),
+      updateResponse.getStatusCode(), is(HttpURLConnection.HTTP_NO_CONTENT));
+
+    JsonResponse getResponse = getById(id);
+
+    assertThat(getResponse.getStatusCode(), is(HttpURLConnection.HTTP_OK));
+    assertThat(getResponse.getJson().getString("name"), is("A Different Name"));
+  }
+
+  @Test
+  public void cannotGetDeletedLoanPolicyAfterItHasBeenFetched()
+    throws InterruptedException,
+    MalformedURLException,
+    TimeoutException,
+    ExecutionException {
+
+    UUID id = UUID.randomUUID();
+
+    createLoanPolicy(new LoanPolicyRequestBuilder().withId(id).create());
+
+    assertThat(getById(id).getStatusCode(), is(HttpURLConnection.HTTP_OK));
+
+    CompletableFuture<JsonResponse> deleteCompleted = new CompletableFuture<>();
+
+    client.delete(loanPolicyStorageUrl(String.format("/%s", id.toString())),
+      StorageTestSuite.TENANT_ID, ResponseHandler.json(deleteCompleted));
+
+    deleteCompleted.get(5, TimeUnit.SECONDS);
+
+    assertThat(getById(id).getStatusCode(), is(HttpURLConnection.HTTP_NOT_FOUND));
+  }
+
   static URL loanPolicyStorageUrl() throws MalformedURLException {
     return loanPolicyStorageUrl("");
   }
@@ -2,9 +2,12 @@ package org.folio.rest.api;
 
 import io.vertx.core.json.JsonObject;
 import org.folio.rest.jaxrs.model.LoanRules;
+import org.folio.rest.persist.PostgresClient;
 import org.folio.rest.support.ApiTests;
 import org.folio.rest.support.JsonResponse;
 import org.folio.rest.support.ResponseHandler;
+import org.folio.support.ModuleSchema;
+import org.folio.support.TextDelta;
 import org.junit.FixMethodOrder;
 import org.junit.Test;
 import org.junit.runners.MethodSorters;
@@ -12,11 +15,13 @@ import org.junit.runners.MethodSorters;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.Collections;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.Is.is;
+import static org.hamcrest.core.IsNot.not;
 import static org.hamcrest.core.IsNull.notNullValue;
 
 @FixMethodOrder(MethodSorters.NAME_ASCENDING)
@@ -61,6 +66,14 @@ public class LoanRulesApiTest extends ApiTests {
     return response.getJson();
   }
 
+  private JsonResponse getResponse(String ifNoneMatch) throws Exception {
+    CompletableFuture<JsonResponse> getCompleted = new CompletableFuture<>();
+    client.get(loanRulesStorageUrl(), StorageTestSuite.TENANT_ID,
+      Collections.singletonMap("If-None-Match", ifNoneMatch),
+      ResponseHandler.json(getCompleted));
+    return getCompleted.get(5, TimeUnit.SECONDS);
+  }
+
   private JsonResponse putResponse(LoanRules loanRules) throws Exception {
     CompletableFuture<JsonResponse> createCompleted = new CompletableFuture<>();
     client.put(loanRulesStorageUrl(),
@@ -96,6 +109,182 @@ public class LoanRulesApiTest extends ApiTests {
     putAndGet(exampleLoanRules2());
   }
 
+  @Test
+  public void getIncludesEntityTag() throws Exception {
+    put204(exampleLoanRules());
+    JsonResponse response = getResponse();
+    assertThat(response.getStatusCode(), is(HttpURLConnection.HTTP_OK));
+    assertThat(response.getHeader("ETag"), is(notNullValue()));
+  }
+
+  @Test
+  public void getWithMatchingEntityTagIsNotModified() throws Exception {
+    put204(exampleLoanRules());
+    String entityTag = getResponse().getHeader("ETag");
+
+    JsonResponse response = getResponse(entityTag);
+    assertThat(response.getStatusCode(), is(HttpURLConnection.HTTP_NOT_MODIFIED));
+  }
+
+  @Test
+  public void getAfterPutReturnsChangedRulesWithNewEntityTag() throws Exception {
+    put204(exampleLoanRules());
+    String entityTag = getResponse().getHeader("ETag");
+
+    put204(exampleLoanRules2());
+
+    JsonResponse response = getResponse(entityTag);
+    assertThat(response.getBody(), response.getStatusCode(), is(HttpURLConnection.HTTP_OK));
+    assertThat(response.getJson().getString("loanRulesAsTextFile"),
+      is(exampleLoanRules2().getLoanRulesAsTextFile()));
+    assertThat(response.getHeader("ETag"), is(not(entityTag)));
+  }
+
+  @Test
+  public void loanPolicyIsChosenUsingStoredRules() throws Exception {
+    put204(loanRules(String.join("\n",
+      "fallback-policy: fallback",
+      "m book",
+      "  g staff: staff-loan",
+      "  t reserve: reserve-loan",
+      "")));
+
+    JsonResponse response = getLoanPolicy("book", "reserve", "staff", "main");
+    assertThat(response.getBody(), response.getStatusCode(), is(HttpURLConnection.HTTP_OK));
+    assertThat(response.getJson().getString("loanPolicyId"), is("reserve-loan"));
+
+    response = getLoanPolicy("dvd", "reserve", "staff", "main");
+    assertThat(response.getJson().getString("loanPolicyId"), is("fallback"));
+  }
+
+  @Test
+  public void loanPolicyIsChosenUsingChangedRules() throws Exception {
+    put204(loanRules("fallback-policy: fallback\nm book: first\n"));
+    assertThat(getLoanPolicy("book", "normal", "staff", "main").getJson()
+      .getString("loanPolicyId"), is("first"));
+
+    put204(loanRules("fallback-policy: fallback\nm book: second\n"));
+    assertThat(getLoanPolicy("book", "normal", "staff", "main").getJson()
+      .getString("loanPolicyId"), is("second"));
+  }
+
+  @Test
+  public void invalidRulesAreRejected() throws Exception {
+    put204(exampleLoanRules());
+    String entityTag = getResponse().getHeader("ETag");
+
+    JsonResponse response = putResponse(loanRules("fallback-policy: fallback\nq book: first\n"));
+    assertThat(response.getBody(), response.getStatusCode(), is(HTTP_VALIDATION_ERROR));
+
+    JsonObject error = response.getJson().getJsonArray("errors").getJsonObject(0);
+    assertThat(error.getString("message"), is("Line 2: Unknown criterion type \"q\""));
+    assertThat(error.getJsonArray("parameters").getJsonObject(0).getString("value"), is("2"));
+
+    assertThat("Invalid rules should not replace the stored rules",
+      get().getString("loanRulesAsTextFile"),
+      is(exampleLoanRules().getLoanRulesAsTextFile()));
+    assertThat(getResponse().getHeader("ETag"), is(entityTag));
+    assertThat(getLoanPolicy("book", "normal", "staff", "main").getJson()
+      .getString("loanPolicyId"), is("in-house"));
+  }
+
+  private JsonResponse getLoanPolicy(String itemTypeId, String loanTypeId,
+    String patronTypeId, String shelvingLocationId) throws Exception {
+
+    CompletableFuture<JsonResponse> getCompleted = new CompletableFuture<>();
+    client.get(loanRulesStorageUrl("/loan-policy"), String.format(
+      "item_type_id=%s&loan_type_id=%s&patron_type_id=%s&shelving_location_id=%s",
+      itemTypeId, loanTypeId, patronTypeId, shelvingLocationId),
+      StorageTestSuite.TENANT_ID, ResponseHandler.json(getCompleted));
+    return getCompleted.get(5, TimeUnit.SECONDS);
+  }
+
+  @Test
+  public void putIncrementsVersion() throws Exception {
+    put204(exampleLoanRules());
+    int version = get().getInteger("version");
+
+    JsonResponse response = putResponse(exampleLoanRules2());
+    assertThat(response.getBody(), response.getStatusCode(), is(HttpURLConnection.HTTP_NO_CONTENT));
+
+    assertThat(get().getInteger("version"), is(version + 1));
+    assertThat(response.getHeader("ETag"), is(getResponse().getHeader("ETag")));
+  }
+
+  @Test
+  public void putWithCurrentEntityTagSucceeds() throws Exception {
+    put204(exampleLoanRules());
+    String entityTag = getResponse().getHeader("ETag");
+
+    JsonResponse response = putResponse(exampleLoanRules2(), entityTag);
+    assertThat(response.getBody(), response.getStatusCode(), is(HttpURLConnection.HTTP_NO_CONTENT));
+    assertThat(get().getString("loanRulesAsTextFile"),
+      is(exampleLoanRules2().getLoanRulesAsTextFile()));
+  }
+
+  @Test
+  public void putWithOutdatedEntityTagIsRejected() throws Exception {
+    put204(exampleLoanRules());
+    String entityTag = getResponse().getHeader("ETag");
+
+    put204(exampleLoanRules2());
+
+    JsonResponse response = putResponse(exampleLoanRules(), entityTag);
+    assertThat(response.getBody(), response.getStatusCode(), is(HttpURLConnection.HTTP_PRECON_FAILED));
+    assertThat("Rules changed by someone else should not be overwritten",
+      get().getString("loanRulesAsTextFile"),
+      is(exampleLoanRules2().getLoanRulesAsTextFile()));
+  }
+
+  @Test
+  public void putRecordsReplacedVersionInHistory() throws Exception {
+    put204(exampleLoanRules());
+    int replacedVersion = get().getInteger("version");
+
+    put204(exampleLoanRules2());
+
+    JsonObject history = historyFor(replacedVersion);
+    assertThat(history.getInteger("replacedByVersion"), is(replacedVersion + 1));
+    assertThat(history.getString("replacedDate"), is(notNullValue()));
+    assertThat("Replaced rules should be recreated from the current rules",
+      TextDelta.apply(exampleLoanRules2().getLoanRulesAsTextFile(),
+        history.getJsonObject("delta")),
+      is(exampleLoanRules().getLoanRulesAsTextFile()));
+    assertThat("Only the changed line should be recorded",
+      history.getJsonObject("delta").getJsonArray("insertLines").size(), is(1));
+  }
+
+  private JsonResponse putResponse(LoanRules loanRules, String ifMatch) throws Exception {
+    CompletableFuture<JsonResponse> putCompleted = new CompletableFuture<>();
+    client.put(loanRulesStorageUrl(), loanRules, StorageTestSuite.TENANT_ID,
+      Collections.singletonMap("If-Match", ifMatch),
+      ResponseHandler.json(putCompleted));
+    return putCompleted.get(5, TimeUnit.SECONDS);
+  }
+
+  private JsonObject historyFor(int version) throws Exception {
+    PostgresClient postgresClient = PostgresClient.getInstance(
+      StorageTestSuite.getVertx(), StorageTestSuite.TENANT_ID);
+
+    CompletableFuture<JsonObject> selectCompleted = new CompletableFuture<>();
+
+    String sql = String.format(
+      "SELECT jsonb::text FROM %s WHERE (jsonb->>'version')::int = %d",
+      ModuleSchema.qualifiedTableName(StorageTestSuite.TENANT_ID, "loan_rules_history"),
+      version);
+
+    postgresClient.select(sql, result -> {
+      if (result.failed()) {
+        selectCompleted.completeExceptionally(result.cause());
+        return;
+      }
+      selectCompleted.complete(new JsonObject(
+        result.result().getResults().get(0).getString(0)));
+    });
+
+    return selectCompleted.get(5, TimeUnit.SECONDS);
+  }
+
   @Test
   public void putNullFields() throws Exception {
     LoanRules loanRules = new LoanRules();
@@ -25,6 +25,7 @@ import java.util.concurrent.TimeoutException;
 import static java.net.HttpURLConnection.HTTP_CREATED;
 import static java.net.HttpURLConnection.HTTP_NO_CONTENT;
 import static java.net.HttpURLConnection.HTTP_OK;
+import static org.hamcrest.number.OrderingComparison.greaterThanOrEqualTo;
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.junit.MatcherAssert.assertThat;
 
@@ -191,6 +192,62 @@ public class LoansApiHistoryTest extends ApiTests {
       entry.getString("itemStatus"), is("Checked out"));
   }
 
+  @Test
+  public void historyForALoanIsPagedMostRecentFirst()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException,
+    UnsupportedEncodingException {
+
+    UUID id = createLoanRenewedTwice();
+
+    JsonResponse historyResponse = getHistory(id, "&limit=2&offset=1");
+
+    assertThat(historyResponse.getStatusCode(), is(HTTP_OK));
+
+    List<JsonObject> entries = JsonArrayHelper.toList(
+      historyResponse.getJson().getJsonArray("loans"));
+
+    assertThat(historyResponse.getJson().getInteger("totalRecords"), is(3));
+    assertThat(entries.size(), is(2));
+
+    assertThat("should skip the most recent renewal",
+      entries.get(0).getInteger("renewalCount"), is(1));
+
+    assertThat("should end with the creation of the loan",
+      entries.get(1).containsKey("renewalCount"), is(false));
+  }
+
+  @Test
+  public void historyForALoanIsOnlyCountedWhenAsked()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException,
+    UnsupportedEncodingException {
+
+    UUID id = createLoanRenewedTwice();
+
+    JsonResponse notCounted = getHistory(id, "&limit=2&totalRecords=none");
+
+    assertThat(notCounted.getStatusCode(), is(HTTP_OK));
+    assertThat(notCounted.getJson().getJsonArray("loans").size(), is(2));
+    assertThat(notCounted.getJson().getInteger("totalRecords"), is(-1));
+
+    JsonResponse estimated = getHistory(id, "&limit=2&totalRecords=estimated");
+
+    assertThat(estimated.getStatusCode(), is(HTTP_OK));
+    assertThat(estimated.getJson().getJsonArray("loans").size(), is(2));
+    assertThat(estimated.getJson().getInteger("totalRecords"),
+      is(greaterThanOrEqualTo(0)));
+
+    JsonResponse counted = getHistory(id, "&limit=2&totalRecords=exact");
+
+    assertThat(counted.getStatusCode(), is(HTTP_OK));
+    assertThat(counted.getJson().getInteger("totalRecords"), is(3));
+  }
+
   @Test
   public void loanHistoryQuery()
     throws MalformedURLException,
@@ -324,6 +381,57 @@ public class LoansApiHistoryTest extends ApiTests {
       finalRes4.getJson().getJsonArray("loans").getJsonObject(0).getString("action"), is("checkedin"));
   }
 
+  private UUID createLoanRenewedTwice()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    UUID id = UUID.randomUUID();
+
+    CompletableFuture<JsonResponse> createCompleted = new CompletableFuture<>();
+
+    client.post(loanStorageUrl(), new LoanRequestBuilder().withId(id).create(),
+      StorageTestSuite.TENANT_ID, ResponseHandler.json(createCompleted));
+
+    JsonResponse createResponse = createCompleted.get(5, TimeUnit.SECONDS);
+
+    assertThat(String.format("Failed to create loan: %s", createResponse.getBody()),
+      createResponse.getStatusCode(), is(HTTP_CREATED));
+
+    for (int renewalCount = 1; renewalCount <= 2; renewalCount++) {
+      JsonObject renewedLoanRequest = createResponse.getJson().copy()
+        .put("action", "renewed")
+        .put("renewalCount", renewalCount);
+
+      CompletableFuture<JsonResponse> putCompleted = new CompletableFuture<>();
+
+      client.put(loanStorageUrl(String.format("/%s", id)), renewedLoanRequest,
+        StorageTestSuite.TENANT_ID, ResponseHandler.json(putCompleted));
+
+      assertThat(putCompleted.get(5, TimeUnit.SECONDS).getStatusCode(),
+        is(HTTP_NO_CONTENT));
+    }
+
+    return id;
+  }
+
+  private JsonResponse getHistory(UUID loanId, String parameters)
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException,
+    UnsupportedEncodingException {
+
+    CompletableFuture<JsonResponse> getCompleted = new CompletableFuture<>();
+
+    client.get(loanStorageHistoryUrl("?query="
+        + URLEncoder.encode("id==" + loanId, "UTF8") + parameters),
+      StorageTestSuite.TENANT_ID, ResponseHandler.json(getCompleted));
+
+    return getCompleted.get(5, TimeUnit.SECONDS);
+  }
+
   private static URL loanStorageUrl() throws MalformedURLException {
     return loanStorageUrl("");
   }
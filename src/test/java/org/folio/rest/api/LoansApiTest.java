@@ -1,6 +1,7 @@
 package org.folio.rest.api;
 
 import static org.folio.rest.support.matchers.HttpResponseStatusCodeMatchers.isBadRequest;
+import static org.folio.rest.support.matchers.HttpResponseStatusCodeMatchers.isNoContent;
 import static org.folio.rest.support.matchers.HttpResponseStatusCodeMatchers.isNotFound;
 import static org.folio.rest.support.matchers.LoanStatusMatchers.isClosed;
 import static org.folio.rest.support.matchers.LoanStatusMatchers.isOpen;
@@ -20,7 +21,9 @@ import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.TimeZone;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
@@ -456,6 +459,53 @@ public class LoansApiTest extends ApiTests {
       "Cannot have more than one open loan for the same item")));
   }
 
+  @Test
+  public void onlyOneOfConcurrentOpenLoansForSameItemViaPutIsCreated()
+    throws InterruptedException,
+    MalformedURLException,
+    TimeoutException,
+    ExecutionException {
+
+    UUID itemId = UUID.randomUUID();
+
+    List<CompletableFuture<JsonResponse>> allCreations = new ArrayList<>();
+
+    for (int attempt = 0; attempt < 10; attempt++) {
+      UUID loanId = UUID.randomUUID();
+
+      JsonObject loanRequest = new LoanRequestBuilder()
+        .withId(loanId)
+        .withItemId(itemId)
+        .open()
+        .create();
+
+      CompletableFuture<JsonResponse> createCompleted = new CompletableFuture<>();
+
+      client.put(InterfaceUrls.loanStorageUrl(String.format("/%s", loanId)),
+        loanRequest, StorageTestSuite.TENANT_ID,
+        ResponseHandler.json(createCompleted));
+
+      allCreations.add(createCompleted);
+    }
+
+    int created = 0;
+
+    for (CompletableFuture<JsonResponse> createCompleted : allCreations) {
+      JsonResponse response = createCompleted.get(5, TimeUnit.SECONDS);
+
+      if(response.getStatusCode() == HttpURLConnection.HTTP_NO_CONTENT) {
+        created++;
+      }
+      else {
+        assertThat(response, isValidationResponseWhich(hasMessage(
+          "Cannot have more than one open loan for the same item")));
+      }
+    }
+
+    assertThat("Only one open loan should be created for the item",
+      created, is(1));
+  }
+
   @Test
   public void canCreateOpenLoanWhenClosedLoansForSameItem()
     throws InterruptedException,
@@ -602,6 +652,65 @@ public class LoansApiTest extends ApiTests {
     assertThat(loan, isOpen());
   }
 
+  @Test
+  public void loanFetchedByIdHasEntityTag()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    UUID id = UUID.randomUUID();
+
+    loansClient.create(new LoanRequestBuilder().withId(id));
+
+    JsonResponse response = loansClient.attemptGetById(id, null);
+
+    assertThat(response.getStatusCode(), is(HttpURLConnection.HTTP_OK));
+    assertThat(response.getHeader("ETag"), is(notNullValue()));
+  }
+
+  @Test
+  public void loanIsNotModifiedWhenEntityTagMatches()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    UUID id = UUID.randomUUID();
+
+    loansClient.create(new LoanRequestBuilder().withId(id));
+
+    String entityTag = loansClient.attemptGetById(id, null).getHeader("ETag");
+
+    JsonResponse response = loansClient.attemptGetById(id, entityTag);
+
+    assertThat(response.getStatusCode(), is(HttpURLConnection.HTTP_NOT_MODIFIED));
+  }
+
+  @Test
+  public void replacedLoanIsFetchedWithDifferentEntityTag()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    UUID id = UUID.randomUUID();
+
+    LoanRequestBuilder loanRequest = new LoanRequestBuilder().withId(id);
+
+    loansClient.create(loanRequest);
+
+    String entityTag = loansClient.attemptGetById(id, null).getHeader("ETag");
+
+    loansClient.replace(id.toString(), loanRequest.withAction("renewed"));
+
+    JsonResponse response = loansClient.attemptGetById(id, entityTag);
+
+    assertThat(response.getStatusCode(), is(HttpURLConnection.HTTP_OK));
+    assertThat(response.getJson().getString("action"), is("renewed"));
+    assertThat(response.getHeader("ETag"), is(not(entityTag)));
+  }
+
   @Test
   public void cannotGetALoanForUnknownId()
     throws MalformedURLException,
@@ -889,6 +998,78 @@ public class LoansApiTest extends ApiTests {
       containsString("return date must be a date time (in RFC3339 format)"));
   }
 
+  @Test
+  public void cannotReplaceALoanWithADifferentIdInTheLoan()
+    throws InterruptedException,
+    MalformedURLException,
+    TimeoutException,
+    ExecutionException {
+
+    IndividualResource loan = loansClient.create(loanRequest());
+
+    UUID differentId = UUID.randomUUID();
+
+    final JsonResponse response = loansClient.attemptCreateOrReplace(
+      loan.getId(), loan.copyJson().put("id", differentId.toString()));
+
+    assertThat(response, isValidationResponseWhich(allOf(
+      hasMessage("Loan ID must be the same as the ID in the URL"),
+      hasParameter("id", differentId.toString()))));
+
+    assertThat("Loan with the ID in the loan should not be created",
+      loansClient.attemptGetById(differentId), isNotFound());
+  }
+
+  @Test
+  public void concurrentCreationsOfTheSameLoanViaPutAllSucceed()
+    throws InterruptedException,
+    MalformedURLException,
+    TimeoutException,
+    ExecutionException {
+
+    UUID id = UUID.randomUUID();
+
+    JsonObject loanRequest = new LoanRequestBuilder()
+      .withId(id)
+      .withRenewalCount(1)
+      .create();
+
+    List<CompletableFuture<TextResponse>> allReplacements = new ArrayList<>();
+
+    for (int attempt = 0; attempt < 10; attempt++) {
+      CompletableFuture<TextResponse> replaceCompleted = new CompletableFuture<>();
+
+      client.put(InterfaceUrls.loanStorageUrl(String.format("/%s", id)),
+        loanRequest, StorageTestSuite.TENANT_ID,
+        ResponseHandler.text(replaceCompleted));
+
+      allReplacements.add(replaceCompleted);
+    }
+
+    for (CompletableFuture<TextResponse> replaceCompleted : allReplacements) {
+      assertThat(replaceCompleted.get(5, TimeUnit.SECONDS), isNoContent());
+    }
+
+    JsonObject fetchedLoan = loansClient.getById(id).getJson();
+
+    assertThat(fetchedLoan.getString("id"), is(id.toString()));
+    assertThat(fetchedLoan.getInteger("renewalCount"), is(1));
+  }
+
+  @Test
+  public void cannotReplaceALoanWithAnIdWhichIsNotAUUID()
+    throws InterruptedException,
+    MalformedURLException,
+    TimeoutException,
+    ExecutionException {
+
+    final JsonResponse response = loansClient.attemptCreateOrReplace(
+      "not-a-uuid", loanRequest());
+
+    assertThat(response, isBadRequest());
+    assertThat(response.getBody(), containsString("Loan ID must be a UUID"));
+  }
+
   @Test
   @Ignore("Should conditional field validation be done in a storage module?")
   public void returnDateIsMandatoryForClosedLoans()
@@ -1075,6 +1256,80 @@ public class LoansApiTest extends ApiTests {
     assertThat(closedLoans.getInteger("totalRecords"), is(4));
   }
 
+  @Test
+  public void canSkipCountingTotalRecordsWhenFindingLoans()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    UUID userId = UUID.randomUUID();
+
+    loansClient.create(loanRequest(userId, "Open"));
+    loansClient.create(loanRequest(userId, "Open"));
+
+    CompletableFuture<JsonResponse> getCompleted = new CompletableFuture<>();
+
+    client.get(InterfaceUrls.loanStorageUrl(),
+      String.format("query=userId=\"%s\"&totalRecords=none", userId),
+      StorageTestSuite.TENANT_ID, ResponseHandler.json(getCompleted));
+
+    JsonResponse response = getCompleted.get(5, TimeUnit.SECONDS);
+
+    assertThat(String.format("Failed to get loans: %s", response.getBody()),
+      response.getStatusCode(), is(200));
+
+    assertThat(response.getJson().getJsonArray("loans").size(), is(2));
+    assertThat(response.getJson().getInteger("totalRecords"), is(-1));
+  }
+
+  @Test
+  public void canEstimateTotalRecordsWhenFindingLoans()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    UUID userId = UUID.randomUUID();
+
+    loansClient.create(loanRequest(userId, "Open"));
+    loansClient.create(loanRequest(userId, "Closed"));
+
+    CompletableFuture<JsonResponse> getCompleted = new CompletableFuture<>();
+
+    client.get(InterfaceUrls.loanStorageUrl(),
+      String.format("query=userId=\"%s\"&totalRecords=estimated", userId),
+      StorageTestSuite.TENANT_ID, ResponseHandler.json(getCompleted));
+
+    JsonResponse response = getCompleted.get(5, TimeUnit.SECONDS);
+
+    assertThat(String.format("Failed to get loans: %s", response.getBody()),
+      response.getStatusCode(), is(200));
+
+    assertThat(response.getJson().getJsonArray("loans").size(), is(2));
+
+    //The estimate comes from table statistics, so only its presence is checked
+    assertThat(response.getJson().getInteger("totalRecords"), is(notNullValue()));
+  }
+
+  @Test
+  public void cannotFindLoansWithUnknownTotalRecordsOption()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    CompletableFuture<TextResponse> getCompleted = new CompletableFuture<>();
+
+    client.get(InterfaceUrls.loanStorageUrl(), "totalRecords=approximate",
+      StorageTestSuite.TENANT_ID, ResponseHandler.text(getCompleted));
+
+    TextResponse response = getCompleted.get(5, TimeUnit.SECONDS);
+
+    assertThat(response, isBadRequest());
+    assertThat(response.getBody(), containsString("exact, estimated, none"));
+  }
+
   @Test
   public void shouldPopulateChangeMetadataProperties()
     throws Exception {
@@ -179,6 +179,57 @@ public class PatronNoticePoliciesApiTest extends ApiTests {
     assertThat(response.getBody(), is(NOT_FOUND));
   }
 
+  @Test
+  public void canGetReplacedPatronNoticePolicyAfterItHasBeenFetched() throws MalformedURLException,
+    InterruptedException, ExecutionException, TimeoutException {
+
+    String id = createPatronNoticePolicy(firstPolicy).getJson().getString("id");
+
+    assertThat(getPatronNoticePolicy(id).getStatusCode(), is(200));
+
+    updatePatronNoticePolicy(firstPolicy
+      .withId(id)
+      .withDescription("replaced description"));
+
+    JsonResponse response = getPatronNoticePolicy(id);
+
+    assertThat(response.getStatusCode(), is(200));
+    assertThat(response.getJson().getString("description"), is("replaced description"));
+  }
+
+  @Test
+  public void cannotGetDeletedPatronNoticePolicyAfterItHasBeenFetched() throws MalformedURLException,
+    InterruptedException, ExecutionException, TimeoutException {
+
+    String id = createPatronNoticePolicy(firstPolicy).getJson().getString("id");
+
+    assertThat(getPatronNoticePolicy(id).getStatusCode(), is(200));
+
+    deletePatronNoticePolicy(id);
+
+    assertThat(getPatronNoticePolicy(id).getStatusCode(), is(404));
+  }
+
+  @Test
+  public void patronNoticePolicyIsNotModifiedWhenEntityTagMatches() throws MalformedURLException,
+    InterruptedException, ExecutionException, TimeoutException {
+
+    String id = createPatronNoticePolicy(firstPolicy).getJson().getString("id");
+
+    //Fetched from storage the first time, from the cache afterwards
+    String entityTag = getPatronNoticePolicy(id).getHeader("ETag");
+    String cachedEntityTag = getPatronNoticePolicy(id).getHeader("ETag");
+
+    assertThat(cachedEntityTag, is(entityTag));
+
+    CompletableFuture<JsonResponse> getCompleted = new CompletableFuture<>();
+
+    client.get(patronNoticePoliciesStorageUrl("/" + id), StorageTestSuite.TENANT_ID,
+      Collections.singletonMap("If-None-Match", entityTag), ResponseHandler.json(getCompleted));
+
+    assertThat(getCompleted.get(5, TimeUnit.SECONDS).getStatusCode(), is(304));
+  }
+
   @Test
   public void canDeletePatronNoticePolicy() throws MalformedURLException, InterruptedException,
     ExecutionException, TimeoutException {
@@ -211,6 +262,17 @@ public class PatronNoticePoliciesApiTest extends ApiTests {
     return createCompleted.get(5, TimeUnit.SECONDS);
   }
 
+  private JsonResponse getPatronNoticePolicy(String id) throws MalformedURLException,
+    InterruptedException, ExecutionException, TimeoutException {
+
+    CompletableFuture<JsonResponse> getCompleted = new CompletableFuture<>();
+
+    client.get(patronNoticePoliciesStorageUrl("/" + id), StorageTestSuite.TENANT_ID,
+      ResponseHandler.json(getCompleted));
+
+    return getCompleted.get(5, TimeUnit.SECONDS);
+  }
+
   private JsonResponse updatePatronNoticePolicy(PatronNoticePolicy entity) throws MalformedURLException,
     InterruptedException, ExecutionException, TimeoutException {
 
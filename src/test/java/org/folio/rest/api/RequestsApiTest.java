@@ -15,6 +15,7 @@ import static org.folio.rest.support.matchers.ValidationResponseMatchers.isValid
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.not;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.collection.IsIterableContainingInAnyOrder.containsInAnyOrder;
 import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
 import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsNull.notNullValue;
@@ -24,6 +25,7 @@ import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLEncoder;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
@@ -864,6 +866,25 @@ public class RequestsApiTest extends ApiTests {
     assertThat(representation.getString("status"), is("Open - Not yet filled"));
   }
 
+  @Test
+  public void cannotReplaceARequestWithAnIdWhichIsNotAUUID()
+    throws InterruptedException,
+    MalformedURLException,
+    TimeoutException,
+    ExecutionException {
+
+    CompletableFuture<TextResponse> putCompleted = new CompletableFuture<>();
+
+    client.put(requestStorageUrl("/not-a-uuid"),
+      new RequestRequestBuilder().create(), StorageTestSuite.TENANT_ID,
+      ResponseHandler.text(putCompleted));
+
+    TextResponse response = putCompleted.get(5, TimeUnit.SECONDS);
+
+    assertThat(response.getStatusCode(), is(HttpURLConnection.HTTP_BAD_REQUEST));
+    assertThat(response.getBody(), containsString("Request ID must be a UUID"));
+  }
+
   @Test
   public void cannotUpdateRequestForSameItemToAnExistingPosition()
     throws InterruptedException,
@@ -899,6 +920,46 @@ public class RequestsApiTest extends ApiTests {
       "Cannot have more than one request with the same position in the queue")));
   }
 
+  @Test
+  public void concurrentCreationsOfTheSameRequestViaPutAllSucceed()
+    throws InterruptedException,
+    MalformedURLException,
+    TimeoutException,
+    ExecutionException {
+
+    UUID id = UUID.randomUUID();
+
+    JsonObject request = new RequestRequestBuilder()
+      .withId(id)
+      .withPosition(1)
+      .create();
+
+    List<CompletableFuture<TextResponse>> allReplacements = new ArrayList<>();
+
+    for (int attempt = 0; attempt < 10; attempt++) {
+      CompletableFuture<TextResponse> replaceCompleted = new CompletableFuture<>();
+
+      client.put(requestStorageUrl(String.format("/%s", id)),
+        request, StorageTestSuite.TENANT_ID,
+        ResponseHandler.text(replaceCompleted));
+
+      allReplacements.add(replaceCompleted);
+    }
+
+    for (CompletableFuture<TextResponse> replaceCompleted : allReplacements) {
+      TextResponse response = replaceCompleted.get(5, TimeUnit.SECONDS);
+
+      assertThat(String.format("Failed to create or replace request: %s",
+        response.getBody()), response.getStatusCode(),
+        is(HttpURLConnection.HTTP_NO_CONTENT));
+    }
+
+    JsonResponse getResponse = getById(id);
+
+    assertThat(getResponse.getStatusCode(), is(HttpURLConnection.HTTP_OK));
+    assertThat(getResponse.getJson().getInteger("position"), is(1));
+  }
+
   @Test
   public void updatedRequestHasUpdatedMetadata()
     throws InterruptedException,
@@ -1477,6 +1538,92 @@ public class RequestsApiTest extends ApiTests {
     assertThat(sortedPositions, contains(1, 2, 3, 4));
   }
 
+  @Test
+  public void canPageThroughRequestsUsingContinuationTokens()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException,
+    UnsupportedEncodingException {
+
+    UUID itemId = UUID.randomUUID();
+
+    List<String> createdIds = new ArrayList<>();
+
+    for (int position = 1; position <= 5; position++) {
+      createdIds.add(createRequest(new RequestRequestBuilder()
+        .withItemId(itemId)
+        .withPosition(position)
+        .create()).getId());
+    }
+
+    List<String> fetchedIds = new ArrayList<>();
+
+    String continuationToken = "start";
+
+    while(continuationToken != null) {
+      CompletableFuture<JsonResponse> getRequestsCompleted = new CompletableFuture<>();
+
+      client.get(requestStorageUrl() + String.format(
+        "?limit=2&query=%s&continuationToken=%s",
+        URLEncoder.encode(String.format("itemId==%s", itemId), "UTF-8"),
+        URLEncoder.encode(continuationToken, "UTF-8")),
+        StorageTestSuite.TENANT_ID, ResponseHandler.json(getRequestsCompleted));
+
+      JsonResponse getRequestsResponse = getRequestsCompleted.get(5, TimeUnit.SECONDS);
+
+      assertThat(String.format("Failed to get requests: %s",
+        getRequestsResponse.getBody()),
+        getRequestsResponse.getStatusCode(), is(HttpURLConnection.HTTP_OK));
+
+      JsonObject page = getRequestsResponse.getJson();
+
+      JsonArrayHelper.toList(page.getJsonArray("requests"))
+        .forEach(request -> fetchedIds.add(request.getString("id")));
+
+      assertThat("Matching requests should not be counted for each page",
+        page.getInteger("totalRecords"), is(-1));
+
+      continuationToken = page.getString("continuationToken");
+    }
+
+    assertThat(fetchedIds.size(), is(5));
+    assertThat(fetchedIds, containsInAnyOrder(createdIds.toArray()));
+  }
+
+  @Test
+  public void canSkipCountingTotalRecordsWhenFindingRequests()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException,
+    UnsupportedEncodingException {
+
+    UUID itemId = UUID.randomUUID();
+
+    createRequest(new RequestRequestBuilder()
+      .withItemId(itemId)
+      .withPosition(1)
+      .create());
+
+    CompletableFuture<JsonResponse> getRequestsCompleted = new CompletableFuture<>();
+
+    client.get(requestStorageUrl() + String.format("?query=%s&totalRecords=none",
+      URLEncoder.encode(String.format("itemId==%s", itemId), "UTF-8")),
+      StorageTestSuite.TENANT_ID, ResponseHandler.json(getRequestsCompleted));
+
+    JsonResponse getRequestsResponse = getRequestsCompleted.get(5, TimeUnit.SECONDS);
+
+    assertThat(String.format("Failed to get requests: %s",
+      getRequestsResponse.getBody()),
+      getRequestsResponse.getStatusCode(), is(HttpURLConnection.HTTP_OK));
+
+    JsonObject wrappedRequests = getRequestsResponse.getJson();
+
+    assertThat(wrappedRequests.getJsonArray("requests").size(), is(1));
+    assertThat(wrappedRequests.getInteger("totalRecords"), is(-1));
+  }
+
   @Test
   public void canDeleteARequest()
     throws InterruptedException,
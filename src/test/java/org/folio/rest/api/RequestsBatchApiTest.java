@@ -0,0 +1,283 @@
+package org.folio.rest.api;
+
+import static java.net.HttpURLConnection.HTTP_CREATED;
+import static org.folio.rest.api.RequestsApiTest.requestStorageUrl;
+import static org.folio.rest.support.matchers.ValidationErrorMatchers.hasMessage;
+import static org.folio.rest.support.matchers.ValidationErrorMatchers.hasParameter;
+import static org.folio.rest.support.matchers.ValidationResponseMatchers.isValidationResponseWhich;
+import static org.hamcrest.CoreMatchers.allOf;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
+import static org.hamcrest.core.Every.everyItem;
+import static org.hamcrest.core.Is.is;
+
+import java.io.UnsupportedEncodingException;
+import java.net.MalformedURLException;
+import java.net.URLEncoder;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+import org.folio.rest.support.ApiTests;
+import org.folio.rest.support.JsonArrayHelper;
+import org.folio.rest.support.JsonResponse;
+import org.folio.rest.support.ResponseHandler;
+import org.folio.rest.support.builders.RequestRequestBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+public class RequestsBatchApiTest extends ApiTests {
+  @Before
+  public void beforeEach()
+    throws MalformedURLException {
+
+    StorageTestSuite.deleteAll(requestStorageUrl());
+  }
+
+  @After
+  public void checkIdsAfterEach() {
+    StorageTestSuite.checkForMismatchedIDs("request");
+  }
+
+  @Test
+  public void canCreateABatchOfRequests()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException,
+    UnsupportedEncodingException {
+
+    UUID itemId = UUID.randomUUID();
+
+    final JsonArray requests = new JsonArray();
+
+    for (int position = 1; position <= 50; position++) {
+      requests.add(new RequestRequestBuilder()
+        .withItemId(itemId)
+        .withPosition(position)
+        .create());
+    }
+
+    JsonResponse response = writeBatch(requests);
+
+    assertThat(String.format("Failed to create requests: %s", response.getBody()),
+      response.getStatusCode(), is(HTTP_CREATED));
+
+    assertThat(queuePositionsFor(itemId).size(), is(50));
+  }
+
+  @Test
+  public void canReorderTheQueueForAnItem()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException,
+    UnsupportedEncodingException {
+
+    UUID itemId = UUID.randomUUID();
+    UUID firstRequestId = UUID.randomUUID();
+    UUID secondRequestId = UUID.randomUUID();
+    UUID thirdRequestId = UUID.randomUUID();
+
+    writeBatch(new JsonArray()
+      .add(requestAt(firstRequestId, itemId, 1))
+      .add(requestAt(secondRequestId, itemId, 2))
+      .add(requestAt(thirdRequestId, itemId, 3)));
+
+    //Every position swaps with another request in the same queue
+    JsonResponse response = writeBatch(new JsonArray()
+      .add(requestAt(firstRequestId, itemId, 3))
+      .add(requestAt(secondRequestId, itemId, 1))
+      .add(requestAt(thirdRequestId, itemId, 2)));
+
+    assertThat(String.format("Failed to reorder requests: %s", response.getBody()),
+      response.getStatusCode(), is(HTTP_CREATED));
+
+    List<String> orderedIds = queueFor(itemId).stream()
+      .map(request -> request.getString("id"))
+      .collect(Collectors.toList());
+
+    assertThat(orderedIds, contains(secondRequestId.toString(),
+      thirdRequestId.toString(), firstRequestId.toString()));
+  }
+
+  @Test
+  public void reorderingKeepsWhenEachRequestWasCreated()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException,
+    UnsupportedEncodingException {
+
+    UUID itemId = UUID.randomUUID();
+    UUID firstRequestId = UUID.randomUUID();
+    UUID secondRequestId = UUID.randomUUID();
+
+    writeBatch(new JsonArray()
+      .add(requestAt(firstRequestId, itemId, 1))
+      .add(requestAt(secondRequestId, itemId, 2)));
+
+    List<String> createdDates = createdDatesFor(itemId);
+
+    JsonResponse response = writeBatch(new JsonArray()
+      .add(requestAt(firstRequestId, itemId, 2))
+      .add(requestAt(secondRequestId, itemId, 1)));
+
+    assertThat(String.format("Failed to reorder requests: %s", response.getBody()),
+      response.getStatusCode(), is(HTTP_CREATED));
+
+    //Both requests were created by the same batch
+    assertThat(createdDatesFor(itemId),
+      everyItem(is(createdDates.get(0))));
+  }
+
+  @Test
+  public void cannotReorderToAPositionTakenByARequestOutsideOfTheBatch()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException,
+    UnsupportedEncodingException {
+
+    UUID itemId = UUID.randomUUID();
+    UUID firstRequestId = UUID.randomUUID();
+    UUID secondRequestId = UUID.randomUUID();
+
+    writeBatch(new JsonArray()
+      .add(requestAt(firstRequestId, itemId, 1))
+      .add(requestAt(secondRequestId, itemId, 2)));
+
+    JsonResponse response = writeBatch(new JsonArray()
+      .add(requestAt(firstRequestId, itemId, 2)));
+
+    assertThat(response, isValidationResponseWhich(hasMessage(
+      "Cannot have more than one request with the same position in the queue")));
+
+    assertThat("Queue should not have changed",
+      queuePositionsFor(itemId), contains(1, 2));
+  }
+
+  @Test
+  public void cannotCreateABatchWithTheSamePositionTwice()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException,
+    UnsupportedEncodingException {
+
+    UUID itemId = UUID.randomUUID();
+
+    JsonResponse response = writeBatch(new JsonArray()
+      .add(requestAt(UUID.randomUUID(), itemId, 1))
+      .add(requestAt(UUID.randomUUID(), itemId, 1)));
+
+    assertThat(response, isValidationResponseWhich(hasMessage(
+      "Cannot have more than one request with the same position in the queue")));
+
+    assertThat("No requests from the batch should be stored",
+      queuePositionsFor(itemId).size(), is(0));
+  }
+
+  @Test
+  public void cannotCreateABatchWithTheSameRequestTwice()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException,
+    UnsupportedEncodingException {
+
+    UUID itemId = UUID.randomUUID();
+    UUID requestId = UUID.randomUUID();
+
+    JsonResponse response = writeBatch(new JsonArray()
+      .add(requestAt(requestId, itemId, 1))
+      .add(requestAt(requestId, itemId, 2)));
+
+    assertThat(response, isValidationResponseWhich(allOf(
+      hasMessage("Cannot have more than one request with the same ID in a batch"),
+      hasParameter("id", requestId.toString()))));
+
+    assertThat("No requests from the batch should be stored",
+      queuePositionsFor(itemId).size(), is(0));
+  }
+
+  private JsonObject requestAt(UUID id, UUID itemId, int position) {
+    return new RequestRequestBuilder()
+      .withId(id)
+      .withItemId(itemId)
+      .withPosition(position)
+      .create();
+  }
+
+  private JsonResponse writeBatch(JsonArray requests)
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    CompletableFuture<JsonResponse> postCompleted = new CompletableFuture<>();
+
+    final JsonObject batch = new JsonObject()
+      .put("requests", requests)
+      .put("totalRecords", requests.size());
+
+    client.post(requestStorageUrl("/batch"), batch, StorageTestSuite.TENANT_ID,
+      ResponseHandler.json(postCompleted));
+
+    return postCompleted.get(5, TimeUnit.SECONDS);
+  }
+
+  private List<String> createdDatesFor(UUID itemId)
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException,
+    UnsupportedEncodingException {
+
+    return queueFor(itemId).stream()
+      .map(request -> request.getJsonObject("metadata").getString("createdDate"))
+      .collect(Collectors.toList());
+  }
+
+  private List<Integer> queuePositionsFor(UUID itemId)
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException,
+    UnsupportedEncodingException {
+
+    return queueFor(itemId).stream()
+      .map(request -> request.getInteger("position"))
+      .collect(Collectors.toList());
+  }
+
+  private List<JsonObject> queueFor(UUID itemId)
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException,
+    UnsupportedEncodingException {
+
+    CompletableFuture<JsonResponse> getRequestsCompleted = new CompletableFuture<>();
+
+    String query = URLEncoder.encode(
+      String.format("itemId==%s sortBy position/sort.ascending", itemId),
+      "UTF-8");
+
+    client.get(requestStorageUrl() + String.format("?query=%s&limit=100", query),
+      StorageTestSuite.TENANT_ID, ResponseHandler.json(getRequestsCompleted));
+
+    JsonResponse getRequestsResponse = getRequestsCompleted.get(5, TimeUnit.SECONDS);
+
+    return JsonArrayHelper.toList(
+      getRequestsResponse.getJson().getJsonArray("requests"));
+  }
+}
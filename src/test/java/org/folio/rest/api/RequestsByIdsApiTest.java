@@ -0,0 +1,104 @@
+package org.folio.rest.api;
+
+import static java.net.HttpURLConnection.HTTP_CREATED;
+import static java.net.HttpURLConnection.HTTP_OK;
+import static org.folio.rest.api.RequestsApiTest.requestStorageUrl;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
+import static org.hamcrest.core.Is.is;
+
+import java.net.MalformedURLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+import org.folio.rest.support.ApiTests;
+import org.folio.rest.support.JsonArrayHelper;
+import org.folio.rest.support.JsonResponse;
+import org.folio.rest.support.ResponseHandler;
+import org.folio.rest.support.builders.RequestRequestBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+public class RequestsByIdsApiTest extends ApiTests {
+  @Before
+  public void beforeEach()
+    throws MalformedURLException {
+
+    StorageTestSuite.deleteAll(requestStorageUrl());
+  }
+
+  @After
+  public void checkIdsAfterEach() {
+    StorageTestSuite.checkForMismatchedIDs("request");
+  }
+
+  @Test
+  public void requestsAreProvidedInTheOrderOfTheIds()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    final String firstId = createRequest();
+    final String secondId = createRequest();
+    final String thirdId = createRequest();
+
+    final JsonResponse response = fetchByIds(Arrays.asList(
+      thirdId, UUID.randomUUID().toString(), firstId, secondId));
+
+    assertThat(String.format("Failed to fetch requests: %s", response.getBody()),
+      response.getStatusCode(), is(HTTP_OK));
+
+    assertThat(response.getJson().getInteger("totalRecords"), is(3));
+
+    final List<String> fetchedIds = JsonArrayHelper.toList(
+      response.getJson(), "requests").stream()
+      .map(request -> request.getString("id"))
+      .collect(Collectors.toList());
+
+    assertThat(fetchedIds, contains(thirdId, firstId, secondId));
+  }
+
+  private String createRequest()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    final UUID id = UUID.randomUUID();
+
+    CompletableFuture<JsonResponse> createCompleted = new CompletableFuture<>();
+
+    client.post(requestStorageUrl(), new RequestRequestBuilder().withId(id).create(),
+      StorageTestSuite.TENANT_ID, ResponseHandler.json(createCompleted));
+
+    assertThat(createCompleted.get(5, TimeUnit.SECONDS).getStatusCode(),
+      is(HTTP_CREATED));
+
+    return id.toString();
+  }
+
+  private JsonResponse fetchByIds(List<String> ids)
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    CompletableFuture<JsonResponse> postCompleted = new CompletableFuture<>();
+
+    client.post(requestStorageUrl("/by-ids"), new JsonObject().put("ids", new JsonArray(ids)),
+      StorageTestSuite.TENANT_ID, ResponseHandler.json(postCompleted));
+
+    return postCompleted.get(5, TimeUnit.SECONDS);
+  }
+}
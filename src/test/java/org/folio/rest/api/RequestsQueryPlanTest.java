@@ -0,0 +1,94 @@
+package org.folio.rest.api;
+
+import static org.folio.rest.support.database.QueryPlanner.planFor;
+import static org.folio.rest.support.matchers.QueryPlanMatchers.usesIndex;
+import static org.hamcrest.CoreMatchers.either;
+import static org.hamcrest.junit.MatcherAssert.assertThat;
+
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import org.folio.rest.support.ApiTests;
+import org.junit.Test;
+import org.z3950.zing.cql.cql2pgjson.CQL2PgJSONException;
+
+/**
+ * Checks that the queries used to look up and expire requests can be
+ * answered using the indexes declared in the schema
+ */
+public class RequestsQueryPlanTest extends ApiTests {
+  private static final String REQUEST_TABLE = "request";
+  //Either the btree or the gin index declared for status in the schema
+  private static final String STATUS_INDEX = "request_status_idx(_gin)?";
+
+  @Test
+  public void findingRequestsForARequesterUsesAnIndex()
+    throws CQL2PgJSONException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    assertThat(planFor(REQUEST_TABLE, String.format("requesterId==%s",
+      UUID.randomUUID())), usesIndex("request_requesterid_idx", "requesterId"));
+  }
+
+  @Test
+  public void findingOpenRequestsUsesAnIndex()
+    throws CQL2PgJSONException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    assertThat(planFor(REQUEST_TABLE, "status==Open*"),
+      usesIndex(STATUS_INDEX, "status"));
+  }
+
+  @Test
+  public void findingRequestsWithASpecificStatusUsesAnIndex()
+    throws CQL2PgJSONException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    assertThat(planFor(REQUEST_TABLE, "status==\"Open - Awaiting pickup\""),
+      usesIndex(STATUS_INDEX, "status"));
+  }
+
+  @Test
+  public void findingExpiredRequestsUsesAnIndex()
+    throws CQL2PgJSONException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    assertThat(planFor(REQUEST_TABLE,
+      "requestExpirationDate<\"2018-12-01\""),
+      usesIndex("request_requestexpirationdate_idx", "requestExpirationDate"));
+  }
+
+  @Test
+  public void findingRequestsExpiredOnTheHoldShelfUsesAnIndex()
+    throws CQL2PgJSONException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    assertThat(planFor(REQUEST_TABLE,
+      "holdShelfExpirationDate<\"2018-12-01\""),
+      usesIndex("request_holdshelfexpirationdate_idx", "holdShelfExpirationDate"));
+  }
+
+  @Test
+  public void findingOpenRequestsWhichHaveExpiredUsesAnIndex()
+    throws CQL2PgJSONException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    assertThat(planFor(REQUEST_TABLE,
+      "status==Open* and requestExpirationDate<\"2018-12-01\""),
+      either(usesIndex("request_requestexpirationdate_idx", "requestExpirationDate"))
+        .or(usesIndex(STATUS_INDEX, "status")));
+  }
+}
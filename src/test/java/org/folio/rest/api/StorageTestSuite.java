@@ -13,13 +13,23 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 import org.folio.rest.RestVerticle;
+import org.folio.rest.api.loans.LoanHistoryOutboxTest;
+import org.folio.rest.api.loans.LoanHistoryPartitionsTest;
 import org.folio.rest.api.loans.LoansAnonymizationApiTest;
+import org.folio.rest.api.loans.LoansAnonymizationJobsApiTest;
+import org.folio.rest.api.loans.LoansBatchApiTest;
+import org.folio.rest.api.loans.LoansByIdsApiTest;
+import org.folio.rest.api.loans.LoansExportApiTest;
+import org.folio.rest.api.loans.LoansPagingApiTest;
+import org.folio.rest.api.loans.LoansQueryPlanTest;
 import org.folio.rest.persist.PostgresClient;
 import org.folio.rest.support.HttpClient;
 import org.folio.rest.support.Response;
 import org.folio.rest.support.ResponseHandler;
 import org.folio.rest.support.TextResponse;
 import org.folio.rest.tools.utils.NetworkUtils;
+import org.folio.support.LoanHistoryDrainer;
+import org.folio.support.LoanHistoryPartitioner;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.runner.RunWith;
@@ -37,10 +47,21 @@ import io.vertx.ext.sql.ResultSet;
 @Suite.SuiteClasses({
   LoansApiTest.class,
   LoansAnonymizationApiTest.class,
+  LoansAnonymizationJobsApiTest.class,
+  LoanHistoryPartitionsTest.class,
+  LoanHistoryOutboxTest.class,
+  LoansBatchApiTest.class,
+  LoansByIdsApiTest.class,
+  LoansExportApiTest.class,
+  LoansPagingApiTest.class,
+  LoansQueryPlanTest.class,
   LoanRulesApiTest.class,
   FixedDueDateApiTest.class,
   LoanPoliciesApiTest.class,
   RequestsApiTest.class,
+  RequestsBatchApiTest.class,
+  RequestsByIdsApiTest.class,
+  RequestsQueryPlanTest.class,
   LoansApiHistoryTest.class,
   StaffSlipsApiTest.class,
   CancellationReasonsApiTest.class,
@@ -120,6 +141,14 @@ public class StorageTestSuite {
 		options.setConfig(new JsonObject().put("http.port", port));
 		options.setWorker(true);
 
+		//Queued loan history is drained by the tests, so they can check what is queued
+		System.setProperty(LoanHistoryDrainer.INTERVAL_PROPERTY,
+      String.valueOf(TimeUnit.HOURS.toMillis(1)));
+
+		//Loan history is moved to partitions by the tests, so they can check each batch
+		System.setProperty(LoanHistoryPartitioner.INTERVAL_PROPERTY,
+      String.valueOf(TimeUnit.HOURS.toMillis(1)));
+
 		startVerticle(options);
 
 		prepareTenant(TENANT_ID);
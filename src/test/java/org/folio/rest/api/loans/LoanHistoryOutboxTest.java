@@ -0,0 +1,374 @@
+package org.folio.rest.api.loans;
+
+import static java.net.HttpURLConnection.HTTP_OK;
+import static org.folio.rest.support.http.InterfaceUrls.loanStorageUrl;
+import static org.folio.rest.support.matchers.HttpResponseStatusCodeMatchers.isNoContent;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
+import static org.hamcrest.junit.MatcherAssert.assertThat;
+import static org.hamcrest.number.OrderingComparison.greaterThanOrEqualTo;
+
+import java.net.MalformedURLException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+import org.folio.rest.api.StorageTestSuite;
+import org.folio.rest.persist.PostgresClient;
+import org.folio.rest.support.ApiTests;
+import org.folio.rest.support.IndividualResource;
+import org.folio.rest.support.JsonResponse;
+import org.folio.rest.support.ResponseHandler;
+import org.folio.rest.support.TextResponse;
+import org.folio.rest.support.builders.LoanRequestBuilder;
+import org.folio.rest.support.http.AssertingRecordClient;
+import org.folio.rest.support.http.InterfaceUrls;
+import org.folio.support.ModuleSchema;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.sql.SQLConnection;
+
+public class LoanHistoryOutboxTest extends ApiTests {
+  private static final String SCHEMA = ModuleSchema.schemaFor(
+    StorageTestSuite.TENANT_ID);
+
+  private final AssertingRecordClient loansClient = new AssertingRecordClient(
+    client, StorageTestSuite.TENANT_ID, InterfaceUrls::loanStorageUrl);
+
+  @Before
+  public void beforeEach()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    StorageTestSuite.deleteAll(loanStorageUrl());
+
+    setMode("Asynchronous");
+  }
+
+  @After
+  public void afterEach()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    setMode("Synchronous");
+    select(String.format("SELECT %s.drain_audit_loan_outbox(1000)", SCHEMA));
+  }
+
+  @Test
+  public void historyIsQueuedUntilTheOutboxIsDrained()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    final String loanId = createAndRenewTwice(UUID.randomUUID());
+
+    assertThat(queuedHistoryFor(loanId), is(3L));
+    assertThat(appendedRenewalCountsFor(loanId).size(), is(0));
+
+    select(String.format("SELECT %s.drain_audit_loan_outbox(1000)", SCHEMA));
+
+    assertThat(queuedHistoryFor(loanId), is(0L));
+    assertThat(appendedRenewalCountsFor(loanId), contains(0, 1, 2));
+  }
+
+  @Test
+  public void historyIsAppendedInOrderWhenDrainedInSmallBatches()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    final String loanId = createAndRenewTwice(UUID.randomUUID());
+
+    final List<JsonArray> appended = select(String.format(
+      "SELECT %s.drain_audit_loan_outbox(2)", SCHEMA));
+
+    assertThat(appended.get(0).getLong(0), is(2L));
+    assertThat(appendedRenewalCountsFor(loanId), contains(0, 1));
+
+    select(String.format("SELECT %s.drain_audit_loan_outbox(2)", SCHEMA));
+
+    assertThat(appendedRenewalCountsFor(loanId), contains(0, 1, 2));
+  }
+
+  @Test
+  public void historyQueuedByATransactionStillInProgressHoldsBackLaterHistory()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    final IndividualResource firstLoan = loansClient.create(
+      new LoanRequestBuilder().withRenewalCount(0));
+
+    final IndividualResource secondLoan = loansClient.create(
+      new LoanRequestBuilder().withRenewalCount(0));
+
+    select(String.format("SELECT %s.drain_audit_loan_outbox(1000)", SCHEMA));
+
+    //Queues history for the first loan before the second, but commits after
+    final AsyncResult<SQLConnection> first = startTransaction();
+
+    execute(first, renewSql(firstLoan.getId()));
+
+    final AsyncResult<SQLConnection> second = startTransaction();
+
+    execute(second, renewSql(secondLoan.getId()));
+    endTransaction(second);
+
+    final List<JsonArray> appendedBeforeCommit = select(String.format(
+      "SELECT %s.drain_audit_loan_outbox(1000)", SCHEMA));
+
+    assertThat(appendedBeforeCommit.get(0).getLong(0), is(0L));
+    assertThat(queuedHistoryFor(secondLoan.getId()), is(1L));
+    assertThat(appendedRenewalCountsFor(secondLoan.getId()), contains(0));
+
+    endTransaction(first);
+
+    final List<JsonArray> appendedAfterCommit = select(String.format(
+      "SELECT %s.drain_audit_loan_outbox(1000)", SCHEMA));
+
+    assertThat(appendedAfterCommit.get(0).getLong(0), is(2L));
+    assertThat(appendedRenewalCountsFor(firstLoan.getId()), contains(0, 1));
+    assertThat(appendedRenewalCountsFor(secondLoan.getId()), contains(0, 1));
+  }
+
+  @Test
+  public void lagIncludesQueuedHistory()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    createAndRenewTwice(UUID.randomUUID());
+
+    final CompletableFuture<JsonResponse> getCompleted = new CompletableFuture<>();
+
+    client.get(StorageTestSuite.storageUrl("/loan-storage/loan-history/lag"),
+      StorageTestSuite.TENANT_ID, ResponseHandler.json(getCompleted));
+
+    final JsonResponse response = getCompleted.get(5, TimeUnit.SECONDS);
+
+    assertThat(response.getStatusCode(), is(HTTP_OK));
+
+    final JsonObject lag = response.getJson();
+
+    assertThat(lag.getString("mode"), is("Asynchronous"));
+    assertThat(lag.getInteger("queuedRecords"), greaterThanOrEqualTo(3));
+    assertThat(lag.getDouble("oldestQueuedSeconds"), greaterThanOrEqualTo(0.0));
+  }
+
+  @Test
+  public void lagReportsSynchronousModeWhenHistoryIsNotQueued()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    setMode("Synchronous");
+
+    final CompletableFuture<JsonResponse> getCompleted = new CompletableFuture<>();
+
+    client.get(StorageTestSuite.storageUrl("/loan-storage/loan-history/lag"),
+      StorageTestSuite.TENANT_ID, ResponseHandler.json(getCompleted));
+
+    final JsonResponse response = getCompleted.get(5, TimeUnit.SECONDS);
+
+    assertThat(response.getStatusCode(), is(HTTP_OK));
+    assertThat(response.getJson().getString("mode"), is("Synchronous"));
+  }
+
+  @Test
+  public void queuedHistoryIsAnonymized()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    final UUID userId = UUID.randomUUID();
+
+    final IndividualResource loan = loansClient.create(
+      new LoanRequestBuilder().closed().withUserId(userId));
+
+    final CompletableFuture<TextResponse> postCompleted = new CompletableFuture<>();
+
+    client.post(loanStorageUrl("/anonymize/" + userId),
+      StorageTestSuite.TENANT_ID, ResponseHandler.text(postCompleted));
+
+    final TextResponse response = postCompleted.get(5, TimeUnit.SECONDS);
+
+    assertThat(response, isNoContent());
+    assertThat(response.getHeader("X-Anonymized-Loan-History"), is("1"));
+
+    select(String.format("SELECT %s.drain_audit_loan_outbox(1000)", SCHEMA));
+
+    final List<JsonArray> history = select(String.format(
+      "SELECT jsonb->>'userId' FROM %s.audit_loan WHERE (jsonb->>'id') = '%s'",
+      SCHEMA, loan.getId()));
+
+    assertThat(history.size(), is(2));
+    assertThat(history.get(0).getString(0), is(nullValue()));
+    assertThat(history.get(1).getString(0), is(nullValue()));
+  }
+
+  private String createAndRenewTwice(UUID userId)
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    final IndividualResource loan = loansClient.create(
+      new LoanRequestBuilder().withUserId(userId).withRenewalCount(0));
+
+    for (int renewalCount = 1; renewalCount <= 2; renewalCount++) {
+      final JsonResponse replaceResponse = loansClient.attemptCreateOrReplace(
+        loan.getId(), loan.copyJson()
+          .put("action", "renewed")
+          .put("renewalCount", renewalCount));
+
+      assertThat(replaceResponse, isNoContent());
+    }
+
+    return loan.getId();
+  }
+
+  private long queuedHistoryFor(String loanId)
+    throws InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    return select(String.format(
+      "SELECT count(*) FROM %s.audit_loan_outbox WHERE (history->'jsonb'->>'id') = '%s'",
+      SCHEMA, loanId)).get(0).getLong(0);
+  }
+
+  private List<Integer> appendedRenewalCountsFor(String loanId)
+    throws InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    return select(String.format(
+      "SELECT (jsonb->>'renewalCount')::int FROM %s.audit_loan"
+        + " WHERE (jsonb->>'id') = '%s' ORDER BY created_date", SCHEMA, loanId))
+      .stream()
+      .map(row -> row.getInteger(0))
+      .collect(Collectors.toList());
+  }
+
+  private void setMode(String mode)
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    final CompletableFuture<TextResponse> putCompleted = new CompletableFuture<>();
+
+    client.put(StorageTestSuite.storageUrl("/loan-storage/loan-history/mode"),
+      new JsonObject().put("mode", mode), StorageTestSuite.TENANT_ID,
+      ResponseHandler.text(putCompleted));
+
+    assertThat(putCompleted.get(5, TimeUnit.SECONDS), isNoContent());
+  }
+
+  private String renewSql(String loanId) {
+    return String.format("UPDATE %s.loan"
+      + " SET jsonb = jsonb_set(jsonb, '{renewalCount}', '1')"
+      + " WHERE _id = '%s'", SCHEMA, loanId);
+  }
+
+  private AsyncResult<SQLConnection> startTransaction()
+    throws InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    final CompletableFuture<AsyncResult<SQLConnection>> started = new CompletableFuture<>();
+
+    postgresClient().startTx(connection -> {
+      if(connection.succeeded()) {
+        started.complete(connection);
+      }
+      else {
+        started.completeExceptionally(connection.cause());
+      }
+    });
+
+    return started.get(5, TimeUnit.SECONDS);
+  }
+
+  private void execute(AsyncResult<SQLConnection> connection, String sql)
+    throws InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    final CompletableFuture<Void> executed = new CompletableFuture<>();
+
+    postgresClient().execute(connection, sql, new JsonArray(), result -> {
+      if(result.succeeded()) {
+        executed.complete(null);
+      }
+      else {
+        executed.completeExceptionally(result.cause());
+      }
+    });
+
+    executed.get(5, TimeUnit.SECONDS);
+  }
+
+  private void endTransaction(AsyncResult<SQLConnection> connection)
+    throws InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    final CompletableFuture<Void> ended = new CompletableFuture<>();
+
+    postgresClient().endTx(connection, result -> {
+      if(result.succeeded()) {
+        ended.complete(null);
+      }
+      else {
+        ended.completeExceptionally(result.cause());
+      }
+    });
+
+    ended.get(5, TimeUnit.SECONDS);
+  }
+
+  private List<JsonArray> select(String sql)
+    throws InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    final CompletableFuture<List<JsonArray>> selected = new CompletableFuture<>();
+
+    postgresClient().select(sql, new JsonArray(), result -> {
+      if(result.succeeded()) {
+        selected.complete(result.result().getResults());
+      }
+      else {
+        selected.completeExceptionally(result.cause());
+      }
+    });
+
+    return selected.get(5, TimeUnit.SECONDS);
+  }
+
+  private PostgresClient postgresClient() {
+    return PostgresClient.getInstance(
+      StorageTestSuite.getVertx(), StorageTestSuite.TENANT_ID);
+  }
+}
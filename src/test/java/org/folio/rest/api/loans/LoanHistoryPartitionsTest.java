@@ -0,0 +1,241 @@
+package org.folio.rest.api.loans;
+
+import static org.folio.rest.support.database.QueryPlanner.planForSql;
+import static org.folio.rest.support.http.InterfaceUrls.loanStorageUrl;
+import static org.folio.rest.support.matchers.QueryPlanMatchers.readsFrom;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
+import static org.hamcrest.junit.MatcherAssert.assertThat;
+
+import java.net.MalformedURLException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+import org.folio.rest.api.StorageTestSuite;
+import org.folio.rest.persist.PostgresClient;
+import org.folio.rest.support.ApiTests;
+import org.folio.rest.support.IndividualResource;
+import org.folio.rest.support.builders.LoanRequestBuilder;
+import org.folio.rest.support.http.AssertingRecordClient;
+import org.folio.rest.support.http.InterfaceUrls;
+import org.folio.support.ModuleSchema;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.vertx.core.json.JsonArray;
+
+public class LoanHistoryPartitionsTest extends ApiTests {
+  private static final String SCHEMA = ModuleSchema.schemaFor(
+    StorageTestSuite.TENANT_ID);
+
+  private final AssertingRecordClient loansClient = new AssertingRecordClient(
+    client, StorageTestSuite.TENANT_ID, InterfaceUrls::loanStorageUrl);
+
+  @Before
+  public void beforeEach()
+    throws MalformedURLException {
+
+    StorageTestSuite.deleteAll(loanStorageUrl());
+  }
+
+  @After
+  public void removeOldPartitions()
+    throws InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    select(String.format("SELECT %s.drop_audit_loan_partitions('2016-01-01')",
+      SCHEMA), new JsonArray());
+  }
+
+  @Test
+  public void historyIsInThePartitionForTheMonthItWasCreated()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    final IndividualResource loan = loansClient.create(
+      new LoanRequestBuilder().withUserId(UUID.randomUUID()));
+
+    final List<JsonArray> history = select(String.format(
+      "SELECT containing.relname::text, %1$s.audit_loan_partition_name(history.created_date)"
+        + " FROM %1$s.audit_loan history"
+        + " JOIN pg_class containing ON containing.oid = history.tableoid"
+        + " WHERE (history.jsonb->>'id') = ?", SCHEMA),
+      new JsonArray().add(loan.getId()));
+
+    assertThat(history.size(), is(1));
+    assertThat(history.get(0).getString(0), is(history.get(0).getString(1)));
+
+    final List<JsonArray> unpartitioned = select(String.format(
+      "SELECT count(*) FROM ONLY %s.audit_loan", SCHEMA), new JsonArray());
+
+    assertThat(unpartitioned.get(0).getLong(0), is(0L));
+  }
+
+  @Test
+  public void recentHistoryDoesNotReadOlderPartitions()
+    throws InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    createPartitionFor("2015-03-15");
+
+    assertThat(planForSql(String.format(
+      "SELECT jsonb FROM %s.audit_loan WHERE created_date >= '2018-01-01'"
+        + " ORDER BY created_date DESC LIMIT 10", SCHEMA)),
+      not(readsFrom("audit_loan_2015_03")));
+  }
+
+  @Test
+  public void partitionsBeforeAMonthCanBeDropped()
+    throws InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    createPartitionFor("2015-03-15");
+    createPartitionFor("2015-04-15");
+
+    final List<String> dropped = select(String.format(
+      "SELECT %s.drop_audit_loan_partitions('2015-04-10')", SCHEMA),
+      new JsonArray()).stream()
+      .map(row -> row.getString(0))
+      .collect(Collectors.toList());
+
+    assertThat(dropped, contains("audit_loan_2015_03"));
+  }
+
+  @Test
+  public void historyCreatedBeforePartitioningIsMovedInBatches()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    final IndividualResource loan = loansClient.create(
+      new LoanRequestBuilder().withRenewalCount(0));
+
+    for (int renewalCount = 1; renewalCount <= 2; renewalCount++) {
+      loansClient.attemptCreateOrReplace(loan.getId(), loan.copyJson()
+        .put("renewalCount", renewalCount));
+    }
+
+    //Puts the history for the loan back in audit_loan itself, as it was
+    //before partitioning
+    execute(String.format("ALTER TABLE ONLY %s.audit_loan"
+      + " DROP CONSTRAINT audit_loan_is_partitioned", SCHEMA));
+    execute(String.format("ALTER TABLE %s.audit_loan"
+      + " DISABLE TRIGGER route_audit_loan", SCHEMA));
+
+    try {
+      execute(String.format("WITH unpartitioned AS ("
+        + " DELETE FROM %1$s.audit_loan WHERE (jsonb->>'id') = '%2$s' RETURNING *)"
+        + " INSERT INTO %1$s.audit_loan SELECT * FROM unpartitioned",
+        SCHEMA, loan.getId()));
+    }
+    finally {
+      execute(String.format("ALTER TABLE %s.audit_loan"
+        + " ENABLE TRIGGER route_audit_loan", SCHEMA));
+    }
+
+    assertThat(unpartitionedHistoryCount(), is(3L));
+
+    assertThat(moveUnpartitionedHistory(2), is(2L));
+    assertThat(unpartitionedHistoryCount(), is(1L));
+    assertThat(moveUnpartitionedHistory(2), is(1L));
+    assertThat(moveUnpartitionedHistory(2), is(0L));
+
+    final List<JsonArray> finished = select(String.format(
+      "SELECT %s.finish_partitioning_audit_loan()", SCHEMA), new JsonArray());
+
+    assertThat(finished.get(0).getBoolean(0), is(true));
+    assertThat(unpartitionedHistoryCount(), is(0L));
+
+    final List<JsonArray> history = select(String.format(
+      "SELECT count(*) FROM %s.audit_loan WHERE (jsonb->>'id') = ?", SCHEMA),
+      new JsonArray().add(loan.getId()));
+
+    assertThat(history.get(0).getLong(0), is(3L));
+  }
+
+  private long moveUnpartitionedHistory(int batchSize)
+    throws InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    return select(String.format(
+      "SELECT %s.move_unpartitioned_audit_loan(?)", SCHEMA),
+      new JsonArray().add(batchSize)).get(0).getLong(0);
+  }
+
+  private long unpartitionedHistoryCount()
+    throws InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    return select(String.format(
+      "SELECT count(*) FROM ONLY %s.audit_loan", SCHEMA), new JsonArray())
+      .get(0).getLong(0);
+  }
+
+  private void createPartitionFor(String date)
+    throws InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    select(String.format("SELECT %s.create_audit_loan_partition(?::timestamp)",
+      SCHEMA), new JsonArray().add(date));
+  }
+
+  private void execute(String sql)
+    throws InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    final PostgresClient postgresClient = PostgresClient.getInstance(
+      StorageTestSuite.getVertx(), StorageTestSuite.TENANT_ID);
+
+    final CompletableFuture<Void> executed = new CompletableFuture<>();
+
+    postgresClient.execute(sql, new JsonArray(), result -> {
+      if(result.succeeded()) {
+        executed.complete(null);
+      }
+      else {
+        executed.completeExceptionally(result.cause());
+      }
+    });
+
+    executed.get(5, TimeUnit.SECONDS);
+  }
+
+  private List<JsonArray> select(String sql, JsonArray parameters)
+    throws InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    final PostgresClient postgresClient = PostgresClient.getInstance(
+      StorageTestSuite.getVertx(), StorageTestSuite.TENANT_ID);
+
+    final CompletableFuture<List<JsonArray>> selected = new CompletableFuture<>();
+
+    postgresClient.select(sql, parameters, result -> {
+      if(result.succeeded()) {
+        selected.complete(result.result().getResults());
+      }
+      else {
+        selected.completeExceptionally(result.cause());
+      }
+    });
+
+    return selected.get(5, TimeUnit.SECONDS);
+  }
+}
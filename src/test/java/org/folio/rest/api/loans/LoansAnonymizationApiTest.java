@@ -92,6 +92,33 @@ public class LoansAnonymizationApiTest extends ApiTests {
       loansClient.getAll().getTotalRecords(), is(1));
   }
 
+  @Test
+  public void anonymizedLoanIsFetchedWithDifferentEntityTag()
+    throws MalformedURLException,
+    ExecutionException,
+    InterruptedException,
+    TimeoutException {
+
+    final UUID userId = UUID.randomUUID();
+
+    final IndividualResource loan = loansClient.create(
+      new LoanRequestBuilder()
+        .closed()
+        .withUserId(userId));
+
+    final UUID loanId = UUID.fromString(loan.getId());
+
+    final String entityTag = loansClient.attemptGetById(loanId, null)
+      .getHeader("ETag");
+
+    anonymizeLoansFor(userId);
+
+    final JsonResponse response = loansClient.attemptGetById(loanId, entityTag);
+
+    assertThat("Anonymized loan should not be considered unchanged",
+      response.getStatusCode(), is(200));
+  }
+
   @Test
   public void shouldNotAnonymizeOpenLoans()
     throws MalformedURLException,
@@ -167,6 +194,49 @@ public class LoansAnonymizationApiTest extends ApiTests {
       loansClient.getAll().getTotalRecords(), is(5));
   }
 
+  @Test
+  public void shouldReportHowManyLoansAndHistoryRecordsWereAnonymized()
+    throws MalformedURLException,
+    ExecutionException,
+    InterruptedException,
+    TimeoutException {
+
+    final UUID userId = UUID.randomUUID();
+
+    final LoanRequestBuilder loanForUser = new LoanRequestBuilder()
+      .withUserId(userId);
+
+    final IndividualResource closedLoan = loansClient.create(loanForUser
+      .closed()
+      .withItemId(UUID.randomUUID())
+      .withId(UUID.randomUUID()));
+
+    //Replacing the loan adds another history record
+    loansClient.replace(closedLoan.getId(), loanForUser
+      .closed()
+      .withItemId(UUID.randomUUID())
+      .withId(UUID.fromString(closedLoan.getId()))
+      .withAction("renewed"));
+
+    loansClient.create(loanForUser
+      .closed()
+      .withItemId(UUID.randomUUID())
+      .withId(UUID.randomUUID()));
+
+    loansClient.create(loanForUser
+      .open()
+      .withItemId(UUID.randomUUID())
+      .withId(UUID.randomUUID()));
+
+    final TextResponse response = anonymizeLoansFor(userId);
+
+    assertThat(response.getHeader("X-Anonymized-Loans"), is("2"));
+    assertThat(response.getHeader("X-Anonymized-Loan-History"), is("3"));
+
+    assertThat("Anonymizing again should change nothing",
+      anonymizeLoansFor(userId).getHeader("X-Anonymized-Loans"), is("0"));
+  }
+
   @Test
   public void shouldNotAnonymizeLoansForOtherUser()
     throws MalformedURLException,
@@ -312,7 +382,7 @@ public class LoansAnonymizationApiTest extends ApiTests {
     hasLoanHistoryForUser(userId, firstOpenLoanId, secondOpenLoanId);
   }
 
-  private void anonymizeLoansFor(UUID userId)
+  private TextResponse anonymizeLoansFor(UUID userId)
     throws MalformedURLException,
     InterruptedException,
     ExecutionException,
@@ -326,6 +396,8 @@ public class LoansAnonymizationApiTest extends ApiTests {
     final TextResponse postResponse = postCompleted.get(5, TimeUnit.SECONDS);
 
     assertThat(postResponse, isNoContent());
+
+    return postResponse;
   }
 
   private MultipleRecords<JsonObject> getLoansForUser(UUID userId)
@@ -0,0 +1,149 @@
+package org.folio.rest.api.loans;
+
+import static org.folio.rest.support.http.InterfaceUrls.loanStorageUrl;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.folio.rest.api.StorageTestSuite;
+import org.folio.rest.persist.PostgresClient;
+import org.folio.rest.support.HttpClient;
+import org.folio.rest.support.ResponseHandler;
+import org.folio.rest.support.TextResponse;
+import org.folio.support.ModuleSchema;
+
+/**
+ * Times anonymizing the closed loans of a user in a table of several million
+ * loans (by default, three million, or the number given as the first
+ * argument), for typical borrowers and for a borrower with thousands of loans.
+ *
+ * Nine in ten loans are closed, and every loan has a history record from when
+ * it was created.
+ *
+ * Run the main method from an IDE or with
+ * mvn test-compile exec:java -Dexec.classpathScope=test
+ *   -Dexec.mainClass=org.folio.rest.api.loans.LoansAnonymizationBenchmark
+ */
+public class LoansAnonymizationBenchmark {
+  private static final String SCHEMA = ModuleSchema.schemaFor(
+    StorageTestSuite.TENANT_ID);
+
+  private static final int DEFAULT_LOANS = 3_000_000;
+  private static final int LOANS_PER_USER = 50;
+  private static final int LOANS_PER_INSERT = 100_000;
+  private static final int MEASURED_USERS = 20;
+
+  //Has one in every thousand loans
+  private static final String HEAVY_BORROWER = "7dd5e1a8-4b6b-4fb0-a81d-8e9e7fbc3b3d";
+
+  public static void main(String[] args) throws Exception {
+    final int loans = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_LOANS;
+    final int users = Math.max(loans / LOANS_PER_USER, MEASURED_USERS);
+
+    StorageTestSuite.before();
+
+    try {
+      final HttpClient client = new HttpClient(StorageTestSuite.getVertx());
+
+      createLoans(loans, users);
+
+      //Typical borrowers have not been used before, so nothing is cached
+      long took = 0;
+
+      for (int user = 0; user < MEASURED_USERS; user++) {
+        took += anonymize(client, generatedUserId(user));
+      }
+
+      System.out.println(String.format("Typical borrower: %d ms per user",
+        took / MEASURED_USERS));
+
+      System.out.println(String.format("Heavy borrower: %d ms",
+        anonymize(client, HEAVY_BORROWER)));
+    }
+    finally {
+      StorageTestSuite.after();
+    }
+  }
+
+  /**
+   * The same user IDs as those generated in SQL
+   */
+  private static String generatedUserId(int user) {
+    return UUID.nameUUIDFromBytes(new byte[0]).toString()
+      .substring(0, 24) + String.format("%012x", user);
+  }
+
+  private static void createLoans(int loans, int users) throws Exception {
+    final PostgresClient postgresClient = PostgresClient.getInstance(
+      StorageTestSuite.getVertx(), StorageTestSuite.TENANT_ID);
+
+    final String userIdPrefix = generatedUserId(0).substring(0, 24);
+
+    for (int first = 1; first <= loans; first += LOANS_PER_INSERT) {
+      final int last = Math.min(first + LOANS_PER_INSERT - 1, loans);
+
+      execute(postgresClient, String.format(
+        "INSERT INTO %1$s.loan (_id, jsonb)"
+          + " SELECT id, jsonb_build_object("
+          + " 'id', id,"
+          + " 'userId', CASE WHEN n %% 1000 = 0 THEN '%2$s'"
+          + " ELSE '%3$s' || lpad(to_hex(n %% %4$d), 12, '0') END,"
+          + " 'itemId', md5('item' || n)::uuid,"
+          + " 'loanDate', '2018-01-01T00:00:00.000Z',"
+          + " 'action', CASE WHEN n %% 10 = 0 THEN 'checkedout' ELSE 'checkedin' END,"
+          + " 'status', jsonb_build_object('name',"
+          + " CASE WHEN n %% 10 = 0 THEN 'Open' ELSE 'Closed' END))"
+          + " FROM (SELECT md5('loan' || n)::uuid AS id, n"
+          + " FROM generate_series(%5$d, %6$d) AS n) AS generated",
+        SCHEMA, HEAVY_BORROWER, userIdPrefix, users, first, last));
+
+      System.out.println(String.format("Created %d loans", last));
+    }
+
+    execute(postgresClient, String.format("ANALYZE %s.loan", SCHEMA));
+    execute(postgresClient, String.format("ANALYZE %s.audit_loan", SCHEMA));
+  }
+
+  private static void execute(PostgresClient postgresClient, String sql)
+    throws Exception {
+
+    final CompletableFuture<String> executed = new CompletableFuture<>();
+
+    postgresClient.mutate(sql, result -> {
+      if(result.succeeded()) {
+        executed.complete(result.result());
+      }
+      else {
+        executed.completeExceptionally(result.cause());
+      }
+    });
+
+    executed.get(10, TimeUnit.MINUTES);
+  }
+
+  /**
+   * @return milliseconds taken
+   */
+  private static long anonymize(HttpClient client, String userId)
+    throws Exception {
+
+    final CompletableFuture<TextResponse> postCompleted = new CompletableFuture<>();
+
+    final long started = System.nanoTime();
+
+    client.post(loanStorageUrl("/anonymize/" + userId),
+      StorageTestSuite.TENANT_ID, ResponseHandler.text(postCompleted));
+
+    final TextResponse response = postCompleted.get(10, TimeUnit.MINUTES);
+
+    final long took = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+    System.out.println(String.format(
+      "%s: %d, %s loans and %s history records in %d ms", userId,
+      response.getStatusCode(), response.getHeader("X-Anonymized-Loans"),
+      response.getHeader("X-Anonymized-Loan-History"), took));
+
+    return took;
+  }
+}
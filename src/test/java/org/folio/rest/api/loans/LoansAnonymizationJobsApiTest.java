@@ -0,0 +1,257 @@
+package org.folio.rest.api.loans;
+
+import static org.folio.rest.support.http.InterfaceUrls.loanStorageUrl;
+import static org.folio.rest.support.matchers.ValidationErrorMatchers.hasMessage;
+import static org.folio.rest.support.matchers.ValidationErrorMatchers.hasParameter;
+import static org.folio.rest.support.matchers.ValidationResponseMatchers.isValidationResponseWhich;
+import static org.hamcrest.CoreMatchers.allOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.junit.MatcherAssert.assertThat;
+
+import java.net.MalformedURLException;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.folio.rest.api.StorageTestSuite;
+import org.folio.rest.support.ApiTests;
+import org.folio.rest.support.IndividualResource;
+import org.folio.rest.support.JsonResponse;
+import org.folio.rest.support.ResponseHandler;
+import org.folio.rest.support.TextResponse;
+import org.folio.rest.support.builders.LoanRequestBuilder;
+import org.folio.rest.support.http.AssertingRecordClient;
+import org.folio.rest.support.http.InterfaceUrls;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+public class LoansAnonymizationJobsApiTest extends ApiTests {
+  private final AssertingRecordClient loansClient = new AssertingRecordClient(
+    client, StorageTestSuite.TENANT_ID, InterfaceUrls::loanStorageUrl);
+
+  @Before
+  public void beforeEach()
+    throws MalformedURLException {
+
+    StorageTestSuite.deleteAll(loanStorageUrl());
+  }
+
+  @After
+  public void checkIdsAfterEach() {
+    StorageTestSuite.checkForMismatchedIDs("loan");
+  }
+
+  @Test
+  public void shouldAnonymizeClosedLoansForManyUsers()
+    throws MalformedURLException,
+    ExecutionException,
+    InterruptedException,
+    TimeoutException {
+
+    final UUID firstUserId = UUID.randomUUID();
+    final UUID secondUserId = UUID.randomUUID();
+    final UUID otherUserId = UUID.randomUUID();
+
+    final IndividualResource firstClosedLoan = loansClient.create(
+      new LoanRequestBuilder().closed().withUserId(firstUserId));
+
+    final IndividualResource secondClosedLoan = loansClient.create(
+      new LoanRequestBuilder().closed().withUserId(secondUserId));
+
+    final IndividualResource openLoan = loansClient.create(
+      new LoanRequestBuilder().open().withUserId(firstUserId));
+
+    final IndividualResource otherUsersLoan = loansClient.create(
+      new LoanRequestBuilder().closed().withUserId(otherUserId));
+
+    final JsonObject job = waitForJob(startJob(new JsonObject()
+      .put("userIds", new JsonArray(Arrays.asList(
+        firstUserId.toString(), secondUserId.toString())))));
+
+    assertThat(job.getString("status"), is("Completed"));
+    assertThat(job.getInteger("numberOfUsers"), is(2));
+    assertThat(job.getInteger("loansAnonymized"), is(2));
+    assertThat(job.getInteger("loanHistoryAnonymized"), is(2));
+    assertThat(job.getString("finishedDate"), is(notNullValue()));
+
+    hasNoUser(firstClosedLoan);
+    hasNoUser(secondClosedLoan);
+    hasUser(openLoan);
+    hasUser(otherUsersLoan);
+  }
+
+  @Test
+  public void shouldAnonymizeLoansReturnedBeforeDate()
+    throws MalformedURLException,
+    ExecutionException,
+    InterruptedException,
+    TimeoutException {
+
+    final DateTime cutOff = new DateTime(2018, 1, 1, 0, 0, DateTimeZone.UTC);
+
+    final IndividualResource returnedBefore = loansClient.create(
+      new LoanRequestBuilder()
+        .closed()
+        .withUserId(UUID.randomUUID())
+        .withReturnDate(cutOff.minusDays(1)));
+
+    final IndividualResource returnedAfter = loansClient.create(
+      new LoanRequestBuilder()
+        .closed()
+        .withUserId(UUID.randomUUID())
+        .withReturnDate(cutOff.plusDays(1)));
+
+    final IndividualResource openLoan = loansClient.create(
+      new LoanRequestBuilder()
+        .open()
+        .withUserId(UUID.randomUUID()));
+
+    final JsonObject job = waitForJob(startJob(new JsonObject()
+      .put("closedBefore", cutOff.toString())));
+
+    assertThat(job.getString("status"), is("Completed"));
+    assertThat(job.getInteger("loansAnonymized"), is(1));
+
+    hasNoUser(returnedBefore);
+    hasUser(returnedAfter);
+    hasUser(openLoan);
+  }
+
+  @Test
+  public void shouldRejectRequestForUsersAndDate()
+    throws MalformedURLException,
+    ExecutionException,
+    InterruptedException,
+    TimeoutException {
+
+    final JsonResponse response = attemptToStartJob(new JsonObject()
+      .put("userIds", new JsonArray().add(UUID.randomUUID().toString()))
+      .put("closedBefore", DateTime.now(DateTimeZone.UTC).toString()));
+
+    assertThat(response, isValidationResponseWhich(
+      hasMessage("Either userIds or closedBefore is required, but not both")));
+  }
+
+  @Test
+  public void shouldRejectInvalidUserIds()
+    throws MalformedURLException,
+    ExecutionException,
+    InterruptedException,
+    TimeoutException {
+
+    final JsonResponse response = attemptToStartJob(new JsonObject()
+      .put("userIds", new JsonArray().add("foo")));
+
+    assertThat(response, isValidationResponseWhich(allOf(
+      hasMessage("user id is not a valid UUID"),
+      hasParameter("userIds", "foo"))));
+  }
+
+  @Test
+  public void unknownJobIsNotFound()
+    throws MalformedURLException,
+    ExecutionException,
+    InterruptedException,
+    TimeoutException {
+
+    final CompletableFuture<TextResponse> getCompleted = new CompletableFuture<>();
+
+    client.get(loanStorageUrl("/anonymize-jobs/" + UUID.randomUUID()),
+      StorageTestSuite.TENANT_ID, ResponseHandler.text(getCompleted));
+
+    assertThat(getCompleted.get(5, TimeUnit.SECONDS).getStatusCode(), is(404));
+  }
+
+  private String startJob(JsonObject request)
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    final JsonResponse response = attemptToStartJob(request);
+
+    assertThat(String.format("Failed to start job: %s", response.getBody()),
+      response.getStatusCode(), is(201));
+
+    assertThat(response.getHeader("Location"), is(String.format(
+      "/loan-storage/loans/anonymize-jobs/%s",
+      response.getJson().getString("id"))));
+
+    return response.getJson().getString("id");
+  }
+
+  private JsonResponse attemptToStartJob(JsonObject request)
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    final CompletableFuture<JsonResponse> postCompleted = new CompletableFuture<>();
+
+    client.post(loanStorageUrl("/anonymize-jobs"), request,
+      StorageTestSuite.TENANT_ID, ResponseHandler.json(postCompleted));
+
+    return postCompleted.get(5, TimeUnit.SECONDS);
+  }
+
+  /**
+   * @return the job, once it is no longer in progress
+   */
+  private JsonObject waitForJob(String jobId)
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    for (int attempt = 0; attempt < 50; attempt++) {
+      final CompletableFuture<JsonResponse> getCompleted = new CompletableFuture<>();
+
+      client.get(loanStorageUrl("/anonymize-jobs/" + jobId),
+        StorageTestSuite.TENANT_ID, ResponseHandler.json(getCompleted));
+
+      final JsonResponse response = getCompleted.get(5, TimeUnit.SECONDS);
+
+      assertThat(response.getStatusCode(), is(200));
+
+      if(!"In progress".equals(response.getJson().getString("status"))) {
+        return response.getJson();
+      }
+
+      Thread.sleep(100);
+    }
+
+    throw new AssertionError(String.format("Job %s did not finish", jobId));
+  }
+
+  private void hasNoUser(IndividualResource loan)
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    assertThat("Should no longer have a user ID",
+      loansClient.getById(loan.getId()).getJson().containsKey("userId"),
+      is(false));
+  }
+
+  private void hasUser(IndividualResource loan)
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    assertThat("Should still have a user ID",
+      loansClient.getById(loan.getId()).getJson().containsKey("userId"),
+      is(true));
+  }
+}
@@ -0,0 +1,255 @@
+package org.folio.rest.api.loans;
+
+import static org.folio.rest.support.http.InterfaceUrls.loanStorageUrl;
+import static org.folio.rest.support.matchers.HttpResponseStatusCodeMatchers.isCreated;
+import static org.folio.rest.support.matchers.ValidationErrorMatchers.hasMessage;
+import static org.folio.rest.support.matchers.ValidationErrorMatchers.hasParameter;
+import static org.folio.rest.support.matchers.ValidationResponseMatchers.isValidationResponseWhich;
+import static org.hamcrest.CoreMatchers.allOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.junit.MatcherAssert.assertThat;
+
+import java.net.MalformedURLException;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.folio.rest.api.StorageTestSuite;
+import org.folio.rest.support.ApiTests;
+import org.folio.rest.support.JsonArrayHelper;
+import org.folio.rest.support.JsonResponse;
+import org.folio.rest.support.ResponseHandler;
+import org.folio.rest.support.builders.LoanRequestBuilder;
+import org.folio.rest.support.http.AssertingRecordClient;
+import org.folio.rest.support.http.InterfaceUrls;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+public class LoansBatchApiTest extends ApiTests {
+  private final AssertingRecordClient loansClient = new AssertingRecordClient(
+    client, StorageTestSuite.TENANT_ID, InterfaceUrls::loanStorageUrl);
+
+  @Before
+  public void beforeEach()
+    throws MalformedURLException {
+
+    StorageTestSuite.deleteAll(loanStorageUrl());
+  }
+
+  @After
+  public void checkIdsAfterEach() {
+    StorageTestSuite.checkForMismatchedIDs("loan");
+  }
+
+  @Test
+  public void canCreateABatchOfLoans()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    final JsonArray loans = new JsonArray();
+
+    for (int index = 0; index < 1200; index++) {
+      loans.add(new LoanRequestBuilder().create());
+    }
+
+    final JsonResponse response = createBatch(loans);
+
+    assertThat(response, isCreated());
+
+    assertThat("Should report all created loans",
+      response.getJson().getInteger("totalRecords"), is(1200));
+
+    assertThat("All loans should be stored",
+      loansClient.getAll().getTotalRecords(), is(1200));
+  }
+
+  @Test
+  public void loansCreatedInABatchDefaultToOpenAndHaveAnId()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    final JsonArray loans = new JsonArray()
+      .add(new LoanRequestBuilder().withNoId().withNoStatus().create());
+
+    final JsonResponse response = createBatch(loans);
+
+    assertThat(response, isCreated());
+
+    final JsonObject createdLoan = JsonArrayHelper.toList(
+      response.getJson(), "loans").get(0);
+
+    assertThat(createdLoan.getString("id"), is(notNullValue()));
+
+    final JsonObject fetchedLoan = loansClient.getById(
+      createdLoan.getString("id")).getJson();
+
+    assertThat(fetchedLoan.getJsonObject("status").getString("name"),
+      is("Open"));
+
+    assertThat("Should have change metadata",
+      fetchedLoan.getJsonObject("metadata"), is(notNullValue()));
+  }
+
+  @Test
+  public void cannotCreateABatchWithAnOpenLoanWithoutAUserId()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    final UUID loanId = UUID.randomUUID();
+
+    final JsonArray loans = new JsonArray()
+      .add(new LoanRequestBuilder().create())
+      .add(new LoanRequestBuilder().withId(loanId).open().withNoUserId().create());
+
+    final JsonResponse response = createBatch(loans);
+
+    assertThat(response, isValidationResponseWhich(allOf(
+      hasMessage("Open loan must have a user ID"),
+      hasParameter("id", loanId.toString()))));
+
+    assertThat("No loans from the batch should be stored",
+      loansClient.getAll().getTotalRecords(), is(0));
+  }
+
+  @Test
+  public void cannotCreateABatchWithMultipleOpenLoansForTheSameItem()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    final UUID itemId = UUID.randomUUID();
+
+    final JsonArray loans = new JsonArray()
+      .add(new LoanRequestBuilder().withItemId(itemId).open().create())
+      .add(new LoanRequestBuilder().withItemId(itemId).open().create());
+
+    final JsonResponse response = createBatch(loans);
+
+    assertThat(response, isValidationResponseWhich(allOf(
+      hasMessage("Cannot have more than one open loan for the same item"),
+      hasParameter("itemId", itemId.toString()))));
+
+    assertThat("No loans from the batch should be stored",
+      loansClient.getAll().getTotalRecords(), is(0));
+  }
+
+  @Test
+  public void cannotCreateABatchWithAnOpenLoanForAnItemWhichAlreadyHasOne()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    final UUID itemId = UUID.randomUUID();
+
+    loansClient.create(new LoanRequestBuilder().withItemId(itemId).open());
+
+    final JsonArray loans = new JsonArray()
+      .add(new LoanRequestBuilder().create())
+      .add(new LoanRequestBuilder().withItemId(itemId).open().create());
+
+    final JsonResponse response = createBatch(loans);
+
+    assertThat(response, isValidationResponseWhich(allOf(
+      hasMessage("Cannot have more than one open loan for the same item"),
+      hasParameter("itemId", itemId.toString()))));
+
+    assertThat("No loans from the batch should be stored",
+      loansClient.getAll().getTotalRecords(), is(1));
+  }
+
+  @Test
+  public void cannotCreateABatchWithTheSameLoanTwice()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    final UUID loanId = UUID.randomUUID();
+
+    final JsonArray loans = new JsonArray()
+      .add(new LoanRequestBuilder().withId(loanId).closed().create())
+      .add(new LoanRequestBuilder().withId(loanId).closed().create());
+
+    final JsonResponse response = createBatch(loans);
+
+    assertThat(response, isValidationResponseWhich(allOf(
+      hasMessage("Cannot have more than one loan with the same ID in a batch"),
+      hasParameter("id", loanId.toString()))));
+
+    assertThat("No loans from the batch should be stored",
+      loansClient.getAll().getTotalRecords(), is(0));
+  }
+
+  @Test
+  public void cannotCreateABatchWithALoanIdWhichIsNotAUUID()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    final JsonArray loans = new JsonArray()
+      .add(new LoanRequestBuilder().closed().create())
+      .add(new LoanRequestBuilder().closed().create().put("id", "not-a-uuid"));
+
+    final JsonResponse response = createBatch(loans);
+
+    assertThat(response, isValidationResponseWhich(allOf(
+      hasMessage("Loan ID must be a UUID"),
+      hasParameter("id", "not-a-uuid"))));
+
+    assertThat("No loans from the batch should be stored",
+      loansClient.getAll().getTotalRecords(), is(0));
+  }
+
+  @Test
+  public void canCreateABatchWithAClosedLoanForAnItemWhichHasAnOpenLoan()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    final UUID itemId = UUID.randomUUID();
+
+    loansClient.create(new LoanRequestBuilder().withItemId(itemId).open());
+
+    final JsonArray loans = new JsonArray()
+      .add(new LoanRequestBuilder().withItemId(itemId).closed().create());
+
+    assertThat(createBatch(loans), isCreated());
+
+    assertThat(loansClient.getAll().getTotalRecords(), is(2));
+  }
+
+  private JsonResponse createBatch(JsonArray loans)
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    final CompletableFuture<JsonResponse> postCompleted = new CompletableFuture<>();
+
+    final JsonObject batch = new JsonObject()
+      .put("loans", loans)
+      .put("totalRecords", loans.size());
+
+    client.post(loanStorageUrl("/batch"), batch, StorageTestSuite.TENANT_ID,
+      ResponseHandler.json(postCompleted));
+
+    return postCompleted.get(20, TimeUnit.SECONDS);
+  }
+}
@@ -0,0 +1,147 @@
+package org.folio.rest.api.loans;
+
+import static org.folio.rest.support.http.InterfaceUrls.loanStorageUrl;
+import static org.folio.rest.support.matchers.HttpResponseStatusCodeMatchers.isOk;
+import static org.folio.rest.support.matchers.ValidationErrorMatchers.hasMessage;
+import static org.folio.rest.support.matchers.ValidationErrorMatchers.hasParameter;
+import static org.folio.rest.support.matchers.ValidationResponseMatchers.isValidationResponseWhich;
+import static org.hamcrest.CoreMatchers.allOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
+import static org.hamcrest.junit.MatcherAssert.assertThat;
+
+import java.net.MalformedURLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+import org.folio.rest.api.StorageTestSuite;
+import org.folio.rest.support.ApiTests;
+import org.folio.rest.support.JsonArrayHelper;
+import org.folio.rest.support.JsonResponse;
+import org.folio.rest.support.ResponseHandler;
+import org.folio.rest.support.builders.LoanRequestBuilder;
+import org.folio.rest.support.http.AssertingRecordClient;
+import org.folio.rest.support.http.InterfaceUrls;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+public class LoansByIdsApiTest extends ApiTests {
+  private final AssertingRecordClient loansClient = new AssertingRecordClient(
+    client, StorageTestSuite.TENANT_ID, InterfaceUrls::loanStorageUrl);
+
+  @Before
+  public void beforeEach()
+    throws MalformedURLException {
+
+    StorageTestSuite.deleteAll(loanStorageUrl());
+  }
+
+  @After
+  public void checkIdsAfterEach() {
+    StorageTestSuite.checkForMismatchedIDs("loan");
+  }
+
+  @Test
+  public void loansAreProvidedInTheOrderOfTheIds()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    final List<String> ids = new ArrayList<>();
+
+    for (int index = 0; index < 200; index++) {
+      ids.add(loansClient.create(new LoanRequestBuilder()).getId());
+    }
+
+    Collections.shuffle(ids);
+
+    final JsonResponse response = fetchByIds(ids);
+
+    assertThat(response, isOk());
+    assertThat(response.getJson().getInteger("totalRecords"), is(200));
+    assertThat(idsFrom(response), is(ids));
+  }
+
+  @Test
+  public void loansWhichDoNotExistAreLeftOut()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    final String firstId = loansClient.create(new LoanRequestBuilder()).getId();
+    final String secondId = loansClient.create(new LoanRequestBuilder()).getId();
+
+    final JsonResponse response = fetchByIds(Arrays.asList(
+      secondId, UUID.randomUUID().toString(), firstId));
+
+    assertThat(response, isOk());
+    assertThat(idsFrom(response), contains(secondId, firstId));
+  }
+
+  @Test
+  public void repeatedIdsOnlyProvideTheLoanOnce()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    final String id = loansClient.create(new LoanRequestBuilder()).getId();
+
+    final JsonResponse response = fetchByIds(Arrays.asList(
+      id, id.toUpperCase()));
+
+    assertThat(response, isOk());
+    assertThat(idsFrom(response), contains(id));
+  }
+
+  @Test
+  public void cannotFetchLoansUsingIdsWhichAreNotUUIDs()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    final String id = loansClient.create(new LoanRequestBuilder()).getId();
+
+    final JsonResponse response = fetchByIds(Arrays.asList(
+      id, "not-a-uuid"));
+
+    assertThat(response, isValidationResponseWhich(allOf(
+      hasMessage("id is not a valid UUID"),
+      hasParameter("ids", "not-a-uuid"))));
+  }
+
+  private JsonResponse fetchByIds(List<String> ids)
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    final CompletableFuture<JsonResponse> postCompleted = new CompletableFuture<>();
+
+    client.post(loanStorageUrl("/by-ids"), new JsonObject().put("ids", new JsonArray(ids)),
+      StorageTestSuite.TENANT_ID, ResponseHandler.json(postCompleted));
+
+    return postCompleted.get(5, TimeUnit.SECONDS);
+  }
+
+  private List<String> idsFrom(JsonResponse response) {
+    return JsonArrayHelper.toList(response.getJson(), "loans").stream()
+      .map(loan -> loan.getString("id"))
+      .collect(Collectors.toList());
+  }
+}
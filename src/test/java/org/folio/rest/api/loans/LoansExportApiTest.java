@@ -0,0 +1,268 @@
+package org.folio.rest.api.loans;
+
+import static org.folio.rest.support.http.InterfaceUrls.loanStorageUrl;
+import static org.folio.rest.support.matchers.HttpResponseStatusCodeMatchers.isCreated;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.collection.IsIterableContainingInAnyOrder.containsInAnyOrder;
+import static org.hamcrest.junit.MatcherAssert.assertThat;
+
+import java.io.UnsupportedEncodingException;
+import java.net.HttpURLConnection;
+import java.net.MalformedURLException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+import org.folio.rest.api.StorageTestSuite;
+import org.folio.rest.support.ApiTests;
+import org.folio.rest.support.JsonResponse;
+import org.folio.rest.support.ResponseHandler;
+import org.folio.rest.support.TextResponse;
+import org.folio.rest.support.builders.LoanRequestBuilder;
+import org.folio.rest.support.http.AssertingRecordClient;
+import org.folio.rest.support.http.InterfaceUrls;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+public class LoansExportApiTest extends ApiTests {
+  private final AssertingRecordClient loansClient = new AssertingRecordClient(
+    client, StorageTestSuite.TENANT_ID, InterfaceUrls::loanStorageUrl);
+
+  @Before
+  public void beforeEach()
+    throws MalformedURLException {
+
+    StorageTestSuite.deleteAll(loanStorageUrl());
+  }
+
+  @After
+  public void checkIdsAfterEach() {
+    StorageTestSuite.checkForMismatchedIDs("loan");
+  }
+
+  @Test
+  public void canExportAllLoans()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException,
+    UnsupportedEncodingException {
+
+    final String firstLoanId = loansClient.create(new LoanRequestBuilder()).getId();
+    final String secondLoanId = loansClient.create(new LoanRequestBuilder()).getId();
+
+    final List<JsonObject> exportedLoans = exportLoans(null);
+
+    assertThat(exportedLoans.size(), is(2));
+
+    assertThat(exportedLoans.stream()
+      .map(loan -> loan.getString("id"))
+      .collect(Collectors.toList()),
+      containsInAnyOrder(firstLoanId, secondLoanId));
+  }
+
+  @Test
+  public void canExportLoansMatchingAQuery()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException,
+    UnsupportedEncodingException {
+
+    final UUID userId = UUID.randomUUID();
+
+    final String closedLoanId = loansClient.create(new LoanRequestBuilder()
+      .withUserId(userId)
+      .closed()).getId();
+
+    loansClient.create(new LoanRequestBuilder()
+      .withUserId(userId)
+      .open());
+
+    loansClient.create(new LoanRequestBuilder().closed());
+
+    final List<JsonObject> exportedLoans = exportLoans(String.format(
+      "userId==%s and status.name==Closed", userId));
+
+    assertThat(exportedLoans.size(), is(1));
+    assertThat(exportedLoans.get(0).getString("id"), is(closedLoanId));
+  }
+
+  @Test
+  public void exportIncludesLoansBeyondTheFirstChunk()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException,
+    UnsupportedEncodingException {
+
+    final JsonArray loans = new JsonArray();
+
+    for (int index = 0; index < 2500; index++) {
+      loans.add(new LoanRequestBuilder().create());
+    }
+
+    final CompletableFuture<JsonResponse> batchCompleted = new CompletableFuture<>();
+
+    client.post(loanStorageUrl("/batch"),
+      new JsonObject().put("loans", loans).put("totalRecords", loans.size()),
+      StorageTestSuite.TENANT_ID, ResponseHandler.json(batchCompleted));
+
+    assertThat(batchCompleted.get(20, TimeUnit.SECONDS), isCreated());
+
+    final List<JsonObject> exportedLoans = exportLoans(null);
+
+    assertThat(exportedLoans.size(), is(2500));
+
+    assertThat("Each loan should only be exported once",
+      exportedLoans.stream()
+        .map(loan -> loan.getString("id"))
+        .distinct()
+        .count(), is(2500L));
+  }
+
+  @Test
+  public void exportIsLimitedToAPageOfLoansPerResponse()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException,
+    UnsupportedEncodingException {
+
+    final JsonArray loans = new JsonArray();
+
+    for (int index = 0; index < 1500; index++) {
+      loans.add(new LoanRequestBuilder().create());
+    }
+
+    final CompletableFuture<JsonResponse> batchCompleted = new CompletableFuture<>();
+
+    client.post(loanStorageUrl("/batch"),
+      new JsonObject().put("loans", loans).put("totalRecords", loans.size()),
+      StorageTestSuite.TENANT_ID, ResponseHandler.json(batchCompleted));
+
+    assertThat(batchCompleted.get(20, TimeUnit.SECONDS), isCreated());
+
+    final TextResponse firstPage = attemptExport(null);
+
+    assertThat(firstPage.getStatusCode(), is(HttpURLConnection.HTTP_OK));
+    assertThat(loansIn(firstPage).size(), is(1000));
+    assertThat(firstPage.getHeader("X-Continuation-Token"), is(notNullValue()));
+
+    final TextResponse lastPage = attemptExport(null,
+      firstPage.getHeader("X-Continuation-Token"));
+
+    assertThat(lastPage.getStatusCode(), is(HttpURLConnection.HTTP_OK));
+    assertThat(loansIn(lastPage).size(), is(500));
+    assertThat(lastPage.getHeader("X-Continuation-Token"), is(nullValue()));
+  }
+
+  @Test
+  public void cannotExportLoansWithInvalidContinuationToken()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException,
+    UnsupportedEncodingException {
+
+    final TextResponse response = attemptExport(null, "not-a-token");
+
+    assertThat(response.getStatusCode(), is(HttpURLConnection.HTTP_BAD_REQUEST));
+  }
+
+  @Test
+  public void cannotExportLoansWithInvalidQuery()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException,
+    UnsupportedEncodingException {
+
+    final TextResponse response = attemptExport("userId==");
+
+    assertThat(response.getStatusCode(), is(HttpURLConnection.HTTP_BAD_REQUEST));
+  }
+
+  private List<JsonObject> exportLoans(String query)
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException,
+    UnsupportedEncodingException {
+
+    final List<JsonObject> exportedLoans = new ArrayList<>();
+
+    String continuationToken = null;
+
+    do {
+      final TextResponse response = attemptExport(query, continuationToken);
+
+      assertThat(String.format("Failed to export loans: %s", response.getBody()),
+        response.getStatusCode(), is(HttpURLConnection.HTTP_OK));
+
+      exportedLoans.addAll(loansIn(response));
+
+      continuationToken = response.getHeader("X-Continuation-Token");
+    } while(continuationToken != null);
+
+    return exportedLoans;
+  }
+
+  private List<JsonObject> loansIn(TextResponse response) {
+    return Arrays.stream(response.getBody().split("\n"))
+      .filter(line -> !line.isEmpty())
+      .map(JsonObject::new)
+      .collect(Collectors.toList());
+  }
+
+  private TextResponse attemptExport(String query)
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException,
+    UnsupportedEncodingException {
+
+    return attemptExport(query, null);
+  }
+
+  private TextResponse attemptExport(String query, String continuationToken)
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException,
+    UnsupportedEncodingException {
+
+    final CompletableFuture<TextResponse> exportCompleted = new CompletableFuture<>();
+
+    final StringJoiner queryParameters = new StringJoiner("&");
+
+    if(query != null) {
+      queryParameters.add("query=" + URLEncoder.encode(query, "UTF-8"));
+    }
+
+    if(continuationToken != null) {
+      queryParameters.add("continuationToken="
+        + URLEncoder.encode(continuationToken, "UTF-8"));
+    }
+
+    client.get(StorageTestSuite.storageUrl("/loan-storage/export/loans"),
+      queryParameters.toString(), StorageTestSuite.TENANT_ID,
+      ResponseHandler.text(exportCompleted));
+
+    return exportCompleted.get(30, TimeUnit.SECONDS);
+  }
+}
@@ -0,0 +1,288 @@
+package org.folio.rest.api.loans;
+
+import static org.folio.rest.support.http.InterfaceUrls.loanStorageUrl;
+import static org.folio.rest.support.matchers.HttpResponseStatusCodeMatchers.isBadRequest;
+import static org.folio.rest.support.matchers.HttpResponseStatusCodeMatchers.isOk;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.collection.IsIterableContainingInAnyOrder.containsInAnyOrder;
+import static org.hamcrest.junit.MatcherAssert.assertThat;
+import static org.hamcrest.number.OrderingComparison.greaterThanOrEqualTo;
+
+import java.io.UnsupportedEncodingException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+import org.folio.rest.api.StorageTestSuite;
+import org.folio.rest.support.ApiTests;
+import org.folio.rest.support.JsonArrayHelper;
+import org.folio.rest.support.JsonResponse;
+import org.folio.rest.support.ResponseHandler;
+import org.folio.rest.support.builders.LoanRequestBuilder;
+import org.folio.rest.support.http.AssertingRecordClient;
+import org.folio.rest.support.http.InterfaceUrls;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.vertx.core.json.JsonObject;
+
+public class LoansPagingApiTest extends ApiTests {
+  private final AssertingRecordClient loansClient = new AssertingRecordClient(
+    client, StorageTestSuite.TENANT_ID, InterfaceUrls::loanStorageUrl);
+
+  @Before
+  public void beforeEach()
+    throws MalformedURLException {
+
+    StorageTestSuite.deleteAll(loanStorageUrl());
+  }
+
+  @After
+  public void checkIdsAfterEach() {
+    StorageTestSuite.checkForMismatchedIDs("loan");
+  }
+
+  @Test
+  public void canPageThroughAllLoansUsingContinuationTokens()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException,
+    UnsupportedEncodingException {
+
+    final List<String> createdIds = new ArrayList<>();
+
+    for (int index = 0; index < 7; index++) {
+      createdIds.add(loansClient.create(new LoanRequestBuilder()).getId());
+    }
+
+    final List<String> fetchedIds = fetchAllIds(loanStorageUrl(), null);
+
+    assertThat(fetchedIds.size(), is(7));
+    assertThat(fetchedIds, containsInAnyOrder(createdIds.toArray()));
+  }
+
+  @Test
+  public void canPageThroughLoansMatchingAQuery()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException,
+    UnsupportedEncodingException {
+
+    final UUID userId = UUID.randomUUID();
+
+    final List<String> loansForUser = new ArrayList<>();
+
+    for (int index = 0; index < 5; index++) {
+      loansForUser.add(loansClient.create(new LoanRequestBuilder()
+        .withUserId(userId)).getId());
+
+      loansClient.create(new LoanRequestBuilder());
+    }
+
+    final List<String> fetchedIds = fetchAllIds(loanStorageUrl(),
+      String.format("userId==%s", userId));
+
+    assertThat(fetchedIds, containsInAnyOrder(loansForUser.toArray()));
+  }
+
+  @Test
+  public void canPageThroughLoanHistoryUsingContinuationTokens()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException,
+    UnsupportedEncodingException {
+
+    final UUID userId = UUID.randomUUID();
+
+    for (int index = 0; index < 5; index++) {
+      loansClient.create(new LoanRequestBuilder().withUserId(userId));
+    }
+
+    final List<String> fetchedIds = fetchAllIds(
+      StorageTestSuite.storageUrl("/loan-storage/loan-history"),
+      String.format("userId==%s", userId));
+
+    assertThat("Should be one history entry for each created loan",
+      fetchedIds.size(), is(5));
+  }
+
+  @Test
+  public void canCountEveryMatchingLoanWhenUsingAContinuationToken()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException,
+    UnsupportedEncodingException {
+
+    for (int index = 0; index < 7; index++) {
+      loansClient.create(new LoanRequestBuilder());
+    }
+
+    final JsonResponse firstPage = getPage(loanStorageUrl(), null, "start",
+      "exact");
+
+    assertThat(firstPage, isOk());
+    assertThat(firstPage.getJson().getJsonArray("loans").size(), is(2));
+    assertThat(firstPage.getJson().getInteger("totalRecords"), is(7));
+
+    final JsonResponse secondPage = getPage(loanStorageUrl(), null,
+      firstPage.getJson().getString("continuationToken"), "exact");
+
+    assertThat(secondPage, isOk());
+    assertThat(secondPage.getJson().getInteger("totalRecords"), is(7));
+  }
+
+  @Test
+  public void canEstimateMatchingLoansWhenUsingAContinuationToken()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException,
+    UnsupportedEncodingException {
+
+    for (int index = 0; index < 7; index++) {
+      loansClient.create(new LoanRequestBuilder());
+    }
+
+    final JsonResponse response = getPage(loanStorageUrl(), null, "start",
+      "estimated");
+
+    assertThat(response, isOk());
+    assertThat(response.getJson().getJsonArray("loans").size(), is(2));
+    assertThat(response.getJson().getInteger("totalRecords"),
+      is(greaterThanOrEqualTo(0)));
+  }
+
+  @Test
+  public void lastPageHasNoContinuationToken()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException,
+    UnsupportedEncodingException {
+
+    loansClient.create(new LoanRequestBuilder());
+
+    final JsonResponse response = getPage(loanStorageUrl(), null, "start");
+
+    assertThat(response, isOk());
+    assertThat(response.getJson().getString("continuationToken"), is(nullValue()));
+  }
+
+  @Test
+  public void cannotUseAnInvalidContinuationToken()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException,
+    UnsupportedEncodingException {
+
+    assertThat(getPage(loanStorageUrl(), null, "not-a-token"), isBadRequest());
+  }
+
+  @Test
+  public void cannotSortWhenUsingAContinuationToken()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException,
+    UnsupportedEncodingException {
+
+    assertThat(getPage(loanStorageUrl(), "cql.allRecords=1 sortBy loanDate",
+      "start"), isBadRequest());
+  }
+
+  private List<String> fetchAllIds(URL collectionUrl, String query)
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException,
+    UnsupportedEncodingException {
+
+    final List<String> ids = new ArrayList<>();
+
+    String continuationToken = "start";
+
+    while(continuationToken != null) {
+      final JsonResponse response = getPage(collectionUrl, query,
+        continuationToken);
+
+      assertThat(String.format("Failed to get page: %s", response.getBody()),
+        response, isOk());
+
+      final JsonObject page = response.getJson();
+
+      ids.addAll(JsonArrayHelper.toList(page.getJsonArray("loans")).stream()
+        .map(loan -> loan.getString("id"))
+        .collect(Collectors.toList()));
+
+      assertThat("Matching records should not be counted for each page",
+        page.getInteger("totalRecords"), is(-1));
+
+      continuationToken = page.getString("continuationToken");
+
+      if(continuationToken != null) {
+        assertThat("Only a full page should have a continuation token",
+          page.getJsonArray("loans").size(), is(2));
+      }
+    }
+
+    return ids;
+  }
+
+  private JsonResponse getPage(
+    URL collectionUrl,
+    String query,
+    String continuationToken)
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException,
+    UnsupportedEncodingException {
+
+    return getPage(collectionUrl, query, continuationToken, null);
+  }
+
+  private JsonResponse getPage(
+    URL collectionUrl,
+    String query,
+    String continuationToken,
+    String totalRecords)
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException,
+    UnsupportedEncodingException {
+
+    final CompletableFuture<JsonResponse> getCompleted = new CompletableFuture<>();
+
+    String parameters = String.format("limit=2&continuationToken=%s",
+      URLEncoder.encode(continuationToken, "UTF-8"));
+
+    if(query != null) {
+      parameters += "&query=" + URLEncoder.encode(query, "UTF-8");
+    }
+
+    if(totalRecords != null) {
+      parameters += "&totalRecords=" + totalRecords;
+    }
+
+    client.get(collectionUrl, parameters, StorageTestSuite.TENANT_ID,
+      ResponseHandler.json(getCompleted));
+
+    return getCompleted.get(5, TimeUnit.SECONDS);
+  }
+}
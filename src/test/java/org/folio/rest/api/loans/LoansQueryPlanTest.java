@@ -0,0 +1,202 @@
+package org.folio.rest.api.loans;
+
+import static org.folio.rest.support.database.QueryPlanner.planFor;
+import static org.folio.rest.support.database.QueryPlanner.planForSql;
+import static org.folio.rest.support.matchers.QueryPlanMatchers.doesNotSort;
+import static org.folio.rest.support.matchers.QueryPlanMatchers.usesIndex;
+import static org.hamcrest.junit.MatcherAssert.assertThat;
+
+import java.net.MalformedURLException;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import org.folio.rest.api.StorageTestSuite;
+import org.folio.rest.support.ApiTests;
+import org.folio.rest.support.builders.LoanRequestBuilder;
+import org.folio.rest.support.http.AssertingRecordClient;
+import org.folio.rest.support.http.InterfaceUrls;
+import org.folio.support.ClosedLoanAnonymizer;
+import org.folio.support.LoanHistoryLookup;
+import org.folio.support.ModuleSchema;
+import org.junit.Test;
+import org.z3950.zing.cql.cql2pgjson.CQL2PgJSONException;
+
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Checks that the queries most often made for loans can be answered
+ * using the indexes declared in the schema, rather than reading every loan
+ */
+public class LoansQueryPlanTest extends ApiTests {
+  private static final String LOAN_TABLE = "loan";
+  //Either the btree or the gin index declared for userId in the schema
+  private static final String USER_ID_INDEX = "loan_userid_idx(_gin)?";
+
+  //An index of a partition by property and created date, the name is chosen
+  //by PostgreSQL for partitions created with the indexes of audit_loan
+  //(e.g. audit_loan_2018_11_expr_created_date_idx1), so the property is
+  //only checked in the condition
+  private static final String HISTORY_INDEX =
+    "audit_loan_\\d{4}_\\d{2}_.*created_date_idx\\d*";
+
+  private final AssertingRecordClient loansClient = new AssertingRecordClient(
+    client, StorageTestSuite.TENANT_ID, InterfaceUrls::loanStorageUrl);
+
+  @Test
+  public void findingLoansForAUserUsesAnIndex()
+    throws CQL2PgJSONException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    assertThat(planFor(LOAN_TABLE, String.format("userId==%s", UUID.randomUUID())),
+      usesIndex(USER_ID_INDEX, "userId"));
+  }
+
+  @Test
+  public void findingOpenLoansForAUserUsesAnIndex()
+    throws CQL2PgJSONException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    assertThat(planFor(LOAN_TABLE, String.format(
+      "userId==%s and status.name==Open", UUID.randomUUID())),
+      usesIndex(USER_ID_INDEX, "userId"));
+  }
+
+  @Test
+  public void findingLoansForAUserByWordUsesAnIndex()
+    throws CQL2PgJSONException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    assertThat(planFor(LOAN_TABLE, String.format("userId=%s", UUID.randomUUID())),
+      usesIndex(USER_ID_INDEX, "userId"));
+  }
+
+  @Test
+  public void findingLoansForAnItemUsesAnIndex()
+    throws CQL2PgJSONException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    assertThat(planFor(LOAN_TABLE, String.format("itemId==%s", UUID.randomUUID())),
+      usesIndex("loan_itemid_idx(_gin)?", "itemId"));
+  }
+
+  @Test
+  public void findingLoansByStatusUsesAnIndex()
+    throws CQL2PgJSONException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    assertThat(planFor(LOAN_TABLE, "status.name==Closed"),
+      usesIndex("loan_status_name_idx", "name"));
+  }
+
+  @Test
+  public void findingOverdueLoansUsesAnIndex()
+    throws CQL2PgJSONException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    assertThat(planFor(LOAN_TABLE, "dueDate<\"2018-12-01T00:00:00.000+0000\""),
+      usesIndex("loan_duedate_idx", "dueDate"));
+  }
+
+  @Test
+  public void findingLoansForALoanPolicyUsesAnIndex()
+    throws CQL2PgJSONException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    assertThat(planFor(LOAN_TABLE, String.format("loanPolicyId==%s",
+      UUID.randomUUID())), usesIndex("loan_loanpolicyid_idx", "loanPolicyId"));
+  }
+
+  @Test
+  public void findingLoansForAServicePointUsesAnIndex()
+    throws CQL2PgJSONException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    assertThat(planFor(LOAN_TABLE, String.format("checkoutServicePointId==%s",
+      UUID.randomUUID())),
+      usesIndex("loan_checkoutservicepointid_idx", "checkoutServicePointId"));
+
+    assertThat(planFor(LOAN_TABLE, String.format("checkinServicePointId==%s",
+      UUID.randomUUID())),
+      usesIndex("loan_checkinservicepointid_idx", "checkinServicePointId"));
+  }
+
+  @Test
+  public void anonymizingClosedLoansForAUserUsesIndexes()
+    throws InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    final String anonymizationSql = ClosedLoanAnonymizer
+      .anonymizationSql(StorageTestSuite.TENANT_ID)
+      .replace("?", String.format("'%s'", UUID.randomUUID()));
+
+    assertThat(planForSql(anonymizationSql),
+      usesIndex("loan_closed_userid_idx", "userId"));
+  }
+
+  @Test
+  public void findingHistoryForALoanUsesAnIndexInOrder()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    createLoanSoHistoryIsPartitioned();
+
+    final JsonObject plan = planForSql(historySql("id"));
+
+    assertThat(plan, usesIndex(HISTORY_INDEX, "id"));
+    assertThat(plan, doesNotSort());
+  }
+
+  @Test
+  public void findingHistoryForAUserUsesAnIndexInOrder()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    createLoanSoHistoryIsPartitioned();
+
+    final JsonObject plan = planForSql(historySql("userId"));
+
+    assertThat(plan, usesIndex(HISTORY_INDEX, "userId"));
+    assertThat(plan, doesNotSort());
+  }
+
+  //History is only read from partitions, so at least one needs to exist
+  private void createLoanSoHistoryIsPartitioned()
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    loansClient.create(new LoanRequestBuilder());
+  }
+
+  private static String historySql(String property) {
+    return LoanHistoryLookup
+      .pageSql(ModuleSchema.schemaFor(StorageTestSuite.TENANT_ID),
+        property)
+      .replaceFirst("\\?", String.format("'%s'", UUID.randomUUID()))
+      .replaceFirst("\\?", "10")
+      .replaceFirst("\\?", "0");
+  }
+}
@@ -3,6 +3,8 @@ package org.folio.rest.support;
 import java.io.UnsupportedEncodingException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.Collections;
+import java.util.Map;
 import java.util.UUID;
 
 import io.vertx.core.Handler;
@@ -96,11 +98,32 @@ public class HttpClient {
                   String userId,
                   Handler<HttpClientResponse> responseHandler) {
 
+    put(url, body, tenantId, userId, Collections.emptyMap(), responseHandler);
+  }
+
+  public void put(URL url,
+                  Object body,
+                  String tenantId,
+                  Map<String, String> additionalHeaders,
+                  Handler<HttpClientResponse> responseHandler) {
+
+    put(url, body, tenantId, defaultUserId, additionalHeaders, responseHandler);
+  }
+
+  private void put(URL url,
+                   Object body,
+                   String tenantId,
+                   String userId,
+                   Map<String, String> additionalHeaders,
+                   Handler<HttpClientResponse> responseHandler) {
+
     HttpClientRequest request = client.putAbs(url.toString(), responseHandler);
 
     request.headers().add("Accept","application/json, text/plain");
     request.headers().add("Content-type","application/json");
 
+    additionalHeaders.forEach(request.headers()::add);
+
     if(tenantId != null) {
       request.headers().add(TENANT_HEADER, tenantId);
     }
@@ -139,10 +162,28 @@ public class HttpClient {
                   String tenantId,
                   Handler<HttpClientResponse> responseHandler) {
 
+    get(url, tenantId, Collections.emptyMap(), responseHandler);
+  }
+
+  public void get(URL url,
+                  String tenantId,
+                  Map<String, String> additionalHeaders,
+                  Handler<HttpClientResponse> responseHandler) {
+
+    get(url.toString(), tenantId, additionalHeaders, responseHandler);
+  }
+
+  private void get(String url,
+                   String tenantId,
+                   Map<String, String> additionalHeaders,
+                   Handler<HttpClientResponse> responseHandler) {
+
     HttpClientRequest request = client.getAbs(url, responseHandler);
 
     request.headers().add("Accept","application/json");
 
+    additionalHeaders.forEach(request.headers()::add);
+
     if(tenantId != null) {
       request.headers().add(TENANT_HEADER, tenantId);
     }
@@ -1,13 +1,25 @@
 package org.folio.rest.support;
 
+import io.vertx.core.MultiMap;
+
 public class Response {
   private final int statusCode;
+  private final MultiMap headers;
 
   public Response(int statusCode) {
+    this(statusCode, MultiMap.caseInsensitiveMultiMap());
+  }
+
+  public Response(int statusCode, MultiMap headers) {
     this.statusCode = statusCode;
+    this.headers = headers;
   }
 
   public int getStatusCode() {
     return statusCode;
   }
+
+  public String getHeader(String name) {
+    return headers.get(name);
+  }
 }
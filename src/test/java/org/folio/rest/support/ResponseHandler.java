@@ -17,7 +17,7 @@ public class ResponseHandler {
       try {
         int statusCode = response.statusCode();
 
-        completed.complete(new Response(statusCode));
+        completed.complete(new Response(statusCode, response.headers()));
       }
       catch(Exception e) {
         completed.completeExceptionally(e);
@@ -36,7 +36,7 @@ public class ResponseHandler {
 
           log.info(String.format("Response: '%s'", body));
 
-          completed.complete(new JsonResponse(statusCode, body));
+          completed.complete(new JsonResponse(statusCode, body, response.headers()));
 
         } catch(Exception e) {
           completed.completeExceptionally(e);
@@ -57,7 +57,7 @@ public class ResponseHandler {
 
             log.info(String.format("Response: '%s'", body));
 
-            completed.complete(new TextResponse(statusCode, body));
+            completed.complete(new TextResponse(statusCode, body, response.headers()));
 
           } catch (Exception e) {
             completed.completeExceptionally(e);
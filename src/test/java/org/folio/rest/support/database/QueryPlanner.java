@@ -0,0 +1,89 @@
+package org.folio.rest.support.database;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.folio.rest.api.StorageTestSuite;
+import org.folio.rest.persist.PostgresClient;
+import org.folio.support.ModuleSchema;
+import org.z3950.zing.cql.cql2pgjson.CQL2PgJSON;
+import org.z3950.zing.cql.cql2pgjson.CQL2PgJSONException;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+/**
+ * Asks the database how it would execute the SQL generated for a CQL query,
+ * or another statement.
+ * Sequential scans are disabled whilst planning, so that a sequential scan
+ * in the plan means no index could be used, regardless of how many records
+ * are in the table when the test runs
+ */
+public class QueryPlanner {
+  private QueryPlanner() { }
+
+  public static JsonObject planFor(String table, String cqlQuery)
+    throws CQL2PgJSONException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    final String whereClause = new CQL2PgJSON(table + ".jsonb")
+      .toSql(cqlQuery).getWhere();
+
+    return planForSql(String.format(
+      "SELECT jsonb FROM %s WHERE %s",
+      ModuleSchema.qualifiedTableName(StorageTestSuite.TENANT_ID, table),
+      whereClause));
+  }
+
+  /**
+   * Statements which change records are only planned, not executed
+   */
+  public static JsonObject planForSql(String statement)
+    throws InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    final String sql = "EXPLAIN (FORMAT JSON) " + statement;
+
+    final PostgresClient postgresClient = PostgresClient.getInstance(
+      StorageTestSuite.getVertx(), StorageTestSuite.TENANT_ID);
+
+    final CompletableFuture<JsonObject> planned = new CompletableFuture<>();
+
+    postgresClient.startTx(connection -> {
+      if(connection.failed()) {
+        planned.completeExceptionally(connection.cause());
+        return;
+      }
+
+      postgresClient.execute(connection, "SET LOCAL enable_seqscan = off",
+        disabled -> {
+          if(disabled.failed()) {
+            postgresClient.rollbackTx(connection, rolledBack ->
+              planned.completeExceptionally(disabled.cause()));
+            return;
+          }
+
+          postgresClient.select(connection, sql, explained ->
+            postgresClient.rollbackTx(connection, rolledBack -> {
+              if(explained.failed()) {
+                planned.completeExceptionally(explained.cause());
+                return;
+              }
+
+              final Object plan = explained.result().getResults().get(0).getValue(0);
+
+              planned.complete(new JsonArray(plan.toString())
+                .getJsonObject(0)
+                .getJsonObject("Plan"));
+            }));
+        });
+    });
+
+    return planned.get(5, TimeUnit.SECONDS);
+  }
+}
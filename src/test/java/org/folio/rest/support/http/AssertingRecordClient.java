@@ -7,6 +7,7 @@ import static org.hamcrest.junit.MatcherAssert.assertThat;
 
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.Collections;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
@@ -122,6 +123,23 @@ public class AssertingRecordClient {
     return getCompleted.get(5, TimeUnit.SECONDS);
   }
 
+  public JsonResponse attemptGetById(UUID id, String ifNoneMatch)
+    throws MalformedURLException,
+    InterruptedException,
+    ExecutionException,
+    TimeoutException {
+
+    URL getInstanceUrl = urlMaker.combine(String.format("/%s", id));
+
+    CompletableFuture<JsonResponse> getCompleted = new CompletableFuture<>();
+
+    client.get(getInstanceUrl, StorageTestSuite.TENANT_ID,
+      Collections.singletonMap("If-None-Match", ifNoneMatch),
+      ResponseHandler.json(getCompleted));
+
+    return getCompleted.get(5, TimeUnit.SECONDS);
+  }
+
   public void createAtSpecificLocation(
     UUID id,
     JsonObject representation)
@@ -0,0 +1,148 @@
+package org.folio.rest.support.matchers;
+
+import java.util.regex.Pattern;
+
+import org.hamcrest.Description;
+import org.hamcrest.TypeSafeDiagnosingMatcher;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+
+public class QueryPlanMatchers {
+  /**
+   * @param indexName regular expression for the name of the index, e.g. to
+   * allow either of the indexes declared for a property, or the same index
+   * of each loan history partition
+   * @param indexedProperty property which must be part of the index condition,
+   * e.g. userId
+   */
+  public static TypeSafeDiagnosingMatcher<JsonObject> usesIndex(
+    String indexName,
+    String indexedProperty) {
+
+    return new TypeSafeDiagnosingMatcher<JsonObject>() {
+      @Override
+      public void describeTo(Description description) {
+        description.appendText("a query plan which uses index ")
+          .appendValue(indexName)
+          .appendText(" for ")
+          .appendValue(indexedProperty)
+          .appendText(" and does not scan the whole table");
+      }
+
+      @Override
+      protected boolean matchesSafely(JsonObject plan, Description description) {
+        if(hasSequentialScan(plan)) {
+          description.appendText("plan has a sequential scan: ")
+            .appendValue(plan.encodePrettily());
+
+          return false;
+        }
+
+        if(!usesIndexFor(plan, Pattern.compile(indexName),
+          String.format("'%s'", indexedProperty))) {
+
+          description.appendText("plan does not use the index for it: ")
+            .appendValue(plan.encodePrettily());
+
+          return false;
+        }
+
+        return true;
+      }
+    };
+  }
+
+  public static TypeSafeDiagnosingMatcher<JsonObject> doesNotSort() {
+    return new TypeSafeDiagnosingMatcher<JsonObject>() {
+      @Override
+      public void describeTo(Description description) {
+        description.appendText("a query plan which reads records already in order");
+      }
+
+      @Override
+      protected boolean matchesSafely(JsonObject plan, Description description) {
+        if(hasNodeOfType(plan, "Sort")) {
+          description.appendText("plan sorts records: ")
+            .appendValue(plan.encodePrettily());
+
+          return false;
+        }
+
+        return true;
+      }
+    };
+  }
+
+  public static TypeSafeDiagnosingMatcher<JsonObject> readsFrom(String relationName) {
+    return new TypeSafeDiagnosingMatcher<JsonObject>() {
+      @Override
+      public void describeTo(Description description) {
+        description.appendText("a query plan which reads from ")
+          .appendValue(relationName);
+      }
+
+      @Override
+      protected boolean matchesSafely(JsonObject plan, Description description) {
+        if(!readsFromRelation(plan, relationName)) {
+          description.appendText("plan does not read from it: ")
+            .appendValue(plan.encodePrettily());
+
+          return false;
+        }
+
+        return true;
+      }
+    };
+  }
+
+  private static boolean readsFromRelation(JsonObject plan, String relationName) {
+    if(relationName.equals(plan.getString("Relation Name"))) {
+      return true;
+    }
+
+    final JsonArray children = plan.getJsonArray("Plans", new JsonArray());
+
+    return children.stream()
+      .map(JsonObject.class::cast)
+      .anyMatch(child -> readsFromRelation(child, relationName));
+  }
+
+  //Property names are quoted in the condition, e.g. ((jsonb ->> 'userId'::text) = ...)
+  private static boolean usesIndexFor(
+    JsonObject plan,
+    Pattern indexName,
+    String quotedProperty) {
+
+    final String usedIndex = plan.getString("Index Name");
+    final String condition = plan.getString("Index Cond");
+
+    if(usedIndex != null && indexName.matcher(usedIndex).matches()
+      && condition != null && condition.contains(quotedProperty)) {
+
+      return true;
+    }
+
+    final JsonArray children = plan.getJsonArray("Plans", new JsonArray());
+
+    return children.stream()
+      .map(JsonObject.class::cast)
+      .anyMatch(child -> usesIndexFor(child, indexName, quotedProperty));
+  }
+
+  private static boolean hasSequentialScan(JsonObject plan) {
+    return hasNodeOfType(plan, "Seq Scan");
+  }
+
+  private static boolean hasNodeOfType(JsonObject plan, String nodeType) {
+    if(nodeType.equals(plan.getString("Node Type"))) {
+      return true;
+    }
+
+    final JsonArray children = plan.getJsonArray("Plans", new JsonArray());
+
+    return children.stream()
+      .map(JsonObject.class::cast)
+      .anyMatch(child -> hasNodeOfType(child, nodeType));
+  }
+}
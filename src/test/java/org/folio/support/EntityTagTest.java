@@ -0,0 +1,105 @@
+package org.folio.support;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import org.folio.rest.jaxrs.model.LoanPolicy;
+import org.junit.Test;
+
+public class EntityTagTest {
+  @Test
+  public void shouldBeTheSameForTheSameRepresentation() {
+    assertThat(EntityTag.of("rules"), is(EntityTag.of("rules")));
+  }
+
+  @Test
+  public void shouldDifferForDifferentRepresentations() {
+    assertThat(EntityTag.of("rules"), is(not(EntityTag.of("other rules"))));
+  }
+
+  @Test
+  public void shouldBeQuoted() {
+    final String tag = EntityTag.of("rules");
+
+    assertThat(tag.startsWith("\"") && tag.endsWith("\""), is(true));
+  }
+
+  @Test
+  public void shouldBeTheSameForEqualRecords() {
+    assertThat(EntityTag.ofRecord(new LoanPolicy().withId("policy").withName("name")),
+      is(EntityTag.ofRecord(new LoanPolicy().withId("policy").withName("name"))));
+  }
+
+  @Test
+  public void shouldDifferForChangedRecords() {
+    assertThat(EntityTag.ofRecord(new LoanPolicy().withId("policy").withName("name")),
+      is(not(EntityTag.ofRecord(new LoanPolicy().withId("policy").withName("other name")))));
+  }
+
+  @Test
+  public void shouldMatchSameTag() {
+    final String tag = EntityTag.of("rules");
+
+    assertThat(EntityTag.matches(tag, tag), is(true));
+  }
+
+  @Test
+  public void shouldMatchAnyTagInAList() {
+    final String tag = EntityTag.of("rules");
+
+    assertThat(EntityTag.matches(
+      EntityTag.of("old rules") + ", " + tag, tag), is(true));
+  }
+
+  @Test
+  public void shouldMatchWeakTag() {
+    final String tag = EntityTag.of("rules");
+
+    assertThat(EntityTag.matches("W/" + tag, tag), is(true));
+  }
+
+  @Test
+  public void shouldMatchWildcard() {
+    assertThat(EntityTag.matches("*", EntityTag.of("rules")), is(true));
+  }
+
+  @Test
+  public void shouldNotMatchDifferentTag() {
+    assertThat(EntityTag.matches(EntityTag.of("old rules"),
+      EntityTag.of("rules")), is(false));
+  }
+
+  @Test
+  public void shouldNotMatchWhenNoHeader() {
+    assertThat(EntityTag.matches(null, EntityTag.of("rules")), is(false));
+  }
+
+  @Test
+  public void versionTagShouldBeQuoted() {
+    assertThat(EntityTag.ofVersion(3), is("\"3\""));
+  }
+
+  @Test
+  public void shouldSatisfyMissingIfMatch() {
+    assertThat(EntityTag.satisfies(null, EntityTag.ofVersion(3)), is(true));
+  }
+
+  @Test
+  public void shouldSatisfyIfMatchWithSameTag() {
+    assertThat(EntityTag.satisfies(EntityTag.ofVersion(3),
+      EntityTag.ofVersion(3)), is(true));
+  }
+
+  @Test
+  public void shouldNotSatisfyIfMatchWithDifferentTag() {
+    assertThat(EntityTag.satisfies(EntityTag.ofVersion(2),
+      EntityTag.ofVersion(3)), is(false));
+  }
+
+  @Test
+  public void shouldNotSatisfyIfMatchWithWeakTag() {
+    assertThat(EntityTag.satisfies("W/" + EntityTag.ofVersion(3),
+      EntityTag.ofVersion(3)), is(false));
+  }
+}
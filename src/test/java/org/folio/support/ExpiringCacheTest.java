@@ -0,0 +1,153 @@
+package org.folio.support;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+public class ExpiringCacheTest {
+  private final AtomicLong now = new AtomicLong(1000);
+
+  private final ExpiringCache<String, String> cache = new ExpiringCache<>(
+    10, TimeUnit.SECONDS, now::get);
+
+  @Test
+  public void shouldProvideValueBeforeItExpires() {
+    cache.put("tenant", "value");
+
+    now.addAndGet(9999);
+
+    assertThat(cache.get("tenant"), is("value"));
+  }
+
+  @Test
+  public void shouldNotProvideValueOnceExpired() {
+    cache.put("tenant", "value");
+
+    now.addAndGet(10000);
+
+    assertThat(cache.get("tenant"), is(nullValue()));
+  }
+
+  @Test
+  public void shouldNotProvideValueOnceInvalidated() {
+    cache.put("tenant", "value");
+
+    cache.invalidate("tenant");
+
+    assertThat(cache.get("tenant"), is(nullValue()));
+  }
+
+  @Test
+  public void shouldKeepValuesForDifferentKeysSeparate() {
+    cache.put("tenant", "value");
+    cache.put("other_tenant", "other value");
+
+    cache.invalidate("other_tenant");
+
+    assertThat(cache.get("tenant"), is("value"));
+  }
+
+  @Test
+  public void shouldNotProvideAnyValueOnceAllInvalidated() {
+    cache.put("tenant", "value");
+    cache.put("other_tenant", "other value");
+
+    cache.invalidateAll();
+
+    assertThat(cache.get("tenant"), is(nullValue()));
+    assertThat(cache.get("other_tenant"), is(nullValue()));
+  }
+
+  @Test
+  public void shouldDiscardValueClosestToExpiringWhenFull() {
+    final ExpiringCache<String, String> boundedCache = new ExpiringCache<>(
+      10, TimeUnit.SECONDS, 2, now::get);
+
+    boundedCache.put("first", "first value");
+    now.addAndGet(1000);
+    boundedCache.put("second", "second value");
+    now.addAndGet(1000);
+    boundedCache.put("third", "third value");
+
+    assertThat(boundedCache.size(), is(2));
+    assertThat(boundedCache.get("first"), is(nullValue()));
+    assertThat(boundedCache.get("second"), is("second value"));
+    assertThat(boundedCache.get("third"), is("third value"));
+  }
+
+  @Test
+  public void shouldDiscardExpiredValuesBeforeOthersWhenFull() {
+    final ExpiringCache<String, String> boundedCache = new ExpiringCache<>(
+      10, TimeUnit.SECONDS, 2, now::get);
+
+    boundedCache.put("first", "first value");
+    boundedCache.put("second", "second value");
+    now.addAndGet(10000);
+    boundedCache.put("third", "third value");
+
+    assertThat(boundedCache.size(), is(1));
+    assertThat(boundedCache.get("third"), is("third value"));
+  }
+
+  @Test
+  public void shouldReplaceValueWhenFull() {
+    final ExpiringCache<String, String> boundedCache = new ExpiringCache<>(
+      10, TimeUnit.SECONDS, 2, now::get);
+
+    boundedCache.put("first", "first value");
+    boundedCache.put("second", "second value");
+    boundedCache.put("first", "replaced value");
+
+    assertThat(boundedCache.get("first"), is("replaced value"));
+    assertThat(boundedCache.get("second"), is("second value"));
+  }
+
+  @Test
+  public void shouldCountHitsAndMisses() {
+    cache.put("tenant", "value");
+
+    cache.get("tenant");
+    cache.get("tenant");
+    cache.get("other_tenant");
+
+    now.addAndGet(10000);
+
+    cache.get("tenant");
+
+    assertThat(cache.getHits(), is(2L));
+    assertThat(cache.getMisses(), is(2L));
+  }
+
+  @Test
+  public void shouldCacheValueReadWhenUnchanged() {
+    final long generation = cache.generation();
+
+    assertThat(cache.putIfUnchanged("tenant", "read value", generation), is(true));
+    assertThat(cache.get("tenant"), is("read value"));
+  }
+
+  @Test
+  public void shouldNotCacheValueReadBeforeAPut() {
+    final long generation = cache.generation();
+
+    cache.put("tenant", "written value");
+
+    assertThat(cache.putIfUnchanged("tenant", "read value", generation), is(false));
+    assertThat(cache.get("tenant"), is("written value"));
+  }
+
+  @Test
+  public void shouldNotCacheValueReadBeforeInvalidation() {
+    final long generation = cache.generation();
+
+    cache.invalidate("tenant");
+
+    assertThat(cache.putIfUnchanged("tenant", "read value", generation), is(false));
+    assertThat(cache.get("tenant"), is(nullValue()));
+  }
+}
@@ -0,0 +1,124 @@
+package org.folio.support;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.folio.rest.jaxrs.model.Schedule;
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+public class FixedDueDateScheduleIndexTest {
+  private static final Schedule SPRING = schedule(
+    "2018-01-01T00:00:00Z", "2018-05-31T23:59:59Z", "2018-06-15T00:00:00Z");
+
+  private static final Schedule SUMMER = schedule(
+    "2018-06-01T00:00:00Z", "2018-08-31T23:59:59Z", "2018-09-15T00:00:00Z");
+
+  private static final Schedule AUTUMN = schedule(
+    "2018-09-01T00:00:00Z", "2018-12-31T23:59:59Z", "2019-01-15T00:00:00Z");
+
+  @Test
+  public void dueDateIsFromDateRangeIncludingLoanDate() {
+    final FixedDueDateScheduleIndex index = FixedDueDateScheduleIndex.of(
+      Arrays.asList(SPRING, SUMMER, AUTUMN));
+
+    assertThat(index.dueDateFor(date("2018-03-05T12:00:00Z")), is(SPRING.getDue()));
+    assertThat(index.dueDateFor(date("2018-07-04T12:00:00Z")), is(SUMMER.getDue()));
+    assertThat(index.dueDateFor(date("2018-11-11T12:00:00Z")), is(AUTUMN.getDue()));
+  }
+
+  @Test
+  public void dateRangeIncludesStartAndEnd() {
+    final FixedDueDateScheduleIndex index = FixedDueDateScheduleIndex.of(
+      Arrays.asList(SPRING, SUMMER, AUTUMN));
+
+    assertThat(index.dueDateFor(SUMMER.getFrom()), is(SUMMER.getDue()));
+    assertThat(index.dueDateFor(SUMMER.getTo()), is(SUMMER.getDue()));
+  }
+
+  @Test
+  public void noDueDateWhenLoanDateIsBetweenDateRanges() {
+    final FixedDueDateScheduleIndex index = FixedDueDateScheduleIndex.of(
+      Arrays.asList(SPRING, AUTUMN));
+
+    assertThat(index.dueDateFor(date("2018-07-04T12:00:00Z")), is(nullValue()));
+  }
+
+  @Test
+  public void noDueDateWhenLoanDateIsOutsideOfAllDateRanges() {
+    final FixedDueDateScheduleIndex index = FixedDueDateScheduleIndex.of(
+      Arrays.asList(SPRING, SUMMER, AUTUMN));
+
+    assertThat(index.dueDateFor(date("2017-12-31T23:59:59Z")), is(nullValue()));
+    assertThat(index.dueDateFor(date("2019-01-01T00:00:00Z")), is(nullValue()));
+  }
+
+  @Test
+  public void noDueDateFromEmptySchedule() {
+    final FixedDueDateScheduleIndex index = FixedDueDateScheduleIndex.of(
+      Collections.emptyList());
+
+    assertThat(index.dueDateFor(date("2018-03-05T12:00:00Z")), is(nullValue()));
+  }
+
+  @Test
+  public void dateRangesDoNotNeedToBeInOrder() {
+    final FixedDueDateScheduleIndex index = FixedDueDateScheduleIndex.of(
+      Arrays.asList(AUTUMN, SPRING, SUMMER));
+
+    assertThat(index.dueDateFor(date("2018-03-05T12:00:00Z")), is(SPRING.getDue()));
+    assertThat(index.dueDateFor(date("2018-11-11T12:00:00Z")), is(AUTUMN.getDue()));
+    assertThat(index.getFirstOverlap().isEmpty(), is(true));
+  }
+
+  @Test
+  public void overlappingDateRangesAreFound() {
+    final Schedule overlapping = schedule(
+      "2018-05-01T00:00:00Z", "2018-06-30T23:59:59Z", "2018-07-15T00:00:00Z");
+
+    final List<Schedule> overlap = FixedDueDateScheduleIndex.of(
+      Arrays.asList(AUTUMN, overlapping, SPRING)).getFirstOverlap();
+
+    assertThat(overlap, is(Arrays.asList(SPRING, overlapping)));
+  }
+
+  @Test
+  public void dateRangesSharingAnInstantOverlap() {
+    final Schedule adjacent = schedule(
+      "2018-05-31T23:59:59Z", "2018-08-31T23:59:59Z", "2018-09-15T00:00:00Z");
+
+    final List<Schedule> overlap = FixedDueDateScheduleIndex.of(
+      Arrays.asList(SPRING, adjacent)).getFirstOverlap();
+
+    assertThat(overlap, is(Arrays.asList(SPRING, adjacent)));
+  }
+
+  @Test
+  public void firstListedDateRangeIsUsedWhenStoredRangesOverlap() {
+    final Schedule wholeYear = schedule(
+      "2018-01-01T00:00:00Z", "2018-12-31T23:59:59Z", "2019-01-31T00:00:00Z");
+
+    assertThat(FixedDueDateScheduleIndex.of(Arrays.asList(SUMMER, wholeYear))
+      .dueDateFor(date("2018-07-04T12:00:00Z")), is(SUMMER.getDue()));
+
+    assertThat(FixedDueDateScheduleIndex.of(Arrays.asList(wholeYear, SUMMER))
+      .dueDateFor(date("2018-07-04T12:00:00Z")), is(wholeYear.getDue()));
+  }
+
+  private static Schedule schedule(String from, String to, String due) {
+    return new Schedule()
+      .withFrom(date(from))
+      .withTo(date(to))
+      .withDue(date(due));
+  }
+
+  private static Date date(String value) {
+    return DateTime.parse(value).toDate();
+  }
+}
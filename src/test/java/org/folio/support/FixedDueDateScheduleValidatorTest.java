@@ -0,0 +1,147 @@
+package org.folio.support;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.folio.rest.jaxrs.model.Error;
+import org.folio.rest.jaxrs.model.Errors;
+import org.folio.rest.jaxrs.model.Schedule;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Test;
+
+public class FixedDueDateScheduleValidatorTest {
+  private static final DateTime START = new DateTime(2018, 1, 1, 0, 0, DateTimeZone.UTC);
+
+  @Test
+  public void emptyScheduleIsValid() {
+    assertThat(FixedDueDateScheduleValidator.validate(Collections.emptyList()),
+      is(nullValue()));
+
+    assertThat(FixedDueDateScheduleValidator.validate(null), is(nullValue()));
+  }
+
+  @Test
+  public void separateDateRangesAreValid() {
+    assertThat(FixedDueDateScheduleValidator.validate(Arrays.asList(
+      schedule(10, 19, 20), schedule(0, 9, 10), schedule(20, 29, 30))),
+      is(nullValue()));
+  }
+
+  @Test
+  public void dateRangeCanStartEndAndBeDueAtTheSameTime() {
+    assertThat(FixedDueDateScheduleValidator.validate(Collections.singletonList(
+      schedule(5, 5, 5))), is(nullValue()));
+  }
+
+  @Test
+  public void everyProblemWithADateRangeIsReported() {
+    final Errors errors = FixedDueDateScheduleValidator.validate(
+      Collections.singletonList(schedule(10, 5, 2)));
+
+    assertThat(messages(errors), is(Arrays.asList(
+      "Unable to save fixed loan date. Date range not valid from date after due date",
+      "Unable to save fixed loan date. Date range not valid from date after to date",
+      "Unable to save fixed loan date. Date range not valid to date after due date")));
+  }
+
+  @Test
+  public void problemsWithEveryDateRangeAreReported() {
+    final Errors errors = FixedDueDateScheduleValidator.validate(Arrays.asList(
+      schedule(0, 9, 10), schedule(20, 15, 30), schedule(40, 49, 45)));
+
+    assertThat(errors.getErrors().size(), is(2));
+    assertThat(parameter(errors.getErrors().get(0), "schedule"), is("1"));
+    assertThat(parameter(errors.getErrors().get(1), "schedule"), is("2"));
+    assertThat(parameter(errors.getErrors().get(1), "to"),
+      is(START.plusDays(49).toString()));
+  }
+
+  @Test
+  public void everyOverlappingDateRangeIsReported() {
+    final Errors errors = FixedDueDateScheduleValidator.validate(Arrays.asList(
+      schedule(30, 39, 40), schedule(0, 29, 30), schedule(10, 19, 20),
+      schedule(20, 20, 20), schedule(40, 49, 50)));
+
+    assertThat(errors.getErrors().size(), is(2));
+
+    final Error first = errors.getErrors().get(0);
+
+    assertThat(first.getMessage(), is(
+      "Unable to save fixed loan date. Date range not valid date range overlaps another date range"));
+    assertThat(parameter(first, "schedule"), is("2"));
+    assertThat(parameter(first, "overlapsSchedule"), is("1"));
+
+    final Error second = errors.getErrors().get(1);
+
+    assertThat(parameter(second, "schedule"), is("3"));
+    assertThat(parameter(second, "overlapsSchedule"), is("1"));
+  }
+
+  @Test
+  public void dateRangesSharingAnInstantOverlap() {
+    final Errors errors = FixedDueDateScheduleValidator.validate(Arrays.asList(
+      schedule(0, 10, 10), schedule(10, 19, 20)));
+
+    assertThat(errors.getErrors().size(), is(1));
+    assertThat(parameter(errors.getErrors().get(0), "schedule"), is("1"));
+    assertThat(parameter(errors.getErrors().get(0), "overlapsSchedule"), is("0"));
+  }
+
+  @Test
+  public void dateRangeEndingBeforeItStartsIsNotReportedAsOverlapping() {
+    final Errors errors = FixedDueDateScheduleValidator.validate(Arrays.asList(
+      schedule(0, 9, 10), schedule(8, 2, 10)));
+
+    assertThat(messages(errors), is(Collections.singletonList(
+      "Unable to save fixed loan date. Date range not valid from date after to date")));
+  }
+
+  @Test
+  public void canValidateScheduleWithManyDateRanges() {
+    final List<Schedule> schedules = new ArrayList<>();
+
+    //Listed latest first, as a generated calendar might be
+    for (int day = 50000; day > 0; day -= 2) {
+      schedules.add(schedule(day, day + 1, day + 1));
+    }
+
+    assertThat(FixedDueDateScheduleValidator.validate(schedules), is(nullValue()));
+
+    schedules.add(schedule(25000, 25000, 25000));
+
+    final Errors errors = FixedDueDateScheduleValidator.validate(schedules);
+
+    assertThat(errors.getErrors().size(), is(1));
+    assertThat(parameter(errors.getErrors().get(0), "schedule"),
+      is(String.valueOf(schedules.size() - 1)));
+  }
+
+  private static Schedule schedule(int fromDay, int toDay, int dueDay) {
+    return new Schedule()
+      .withFrom(START.plusDays(fromDay).toDate())
+      .withTo(START.plusDays(toDay).toDate())
+      .withDue(START.plusDays(dueDay).toDate());
+  }
+
+  private static List<String> messages(Errors errors) {
+    return errors.getErrors().stream()
+      .map(Error::getMessage)
+      .collect(Collectors.toList());
+  }
+
+  private static String parameter(Error error, String key) {
+    return error.getParameters().stream()
+      .filter(parameter -> parameter.getKey().equals(key))
+      .map(parameter -> parameter.getValue())
+      .findFirst()
+      .orElse(null);
+  }
+}
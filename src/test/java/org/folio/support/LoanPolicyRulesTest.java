@@ -0,0 +1,108 @@
+package org.folio.support;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.folio.rest.jaxrs.model.Error;
+import org.folio.rest.jaxrs.model.Errors;
+import org.folio.rest.jaxrs.model.LoanPolicy;
+import org.folio.rest.jaxrs.model.LoansPolicy;
+import org.folio.rest.jaxrs.model.RenewalsPolicy;
+import org.junit.Test;
+
+public class LoanPolicyRulesTest {
+  @Test
+  public void rollingPolicyIsValid() {
+    assertThat(LoanPolicyRules.validate(rollingPolicy()), is(nullValue()));
+  }
+
+  @Test
+  public void fixedPolicyWithDueDateSchedulesIsValid() {
+    final LoanPolicy loanPolicy = rollingPolicy();
+
+    loanPolicy.getLoansPolicy()
+      .withProfileId("Fixed")
+      .withFixedDueDateScheduleId("schedule");
+
+    loanPolicy.getRenewalsPolicy()
+      .withAlternateFixedDueDateScheduleId("alternate-schedule");
+
+    assertThat(LoanPolicyRules.validate(loanPolicy), is(nullValue()));
+  }
+
+  @Test
+  public void fixedPolicyWithoutDueDateScheduleIsInvalid() {
+    final LoanPolicy loanPolicy = rollingPolicy();
+
+    loanPolicy.getLoansPolicy().withProfileId("Fixed");
+
+    loanPolicy.getRenewalsPolicy()
+      .withAlternateFixedDueDateScheduleId("alternate-schedule");
+
+    final Error error = onlyError(LoanPolicyRules.validate(loanPolicy));
+
+    assertThat(error.getMessage(),
+      is("Fixed due date cannot be null if loanable is true and profile is of type fixed"));
+    assertThat(error.getParameters().get(0).getKey(), is("fixedDueDateScheduleId"));
+    assertThat(error.getParameters().get(0).getValue(), is("null"));
+  }
+
+  @Test
+  public void nonRenewablePolicyIsInvalid() {
+    final LoanPolicy loanPolicy = rollingPolicy().withRenewable(false);
+
+    final Error error = onlyError(LoanPolicyRules.validate(loanPolicy));
+
+    assertThat(error.getMessage(),
+      is("Alternate fixed due date cannot be null if renewable is false, different period is true and profile is Rolling"));
+    assertThat(error.getParameters().get(0).getKey(), is("alternateFixedDueDateScheduleId"));
+  }
+
+  @Test
+  public void canValidateFromManyThreadsAtOnce() throws Exception {
+    final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    try {
+      final List<Future<Boolean>> validations = new ArrayList<>();
+
+      for (int index = 0; index < 200; index++) {
+        final boolean renewable = index % 2 == 0;
+
+        validations.add(executor.submit(() -> LoanPolicyRules.validate(
+          rollingPolicy().withRenewable(renewable)) == null));
+      }
+
+      for (int index = 0; index < validations.size(); index++) {
+        assertThat(validations.get(index).get(), is(index % 2 == 0));
+      }
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static Error onlyError(Errors errors) {
+    assertThat(errors.getErrors().size(), is(1));
+
+    return errors.getErrors().get(0);
+  }
+
+  static LoanPolicy rollingPolicy() {
+    return new LoanPolicy()
+      .withName("Example Loan Policy")
+      .withLoanable(true)
+      .withRenewable(true)
+      .withLoansPolicy(new LoansPolicy()
+        .withProfileId("Rolling"))
+      .withRenewalsPolicy(new RenewalsPolicy()
+        .withUnlimited(true)
+        .withDifferentPeriod(true));
+  }
+}
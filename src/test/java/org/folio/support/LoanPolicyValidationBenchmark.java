@@ -0,0 +1,104 @@
+package org.folio.support;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.folio.rest.jaxrs.model.LoanPolicy;
+import org.folio.rest.persist.PostgresClient;
+
+/**
+ * Compares the start up time and the cost for each policy of the ways loan
+ * policies can be validated. Every POST and PUT serialises the policy to
+ * JSON for storage, which is what is measured without validation.
+ *
+ * The database write is not included, so this shows the upper bound of the
+ * throughput that the validation allows, rather than of the whole request.
+ *
+ * Run the main method from an IDE or with
+ * mvn test-compile exec:java -Dexec.classpathScope=test
+ *   -Dexec.mainClass=org.folio.support.LoanPolicyValidationBenchmark
+ */
+public class LoanPolicyValidationBenchmark {
+  private static final int POLICIES = 1024;
+  private static final int WARM_UP_ITERATIONS = 50_000;
+  private static final int MEASURED_ITERATIONS = 200_000;
+
+  public static void main(String[] args) throws Exception {
+    for (LoanPolicyValidation validation : LoanPolicyValidation.values()) {
+      final long started = System.nanoTime();
+      validation.initialise();
+      final long took = System.nanoTime() - started;
+
+      System.out.println(String.format("Started %s validation in %.1f ms",
+        validation, took / 1_000_000.0));
+    }
+
+    final List<LoanPolicy> policies = policies();
+
+    report("Without validation", measure(policies, null));
+
+    for (LoanPolicyValidation validation : LoanPolicyValidation.values()) {
+      report("With " + validation + " validation", measure(policies, validation));
+    }
+  }
+
+  private static void report(String description, double nanosecondsPerPolicy) {
+    System.out.println(String.format(
+      "%s: %.1f µs per policy (%.0f policies per second)", description,
+      nanosecondsPerPolicy / 1000, 1_000_000_000 / nanosecondsPerPolicy));
+  }
+
+  /**
+   * @return nanoseconds taken for each policy
+   */
+  private static double measure(
+    List<LoanPolicy> policies,
+    LoanPolicyValidation validation)
+    throws Exception {
+
+    //Prevents the work being optimised away
+    long blackhole = 0;
+
+    for (int iteration = 0; iteration < WARM_UP_ITERATIONS; iteration++) {
+      blackhole += handle(policies.get(iteration & (POLICIES - 1)), validation);
+    }
+
+    final long started = System.nanoTime();
+
+    for (int iteration = 0; iteration < MEASURED_ITERATIONS; iteration++) {
+      blackhole += handle(policies.get(iteration & (POLICIES - 1)), validation);
+    }
+
+    final long took = System.nanoTime() - started;
+
+    System.out.println(String.format("(%d)", blackhole));
+
+    return (double) took / MEASURED_ITERATIONS;
+  }
+
+  private static long handle(LoanPolicy policy, LoanPolicyValidation validation)
+    throws Exception {
+
+    if(validation != null && validation.validate(policy) != null) {
+      return 1;
+    }
+
+    return PostgresClient.pojo2json(policy).length();
+  }
+
+  /**
+   * A quarter of the policies are invalid, as might be expected when
+   * importing policies from elsewhere
+   */
+  private static List<LoanPolicy> policies() {
+    final List<LoanPolicy> policies = new ArrayList<>();
+
+    for (int index = 0; index < POLICIES; index++) {
+      policies.add(LoanPolicyRulesTest.rollingPolicy()
+        .withName("Policy " + index)
+        .withRenewable(index % 4 != 0));
+    }
+
+    return policies;
+  }
+}
@@ -0,0 +1,23 @@
+package org.folio.support;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import org.junit.Test;
+
+public class LoanPolicyValidationTest {
+  @Test
+  public void shouldDefaultToJava() {
+    assertThat(LoanPolicyValidation.from(null), is(LoanPolicyValidation.JAVA));
+  }
+
+  @Test
+  public void canChooseDrools() {
+    assertThat(LoanPolicyValidation.from("drools"), is(LoanPolicyValidation.DROOLS));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldRejectUnknownMode() {
+    LoanPolicyValidation.from("groovy");
+  }
+}
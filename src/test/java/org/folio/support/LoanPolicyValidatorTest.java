@@ -0,0 +1,123 @@
+package org.folio.support;
+
+import static org.folio.support.LoanPolicyRulesTest.rollingPolicy;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.folio.rest.jaxrs.model.Error;
+import org.folio.rest.jaxrs.model.Errors;
+import org.folio.rest.jaxrs.model.LoanPolicy;
+import org.folio.rest.jaxrs.model.LoansPolicy;
+import org.folio.rest.jaxrs.model.RenewalsPolicy;
+import org.junit.Test;
+
+import io.vertx.core.json.JsonObject;
+
+public class LoanPolicyValidatorTest {
+  private static final List<Boolean> FLAGS = Arrays.asList(true, false, null);
+  private static final List<String> PROFILES = Arrays.asList("Rolling", "Fixed", "fixed", null);
+  private static final List<Boolean> PRESENT = Arrays.asList(true, false);
+  private static final List<String> SCHEDULES = Arrays.asList(null, "schedule");
+
+  @Test
+  public void rollingPolicyIsValid() {
+    assertThat(LoanPolicyValidator.validate(rollingPolicy()), is(nullValue()));
+  }
+
+  @Test
+  public void fixedPolicyWithoutDueDateScheduleIsInvalid() {
+    final LoanPolicy loanPolicy = rollingPolicy();
+
+    loanPolicy.getLoansPolicy().withProfileId("Fixed");
+
+    final Error error = LoanPolicyValidator.validate(loanPolicy).getErrors().get(0);
+
+    assertThat(error.getMessage(),
+      is("Fixed due date cannot be null if loanable is true and profile is of type fixed"));
+    assertThat(error.getParameters().get(0).getKey(), is("fixedDueDateScheduleId"));
+    assertThat(error.getParameters().get(0).getValue(), is("null"));
+  }
+
+  @Test
+  public void policyWithoutLoansPolicyIsInvalid() {
+    final Errors errors = LoanPolicyValidator.validate(new LoanPolicy()
+      .withLoanable(true)
+      .withRenewable(true)
+      .withRenewalsPolicy(new RenewalsPolicy()));
+
+    final Error error = errors.getErrors().get(0);
+
+    assertThat(error.getMessage(), is("Loans policy cannot be null"));
+    assertThat(error.getParameters().get(0).getKey(), is("loansPolicy"));
+  }
+
+  @Test
+  public void policyWithoutRenewalsPolicyIsInvalid() {
+    final Errors errors = LoanPolicyValidator.validate(new LoanPolicy()
+      .withLoanable(true)
+      .withRenewable(false)
+      .withLoansPolicy(new LoansPolicy().withProfileId("Rolling")));
+
+    final Error error = errors.getErrors().get(0);
+
+    assertThat(error.getMessage(), is("Renewals policy cannot be null"));
+    assertThat(error.getParameters().get(0).getKey(), is("renewalsPolicy"));
+  }
+
+  @Test
+  public void loanablePolicyWithoutProfileIsInvalid() {
+    final LoanPolicy loanPolicy = rollingPolicy();
+
+    loanPolicy.getLoansPolicy().withProfileId(null);
+
+    final Error error = LoanPolicyValidator.validate(loanPolicy).getErrors().get(0);
+
+    assertThat(error.getParameters().get(0).getKey(), is("profileId"));
+  }
+
+  @Test
+  public void shouldReportTheSameErrorsAsTheDroolsRules() {
+    for (Boolean loanable : FLAGS) {
+      for (Boolean renewable : FLAGS) {
+        for (Boolean differentPeriod : FLAGS) {
+          for (String profile : PROFILES) {
+            for (String schedule : SCHEDULES) {
+              for (String alternateSchedule : SCHEDULES) {
+                for (Boolean loansPolicyPresent : PRESENT) {
+                  for (Boolean renewalsPolicyPresent : PRESENT) {
+                    final LoanPolicy loanPolicy = new LoanPolicy()
+                      .withName("Example Loan Policy")
+                      .withLoanable(loanable)
+                      .withRenewable(renewable)
+                      .withLoansPolicy(loansPolicyPresent
+                        ? new LoansPolicy()
+                          .withProfileId(profile)
+                          .withFixedDueDateScheduleId(schedule)
+                        : null)
+                      .withRenewalsPolicy(renewalsPolicyPresent
+                        ? new RenewalsPolicy()
+                          .withDifferentPeriod(differentPeriod)
+                          .withAlternateFixedDueDateScheduleId(alternateSchedule)
+                        : null);
+
+                    assertThat(JsonObject.mapFrom(loanPolicy).encode(),
+                      encode(LoanPolicyValidator.validate(loanPolicy)),
+                      is(encode(LoanPolicyRules.validate(loanPolicy))));
+                  }
+                }
+              }
+            }
+          }
+        }
+      }
+    }
+  }
+
+  private static String encode(Errors errors) {
+    return errors == null ? null : JsonObject.mapFrom(errors).encode();
+  }
+}
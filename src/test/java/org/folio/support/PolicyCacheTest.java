@@ -0,0 +1,170 @@
+package org.folio.support;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.ws.rs.core.Response;
+
+import org.folio.rest.jaxrs.model.LoanPolicy;
+import org.junit.Test;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+
+public class PolicyCacheTest {
+  private final PolicyCache<LoanPolicy> cache = new PolicyCache<>(
+    LoanPolicy.class, 30, 10);
+
+  @Test
+  public void shouldProvideCachedPolicy() {
+    final LoanPolicy policy = new LoanPolicy().withId("policy");
+
+    cache.put("tenant", "policy", policy);
+
+    assertThat(cache.get("tenant", "policy"), is(policy));
+  }
+
+  @Test
+  public void shouldKeepPoliciesForDifferentTenantsSeparate() {
+    cache.put("tenant", "policy", new LoanPolicy().withId("policy"));
+
+    assertThat(cache.get("other_tenant", "policy"), is(nullValue()));
+  }
+
+  @Test
+  public void shouldOnlyInvalidatePoliciesForOneTenant() {
+    final LoanPolicy policy = new LoanPolicy().withId("policy");
+
+    cache.put("tenant", "policy", policy);
+    cache.put("other_tenant", "policy", policy);
+
+    cache.invalidateAll("other_tenant");
+
+    assertThat(cache.get("tenant", "policy"), is(policy));
+    assertThat(cache.get("other_tenant", "policy"), is(nullValue()));
+  }
+
+  @Test
+  public void shouldNotProvidePolicyOnceInvalidated() {
+    cache.put("tenant", "policy", new LoanPolicy().withId("policy"));
+
+    cache.invalidate("tenant", "policy");
+
+    assertThat(cache.get("tenant", "policy"), is(nullValue()));
+  }
+
+  @Test
+  public void shouldNotCacheWhenTimeToLiveIsZero() {
+    final PolicyCache<LoanPolicy> disabledCache = new PolicyCache<>(
+      LoanPolicy.class, 0, 10);
+
+    disabledCache.put("tenant", "policy", new LoanPolicy().withId("policy"));
+
+    assertThat(disabledCache.get("tenant", "policy"), is(nullValue()));
+    assertThat(disabledCache.getMisses(), is(1L));
+  }
+
+  @Test
+  public void shouldCountHitsAndMissesForEveryTenant() {
+    cache.put("tenant", "policy", new LoanPolicy().withId("policy"));
+    cache.put("other_tenant", "policy", new LoanPolicy().withId("policy"));
+
+    cache.get("tenant", "policy");
+    cache.get("other_tenant", "policy");
+    cache.get("tenant", "unknown");
+
+    assertThat(cache.getHits(), is(2L));
+    assertThat(cache.getMisses(), is(1L));
+  }
+
+  @Test
+  public void shouldDescribeHitsAndMisses() {
+    cache.put("tenant", "policy", new LoanPolicy().withId("policy"));
+
+    cache.get("tenant", "policy");
+    cache.get("tenant", "policy");
+    cache.get("tenant", "policy");
+    cache.get("tenant", "unknown");
+
+    assertThat(cache.describeUsage(),
+      is("LoanPolicy cache: 3 hits, 1 misses (75% hit rate)"));
+  }
+
+  @Test
+  public void shouldDescribeUnusedCache() {
+    assertThat(cache.describeUsage(),
+      is("LoanPolicy cache: 0 hits, 0 misses (0% hit rate)"));
+  }
+
+  @Test
+  public void shouldCachePolicyFromSuccessfulResponse() {
+    final LoanPolicy policy = new LoanPolicy().withId("policy");
+    final AtomicReference<AsyncResult<Response>> handled = new AtomicReference<>();
+
+    cache.cachingFound("tenant", "policy", handled::set)
+      .handle(Future.succeededFuture(Response.ok(policy).build()));
+
+    assertThat(handled.get().result().getEntity(), is(policy));
+    assertThat(cache.get("tenant", "policy"), is(policy));
+  }
+
+  @Test
+  public void shouldNotCacheFromUnsuccessfulResponse() {
+    final AtomicReference<AsyncResult<Response>> handled = new AtomicReference<>();
+
+    cache.cachingFound("tenant", "policy", handled::set)
+      .handle(Future.succeededFuture(Response.status(404).entity("Not found").build()));
+
+    assertThat(handled.get().result().getStatus(), is(404));
+    assertThat(cache.get("tenant", "policy"), is(nullValue()));
+  }
+
+  @Test
+  public void shouldInvalidatePolicyAfterResponse() {
+    final AtomicReference<AsyncResult<Response>> handled = new AtomicReference<>();
+
+    cache.put("tenant", "policy", new LoanPolicy().withId("policy"));
+
+    cache.invalidatingAfter("tenant", "policy", handled::set)
+      .handle(Future.succeededFuture(Response.noContent().build()));
+
+    assertThat(handled.get().result().getStatus(), is(204));
+    assertThat(cache.get("tenant", "policy"), is(nullValue()));
+  }
+
+  @Test
+  public void shouldNotCachePolicyReadBeforeInvalidation() {
+    final long generation = cache.generation("tenant");
+
+    cache.invalidate("tenant", "policy");
+
+    cache.putIfUnchanged("tenant", "policy", new LoanPolicy().withId("policy"),
+      generation);
+
+    assertThat(cache.get("tenant", "policy"), is(nullValue()));
+  }
+
+  @Test
+  public void shouldNotCacheFoundPolicyWhenInvalidatedDuringRequest() {
+    final AtomicReference<AsyncResult<Response>> handled = new AtomicReference<>();
+
+    final Handler<AsyncResult<Response>> cachingHandler
+      = cache.cachingFound("tenant", "policy", handled::set);
+
+    cache.invalidate("tenant", "policy");
+
+    cachingHandler.handle(Future.succeededFuture(
+      Response.ok(new LoanPolicy().withId("policy")).build()));
+
+    assertThat(cache.get("tenant", "policy"), is(nullValue()));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldRejectNegativeTimeToLive() {
+    new PolicyCache<>(LoanPolicy.class, -1, 10);
+  }
+}
@@ -0,0 +1,66 @@
+package org.folio.support;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import org.junit.Test;
+
+import io.vertx.core.json.JsonObject;
+
+public class TextDeltaTest {
+  @Test
+  public void shouldOnlyIncludeChangedLines() {
+    final JsonObject delta = TextDelta.between(
+      "priority: t\nfallback-policy: a\nm book: b\nm dvd: c",
+      "priority: t\nfallback-policy: a\nm book: d\nm dvd: c");
+
+    assertThat(delta.getInteger("start"), is(2));
+    assertThat(delta.getInteger("removeLines"), is(1));
+    assertThat(delta.getJsonArray("insertLines").size(), is(1));
+    assertThat(delta.getJsonArray("insertLines").getString(0), is("m book: d"));
+  }
+
+  @Test
+  public void shouldRecreateChangedText() {
+    assertRoundTrip("priority: t\nfallback-policy: a\nm book: b",
+      "priority: t\nfallback-policy: a\nm book: b\nm dvd: c");
+  }
+
+  @Test
+  public void shouldRecreateTextWithLinesRemoved() {
+    assertRoundTrip("a\nb\nc\nd", "a\nd");
+  }
+
+  @Test
+  public void shouldRecreateTextWithRepeatedLines() {
+    assertRoundTrip("a\na\na", "a\na");
+  }
+
+  @Test
+  public void shouldRecreateTextFromEmptyText() {
+    assertRoundTrip("", "a\nb\n");
+  }
+
+  @Test
+  public void shouldRecreateEmptyText() {
+    assertRoundTrip("a\nb\n", "");
+  }
+
+  @Test
+  public void shouldRecreateUnchangedText() {
+    final JsonObject delta = TextDelta.between("a\nb", "a\nb");
+
+    assertThat(delta.getInteger("removeLines"), is(0));
+    assertThat(TextDelta.apply("a\nb", delta), is("a\nb"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void shouldNotApplyToTextItWasNotMadeFrom() {
+    TextDelta.apply("a", TextDelta.between("a\nb\nc\nd", "a"));
+  }
+
+  private static void assertRoundTrip(String from, String to) {
+    assertThat(TextDelta.apply(from, TextDelta.between(from, to)), is(to));
+    assertThat(TextDelta.apply(to, TextDelta.between(to, from)), is(from));
+  }
+}
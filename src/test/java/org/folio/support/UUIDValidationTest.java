@@ -0,0 +1,106 @@
+package org.folio.support;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+public class UUIDValidationTest {
+  @Test
+  public void shouldAcceptCanonicalUUIDs() {
+    for (int iteration = 0; iteration < 1000; iteration++) {
+      assertThat(UUIDValidation.isValidUUID(UUID.randomUUID().toString()), is(true));
+    }
+  }
+
+  @Test
+  public void shouldAcceptEitherCase() {
+    assertThat(UUIDValidation.isValidUUID("CF23ADF0-61BA-4887-BF82-956C4AAE2260"), is(true));
+    assertThat(UUIDValidation.isValidUUID("cf23adf0-61BA-4887-bf82-956C4AAE2260"), is(true));
+  }
+
+  @Test
+  public void shouldRejectAnythingElse() {
+    assertThat(UUIDValidation.isValidUUID(null), is(false));
+    assertThat(UUIDValidation.isValidUUID(""), is(false));
+    assertThat(UUIDValidation.isValidUUID("foo"), is(false));
+    //Shorter groups, as UUID.fromString allows
+    assertThat(UUIDValidation.isValidUUID("d9cdbed-1b49-4b5e-a7bd-064b8d231"), is(false));
+    assertThat(UUIDValidation.isValidUUID("cf23adf0-61ba-4887-bf82-956c4aae22600"), is(false));
+    assertThat(UUIDValidation.isValidUUID("cf23adf0-61ba-4887-bf82-956c4aae226g"), is(false));
+    assertThat(UUIDValidation.isValidUUID("cf23adf0061ba-4887-bf82-956c4aae2260"), is(false));
+    assertThat(UUIDValidation.isValidUUID("cf23adf0-61ba-4887-bf82-956c4aae226-"), is(false));
+    assertThat(UUIDValidation.isValidUUID("{f23adf0-61ba-4887-bf82-956c4aae2260"), is(false));
+  }
+
+  @Test
+  public void shouldParseTheSameUUIDAsTheJDK() {
+    for (int iteration = 0; iteration < 1000; iteration++) {
+      final UUID uuid = UUID.randomUUID();
+
+      assertThat(UUIDValidation.parseUUID(uuid.toString()), is(uuid));
+      assertThat(UUIDValidation.parseUUID(uuid.toString().toUpperCase()), is(uuid));
+    }
+  }
+
+  @Test
+  public void shouldParseExtremeValues() {
+    assertThat(UUIDValidation.parseUUID("00000000-0000-0000-0000-000000000000"),
+      is(new UUID(0, 0)));
+
+    assertThat(UUIDValidation.parseUUID("ffffffff-ffff-ffff-ffff-ffffffffffff"),
+      is(new UUID(-1, -1)));
+  }
+
+  @Test
+  public void shouldNotParseInvalidUUID() {
+    assertThat(UUIDValidation.parseUUID("d9cdbed-1b49-4b5e-a7bd-064b8d231"), is(nullValue()));
+    assertThat(UUIDValidation.parseUUID(null), is(nullValue()));
+  }
+
+  @Test
+  public void shouldAgreeWithTheRegularExpressionPreviouslyUsed() {
+    final Pattern previousPattern = Pattern.compile(
+      "^[a-fA-F0-9]{8}-[a-fA-F0-9]{4}-[a-fA-F0-9]{4}-[a-fA-F0-9]{4}-[a-fA-F0-9]{12}$");
+
+    //Fixed seed, so that any disagreement can be repeated
+    final Random random = new Random(20);
+
+    for (int iteration = 0; iteration < 10_000; iteration++) {
+      final String id = mistyped(
+        new UUID(random.nextLong(), random.nextLong()).toString(), random);
+
+      final boolean valid = previousPattern.matcher(id).matches();
+
+      assertThat(id, UUIDValidation.isValidUUID(id), is(valid));
+
+      if(valid) {
+        assertThat(id, UUIDValidation.parseUUID(id), is(UUID.fromString(id)));
+      }
+      else {
+        assertThat(id, UUIDValidation.parseUUID(id), is(nullValue()));
+      }
+    }
+  }
+
+  /**
+   * Replaces one character with an arbitrary one (including ones beyond
+   * ASCII) for most ids, as might come from a mistyped URL
+   */
+  private static String mistyped(String id, Random random) {
+    if(random.nextInt(4) == 0) {
+      return id;
+    }
+
+    final char[] characters = id.toCharArray();
+
+    characters[random.nextInt(characters.length)] = (char) random.nextInt(256);
+
+    return new String(characters);
+  }
+}
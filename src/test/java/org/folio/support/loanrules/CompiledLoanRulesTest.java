@@ -0,0 +1,182 @@
+package org.folio.support.loanrules;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class CompiledLoanRulesTest {
+  private static final String RULES = String.join("\n",
+    "priority: t, s, c, b, a, m, g",
+    "fallback-policy: no-circulation",
+    "m book cd dvd: in-house # comment",
+    "m book",
+    "  g visitor: short-term",
+    "  g !staff + t rare: rare",
+    "t reserve: reserve",
+    "");
+
+  @Test
+  public void shouldUseFallbackPolicyWhenNoRuleMatches()
+    throws LoanRulesException {
+
+    assertThat(resolve(RULES, names("m", "map")), is("no-circulation"));
+  }
+
+  @Test
+  public void shouldMatchAnyOfTheNames()
+    throws LoanRulesException {
+
+    assertThat(resolve(RULES, names("m", "dvd")), is("in-house"));
+  }
+
+  @Test
+  public void shouldInheritCriteriaFromParentLine()
+    throws LoanRulesException {
+
+    assertThat(resolve(RULES, names("m", "book", "g", "visitor")), is("short-term"));
+    assertThat(resolve(RULES, names("m", "dvd", "g", "visitor")), is("in-house"));
+  }
+
+  @Test
+  public void shouldNotMatchNegatedName()
+    throws LoanRulesException {
+
+    assertThat(resolve(RULES, names("m", "book", "g", "student", "t", "rare")),
+      is("rare"));
+
+    assertThat(resolve(RULES, names("m", "book", "g", "staff", "t", "rare")),
+      is("in-house"));
+  }
+
+  @Test
+  public void shouldPreferCriteriaEarlierInThePriority()
+    throws LoanRulesException {
+
+    assertThat(resolve(RULES, names("m", "book", "t", "reserve")), is("reserve"));
+  }
+
+  @Test
+  public void shouldPreferMoreCriteriaByDefault()
+    throws LoanRulesException {
+
+    final String rules = "fallback-policy: none\nm book + g staff: staff\nt reserve: reserve\n";
+
+    assertThat(resolve(rules, names("m", "book", "g", "staff", "t", "reserve")),
+      is("staff"));
+  }
+
+  @Test
+  public void shouldPreferLaterLineWhenOtherwiseEqual()
+    throws LoanRulesException {
+
+    final String rules = "priority: line\nfallback-policy: none\nm book: first\ng staff: second\n";
+
+    assertThat(resolve(rules, names("m", "book", "g", "staff")), is("second"));
+  }
+
+  @Test
+  public void shouldPreferEarlierLineWhenRequested()
+    throws LoanRulesException {
+
+    final String rules = "priority: first-line\nfallback-policy: none\nm book: first\ng staff: second\n";
+
+    assertThat(resolve(rules, names("m", "book", "g", "staff")), is("first"));
+  }
+
+  @Test
+  public void shouldMatchAllNames()
+    throws LoanRulesException {
+
+    final String rules = "fallback-policy: none\ng all: everyone\n";
+
+    assertThat(resolve(rules, names("m", "book")), is("everyone"));
+  }
+
+  @Test
+  public void shouldUseLoanPolicyFromListOfPolicies()
+    throws LoanRulesException {
+
+    final String rules = "fallback-policy: l none r none\nm book: r hold l in-house\n";
+
+    assertThat(resolve(rules, names("m", "book")), is("in-house"));
+    assertThat(resolve(rules, names("m", "dvd")), is("none"));
+  }
+
+  @Test
+  public void shouldChooseMostSpecificRuleFromSeveralThousandLines()
+    throws LoanRulesException {
+
+    final CompiledLoanRules compiled = CompiledLoanRules.compile(
+      LoanRulesBenchmark.generateRules(1500));
+
+    assertThat(compiled.getRuleCount(), is(4500));
+
+    assertThat(compiled.resolveLoanPolicy(names("m", "material-1234",
+      "g", "group-34", "t", "loan-type-14")), is("policy-1234-g"));
+
+    assertThat(compiled.resolveLoanPolicy(names("m", "material-5",
+      "g", "group-5", "t", "loan-type-5")), is("policy-5-tg"));
+
+    assertThat(compiled.resolveLoanPolicy(names("m", "material-5",
+      "g", "group-9", "t", "loan-type-5")), is("policy-5"));
+
+    assertThat(compiled.resolveLoanPolicy(names("m", "material-99999")),
+      is("fallback"));
+  }
+
+  @Test
+  public void shouldRejectRulesWithoutFallbackPolicy() {
+    assertThat(compileFailure("m book: in-house\n"),
+      containsString("fallback-policy is missing"));
+  }
+
+  @Test
+  public void shouldRejectUnknownCriterionType() {
+    assertThat(compileFailure("fallback-policy: none\nq book: in-house\n"),
+      is("Line 2: Unknown criterion type \"q\""));
+  }
+
+  @Test
+  public void shouldRejectTabs() {
+    assertThat(compileFailure("fallback-policy: none\n\tm book: in-house\n"),
+      containsString("Tabulator character is not allowed"));
+  }
+
+  @Test
+  public void shouldRejectIncompletePriority() {
+    assertThat(compileFailure("priority: t, s\nfallback-policy: none\n"),
+      containsString("Priority must list each of"));
+  }
+
+  private static String resolve(String rules, Map<CriterionType, String> names)
+    throws LoanRulesException {
+
+    return CompiledLoanRules.compile(rules).resolveLoanPolicy(names);
+  }
+
+  private static String compileFailure(String rules) {
+    try {
+      CompiledLoanRules.compile(rules);
+      return "compiled without error";
+    }
+    catch(LoanRulesException e) {
+      return e.getMessage();
+    }
+  }
+
+  private static Map<CriterionType, String> names(String... lettersAndNames) {
+    final Map<CriterionType, String> names = new EnumMap<>(CriterionType.class);
+
+    for (int index = 0; index < lettersAndNames.length; index += 2) {
+      names.put(CriterionType.fromLetter(lettersAndNames[index]),
+        lettersAndNames[index + 1]);
+    }
+
+    return names;
+  }
+}
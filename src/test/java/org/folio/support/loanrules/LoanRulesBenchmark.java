@@ -0,0 +1,87 @@
+package org.folio.support.loanrules;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Measures compiling and resolving against a rules file of several thousand
+ * lines. Run the main method from an IDE or with
+ * mvn test-compile exec:java -Dexec.classpathScope=test
+ *   -Dexec.mainClass=org.folio.support.loanrules.LoanRulesBenchmark
+ */
+public class LoanRulesBenchmark {
+  private static final int MATERIAL_TYPES = 1500;
+  private static final int WARM_UP_ITERATIONS = 200_000;
+  private static final int MEASURED_ITERATIONS = 2_000_000;
+
+  public static void main(String[] args) throws LoanRulesException {
+    final String rules = generateRules(MATERIAL_TYPES);
+
+    final long compileStarted = System.nanoTime();
+    final CompiledLoanRules compiled = CompiledLoanRules.compile(rules);
+    final long compileTook = System.nanoTime() - compileStarted;
+
+    System.out.println(String.format("Compiled %d lines (%d rules) in %.1f ms",
+      rules.split("\n").length, compiled.getRuleCount(), compileTook / 1_000_000.0));
+
+    final List<Map<CriterionType, String>> inputs = randomInputs(1024);
+
+    //Prevents the resolution being optimised away
+    int blackhole = 0;
+
+    for (int iteration = 0; iteration < WARM_UP_ITERATIONS; iteration++) {
+      blackhole += compiled.resolveLoanPolicy(inputs.get(iteration & 1023)).length();
+    }
+
+    final long resolveStarted = System.nanoTime();
+
+    for (int iteration = 0; iteration < MEASURED_ITERATIONS; iteration++) {
+      blackhole += compiled.resolveLoanPolicy(inputs.get(iteration & 1023)).length();
+    }
+
+    final long resolveTook = System.nanoTime() - resolveStarted;
+
+    System.out.println(String.format("Resolved in %.0f ns per loan (%d)",
+      (double) resolveTook / MEASURED_ITERATIONS, blackhole));
+  }
+
+  /**
+   * Three lines for each material type, each with a different number of
+   * criteria, so the default priority chooses the most specific match
+   */
+  static String generateRules(int materialTypes) {
+    final StringBuilder rules = new StringBuilder()
+      .append("priority: number-of-criteria, criterium (t, s, c, b, a, m, g), line\n")
+      .append("fallback-policy: fallback\n");
+
+    for (int index = 0; index < materialTypes; index++) {
+      rules.append(String.format("m material-%d: policy-%d%n", index, index))
+        .append(String.format("  g group-%d: policy-%d-g%n", index % 50, index))
+        .append(String.format("  t loan-type-%d + g group-%d: policy-%d-tg%n",
+          index % 20, index % 7, index));
+    }
+
+    return rules.toString();
+  }
+
+  private static List<Map<CriterionType, String>> randomInputs(int count) {
+    final Random random = new Random(42);
+    final List<Map<CriterionType, String>> inputs = new ArrayList<>();
+
+    for (int index = 0; index < count; index++) {
+      final Map<CriterionType, String> names = new EnumMap<>(CriterionType.class);
+
+      names.put(CriterionType.MATERIAL_TYPE, "material-" + random.nextInt(MATERIAL_TYPES));
+      names.put(CriterionType.PATRON_GROUP, "group-" + random.nextInt(50));
+      names.put(CriterionType.LOAN_TYPE, "loan-type-" + random.nextInt(20));
+      names.put(CriterionType.LOCATION, "location-" + random.nextInt(100));
+
+      inputs.add(names);
+    }
+
+    return inputs;
+  }
+}